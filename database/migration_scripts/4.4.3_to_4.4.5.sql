@@ -0,0 +1,116 @@
+-- Hibernate creates the declared indexes and the new columns when WMarket starts, so each index or
+-- column is only created when it does not exist yet. The script can be run before or after deploying
+-- the new version, and it can be run more than once.
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'descriptions' AND index_name = 'idx_descriptions_store_display_name') = 0, 
+	'CREATE INDEX idx_descriptions_store_display_name ON descriptions (store, display_name)', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- URLs can be up to 2048 characters long, so only their beginning is indexed
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'descriptions' AND index_name = 'idx_descriptions_store_url') = 0, 
+	'CREATE INDEX idx_descriptions_store_url ON descriptions (store, url(255))', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'offerings' AND index_name = 'idx_offerings_described_in_name') = 0, 
+	'CREATE INDEX idx_offerings_described_in_name ON offerings (described_in, name)', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'last_viewed' AND index_name = 'idx_last_viewed_user_date') = 0, 
+	'CREATE INDEX idx_last_viewed_user_date ON last_viewed (user_id, date)', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'last_viewed' AND index_name = 'idx_last_viewed_date') = 0, 
+	'CREATE INDEX idx_last_viewed_date ON last_viewed (date)', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() 
+	AND table_name = 'reviews' AND index_name = 'idx_reviews_entity_created_at') = 0, 
+	'CREATE INDEX idx_reviews_entity_created_at ON reviews (entity, created_at)', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Hash of the last USDL content retrieved for each description. It's unknown for the existing 
+-- descriptions, so they will be updated the next time they are refreshed
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'descriptions' AND column_name = 'content_hash') = 0, 
+	'ALTER TABLE descriptions ADD COLUMN content_hash VARCHAR(64) NULL', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Review aggregates. They are (re)initialized from the existing reviews
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'reviewsCount') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN reviewsCount INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'scoresSum') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN scoresSum BIGINT NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'score1Count') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN score1Count INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'score2Count') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN score2Count INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'score3Count') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN score3Count INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'score4Count') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN score4Count INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() 
+	AND table_name = 'reviewable_entity' AND column_name = 'score5Count') = 0, 
+	'ALTER TABLE reviewable_entity ADD COLUMN score5Count INTEGER NOT NULL DEFAULT 0', 'DO 0');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+UPDATE reviewable_entity e LEFT JOIN (
+		SELECT entity, COUNT(*) AS reviewsCount, SUM(score) AS scoresSum, 
+			SUM(score = 1) AS score1Count, SUM(score = 2) AS score2Count, SUM(score = 3) AS score3Count, 
+			SUM(score = 4) AS score4Count, SUM(score = 5) AS score5Count 
+		FROM reviews GROUP BY entity) r ON r.entity = e.id 
+	SET e.averageScore = CASE WHEN r.reviewsCount IS NULL THEN 0 ELSE r.scoresSum * 1e0 / r.reviewsCount END, 
+		e.reviewsCount = COALESCE(r.reviewsCount, 0), e.scoresSum = COALESCE(r.scoresSum, 0), 
+		e.score1Count = COALESCE(r.score1Count, 0), e.score2Count = COALESCE(r.score2Count, 0), 
+		e.score3Count = COALESCE(r.score3Count, 0), e.score4Count = COALESCE(r.score4Count, 0), 
+		e.score5Count = COALESCE(r.score5Count, 0);
@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.bo;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
@@ -47,4 +48,6 @@ public interface AttributeTypeBo {
 	public List<ServiceAttributeType> getAllAttributeTypesAsList();
 
 	public HashMap<String, ServiceAttributeType> getAllAttributeTypesAsMap();
+
+	public void replaceAll(Collection<ServiceAttributeType> attributeTypes);
 }
@@ -33,6 +33,7 @@ package org.fiware.apps.marketplace.bo;
  */
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
 
@@ -41,4 +42,5 @@ public interface AttributeTypeStatisticsBo {
 	public void delete(String attributeTypeUri);
 	public ServiceAttributeTypeStatistics getByUri(String attributeTypeUri);
 	public HashMap<String, ServiceAttributeTypeStatistics> getAllAttributeTypeStatistics();
+	public void replaceAll(Map<String, ServiceAttributeTypeStatistics> statistics);
 }
@@ -37,6 +37,7 @@ import java.util.List;
 import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 
 public interface CategoryBo {
@@ -69,6 +70,20 @@ public interface CategoryBo {
 	public List<Offering> getCategoryOfferingsSortedBy(String categoryName, int offset, int max, 
 			String orderBy, boolean desc) throws CategoryNotFoundException;
 	
+	/**
+	 * Returns a sublist of the offerings contained in the category defined by the given category name
+	 * starting after the given cursor
+	 * @param categoryName The name of the category whose offerings want to be retrieved
+	 * @param cursor The position after which offerings are returned or null to start from the first one
+	 * @param max The max number of offerings to be returned
+	 * @param orderBy The field that will be used to order the returned offerings
+	 * @param desc true to sort results in reverse order 
+	 * @return The list of offerings contained in the given category
+	 * @throws CategoryNotFoundException If a category with the given name does not exist
+	 */
+	public List<Offering> getCategoryOfferingsSortedBy(String categoryName, PageCursor cursor, int max, 
+			String orderBy, boolean desc) throws CategoryNotFoundException;
+	
 	/**
 	 * Returns a sublist of all the stored categories
 	 * @param offset The first category to be retrieved
@@ -32,9 +32,12 @@ package org.fiware.apps.marketplace.bo;
  * #L%
  */
 
+import org.fiware.apps.marketplace.helpers.ParallelServiceManifestationComparator.PartialResultListener;
 import org.fiware.apps.marketplace.model.ComparisonResult;
 
 public interface CompareBo {
 	ComparisonResult compareService(String sourceIdString);
+	ComparisonResult compareService(String sourceIdString, int maxResults, PartialResultListener listener);
 	ComparisonResult compareService(String sourceIdString, String targetIdString);
+	boolean isServiceAvailable(String serviceIdString);
 }
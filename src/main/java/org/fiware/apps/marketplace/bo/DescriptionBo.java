@@ -41,6 +41,8 @@ import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 public interface DescriptionBo {
 
@@ -94,6 +96,21 @@ public interface DescriptionBo {
 	 */
 	public Description findByNameAndStore(String storeName, String descriptionName) 
 			throws NotAuthorizedException, StoreNotFoundException, DescriptionNotFoundException;
+	
+	/**
+	 * Returns a description contained in a given store. Only the offering associations included in 
+	 * the given profile are loaded.
+	 * @param storeName The name of the store that contains the description
+	 * @param descriptionName The name of the description to be retrieved
+	 * @param profile The associations of the description offerings to be loaded
+	 * @return The description contained in the given store
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the given description 
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 * @throws DescriptionNotFoundException If it does not exist a description with the given name in the store
+	 */
+	public Description findByNameAndStore(String storeName, String descriptionName, 
+			OfferingFetchProfile profile) throws NotAuthorizedException, StoreNotFoundException, 
+			DescriptionNotFoundException;
 
 	/**
 	 * Returns a description based on its ID
@@ -110,13 +127,14 @@ public interface DescriptionBo {
 	////////////////////////////////////////////////////////////////////////////////////
 
 	/**
-	 * Returns all the descriptions created by the current user
+	 * Returns all the descriptions created by the current user. Only the basic fields of their
+	 * offerings are loaded.
 	 * @return All the descriptions created by the current user
 	 */
 	public List<Description> getCurrentUserDescriptions();
 
 	/**
-	 * Returns all the descriptions
+	 * Returns all the descriptions. Their offerings are not loaded.
 	 * @return All the descriptions
 	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the list of descriptions
 	 */
@@ -153,9 +171,22 @@ public interface DescriptionBo {
 	 */
 	public List<Description> getStoreDescriptionsPage(String storeName, 
 			int offset, int max) throws StoreNotFoundException, NotAuthorizedException;
+	
+	/**
+	 * Returns a sublist of all the descriptions contained in a given store starting after the given cursor
+	 * @param storeName The name of the store whose descriptions want to be retrieved
+	 * @param cursor The position after which descriptions are returned or null to start from the first one
+	 * @param max The max number of descriptions to be returned
+	 * @return A sublist of all the descriptions contained in the given store
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 * @throws NotAuthorizedException IF the current user is not authorized to retrieve the list of descriptions
+	 */
+	public List<Description> getStoreDescriptionsPage(String storeName, 
+			PageCursor cursor, int max) throws StoreNotFoundException, NotAuthorizedException;
 
 	/**
-	 * Returns the list of descriptions created by a given user in a given store
+	 * Returns the list of descriptions created by a given user in a given store. Only the basic
+	 * fields of their offerings are loaded.
 	 * @param userName The user that created the descriptions
 	 * @param storeName The name of the store whose descriptions want to be retrieved
 	 * @return The list of descriptions created by the given user in the given store
@@ -171,9 +202,17 @@ public interface DescriptionBo {
 	////////////////////////////////////////////////////////////////////////////////////
 
 	/**
-	 * Retrieves all the descriptions stored in the database and update all their offerings
-	 * This method <strong>MUST NOT</strong> be exposed as an API. It is just for internal usage.
+	 * Updates the offerings of the given description if the content of its USDL has changed. Rights are
+	 * not checked so this method <strong>MUST NOT</strong> be exposed as an API. It is just for internal usage.
+	 * @param storeName The name of the store where the description is stored
+	 * @param descriptionName The name of the description to be refreshed
+	 * @param contentHash The hash of the current content of the USDL
+	 * @return true if the description has been updated. False if its content had not changed.
+	 * @throws ValidationException If the USDL cannot be parsed
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 * @throws DescriptionNotFoundException If it does not exist a description with the given name
 	 */
-	public void updateAllDescriptions();
+	public boolean refreshDescription(String storeName, String descriptionName, String contentHash) 
+			throws ValidationException, StoreNotFoundException, DescriptionNotFoundException;
 
 }
@@ -42,7 +42,9 @@ import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.Review;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 public interface OfferingBo {
 	
@@ -97,6 +99,26 @@ public interface OfferingBo {
 			String descriptionName, String offeringName) throws NotAuthorizedException,
 			StoreNotFoundException, DescriptionNotFoundException, OfferingNotFoundException;
 	
+	/**
+	 * Returns an offering based on its name and the description that contains it (a description is defined by
+	 * its name and the store that contains it). Only the associations included in the given profile are loaded.
+	 * @param storeName The name of the store that contains the description
+	 * @param descriptionName The name of the description that contains the offering
+	 * @param offeringName The name of the offering to be retrieved
+	 * @param profile The associations of the offering to be loaded
+	 * @return The offering with the given name contained in the provided description
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the offering
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 * @throws DescriptionNotFoundException If it does not exist a description with the given name in the provided
+	 * store
+	 * @throws OfferingNotFoundException If it does not exit an offering with the given name in the provided 
+	 * description
+	 */
+	public Offering findOfferingByNameStoreAndDescription(String storeName, 
+			String descriptionName, String offeringName, OfferingFetchProfile profile) 
+			throws NotAuthorizedException, StoreNotFoundException, DescriptionNotFoundException, 
+			OfferingNotFoundException;
+	
 	
 	////////////////////////////////////////////////////////////////////////////////////
 	/////////////////////////////////////// LIST ///////////////////////////////////////
@@ -116,6 +138,18 @@ public interface OfferingBo {
 	public List<Offering> getOfferingsPage(int offset, int max, String orderBy, boolean desc) 
 			throws NotAuthorizedException;
 	
+	/**
+	 * Returns a sublist of all the offerings stored in the database starting after the given cursor
+	 * @param cursor The position after which offerings are returned or null to start from the first one
+	 * @param max The max number of offerings to be returned
+	 * @param orderBy The field that will be used to order the returned offerings
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the offerings stored in the database
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the list of offerings
+	 */
+	public List<Offering> getOfferingsPage(PageCursor cursor, int max, String orderBy, boolean desc) 
+			throws NotAuthorizedException;
+	
 	// public List<Offering> getAllStoreOfferings(String storeName) 
 	// 		throws StoreNotFoundException, NotAuthorizedException;
 	
@@ -133,6 +167,20 @@ public interface OfferingBo {
 	public List<Offering> getStoreOfferingsPage(String storeName, int offset, int max, String orderBy, boolean desc) 
 			throws NotAuthorizedException, StoreNotFoundException;
 	
+	/**
+	 * Returns a sublist of all the offerings contained in a given store starting after the given cursor
+	 * @param storeName The name of the store that contains the offerings to be retrieved
+	 * @param cursor The position after which offerings are returned or null to start from the first one
+	 * @param max The max number of offerings to be returned
+	 * @param orderBy The field that will be used to order the returned offerings
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the offerings contained in the given store
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the list of offerings
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 */
+	public List<Offering> getStoreOfferingsPage(String storeName, PageCursor cursor, int max, String orderBy, boolean desc) 
+			throws NotAuthorizedException, StoreNotFoundException;
+	
 	// public List<Offering> getAllDescriptionOfferings(String storeName, String descriptionName) 
 	// 		throws NotAuthorizedException, StoreNotFoundException, DescriptionNotFoundException;
 	
@@ -180,12 +228,21 @@ public interface OfferingBo {
 			OfferingNotFoundException;
 	
 	/**
-	 * Return all the offerings bookmarked by the current user
+	 * Return all the offerings bookmarked by the current user. Only the basic fields of the 
+	 * offerings are loaded.
 	 * @return All the offerings bookmarked by the current user
 	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the list of bookmaked offerings
 	 */
 	public List<Offering> getAllBookmarkedOfferings() throws NotAuthorizedException;
 	
+	/**
+	 * Checks if an offering has been bookmarked by the current user. Bookmarked offerings are not loaded.
+	 * @param offering The offering to be checked
+	 * @return true if the offering has been bookmarked by the current user. False otherwise.
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the list of bookmaked offerings
+	 */
+	public boolean isBookmarked(Offering offering) throws NotAuthorizedException;
+	
 	/**
 	 * Return a sublist of all the offerings bookmarked by the current user
 	 * @param offset The first offering to be retrieved
@@ -342,4 +399,26 @@ public interface OfferingBo {
 			int offset, int max, String orderBy, boolean desc) throws NotAuthorizedException, 
 			StoreNotFoundException, DescriptionNotFoundException, OfferingNotFoundException;
 	
+	/**
+	 * Returns a sublist of all the reviews of a given offering starting after the given cursor
+	 * @param storeName The name of the store that contains the description
+	 * @param descriptionName The name of the description that contains the offering
+	 * @param offeringName The name of the offering whose reviews want to be retrieved
+	 * @param cursor The position after which reviews are returned or null to start from the first one
+	 * @param max The max number of reviews to be returned
+	 * @param orderBy The field that will be used to order the returned reviews
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the reviews of the given offering
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the reviews of the given 
+	 * offering
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 * @throws DescriptionNotFoundException If it does not exist a description with the given name in the provided
+	 * store
+	 * @throws OfferingNotFoundException If it does not exit an offering with the given name in the provided 
+	 * description
+	 */
+	public List<Review> getReviewsPage(String storeName, String descriptionName, String offeringName, 
+			PageCursor cursor, int max, String orderBy, boolean desc) throws NotAuthorizedException, 
+			StoreNotFoundException, DescriptionNotFoundException, OfferingNotFoundException;
+	
 }
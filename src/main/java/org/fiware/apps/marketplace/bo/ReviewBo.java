@@ -39,6 +39,7 @@ import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.ReviewableEntity;
 import org.fiware.apps.marketplace.model.Review;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 
 public interface ReviewBo {
@@ -126,5 +127,29 @@ public interface ReviewBo {
 	public List<Review> getReviewsPage(ReviewableEntity entity, int offset, int max, String orderBy, boolean desc)
 			throws NotAuthorizedException;
 	
+	/**
+	 * Returns a sublist of all the reviews of a given entity starting after the given cursor
+	 * @param entity The entity whose reviews want to be retrieved
+	 * @param cursor The position after which reviews are returned or null to start from the first one
+	 * @param max The max number of reviews to be returned
+	 * @param orderBy The field that will be used to order the returned reviews
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the reviews of a given entity
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the reviews of the given entity
+	 */
+	public List<Review> getReviewsPage(ReviewableEntity entity, PageCursor cursor, int max, String orderBy, boolean desc)
+			throws NotAuthorizedException;
+	
+	
+	////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////// AGGREGATES ////////////////////////////////////
+	////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Compares the review aggregates (number of reviews, sum of scores, number of reviews of each
+	 * score and average score) stored in every entity with its actual reviews and fixes the wrong ones
+	 * @return The number of entities whose aggregates have been fixed
+	 */
+	public int rebuildAggregates();
 
 }
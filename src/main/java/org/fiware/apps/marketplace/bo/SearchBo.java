@@ -32,10 +32,35 @@ package org.fiware.apps.marketplace.bo;
  * #L%
  */
 
+import java.io.IOException;
+
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
 import org.fiware.apps.marketplace.model.SearchResult;
 
 
 public interface SearchBo {
 	public SearchResult searchByKeyword(String searchstring);
+	
+	/**
+	 * Searches offerings using the offerings index. The database is not accessed.
+	 * @param keyword The text to look for. All the offerings are matched if it's null or empty.
+	 * @param category If not null, only offerings of this category (name) are returned
+	 * @param store If not null, only offerings of this store (name) are returned
+	 * @param minPrice If not null, only offerings whose price is greater than or equal to this one are returned
+	 * @param maxPrice If not null, only offerings whose price is less than or equal to this one are returned
+	 * @param offset The first result to be returned
+	 * @param max The max number of results to be returned
+	 * @return The ranked offerings and the number of matching offerings per category and store
+	 * @throws IOException When the index cannot be read
+	 */
+	public OfferingSearchResults searchOfferings(String keyword, String category, String store, 
+			Float minPrice, Float maxPrice, int offset, int max) throws IOException;
+	
+	/**
+	 * Indexes the offerings of all the descriptions stored in the database.
+	 * This method <strong>MUST NOT</strong> be exposed as an API. It is just for internal usage.
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void rebuildOfferingIndex() throws IOException;
 
 }
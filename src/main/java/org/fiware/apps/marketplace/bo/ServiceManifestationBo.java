@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.bo;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.List;
 
 import org.fiware.apps.marketplace.model.ServiceManifestation;
@@ -41,5 +42,9 @@ public interface ServiceManifestationBo {
 	public void delete(ServiceManifestation serviceManifestation);
 	public void sort();
 	public ServiceManifestation getServiceManifestationById(Integer id);
+	public ServiceManifestation getServiceManifestation(String offeringUri, String pricePlanUri);
 	public List<ServiceManifestation> getAllServiceManifestations();
+	public void replaceAll(Collection<ServiceManifestation> serviceManifestations);
+	public List<ServiceManifestation> replaceOfferingsManifestations(Collection<String> offeringUris, 
+			Collection<ServiceManifestation> serviceManifestations);
 }
@@ -41,6 +41,7 @@ import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.Store;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 
 public interface StoreBo {
@@ -184,5 +185,19 @@ public interface StoreBo {
 	 */
 	public List<Review> getReviewsPage(String storeName, int offset, int max, String orderBy, boolean desc) 
 			throws NotAuthorizedException, StoreNotFoundException;
+	
+	/**
+	 * Returns a sublist of all the reviews of a given store starting after the given cursor
+	 * @param storeName The name of the store whose reviews want to be retrieved
+	 * @param cursor The position after which reviews are returned or null to start from the first one
+	 * @param max The max number of reviews to be returned
+	 * @param orderBy The field that will be used to order the returned reviews
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the reviews of the given store
+	 * @throws NotAuthorizedException If the current user is not authorized to retrieve the reviews of the given store
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 */
+	public List<Review> getReviewsPage(String storeName, PageCursor cursor, int max, String orderBy, boolean desc) 
+			throws NotAuthorizedException, StoreNotFoundException;
 
 }
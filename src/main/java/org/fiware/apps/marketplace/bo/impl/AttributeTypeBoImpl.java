@@ -33,42 +33,63 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
 import org.fiware.apps.marketplace.bo.AttributeTypeBo;
+import org.fiware.apps.marketplace.helpers.AttributeSimilarityCache;
 import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service("attributeTypeBo")
 public class AttributeTypeBoImpl implements AttributeTypeBo {
 
-	// TODO Store data in a database or similar
+	@Autowired private AttributeSimilarityCache attributeSimilarityCache;
 
-	private HashMap<String, ServiceAttributeType> attributeTypeMap;
+	// Copy on write: readers get a snapshot that is never modified, so comparisons can be
+	// performed while attribute types are being updated
+	private volatile HashMap<String, ServiceAttributeType> attributeTypeMap;
 
 	public AttributeTypeBoImpl() {
 		attributeTypeMap = new HashMap<String, ServiceAttributeType>();
 	}
 
 	@Override
-	public void save(ServiceAttributeType attributeType) {
-		if (!attributeTypeMap.containsKey(attributeType.getUri()))
-			attributeTypeMap.put(attributeType.getUri(), attributeType);
+	public synchronized void save(ServiceAttributeType attributeType) {
+		if (!attributeTypeMap.containsKey(attributeType.getUri())) {
+			HashMap<String, ServiceAttributeType> newAttributeTypeMap = new HashMap<>(attributeTypeMap);
+			newAttributeTypeMap.put(attributeType.getUri(), attributeType);
+			attributeTypeMap = newAttributeTypeMap;
+			attributeSimilarityCache.invalidate();
+		}
 	}
 
 	@Override
-	public void delete(ServiceAttributeType attributeType) {
-		if (attributeTypeMap.containsKey(attributeType.getUri()))
-			attributeTypeMap.remove(attributeType.getUri());
+	public synchronized void delete(ServiceAttributeType attributeType) {
+		if (attributeTypeMap.containsKey(attributeType.getUri())) {
+			HashMap<String, ServiceAttributeType> newAttributeTypeMap = new HashMap<>(attributeTypeMap);
+			newAttributeTypeMap.remove(attributeType.getUri());
+			attributeTypeMap = newAttributeTypeMap;
+			attributeSimilarityCache.invalidate();
+		}
+	}
+
+	@Override
+	public synchronized void replaceAll(Collection<ServiceAttributeType> attributeTypes) {
+		HashMap<String, ServiceAttributeType> newAttributeTypeMap = new HashMap<>();
+		for (ServiceAttributeType attributeType : attributeTypes) {
+			if (!newAttributeTypeMap.containsKey(attributeType.getUri()))
+				newAttributeTypeMap.put(attributeType.getUri(), attributeType);
+		}
+		attributeTypeMap = newAttributeTypeMap;
+		attributeSimilarityCache.invalidate();
 	}
 
 	@Override
 	public ServiceAttributeType getByUri(String uri) {
-		if (attributeTypeMap.containsKey(uri))
-			return attributeTypeMap.get(uri);
-		else
-			return null;
+		return attributeTypeMap.get(uri);
 	}
 
 	@Override
@@ -76,6 +97,9 @@ public class AttributeTypeBoImpl implements AttributeTypeBo {
 		return new ArrayList<ServiceAttributeType>(attributeTypeMap.values());
 	}
 	
+	/**
+	 * @return The current attribute types. The returned map must not be modified.
+	 */
 	@Override
 	public HashMap<String, ServiceAttributeType> getAllAttributeTypesAsMap() {
 		return attributeTypeMap;
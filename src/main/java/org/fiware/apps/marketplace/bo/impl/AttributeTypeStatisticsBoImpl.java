@@ -33,40 +33,60 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.fiware.apps.marketplace.bo.AttributeTypeStatisticsBo;
+import org.fiware.apps.marketplace.helpers.AttributeSimilarityCache;
 import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service("attributeTypeStatisticsBo")
 public class AttributeTypeStatisticsBoImpl implements AttributeTypeStatisticsBo {
 
-	private HashMap<String, ServiceAttributeTypeStatistics> typeProbabilities;
+	@Autowired private AttributeSimilarityCache attributeSimilarityCache;
+
+	// Copy on write: readers get a snapshot that is never modified
+	private volatile HashMap<String, ServiceAttributeTypeStatistics> typeProbabilities;
 	
 	public AttributeTypeStatisticsBoImpl() {
 		typeProbabilities = new HashMap<String, ServiceAttributeTypeStatistics>();
 	}
 	
 	@Override
-	public void save(String attributeTypeUri, ServiceAttributeTypeStatistics probabilityOfOccurence) {
+	public synchronized void save(String attributeTypeUri, ServiceAttributeTypeStatistics probabilityOfOccurence) {
 		if(typeProbabilities.containsKey(attributeTypeUri))
 			return;
-		typeProbabilities.put(attributeTypeUri, probabilityOfOccurence);
+		HashMap<String, ServiceAttributeTypeStatistics> newTypeProbabilities = new HashMap<>(typeProbabilities);
+		newTypeProbabilities.put(attributeTypeUri, probabilityOfOccurence);
+		typeProbabilities = newTypeProbabilities;
+		attributeSimilarityCache.invalidate();
 	}
 
 	@Override
-	public void delete(String attributeTypeUri) {
-		if(typeProbabilities.containsKey(attributeTypeUri))
-			typeProbabilities.remove(attributeTypeUri);
+	public synchronized void delete(String attributeTypeUri) {
+		if(typeProbabilities.containsKey(attributeTypeUri)) {
+			HashMap<String, ServiceAttributeTypeStatistics> newTypeProbabilities = new HashMap<>(typeProbabilities);
+			newTypeProbabilities.remove(attributeTypeUri);
+			typeProbabilities = newTypeProbabilities;
+			attributeSimilarityCache.invalidate();
+		}
+	}
+
+	@Override
+	public synchronized void replaceAll(Map<String, ServiceAttributeTypeStatistics> statistics) {
+		typeProbabilities = new HashMap<>(statistics);
+		attributeSimilarityCache.invalidate();
 	}
 
 	@Override
 	public ServiceAttributeTypeStatistics getByUri(String attributeTypeUri) {
-		if(typeProbabilities.containsKey(attributeTypeUri))
-			return typeProbabilities.get(attributeTypeUri);
-		return null;
+		return typeProbabilities.get(attributeTypeUri);
 	}
 
+	/**
+	 * @return The current statistics. The returned map must not be modified.
+	 */
 	@Override
 	public HashMap<String, ServiceAttributeTypeStatistics> getAllAttributeTypeStatistics() {
 		return typeProbabilities;
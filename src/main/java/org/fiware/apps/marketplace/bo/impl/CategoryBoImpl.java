@@ -36,9 +36,12 @@ import java.util.List;
 
 import org.fiware.apps.marketplace.bo.CategoryBo;
 import org.fiware.apps.marketplace.dao.CategoryDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
 import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -47,6 +50,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class CategoryBoImpl implements CategoryBo {
 	
 	@Autowired private CategoryDao categoryDao;
+	@Autowired private OfferingDao offeringDao;
 
 	@Override
 	public boolean isNameAvailable(String name) {
@@ -66,7 +70,24 @@ public class CategoryBoImpl implements CategoryBo {
 			String orderBy, boolean desc) throws CategoryNotFoundException {
 		
 		// TODO: Check access rights?
-		return categoryDao.getCategoryOfferingsSortedBy(categoryName, offset, max, orderBy, desc);
+		List<Offering> offerings = categoryDao.getCategoryOfferingsSortedBy(categoryName, offset, max, 
+				orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
+	}
+
+	@Override
+	@Transactional
+	public List<Offering> getCategoryOfferingsSortedBy(String categoryName, PageCursor cursor, int max, 
+			String orderBy, boolean desc) throws CategoryNotFoundException {
+		
+		// TODO: Check access rights?
+		List<Offering> offerings = categoryDao.getCategoryOfferingsSortedBy(categoryName, cursor, max, 
+				orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
 	}
 
 	@Override
@@ -39,6 +39,9 @@ import org.fiware.apps.marketplace.bo.AttributeTypeBo;
 import org.fiware.apps.marketplace.bo.AttributeTypeStatisticsBo;
 import org.fiware.apps.marketplace.bo.CompareBo;
 import org.fiware.apps.marketplace.bo.ServiceManifestationBo;
+import org.fiware.apps.marketplace.helpers.AttributeSimilarityCache;
+import org.fiware.apps.marketplace.helpers.ParallelServiceManifestationComparator;
+import org.fiware.apps.marketplace.helpers.ParallelServiceManifestationComparator.PartialResultListener;
 import org.fiware.apps.marketplace.helpers.ServiceManifestationComparator;
 import org.fiware.apps.marketplace.model.ComparisonResult;
 import org.fiware.apps.marketplace.model.ServiceManifestation;
@@ -54,17 +57,24 @@ public class CompareBoImpl implements CompareBo {
 	AttributeTypeBo attributeTypeBo = (AttributeTypeBo) appContext.getBean("attributeTypeBo");
 	ServiceManifestationBo serviceManifestationBo = (ServiceManifestationBo) appContext.getBean("serviceManifestationBo");
 	AttributeTypeStatisticsBo attributeTypeStatisticsBo = (AttributeTypeStatisticsBo) appContext.getBean("attributeTypeStatisticsBo");
+	AttributeSimilarityCache attributeSimilarityCache = (AttributeSimilarityCache) appContext.getBean("attributeSimilarityCache");
 			
 	@Override
 	public ComparisonResult compareService(String sourceIdString) {
+		return compareService(sourceIdString, 0, null);
+	}
+
+	@Override
+	public ComparisonResult compareService(String sourceIdString, int maxResults, PartialResultListener listener) {
 		ServiceManifestation source = getServiceManifestationFromString(sourceIdString);
 		if (source == null) {
 			System.out.println("Error resolving service manifestations: Source could not be resolved (" + sourceIdString + ").");
 			return null;
 		}
 
-		return ServiceManifestationComparator.compare(source, serviceManifestationBo.getAllServiceManifestations(),
-				attributeTypeBo.getAllAttributeTypesAsMap(), attributeTypeStatisticsBo.getAllAttributeTypeStatistics());
+		return ParallelServiceManifestationComparator.compare(source, serviceManifestationBo.getAllServiceManifestations(),
+				attributeTypeBo.getAllAttributeTypesAsMap(), attributeTypeStatisticsBo.getAllAttributeTypeStatistics(),
+				attributeSimilarityCache, maxResults, listener);
 	}
 
 	@Override
@@ -87,7 +97,7 @@ public class CompareBoImpl implements CompareBo {
 				targets.add(target);
 			}
 			return ServiceManifestationComparator.compare(source, targets, attributeTypeBo.getAllAttributeTypesAsMap(),
-					attributeTypeStatisticsBo.getAllAttributeTypeStatistics());
+					attributeTypeStatisticsBo.getAllAttributeTypeStatistics(), attributeSimilarityCache);
 		} else {
 			ServiceManifestation target = getServiceManifestationFromString(targetIdString);
 			if (target == null) {
@@ -95,10 +105,15 @@ public class CompareBoImpl implements CompareBo {
 				return null;
 			}
 			return ServiceManifestationComparator.compare(source, target, attributeTypeBo.getAllAttributeTypesAsMap(),
-					attributeTypeStatisticsBo.getAllAttributeTypeStatistics());
+					attributeTypeStatisticsBo.getAllAttributeTypeStatistics(), attributeSimilarityCache);
 		}
 	}
 
+	@Override
+	public boolean isServiceAvailable(String serviceIdString) {
+		return getServiceManifestationFromString(serviceIdString) != null;
+	}
+
 	private ServiceManifestation getServiceManifestationFromString(String idString) {
 		if (StringUtils.isNullOrEmpty(idString)) {
 			System.out.println("Error resolving service manifestation: Id string is null or empty.");
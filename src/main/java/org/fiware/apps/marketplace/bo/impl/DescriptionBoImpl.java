@@ -36,6 +36,8 @@ import java.io.IOException;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -45,6 +47,7 @@ import org.fiware.apps.marketplace.bo.DescriptionBo;
 import org.fiware.apps.marketplace.bo.UserBo;
 import org.fiware.apps.marketplace.dao.CategoryDao;
 import org.fiware.apps.marketplace.dao.DescriptionDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
 import org.fiware.apps.marketplace.dao.ServiceDao;
 import org.fiware.apps.marketplace.dao.StoreDao;
 import org.fiware.apps.marketplace.exceptions.DescriptionNotFoundException;
@@ -57,6 +60,7 @@ import org.fiware.apps.marketplace.helpers.OfferingResolver;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.PricePlan;
 import org.fiware.apps.marketplace.model.Service;
 import org.fiware.apps.marketplace.model.Store;
@@ -64,11 +68,16 @@ import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.DescriptionValidator;
 import org.fiware.apps.marketplace.rdf.RdfIndexer;
 import org.fiware.apps.marketplace.security.auth.DescriptionAuth;
+import org.fiware.apps.marketplace.utils.DescriptionChangeEvent;
 import org.fiware.apps.marketplace.utils.NameGenerator;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.hibernate.Hibernate;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.util.HtmlUtils;
 
@@ -82,13 +91,16 @@ public class DescriptionBoImpl implements DescriptionBo {
 	@Autowired private DescriptionAuth descriptionAuth;
 	@Autowired private DescriptionValidator descriptionValidator;
 	@Autowired private DescriptionDao descriptionDao;
+	@Autowired private OfferingDao offeringDao;
 	@Autowired private RdfIndexer rdfIndexer;
+	@Autowired private OfferingIndex offeringIndex;
 	@Autowired private OfferingResolver offeringResolver;
 	@Autowired private UserBo userBo;
 	@Autowired private StoreDao storeDao;
 	@Autowired private CategoryDao categoryDao;
 	@Autowired private ServiceDao serviceDao;
 	@Autowired private SessionFactory sessionFactory;
+	@Autowired private ApplicationEventPublisher eventPublisher;
 	
 	private static final String PARSE_ERROR = "Your RDF could not be parsed";
 		
@@ -149,6 +161,10 @@ public class DescriptionBoImpl implements DescriptionBo {
 			
 			// Index
 			rdfIndexer.indexOrUpdateService(description);
+			offeringIndex.index(description);
+			
+			eventPublisher.publishEvent(new DescriptionChangeEvent(this, storeName, description.getName(), 
+					Collections.<String>emptySet(), false));
 		} catch (ParseException ex) {
 			throw new ValidationException("url", PARSE_ERROR + ": " + ex.getMessage());
 		} catch (IOException ex) {
@@ -194,6 +210,8 @@ public class DescriptionBoImpl implements DescriptionBo {
 				throw new NotAuthorizedException("update description");
 			}
 			
+			List<String> previousOfferingUris = getOfferingUris(descriptionToBeUpdated);
+			
 			//Set store in description
 			updatedDescription.setStore(descriptionToBeUpdated.getStore());
 			
@@ -212,8 +230,9 @@ public class DescriptionBoImpl implements DescriptionBo {
 					currentServices.addAll(offering.getServices());
 				}
 				
-				// Change URL
+				// Change URL. The hash of the previous content is not valid anymore
 				descriptionToBeUpdated.setUrl(updatedDescription.getUrl());
+				descriptionToBeUpdated.setContentHash(updatedDescription.getContentHash());
 				
 				// Get all the offerings described in the USDL
 				List<Offering> newOfferings = offeringResolver
@@ -293,6 +312,12 @@ public class DescriptionBoImpl implements DescriptionBo {
 			// Update the description
 			descriptionDao.update(descriptionToBeUpdated);
 			
+			// Offerings are indexed with the name of the description
+			offeringIndex.index(descriptionToBeUpdated);
+			
+			eventPublisher.publishEvent(new DescriptionChangeEvent(this, storeName, descriptionName, 
+					previousOfferingUris, false));
+			
 		} catch (ParseException ex) {
 			throw new ValidationException("url", PARSE_ERROR + ": " + ex.getMessage());
 		} catch (IOException ex) {
@@ -326,6 +351,7 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("delete description");
 		}
 		
+		List<String> offeringUris = getOfferingUris(description);
 		Set<Category> categories = new HashSet<>();
 		Set<Service> services = new HashSet<>();
 		
@@ -350,6 +376,22 @@ public class DescriptionBoImpl implements DescriptionBo {
 		
 		// Delete indexes
 		rdfIndexer.deleteService(description);
+		
+		try {
+			offeringIndex.delete(description);
+		} catch (IOException e) {
+			logger.error("Deleting offerings from index - IOException", e);
+		}
+		
+		eventPublisher.publishEvent(new DescriptionChangeEvent(this, storeName, descriptionName, offeringUris, true));
+	}
+	
+	private List<String> getOfferingUris(Description description) {
+		List<String> offeringUris = new ArrayList<>();
+		for (Offering offering: description.getOfferings()) {
+			offeringUris.add(offering.getUri());
+		}
+		return offeringUris;
 	}
 
 	@Override
@@ -364,6 +406,8 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("find description");
 		}
 		
+		initializeOfferings(Collections.singletonList(description), OfferingFetchProfile.FULL);
+		
 		return description;
 	}
 
@@ -373,6 +417,15 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throws StoreNotFoundException, DescriptionNotFoundException, 
 			NotAuthorizedException {
 		
+		return findByNameAndStore(storeName, descriptionName, OfferingFetchProfile.FULL);
+	}
+	
+	@Override
+	@Transactional
+	public Description findByNameAndStore(String storeName, String descriptionName, 
+			OfferingFetchProfile profile) throws StoreNotFoundException, 
+			DescriptionNotFoundException, NotAuthorizedException {
+		
 		Description description = descriptionDao.findByNameAndStore(storeName, descriptionName);
 		
 		// Check rights and raise exception if user is not allowed to perform this action
@@ -380,6 +433,8 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("find description");
 		}
 		
+		initializeOfferings(Collections.singletonList(description), profile);
+		
 		return description;
 	}
 	
@@ -387,7 +442,11 @@ public class DescriptionBoImpl implements DescriptionBo {
 	@Transactional
 	public List<Description> getCurrentUserDescriptions() {
 		try {
-			return descriptionDao.getUserDescriptions(userBo.getCurrentUser().getUserName());
+			List<Description> descriptions = descriptionDao.getUserDescriptions(
+					userBo.getCurrentUser().getUserName());
+			initializeOfferings(descriptions, OfferingFetchProfile.BASIC);
+			
+			return descriptions;
 		} catch (UserNotFoundException e) {
 			// This exception should never happen
 			throw new RuntimeException(e);
@@ -417,7 +476,10 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("list descriptions");
 		}
 		
-		return descriptionDao.getDescriptionsPage(offset, max);
+		List<Description> descriptions = descriptionDao.getDescriptionsPage(offset, max);
+		initializeOfferings(descriptions, OfferingFetchProfile.FULL);
+		
+		return descriptions;
 	}
 
 	@Override
@@ -433,7 +495,10 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("list descriptions in store " + store.getName());
 		}
 		
-		return store.getDescriptions();
+		List<Description> descriptions = store.getDescriptions();
+		initializeOfferings(descriptions, OfferingFetchProfile.FULL);
+		
+		return descriptions;
 	}
 
 	@Override
@@ -450,7 +515,30 @@ public class DescriptionBoImpl implements DescriptionBo {
 			throw new NotAuthorizedException("list descriptions in store " + store.getName());
 		}
 		
-		return descriptionDao.getStoreDescriptionsPage(storeName, offset, max);
+		List<Description> descriptions = descriptionDao.getStoreDescriptionsPage(storeName, offset, max);
+		initializeOfferings(descriptions, OfferingFetchProfile.FULL);
+		
+		return descriptions;
+	}
+
+	@Override
+	@Transactional
+	public List<Description> getStoreDescriptionsPage(String storeName,
+			PageCursor cursor, int max) throws StoreNotFoundException, 
+			NotAuthorizedException {
+		
+		// Will throw exception in case the Store does not exist
+		Store store = storeDao.findByName(storeName);
+		
+		// Check rights and raise exception if user is not allowed to perform this action
+		if (!descriptionAuth.canList(store)) {
+			throw new NotAuthorizedException("list descriptions in store " + store.getName());
+		}
+		
+		List<Description> descriptions = descriptionDao.getStoreDescriptionsPage(storeName, cursor, max);
+		initializeOfferings(descriptions, OfferingFetchProfile.FULL);
+		
+		return descriptions;
 	}
 
     @Override
@@ -458,35 +546,56 @@ public class DescriptionBoImpl implements DescriptionBo {
     public List<Description> getUserDescriptionsInStore(String userName, String storeName)
             throws UserNotFoundException, StoreNotFoundException {
 
-        return descriptionDao.getUserDescriptionsInStore(userName, storeName);
+        List<Description> descriptions = descriptionDao.getUserDescriptionsInStore(userName, storeName);
+        initializeOfferings(descriptions, OfferingFetchProfile.BASIC);
+        
+        return descriptions;
     }
 
 	@Override
-	@Transactional
-	public void updateAllDescriptions() {
+	@Transactional(readOnly=false, rollbackFor=Exception.class)
+	public boolean refreshDescription(String storeName, String descriptionName, String contentHash) 
+			throws ValidationException, StoreNotFoundException, DescriptionNotFoundException {
+		
+		Description description = descriptionDao.findByNameAndStore(storeName, descriptionName);
 		
-		logger.info("Trying to update all the descriptions...");
+		// Offerings don't need to be resolved again if the USDL has not changed
+		if (contentHash != null && contentHash.equals(description.getContentHash())) {
+			return false;
+		}
+		
+		Description updatedDescription = new Description();
+		updatedDescription.setUrl(description.getUrl());
+		updatedDescription.setContentHash(contentHash);
+		
+		try {
+			this.update(storeName, descriptionName, updatedDescription, false);
+		} catch (NotAuthorizedException e) {
+			// Not expected. Rights are not checked
+			throw new RuntimeException(e);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Loads the offerings of the given descriptions and the associations of these offerings 
+	 * included in the given profile, so they can be used once the transaction is closed
+	 * @param descriptions The descriptions whose offerings have to be loaded
+	 * @param profile The associations of the offerings to be loaded
+	 */
+	private void initializeOfferings(Collection<Description> descriptions, OfferingFetchProfile profile) {
+		
+		List<Offering> offerings = new ArrayList<>();
 		
-		List<Description> descriptions = descriptionDao.getAllDescriptions();
 		for (Description description: descriptions) {
-			
-			Description updatedDescription = new Description();
-			updatedDescription.setUrl(description.getUrl());
-			String descriptionName = description.getName();
-			String storeName = description.getStore().getName();
-			
-			try {
-				this.update(storeName, descriptionName, updatedDescription, false);
-				logger.info(String.format("Description %s (store: %s) updated", descriptionName, storeName));
-			} catch (ValidationException e) {
-				logger.warn(String.format("Description %s (store: %s) could not be updated", 
-						descriptionName, storeName), e);
-			} catch (NotAuthorizedException e) {
-				// Not expected. Rights are not checked				
-			} catch (StoreNotFoundException | DescriptionNotFoundException e) {
-				// Not expected. Store and description are supposed to exist
+			if (description.getOfferings() != null) {
+				Hibernate.initialize(description.getOfferings());
+				offerings.addAll(description.getOfferings());
 			}
 		}
+		
+		offeringDao.initialize(offerings, profile);
 	}
 
 }
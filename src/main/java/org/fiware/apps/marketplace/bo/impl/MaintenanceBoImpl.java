@@ -32,145 +32,333 @@ package org.fiware.apps.marketplace.bo.impl;
  * #L%
  */
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.fiware.apps.marketplace.bo.AttributeTypeBo;
 import org.fiware.apps.marketplace.bo.AttributeTypeStatisticsBo;
 import org.fiware.apps.marketplace.bo.MaintenanceBo;
 import org.fiware.apps.marketplace.bo.OfferingBo;
 import org.fiware.apps.marketplace.bo.ServiceManifestationBo;
-import org.fiware.apps.marketplace.bo.StoreBo;
 import org.fiware.apps.marketplace.bo.VocabularyBo;
 import org.fiware.apps.marketplace.helpers.AttributeTypeResolver;
-import org.fiware.apps.marketplace.helpers.AttributeTypeStatisticsResolver;
-import org.fiware.apps.marketplace.helpers.OfferingResolver;
+import org.fiware.apps.marketplace.helpers.AttributeTypeStatisticsAccumulator;
 import org.fiware.apps.marketplace.helpers.ServiceManifestationResolver;
 import org.fiware.apps.marketplace.model.Offering;
-import org.fiware.apps.marketplace.model.Description;
 import org.fiware.apps.marketplace.model.ServiceAttributeType;
 import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
 import org.fiware.apps.marketplace.model.ServiceManifestation;
-import org.fiware.apps.marketplace.model.Store;
-import org.fiware.apps.marketplace.utils.ApplicationContextProvider;
+import org.fiware.apps.marketplace.utils.DescriptionChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Maintains the data used to compare services (attribute types, service manifestations and attribute
+ * type statistics). Data is loaded in background when the application starts: first from the snapshot 
+ * stored the last time the data changed and then from the stored descriptions. Afterwards, data is
+ * updated each time a description is created, updated or deleted. The snapshot is stored again a while 
+ * after the data changes, so a burst of changes is stored once.
+ * 
+ * All the changes are applied by a single thread, so they are never applied concurrently.
+ */
 @Service("maintenanceBo")
-public class MaintenanceBoImpl implements MaintenanceBo {
+public class MaintenanceBoImpl implements MaintenanceBo, ApplicationListener<DescriptionChangeEvent> {
 
-	ApplicationContext appContext = ApplicationContextProvider.getApplicationContext();
-
-	@Autowired private StoreBo storeBo;
 	@Autowired private VocabularyBo vocabularyBo;
 	@Autowired private AttributeTypeBo attributeTypeBo;
-	@Autowired OfferingBo offeringBo;
+	@Autowired private OfferingBo offeringBo;
 	@Autowired private ServiceManifestationBo serviceManifestationBo;
 	@Autowired private AttributeTypeStatisticsBo attributeTypeStatisticsBo;
 	@Autowired private AttributeTypeResolver attributeTypeResolver;
-	@Autowired private OfferingResolver offeringResolver;
 	@Autowired private ServiceManifestationResolver serviceManifestationResolver;
 	
-	private boolean comparisonInitializationDone = false;
+	@Value("${comparison.snapshotPath:comparisonData}") private String snapshotPath;
+	@Value("${comparison.warmup:true}") private boolean warmup;
+	@Value("${comparison.snapshotDelay:30}") private int snapshotDelay;
+	
+	private ScheduledThreadPoolExecutor executor;
+	private final AtomicBoolean initializationStarted = new AtomicBoolean(false);
+	private volatile boolean comparisonInitializationDone = false;
+	// Only used by the maintenance thread
+	private AttributeTypeStatisticsAccumulator statisticsAccumulator;
+	private boolean snapshotPending = false;
+	
+	private static Logger logger = LoggerFactory.getLogger(MaintenanceBoImpl.class);
+	
+	/**
+	 * Comparison data stored in disk so it's available as soon as the application starts
+	 */
+	private static class Snapshot implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private List<ServiceAttributeType> attributeTypes;
+		private List<ServiceManifestation> serviceManifestations;
+		private HashMap<String, ServiceAttributeTypeStatistics> statistics;
+	}
+	
+	@PostConstruct
+	public void init() {
+		this.executor = new ScheduledThreadPoolExecutor(1);
+		// Pending snapshots are stored straight away when the application is stopped (see destroy)
+		this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		
+		if (warmup) {
+			initialize();
+		}
+	}
+	
+	@PreDestroy
+	public void destroy() throws InterruptedException {
+		if (executor.isShutdown())
+			return;
+		
+		// Delayed tasks are discarded on shutdown, so the pending snapshot is stored first (once the
+		// updates already queued have been applied)
+		Future<?> lastSnapshot = executor.submit(new Runnable() {
+			
+			@Override
+			public void run() {
+				storePendingSnapshot();
+			}
+		});
+		
+		try {
+			lastSnapshot.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			logger.warn("Comparison data snapshot could not be stored", e);
+		}
+		
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
 	
+	/**
+	 * Starts loading the comparison data in background (if it has not been loaded yet). Comparisons
+	 * performed while the data is being loaded are based on the last stored snapshot.
+	 */
 	@Override
-	public synchronized void initialize() {
-		if(isInitializationDone())
+	public void initialize() {
+		if (!initializationStarted.compareAndSet(false, true))
 			return;
 		
-		comparisonInitializationDone = initializeComparisonData();
-		if(!comparisonInitializationDone)
-			System.out.println("Initialization of comparison data failed.");
+		executor.execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					loadSnapshot();
+					initializeComparisonData();
+					storeSnapshot();
+					comparisonInitializationDone = true;
+				} catch (Exception e) {
+					logger.warn("Initialization of comparison data failed", e);
+					// Will be tried again with the next request
+					initializationStarted.set(false);
+				}
+			}
+		});
 	}
 
 	@Override
 	public boolean isInitializationDone() {
 		return comparisonInitializationDone;
-	}	
-	
-	private boolean initializeComparisonData() {
-		if(!initializeAttributeTypes())
-			return false;
-		if(!initializeOfferings())
-			return false;
-		if(!initializeServiceManifestations())
-			return false;
-		if(!initializeServiceAttributeTypeStatistics())
-			return false;
-		return true;
 	}
-
-	private boolean initializeAttributeTypes() {
-		try {
-			long start = System.currentTimeMillis();
-			for (String vocUri : vocabularyBo.getVocabularyUris()) {
-				for (ServiceAttributeType attributeType : attributeTypeResolver.resolveAttributeTypesFromUri(vocUri)) {
-					attributeTypeBo.save(attributeType);
+	
+	@Override
+	public void onApplicationEvent(final DescriptionChangeEvent event) {
+		
+		final Runnable update = new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					updateComparisonData(event);
+					scheduleSnapshot();
+				} catch (Exception e) {
+					logger.warn(String.format("Comparison data of description %s (store %s) could not be updated", 
+							event.getDescriptionName(), event.getStoreName()), e);
 				}
 			}
-			for (Store store : storeBo.getAllStores()) {
-				for (Description service : store.getDescriptions()) {
-					for (ServiceAttributeType attributeType : attributeTypeResolver.resolveAttributeTypesFromUri(service.getUrl())) {
-						attributeTypeBo.save(attributeType);
-					}
+		};
+		
+		// Changes are read from the database, so they have to be committed before updating the data
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					executor.execute(update);
 				}
-			}
-			long end = System.currentTimeMillis();
-			System.out.println("Resolved attribute types (" + (end - start) + "ms).");
-			return true;
-		} catch (Exception ex) {
-			System.out.println("Error resolving attribute types. " + ex.getMessage());
-			return false;
+			});
+		} else {
+			executor.execute(update);
 		}
 	}
-
-	private boolean initializeOfferings() {
-		try {
-			long start = System.currentTimeMillis();
-			for (Offering offering : offeringResolver.resolveOfferingsFromStores(storeBo.getAllStores())) {
-				offeringBo.save(offering);
+	
+	private void initializeComparisonData() throws Exception {
+		long start = System.currentTimeMillis();
+		List<Offering> offerings = offeringBo.getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		
+		// Attribute types
+		Set<String> uris = new LinkedHashSet<>(vocabularyBo.getVocabularyUris());
+		for (Offering offering : offerings) {
+			uris.add(offering.getDescribedIn().getUrl());
+		}
+		
+		// Types loaded from the snapshot are kept for the URIs that cannot be resolved now
+		attributeTypeBo.replaceAll(attributeTypeResolver.resolveAttributeTypesFromUris(uris, 
+				attributeTypeBo.getAllAttributeTypesAsList()));
+		
+		// Service manifestations
+		serviceManifestationBo.replaceAll(serviceManifestationResolver.resolveServiceManifestations(offerings));
+		
+		// Statistics
+		rebuildStatistics();
+		
+		logger.info("Comparison data resolved ({}ms)", System.currentTimeMillis() - start);
+	}
+	
+	private void updateComparisonData(DescriptionChangeEvent event) throws Exception {
+		
+		Set<String> offeringUris = new HashSet<>(event.getPreviousOfferingUris());
+		List<ServiceManifestation> serviceManifestations = Collections.emptyList();
+		
+		if (!event.isDeleted()) {
+			List<Offering> offerings = offeringBo.getDescriptionOfferingsPage(event.getStoreName(), 
+					event.getDescriptionName(), 0, Integer.MAX_VALUE, "id", false);
+			
+			Set<String> descriptionUrls = new HashSet<>();
+			for (Offering offering : offerings) {
+				offeringUris.add(offering.getUri());
+				descriptionUrls.add(offering.getDescribedIn().getUrl());
+			}
+			
+			// New attribute types can be defined in the description
+			for (ServiceAttributeType attributeType : attributeTypeResolver.resolveAttributeTypesFromUris(descriptionUrls)) {
+				attributeTypeBo.save(attributeType);
 			}
-			long end = System.currentTimeMillis();
-			System.out.println("Resolved offerings (" + (end - start) + "ms).");
-			return true;
-		} catch (Exception ex) {
-			System.out.println("Error resolving offerings. " + ex.getMessage());
-			return false;
+			
+			serviceManifestations = serviceManifestationResolver.resolveServiceManifestations(offerings);
+		}
+		
+		List<ServiceManifestation> removed = serviceManifestationBo.replaceOfferingsManifestations(
+				offeringUris, serviceManifestations);
+		
+		// Attribute types have changed: broader types used to compute the statistics may be different
+		if (statisticsAccumulator == null || 
+				!statisticsAccumulator.isBasedOn(attributeTypeBo.getAllAttributeTypesAsMap())) {
+			rebuildStatistics();
+		} else {
+			// Duplicated service manifestations are not stored
+			List<ServiceManifestation> added = new ArrayList<>();
+			for (ServiceManifestation serviceManifestation : serviceManifestations) {
+				if (serviceManifestationBo.getServiceManifestation(serviceManifestation.getOfferingUri(), 
+						serviceManifestation.getPricePlanUri()) == serviceManifestation) {
+					added.add(serviceManifestation);
+				}
+			}
+			
+			statisticsAccumulator.remove(removed);
+			statisticsAccumulator.add(added);
+			attributeTypeStatisticsBo.replaceAll(statisticsAccumulator.getStatistics());
 		}
 	}
 	
-	private boolean initializeServiceManifestations() {
-		try {
-			long start = System.currentTimeMillis();
-			for (ServiceManifestation serviceManifestation : serviceManifestationResolver
-					.resolveServiceManifestations(offeringBo
-					.getOfferingsPage(0, Integer.MAX_VALUE, "describedIn.registrationDate", false))) {
-				serviceManifestationBo.save(serviceManifestation);
+	private void rebuildStatistics() {
+		statisticsAccumulator = new AttributeTypeStatisticsAccumulator(attributeTypeBo.getAllAttributeTypesAsMap());
+		statisticsAccumulator.add(serviceManifestationBo.getAllServiceManifestations());
+		attributeTypeStatisticsBo.replaceAll(statisticsAccumulator.getStatistics());
+	}
+	
+	/**
+	 * Stores the snapshot once the delay has elapsed. Changes made in the meantime are stored with it.
+	 */
+	private void scheduleSnapshot() {
+		if (snapshotPending)
+			return;
+		
+		snapshotPending = true;
+		executor.schedule(new Runnable() {
+			
+			@Override
+			public void run() {
+				storePendingSnapshot();
 			}
-			serviceManifestationBo.sort();
-			long end = System.currentTimeMillis();
-			System.out.println("Resolved service manifestations (" + (end - start) + "ms).");
-			return true;
-		} catch (Exception ex) {
-			System.out.println("Error resolving service manifestations. " + ex.getMessage());
-			return false;
+		}, snapshotDelay, TimeUnit.SECONDS);
+	}
+	
+	private void storePendingSnapshot() {
+		if (snapshotPending) {
+			snapshotPending = false;
+			storeSnapshot();
 		}
 	}
 	
-	private boolean initializeServiceAttributeTypeStatistics() {
+	private void loadSnapshot() {
+		File file = new File(snapshotPath);
+		
+		// Data has been already loaded or there is no snapshot
+		if (!serviceManifestationBo.getAllServiceManifestations().isEmpty() || !file.exists())
+			return;
+		
+		try (ObjectInputStream input = new ObjectInputStream(new FileInputStream(file))) {
+			Snapshot snapshot = (Snapshot) input.readObject();
+			attributeTypeBo.replaceAll(snapshot.attributeTypes);
+			serviceManifestationBo.replaceAll(snapshot.serviceManifestations);
+			attributeTypeStatisticsBo.replaceAll(snapshot.statistics);
+			logger.info("Comparison data loaded from {}", file.getAbsolutePath());
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.warn("Comparison data snapshot cannot be read. It will be ignored", e);
+		}
+	}
+	
+	private void storeSnapshot() {
+		Snapshot snapshot = new Snapshot();
+		snapshot.attributeTypes = attributeTypeBo.getAllAttributeTypesAsList();
+		snapshot.serviceManifestations = new ArrayList<>(serviceManifestationBo.getAllServiceManifestations());
+		snapshot.statistics = attributeTypeStatisticsBo.getAllAttributeTypeStatistics();
+		
+		// The snapshot is replaced atomically, so a partially written file is never read
+		File file = new File(snapshotPath);
+		File tmpFile = new File(snapshotPath + ".tmp");
+		
 		try {
-			long start = System.currentTimeMillis();
-			HashMap<String, ServiceAttributeTypeStatistics> statsMap = AttributeTypeStatisticsResolver.resolveStatistics(
-					attributeTypeBo.getAllAttributeTypesAsMap(), serviceManifestationBo.getAllServiceManifestations());
-			for (String key : statsMap.keySet()) {
-				attributeTypeStatisticsBo.save(key, statsMap.get(key));
+			try (ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream(tmpFile))) {
+				output.writeObject(snapshot);
 			}
-			long end = System.currentTimeMillis();
-			System.out.println("Resolved attribute type statistics (" + (end - start) + "ms).");
-			return true;
-		} catch (Exception ex) {
-			System.out.println("Error resolving attribute type statistics. " + ex.getMessage());
-			return false;
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("Comparison data snapshot cannot be stored", e);
 		}
 	}
 }
@@ -33,8 +33,7 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 
 import org.fiware.apps.marketplace.bo.DescriptionBo;
@@ -53,11 +52,15 @@ import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Description;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.Store;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.ViewedOffering;
 import org.fiware.apps.marketplace.security.auth.OfferingAuth;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.fiware.apps.marketplace.utils.ViewedOfferingsBuffer;
+import org.fiware.apps.marketplace.utils.ViewedOfferingsFeed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -65,8 +68,6 @@ import org.springframework.transaction.annotation.Transactional;
 @Service("offeringBo")
 public class OfferingBoImpl implements OfferingBo {
 	
-	private static final int N_LAST_VIEWED = 10;
-	private static final int HOURS_BETWEEN_VIEWS = 24;
 	private static final int MAX_OFFERINGS_VIEWED_BY_OTHER_USERS = 20;
 	
 	@Autowired private OfferingAuth offeringAuth;
@@ -76,6 +77,8 @@ public class OfferingBoImpl implements OfferingBo {
 	@Autowired private StoreBo storeBo;
 	@Autowired private DescriptionBo descriptionBo;
 	@Autowired private ReviewBo reviewBo;
+	@Autowired private ViewedOfferingsBuffer viewedOfferingsBuffer;
+	@Autowired private ViewedOfferingsFeed viewedOfferingsFeed;
 
 	@Override
 	@Transactional(readOnly = false)
@@ -121,6 +124,17 @@ public class OfferingBoImpl implements OfferingBo {
 			throws NotAuthorizedException, OfferingNotFoundException, 
 			StoreNotFoundException, DescriptionNotFoundException {
 		
+		return findOfferingByNameStoreAndDescription(storeName, descriptionName, offeringName, 
+				OfferingFetchProfile.FULL);
+	}
+
+	@Override
+	@Transactional
+	public Offering findOfferingByNameStoreAndDescription(String storeName, 
+			String descriptionName, String offeringName, OfferingFetchProfile profile)
+			throws NotAuthorizedException, OfferingNotFoundException, 
+			StoreNotFoundException, DescriptionNotFoundException {
+		
 		Offering offering = offeringDao.findByNameStoreAndDescription(storeName, 
 				descriptionName, offeringName);
 		
@@ -129,60 +143,16 @@ public class OfferingBoImpl implements OfferingBo {
 			throw new NotAuthorizedException("find offering");
 		}
 		
-		// Include the offering into the list of offerings viewed by the user
+		// Include the offering into the list of offerings viewed by the user. Views are stored
+		// asynchronously so retrieving an offering does not require any write.
 		try {
-			User user = userBo.getCurrentUser();
-			List<ViewedOffering> lastViewedOfferings = viewedOfferingDao.getUserViewedOfferings(user.getUserName());
-						
-			boolean found = false;
-			Iterator<ViewedOffering> lastViewedOfferingsIt = lastViewedOfferings.iterator();
-			
-			while (lastViewedOfferingsIt.hasNext() && !found) {
-				ViewedOffering viewedOffering = lastViewedOfferingsIt.next();
-				
-				if (viewedOffering.getOffering().equals(offering)) {
-					
-					Date now = new Date();
-					Date lastViewDate = viewedOffering.getDate();
-					
-					long difference = now.getTime() - lastViewDate.getTime();
-					long millisecondsBetweenViews = HOURS_BETWEEN_VIEWS * 3600 * 1000;
-					
-					// Increase offerings views number only if the user has viewed this
-					// offering more than one day ago
-					if (difference > millisecondsBetweenViews) {
-						offering.setViews(offering.getViews() + 1);
-					}
-					
-					viewedOffering.setDate(new Date());
-					found = true;
-				}
-			}
-						
-			if (!found) {
-				ViewedOffering viewedOffering = new ViewedOffering();
-				viewedOffering.setUser(user);
-				viewedOffering.setOffering(offering);
-				viewedOffering.setDate(new Date());
-				
-				viewedOfferingDao.save(viewedOffering);
-			
-				// Only the last 10 viewed offerings are stored, so when there are
-				// more than 10 offerings stored, they should be removed.
-				// We have added one element to the list by calling "save", for 
-				// this reason we subtract 1 in this loop
-				for (int i = N_LAST_VIEWED - 1; i < lastViewedOfferings.size(); i++) {
-					viewedOfferingDao.delete(lastViewedOfferings.get(i));
-				}
-				
-				// Increase offerings views number
-				offering.setViews(offering.getViews() + 1);
-			}
-			
+			viewedOfferingsBuffer.record(userBo.getCurrentUser(), offering);
 		} catch (UserNotFoundException e) {
 			// Not supposed to happen
 		}
 		
+		offeringDao.initialize(Collections.singletonList(offering), profile);
+		
 		return offering;
 	}
 
@@ -207,7 +177,26 @@ public class OfferingBoImpl implements OfferingBo {
 			throw new NotAuthorizedException("list offerings");
 		}
 		
-		return offeringDao.getOfferingsPage(offset, max, orderBy, desc);
+		List<Offering> offerings = offeringDao.getOfferingsPage(offset, max, orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
+	}
+
+	@Override
+	@Transactional
+	public List<Offering> getOfferingsPage(PageCursor cursor, int max, String orderBy, boolean desc) 
+			throws NotAuthorizedException {
+		
+		// Check rights and raise exception if user is not allowed to perform this action
+		if (!offeringAuth.canList()) {
+			throw new NotAuthorizedException("list offerings");
+		}
+		
+		List<Offering> offerings = offeringDao.getOfferingsPage(cursor, max, orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
 	}
 
 	/*@Override
@@ -237,7 +226,28 @@ public class OfferingBoImpl implements OfferingBo {
 			throw new NotAuthorizedException("list offerings in store " + store.getName());
 		}
 		
-		return offeringDao.getStoreOfferingsPage(storeName, offset, max, orderBy, desc);
+		List<Offering> offerings = offeringDao.getStoreOfferingsPage(storeName, offset, max, orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
+	}
+
+	@Override
+	@Transactional
+	public List<Offering> getStoreOfferingsPage(String storeName, PageCursor cursor,
+			int max, String orderBy, boolean desc) throws StoreNotFoundException, NotAuthorizedException {
+		
+		Store store = storeBo.findByName(storeName);
+		
+		// Check rights and raise exception if user is not allowed to perform this action
+		if (!offeringAuth.canList(store)) {
+			throw new NotAuthorizedException("list offerings in store " + store.getName());
+		}
+		
+		List<Offering> offerings = offeringDao.getStoreOfferingsPage(storeName, cursor, max, orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
 	}
 
 	/*@Override
@@ -262,14 +272,20 @@ public class OfferingBoImpl implements OfferingBo {
 			throws StoreNotFoundException, DescriptionNotFoundException, 
 			NotAuthorizedException {
 		
-		Description description = descriptionBo.findByNameAndStore(storeName, descriptionName);
+		// Offerings are retrieved below, they don't need to be loaded with the description
+		Description description = descriptionBo.findByNameAndStore(storeName, descriptionName, 
+				OfferingFetchProfile.BASIC);
 		
 		// Check rights and raise exception if user is not allowed to perform this action
 		if (!offeringAuth.canList(description)) {
 			throw new NotAuthorizedException("list offerings in description " + description.getName());
 		}
 		
-		return offeringDao.getDescriptionOfferingsPage(storeName, descriptionName, offset, max, orderBy, desc);
+		List<Offering> offerings = offeringDao.getDescriptionOfferingsPage(storeName, descriptionName, 
+				offset, max, orderBy, desc);
+		offeringDao.initialize(offerings, OfferingFetchProfile.FULL);
+		
+		return offerings;
 	}
 
 	@Override
@@ -288,7 +304,9 @@ public class OfferingBoImpl implements OfferingBo {
 		}
 		
 		try {
-			User user = userBo.getCurrentUser();
+			// The current user can be shared across the request, so the user is retrieved again
+			// to modify an instance attached to this transaction
+			User user = userBo.findByName(userBo.getCurrentUser().getUserName());
 			List<Offering> bookmarks = user.getBookmarks();
 			
 			// If the offering is already bookmarked, this operation will remove it
@@ -309,13 +327,34 @@ public class OfferingBoImpl implements OfferingBo {
 	@Override
 	@Transactional
 	public List<Offering> getAllBookmarkedOfferings() throws NotAuthorizedException {
-		return getBookmarkedOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		return getBookmarkedOfferingsPage(0, Integer.MAX_VALUE, "id", false, OfferingFetchProfile.BASIC);
+	}
+
+	@Override
+	@Transactional
+	public boolean isBookmarked(Offering offering) throws NotAuthorizedException {
+		
+		// Check rights and raise exception if user is not allowed to perform this action
+		if (!offeringAuth.canListBookmarked()) {
+			throw new NotAuthorizedException("list bookmarked offerings");
+		}
+		
+		try {
+			return offeringDao.isBookmarked(userBo.getCurrentUser().getUserName(), offering);
+		} catch (UserNotFoundException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	@Override
 	@Transactional
 	public List<Offering> getBookmarkedOfferingsPage(int offset, int max, String orderBy, boolean desc)
 			throws NotAuthorizedException {
+		return getBookmarkedOfferingsPage(offset, max, orderBy, desc, OfferingFetchProfile.FULL);
+	}
+	
+	private List<Offering> getBookmarkedOfferingsPage(int offset, int max, String orderBy, boolean desc,
+			OfferingFetchProfile profile) throws NotAuthorizedException {
 
 		// Check rights and raise exception if user is not allowed to perform this action
 		if (!offeringAuth.canListBookmarked()) {
@@ -324,7 +363,11 @@ public class OfferingBoImpl implements OfferingBo {
 		
 		try {
 			User user = userBo.getCurrentUser();
-			return offeringDao.getBookmarkedOfferingsPage(user.getUserName(), offset, max, orderBy, desc);
+			List<Offering> offerings = offeringDao.getBookmarkedOfferingsPage(user.getUserName(), 
+					offset, max, orderBy, desc);
+			offeringDao.initialize(offerings, profile);
+			
+			return offerings;
 		} catch (UserNotFoundException e) {
 			throw new RuntimeException(e);
 		}
@@ -349,6 +392,8 @@ public class OfferingBoImpl implements OfferingBo {
 				lastViewed.add(viewedOffering.getOffering());
 			}
 			
+			offeringDao.initialize(lastViewed, OfferingFetchProfile.FULL);
+			
 			return lastViewed;
 			
 		} catch (UserNotFoundException e) {
@@ -373,13 +418,20 @@ public class OfferingBoImpl implements OfferingBo {
 		try {
 			
 			List<Offering> lastViewed = new ArrayList<>();
-			List<ViewedOffering> orderedViewedOfferings = viewedOfferingDao
-					.getOfferingsViewedByOtherUsers(userBo.getCurrentUser().getUserName(), max);
+			List<Integer> offeringIds = viewedOfferingsFeed.getOfferingsViewedByOtherUsers(
+					userBo.getCurrentUser().getUserName(), max);
 			
-			for (ViewedOffering viewedOffering: orderedViewedOfferings) {
-				lastViewed.add(viewedOffering.getOffering());
+			for (Integer offeringId: offeringIds) {
+				try {
+					lastViewed.add(offeringDao.findById(offeringId));
+				} catch (OfferingNotFoundException e) {
+					// The offering has been deleted after being viewed
+					viewedOfferingsFeed.remove(offeringId);
+				}
 			}
 			
+			offeringDao.initialize(lastViewed, OfferingFetchProfile.FULL);
+			
 			return lastViewed;
 			
 		} catch (UserNotFoundException e) {
@@ -440,6 +492,20 @@ public class OfferingBoImpl implements OfferingBo {
 				descriptionName, offeringName);
 		return reviewBo.getReviewsPage(offering, offset, max, orderBy, desc);
 	}
+	
+	@Override
+	@Transactional
+	public List<Review> getReviewsPage(String storeName,
+			String descriptionName, String offeringName, PageCursor cursor, int max,
+			String orderBy, boolean desc) throws NotAuthorizedException,
+			OfferingNotFoundException, StoreNotFoundException,
+			DescriptionNotFoundException {
+
+		// Exception is thrown if the offering, the store or the description is not found
+		Offering offering = offeringDao.findByNameStoreAndDescription(storeName, 
+				descriptionName, offeringName);
+		return reviewBo.getReviewsPage(offering, cursor, max, orderBy, desc);
+	}
 
 	@Override
 	@Transactional
@@ -33,7 +33,6 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 
 import org.fiware.apps.marketplace.bo.ReviewBo;
@@ -48,6 +47,8 @@ import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.ReviewValidator;
 import org.fiware.apps.marketplace.security.auth.ReviewAuth;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -60,35 +61,6 @@ public class ReviewBoImpl implements ReviewBo {
 	@Autowired private ReviewValidator reviewValidator;
 	@Autowired private ReviewAuth reviewAuth;
 	
-	private double calculateReviewAverage(ReviewableEntity entity) {
-		double sum = 0;
-		List<Review> reviews = entity.getReviews();
-		
-		for (Review review: reviews) {
-			sum += review.getScore();
-		}
-		
-		// Cast is required. Otherwise, average will be an integer
-		// If the reviews list is empty, average score is zero. This should be controlled. Otherwise,
-		// the system will fail when the last review is deleted.
-		return reviews.size() == 0 ? 0 : sum / (double) reviews.size();
-		
-	}
-	
-	private Review getReviewById(ReviewableEntity entity, int reviewId) throws ReviewNotFoundException {
-		Review tmpReview = new Review();
-		tmpReview.setId(reviewId);
-		int bbddReviewIndex = entity.getReviews().indexOf(tmpReview);
-		
-		if (bbddReviewIndex >= 0) {
-			return entity.getReviews().get(bbddReviewIndex);
-		} else {
-			throw new ReviewNotFoundException(String.format("Review %d not found in %s %s", reviewId, 
-					entity.getClass().getSimpleName(), entity.toString()));
-		}
-		
-	}
-	
 	@Override
 	@Transactional
 	public void createReview(ReviewableEntity entity, Review newReview) 
@@ -112,11 +84,11 @@ public class ReviewBoImpl implements ReviewBo {
 			newReview.setUser(userBo.getCurrentUser());
 			newReview.setReviewableEntity(entity);
 
-			// Insert review
+			// Insert review. Reviews are not loaded when they are lazy (the insertion is queued)
 			entity.getReviews().add(newReview);
 			
-			// Calculate average score
-			entity.setAverageScore(calculateReviewAverage(entity));
+			// Update aggregates
+			reviewDao.updateAggregates(entity, newReview.getScore(), 1);
 			
 			// The creating process is automatically done since this method is transactional
 		} catch (UserNotFoundException ex) {
@@ -129,7 +101,7 @@ public class ReviewBoImpl implements ReviewBo {
 	public void updateReview(ReviewableEntity entity, int reviewId, Review updatedReview) 
 			throws ReviewNotFoundException, NotAuthorizedException, ValidationException {
 		
-		Review bbddReview = getReviewById(entity, reviewId);
+		Review bbddReview = reviewDao.findById(entity, reviewId);
 		
 		// Check if the user is allowed to rate the offering. An exception will be
 		// risen if the user is not allowed to do it.
@@ -141,6 +113,12 @@ public class ReviewBoImpl implements ReviewBo {
 		// Validate review (exception will be risen if the review is not valid)
 		reviewValidator.validateReview(updatedReview);
 
+		// Update aggregates
+		if (bbddReview.getScore() != updatedReview.getScore()) {
+			reviewDao.updateAggregates(entity, bbddReview.getScore(), -1);
+			reviewDao.updateAggregates(entity, updatedReview.getScore(), 1);
+		}
+		
 		// Update review
 		bbddReview.setScore(updatedReview.getScore());
 		bbddReview.setUpdatedAt(new Date());
@@ -148,9 +126,6 @@ public class ReviewBoImpl implements ReviewBo {
 			bbddReview.setComment(updatedReview.getComment());
 		}
 		
-		// Calculate average score
-		entity.setAverageScore(calculateReviewAverage(entity));
-		
 		// The update process is automatically done since this method is transactional			
 	}
 
@@ -163,6 +138,9 @@ public class ReviewBoImpl implements ReviewBo {
 		if (!reviewAuth.canList()) {
 			throw new NotAuthorizedException("get reviews");
 		}
+		
+		// Reviews are lazy, they must be loaded before leaving the transaction
+		Hibernate.initialize(entity.getReviews());
 			
 		return entity.getReviews();
 	}
@@ -180,12 +158,25 @@ public class ReviewBoImpl implements ReviewBo {
 		return reviewDao.getReviewsPage(entity, offset, max, orderBy, desc);
 	}
 	
+	@Override
+	@Transactional
+	public List<Review> getReviewsPage(ReviewableEntity entity, PageCursor cursor,
+			int max, String orderBy, boolean desc) throws NotAuthorizedException {
+		
+		// Raise exception is the user is not allowed to list the reviews
+		if (!reviewAuth.canList()) {
+			throw new NotAuthorizedException("get reviews");
+		}
+		
+		return reviewDao.getReviewsPage(entity, cursor, max, orderBy, desc);
+	}
+	
 	@Override
 	@Transactional
 	public Review getReview(ReviewableEntity entity, int reviewId) 
 			throws NotAuthorizedException, ReviewNotFoundException {
 		
-		Review review = getReviewById(entity, reviewId);	
+		Review review = reviewDao.findById(entity, reviewId);	
 		
 		// Raise exception is the user is not allowed to get the review
 		if (!reviewAuth.canList()) {
@@ -201,7 +192,7 @@ public class ReviewBoImpl implements ReviewBo {
 	public void deleteReview(ReviewableEntity entity, int reviewId)
 			throws ReviewNotFoundException, NotAuthorizedException {
 		
-		Review review = getReviewById(entity, reviewId);
+		Review review = reviewDao.findById(entity, reviewId);
 		
 		// Raise exception is the user is not allowed to delete the review
 		if (!reviewAuth.canDelete(review)) {
@@ -209,10 +200,15 @@ public class ReviewBoImpl implements ReviewBo {
 					entity.getClass().getSimpleName(), entity.toString()));
 		}
 			
-		entity.getReviews().remove(review);
+		// Avoid loading all the reviews just to remove one of them
+		if (Hibernate.isInitialized(entity.getReviews())) {
+			entity.getReviews().remove(review);
+		} else {
+			reviewDao.delete(review);
+		}
 			
-		// Calculate average score
-		entity.setAverageScore(calculateReviewAverage(entity));
+		// Update aggregates
+		reviewDao.updateAggregates(entity, review.getScore(), -1);
 
 		// The deletion process is automatically done since this method is transactional		
 	}
@@ -223,25 +219,19 @@ public class ReviewBoImpl implements ReviewBo {
 		
 		try {
 			
-			Review userReview = null;
-			User user = userBo.getCurrentUser();
-			Iterator<Review> it = entity.getReviews().iterator();
-			
-			while (userReview == null && it.hasNext()) {
-				Review review = it.next();
-				userReview = review.getUser().equals(user) ? review : null;
-			}
-			
-			// Throw exception if the user has not reviewed the offering
-			if (userReview == null) {
-				throw new ReviewNotFoundException("User " + user.getUserName() + " has not reviewed this entity");
-			}
-			
-			return userReview;
+			// The review is queried since the entity may be detached and its reviews are lazy. 
+			// An exception is thrown if the user has not reviewed the entity.
+			return reviewDao.findUserReview(entity, userBo.getCurrentUser());
 			
 		} catch (UserNotFoundException e) {
 			throw new RuntimeException(e);
 		}	
 		
 	}
+	
+	@Override
+	@Transactional
+	public int rebuildAggregates() {
+		return reviewDao.rebuildAggregates();
+	}
 }
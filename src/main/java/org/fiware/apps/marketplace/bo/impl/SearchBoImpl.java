@@ -34,7 +34,9 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -42,25 +44,29 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexReader;
 import org.fiware.apps.marketplace.bo.SearchBo;
 import org.fiware.apps.marketplace.bo.DescriptionBo;
+import org.fiware.apps.marketplace.dao.DescriptionDao;
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
 import org.fiware.apps.marketplace.model.SearchResult;
 import org.fiware.apps.marketplace.model.SearchResultEntryMatch;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.rdf.IndexManager;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.larq.HitLARQ;
-import com.hp.hpl.jena.query.larq.IndexBuilderString;
 import com.hp.hpl.jena.query.larq.IndexLARQ;
-import com.hp.hpl.jena.query.larq.LARQ;
 
 @org.springframework.stereotype.Service("searchBo")
 public class SearchBoImpl implements SearchBo {
 	
-	@Value("${lucene.IndexPath}") private String lucenePath;
+	@Autowired private IndexManager indexManager;
 	@Autowired private DescriptionBo offeringsDescriptionBo;
+	@Autowired private DescriptionDao descriptionDao;
+	@Autowired private OfferingIndex offeringIndex;
 	
 	private final static Logger logger = LoggerFactory.getLogger(SearchBoImpl.class);
 
@@ -70,53 +76,79 @@ public class SearchBoImpl implements SearchBo {
 
 		SearchResult result = new SearchResult();
 		
-		IndexBuilderString larqBuilder = new IndexBuilderString(lucenePath) ;	
-		larqBuilder.closeWriter() ;
-		IndexLARQ index = larqBuilder.getIndex() ;		
-		LARQ.setDefaultIndex(index);
-
-		Iterator<HitLARQ> hitLARQIter = index.search(searchstring);		
-		IndexReader reader = index.getLuceneReader();
+		// Many hits belong to the same description. Each description is only retrieved once.
+		Map<Integer, Description> descriptions = new HashMap<>();
 		
+		// The index is shared. It must be released once the search has finished.
+		IndexLARQ index = indexManager.acquire();
 		
-		while (hitLARQIter.hasNext()) {	  			  
-
-			HitLARQ hitlarq = hitLARQIter.next();	
-			Node node = hitlarq.getNode();			
+		try {
 			
-			try {
-				Document doc = reader.document(hitlarq.getLuceneDocId());
-				Field val = doc.getField("docId");
-				Description offeringDescription = 
-						offeringsDescriptionBo.findById(Integer.parseInt(val.stringValue()));
-
-				SearchResultEntryMatch match = new SearchResultEntryMatch(node.toString(), hitlarq.getScore());
-
-				if (node.isLiteral()) {
-					match.setLiteral(node.getLiteral().getLexicalForm());					
-				}
+			Iterator<HitLARQ> hitLARQIter = index.search(searchstring);		
+			IndexReader reader = index.getLuceneReader();
+			
+			while (hitLARQIter.hasNext()) {	  			  
+	
+				HitLARQ hitlarq = hitLARQIter.next();	
+				Node node = hitlarq.getNode();			
 				
-				if(offeringDescription != null) {
-					result.addSearchResult(offeringDescription, match);	
+				try {
+					Document doc = reader.document(hitlarq.getLuceneDocId());
+					Field val = doc.getField(IndexManager.DOC_ID_FIELD);
+					Integer descriptionId = Integer.parseInt(val.stringValue());
+					Description offeringDescription = descriptions.get(descriptionId);
+					
+					if (offeringDescription == null) {
+						offeringDescription = offeringsDescriptionBo.findById(descriptionId);
+						descriptions.put(descriptionId, offeringDescription);
+					}
+	
+					SearchResultEntryMatch match = new SearchResultEntryMatch(node.toString(), hitlarq.getScore());
+	
+					if (node.isLiteral()) {
+						match.setLiteral(node.getLiteral().getLexicalForm());					
+					}
+					
+					if(offeringDescription != null) {
+						result.addSearchResult(offeringDescription, match);	
+					}
+	
+				} catch (CorruptIndexException e) {
+					logger.error("Search By Keyword - CorruptIndexException", e);
+				} catch (IOException e) {
+					logger.error("Search By Keyword - IOException", e);
+				} catch (Exception e){
+					logger.error("Search By Keyword - Exception", e);
 				}
-
-			} catch (CorruptIndexException e) {
-				logger.error("Search By Keyword - CorruptIndexException", e);
-			} catch (IOException e) {
-				logger.error("Search By Keyword - IOException", e);
-			} catch (Exception e){
-				logger.error("Search By Keyword - Exception", e);
+			
 			}
-		
-		}
-		
-		try {
-			reader.close();
-		} catch (IOException e) {
-			logger.error("Search By Keyword - IOException", e);
+			
+		} finally {
+			indexManager.release();
 		}
 		
 		return result;
 
 	}
+	
+	@Override
+	public OfferingSearchResults searchOfferings(String keyword, String category, String store, 
+			Float minPrice, Float maxPrice, int offset, int max) throws IOException {
+		
+		return offeringIndex.search(keyword, category, store, minPrice, maxPrice, offset, max);
+	}
+	
+	@Override
+	@Transactional(readOnly=true)
+	public void rebuildOfferingIndex() throws IOException {
+		
+		long start = System.currentTimeMillis();
+		
+		for (Description description: descriptionDao.getAllDescriptions()) {
+			offeringIndex.index(description);
+		}
+		
+		offeringIndex.refresh();
+		logger.info("Offerings index rebuilt ({} ms)", System.currentTimeMillis() - start);
+	}
 }
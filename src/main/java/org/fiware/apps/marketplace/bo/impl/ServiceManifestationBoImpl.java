@@ -33,9 +33,14 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fiware.apps.marketplace.bo.ServiceManifestationBo;
@@ -44,55 +49,212 @@ import org.fiware.apps.marketplace.model.ServiceManifestation;
 @org.springframework.stereotype.Service("serviceManifestationBo")
 public class ServiceManifestationBoImpl implements ServiceManifestationBo {
 
-	// TODO Store data in a database or similar
-
-	private List<ServiceManifestation> serviceManifestations;
+	// Copy on write: readers get an immutable snapshot, so comparisons can be performed 
+	// while service manifestations are being updated
+	private volatile Snapshot snapshot;
 	private static final AtomicInteger idCtr = new AtomicInteger(0);
+	
+	private static final Comparator<ServiceManifestation> NAME_COMPARATOR = new Comparator<ServiceManifestation>() {
+		public int compare(ServiceManifestation s1, ServiceManifestation s2) {
+			return s1.getName().compareTo(s2.getName());
+		}
+	};
+	
+	/**
+	 * A service manifestation is identified by its offering and its price plan
+	 */
+	private static final class Key {
+		
+		private final String offeringUri;
+		private final String pricePlanUri;
+		
+		private Key(String offeringUri, String pricePlanUri) {
+			this.offeringUri = offeringUri;
+			this.pricePlanUri = pricePlanUri;
+		}
+		
+		private Key(ServiceManifestation serviceManifestation) {
+			this(serviceManifestation.getOfferingUri(), serviceManifestation.getPricePlanUri());
+		}
+
+		@Override
+		public int hashCode() {
+			int result = 31 + ((offeringUri == null) ? 0 : offeringUri.hashCode());
+			return 31 * result + ((pricePlanUri == null) ? 0 : pricePlanUri.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) 
+				return true;
+			
+			if (!(obj instanceof Key))
+				return false;
+			
+			Key other = (Key) obj;
+			return (offeringUri == null ? other.offeringUri == null : offeringUri.equals(other.offeringUri)) &&
+					(pricePlanUri == null ? other.pricePlanUri == null : pricePlanUri.equals(other.pricePlanUri));
+		}
+	}
+	
+	/**
+	 * Immutable view of the stored service manifestations. Service manifestations are indexed by ID
+	 * and by offering and price plan.
+	 */
+	private static final class Snapshot {
+		
+		private final List<ServiceManifestation> serviceManifestations;
+		private final Map<Integer, ServiceManifestation> byId;
+		private final Map<Key, ServiceManifestation> byKey;
+		
+		private Snapshot(List<ServiceManifestation> serviceManifestations, Map<Integer, ServiceManifestation> byId, 
+				Map<Key, ServiceManifestation> byKey) {
+			this.serviceManifestations = Collections.unmodifiableList(serviceManifestations);
+			this.byId = byId;
+			this.byKey = byKey;
+		}
+	}
+	
+	/**
+	 * Mutable copy of a snapshot. Used by writers to build the next snapshot.
+	 */
+	private static final class Builder {
+		
+		private final List<ServiceManifestation> serviceManifestations;
+		private final Map<Integer, ServiceManifestation> byId;
+		private final Map<Key, ServiceManifestation> byKey;
+		
+		private Builder() {
+			this.serviceManifestations = new ArrayList<>();
+			this.byId = new HashMap<>();
+			this.byKey = new HashMap<>();
+		}
+		
+		private Builder(Snapshot snapshot) {
+			this.serviceManifestations = new ArrayList<>(snapshot.serviceManifestations);
+			this.byId = new HashMap<>(snapshot.byId);
+			this.byKey = new HashMap<>(snapshot.byKey);
+		}
+		
+		/**
+		 * Adds a new service manifestation and assigns it a new ID. Service manifestations are not added 
+		 * when there is another one for the same offering and price plan.
+		 * @return true if the service manifestation has been added
+		 */
+		private boolean add(ServiceManifestation serviceManifestation) {
+			return add(serviceManifestation, null);
+		}
+		
+		/**
+		 * Adds a new service manifestation. It keeps the ID of the service manifestation that was stored
+		 * for the same offering and price plan in the given snapshot (so clients can keep using it) or it 
+		 * gets a new ID if there was none. Service manifestations are not added when there is another one
+		 * for the same offering and price plan.
+		 * @return true if the service manifestation has been added
+		 */
+		private boolean add(ServiceManifestation serviceManifestation, Snapshot previous) {
+			if (serviceManifestation == null)
+				return false;
+			
+			Key key = new Key(serviceManifestation);
+			if (byKey.containsKey(key))
+				return false;
+			
+			ServiceManifestation replaced = previous == null ? null : previous.byKey.get(key);
+			serviceManifestation.setId(replaced != null ? replaced.getId() : idCtr.incrementAndGet());
+			serviceManifestations.add(serviceManifestation);
+			byId.put(serviceManifestation.getId(), serviceManifestation);
+			byKey.put(key, serviceManifestation);
+			return true;
+		}
+		
+		private Snapshot build() {
+			Collections.sort(serviceManifestations, NAME_COMPARATOR);
+			return new Snapshot(serviceManifestations, byId, byKey);
+		}
+	}
 
 	public ServiceManifestationBoImpl() {
-		serviceManifestations = new ArrayList<ServiceManifestation>();
+		snapshot = new Builder().build();
+	}
+
+	@Override
+	public synchronized void save(ServiceManifestation serviceManifestation) {
+		Builder builder = new Builder(snapshot);
+		if (builder.add(serviceManifestation))
+			snapshot = builder.build();
 	}
 
 	@Override
-	public void save(ServiceManifestation serviceManifestation) {
-		if (serviceManifestation == null)
-			return;
-
-		for (ServiceManifestation serv : serviceManifestations) {
-			if (serv.getPricePlanUri().equals(serviceManifestation.getPricePlanUri())
-					&& serv.getOfferingUri().equals(serviceManifestation.getOfferingUri()))
-				return;
+	public synchronized void delete(ServiceManifestation serviceManifestation) {
+		ServiceManifestation stored = snapshot.byId.get(serviceManifestation.getId());
+		
+		if (stored != null) {
+			Builder builder = new Builder(snapshot);
+			builder.serviceManifestations.remove(stored);
+			builder.byId.remove(stored.getId());
+			builder.byKey.remove(new Key(stored));
+			snapshot = builder.build();
 		}
-		serviceManifestation.setId(idCtr.incrementAndGet());
-		serviceManifestations.add(serviceManifestation);
 	}
 
 	@Override
-	public void delete(ServiceManifestation serviceManifestation) {
-		if (serviceManifestations.contains(serviceManifestation))
-			serviceManifestations.remove(serviceManifestation);
+	public synchronized void replaceAll(Collection<ServiceManifestation> serviceManifestations) {
+		Builder builder = new Builder();
+		for (ServiceManifestation serviceManifestation : serviceManifestations) {
+			builder.add(serviceManifestation, snapshot);
+		}
+		snapshot = builder.build();
 	}
 
+	/**
+	 * Replaces the service manifestations of the given offerings. Service manifestations that replace 
+	 * another one with the same offering and price plan keep its ID.
+	 * @return The service manifestations that have been removed
+	 */
 	@Override
-	public ServiceManifestation getServiceManifestationById(Integer id) {
-		for (ServiceManifestation serv : serviceManifestations) {
-			if (serv.getId() == id)
-				return serv;
+	public synchronized List<ServiceManifestation> replaceOfferingsManifestations(Collection<String> offeringUris, 
+			Collection<ServiceManifestation> serviceManifestations) {
+		Set<String> offeringUrisSet = new HashSet<>(offeringUris);
+		List<ServiceManifestation> removed = new ArrayList<>();
+		Builder builder = new Builder();
+		for (ServiceManifestation serviceManifestation : snapshot.serviceManifestations) {
+			if (!offeringUrisSet.contains(serviceManifestation.getOfferingUri())) {
+				builder.serviceManifestations.add(serviceManifestation);
+				builder.byId.put(serviceManifestation.getId(), serviceManifestation);
+				builder.byKey.put(new Key(serviceManifestation), serviceManifestation);
+			} else {
+				removed.add(serviceManifestation);
+			}
+		}
+		for (ServiceManifestation serviceManifestation : serviceManifestations) {
+			builder.add(serviceManifestation, snapshot);
 		}
-		return null;
+		snapshot = builder.build();
+		return removed;
 	}
 
+	@Override
+	public ServiceManifestation getServiceManifestationById(Integer id) {
+		return snapshot.byId.get(id);
+	}
+
+	@Override
+	public ServiceManifestation getServiceManifestation(String offeringUri, String pricePlanUri) {
+		return snapshot.byKey.get(new Key(offeringUri, pricePlanUri));
+	}
+
+	/**
+	 * @return The current service manifestations (sorted by name). The returned list cannot be modified
+	 * and it does not change when new service manifestations are saved, so it can be safely iterated.
+	 */
 	@Override
 	public List<ServiceManifestation> getAllServiceManifestations() {
-		return serviceManifestations;
+		return snapshot.serviceManifestations;
 	}
 
 	@Override
 	public void sort() {
-		Collections.sort(serviceManifestations, new Comparator<ServiceManifestation>() {
-			public int compare(ServiceManifestation s1, ServiceManifestation s2) {
-				return s1.getName().compareTo(s2.getName());
-			}
-		});
+		// Service manifestations are always kept sorted by name
 	}
 }
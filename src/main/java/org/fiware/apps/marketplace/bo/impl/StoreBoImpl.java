@@ -35,6 +35,7 @@ package org.fiware.apps.marketplace.bo.impl;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Date;
 import java.util.List;
 
@@ -57,6 +58,10 @@ import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.StoreValidator;
 import org.fiware.apps.marketplace.security.auth.StoreAuth;
 import org.fiware.apps.marketplace.utils.NameGenerator;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -71,6 +76,9 @@ public class StoreBoImpl implements StoreBo{
 	@Autowired private StoreValidator storeValidator;
 	@Autowired private UserBo userBo;
 	@Autowired private ReviewBo reviewBo;
+	@Autowired private OfferingIndex offeringIndex;
+	
+	private static final Logger logger = LoggerFactory.getLogger(StoreBoImpl.class);
 	
 	@Value("${media.folder}") private String mediaFolder;
 	
@@ -274,6 +282,11 @@ public class StoreBoImpl implements StoreBo{
 		
 		storeDao.delete(store);
 		
+		try {
+			offeringIndex.deleteStore(storeName);
+		} catch (IOException e) {
+			logger.error("Deleting offerings from index - IOException", e);
+		}
 	}
 
 	@Override
@@ -370,6 +383,16 @@ public class StoreBoImpl implements StoreBo{
 		Store store = storeDao.findByName(name);
 		return reviewBo.getReviewsPage(store, offset, max, orderBy, desc);
 	}
+	
+	@Override
+	@Transactional
+	public List<Review> getReviewsPage(String name, PageCursor cursor, int max,
+			String orderBy, boolean desc) throws NotAuthorizedException,
+			StoreNotFoundException {
+
+		Store store = storeDao.findByName(name);
+		return reviewBo.getReviewsPage(store, cursor, max, orderBy, desc);
+	}
 
 	@Override
 	@Transactional
@@ -36,6 +36,8 @@ package org.fiware.apps.marketplace.bo.impl;
 import java.util.Date;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.fiware.apps.marketplace.bo.ReviewBo;
 import org.fiware.apps.marketplace.bo.UserBo;
 import org.fiware.apps.marketplace.dao.UserDao;
@@ -46,6 +48,7 @@ import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.UserValidator;
+import org.fiware.apps.marketplace.security.RequestUserContext;
 import org.fiware.apps.marketplace.security.auth.UserAuth;
 import org.fiware.apps.marketplace.utils.NameGenerator;
 import org.pac4j.springframework.security.authentication.ClientAuthenticationToken;
@@ -58,6 +61,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
 @Service("userBo")
 public class UserBoImpl implements UserBo {
 
@@ -67,8 +73,19 @@ public class UserBoImpl implements UserBo {
 	@Autowired private UserValidator userValidator;
 	// Encoder must be the same in all the platform: use the bean
 	@Autowired private PasswordEncoder encoder;
+	@Autowired(required = false) private MetricRegistry metricRegistry;
+	
+	// Number of times the current user is looked up in the database in each request
+	private Histogram userLookups;
 
 	private static final Logger logger = LoggerFactory.getLogger(UserBoImpl.class);
+	
+	@PostConstruct
+	public void init() {
+		if (metricRegistry != null) {
+			userLookups = metricRegistry.histogram(MetricRegistry.name(UserBoImpl.class, "userLookups"));
+		}
+	}
 
 	@Override
 	@Transactional(readOnly=false)
@@ -147,6 +164,7 @@ public class UserBoImpl implements UserBo {
 		}
 
 		userDao.update(userToBeUpdated);
+		RequestUserContext.clear();
 	}
 
 	@Override
@@ -172,6 +190,7 @@ public class UserBoImpl implements UserBo {
 		}
 		
 		userDao.delete(user);
+		RequestUserContext.clear();
 	}
 
 	@Override
@@ -239,8 +258,26 @@ public class UserBoImpl implements UserBo {
 			userName = authentication.getName();
 		}
 
-		logger.info("User: {}", userName);
-		return userDao.findByName(userName);
+		// The user is retrieved only once per request
+		if (RequestUserContext.containsUser(userName)) {
+			User user = RequestUserContext.getUser();
+			if (user == null) {
+				throw new UserNotFoundException("User " + userName + " not found");
+			}
+			return user;
+		}
+
+		logger.debug("User: {}", userName);
+		RequestUserContext.recordUserLookup(userLookups);
+		
+		try {
+			User user = userDao.findByName(userName);
+			RequestUserContext.setUser(userName, user);
+			return user;
+		} catch (UserNotFoundException ex) {
+			RequestUserContext.setUser(userName, null);
+			throw ex;
+		}
 	}
 
 	@Override
@@ -263,5 +300,6 @@ public class UserBoImpl implements UserBo {
 		
 		// Method is transactional so the instance is automatically updated
 		userToBeUpdated.setProvider(!userToBeUpdated.isProvider());
+		RequestUserContext.clear();
 	}
 }
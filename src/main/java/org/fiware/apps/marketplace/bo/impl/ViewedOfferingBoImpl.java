@@ -0,0 +1,187 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fiware.apps.marketplace.bo.ViewedOfferingBo;
+import org.fiware.apps.marketplace.dao.OfferingDao;
+import org.fiware.apps.marketplace.dao.UserDao;
+import org.fiware.apps.marketplace.dao.ViewedOfferingDao;
+import org.fiware.apps.marketplace.exceptions.OfferingNotFoundException;
+import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.model.ViewedOffering;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service("viewedOfferingBo")
+public class ViewedOfferingBoImpl implements ViewedOfferingBo {
+	
+	private static final int N_LAST_VIEWED = 10;
+	private static final int HOURS_BETWEEN_VIEWS = 24;
+	
+	@Autowired private ViewedOfferingDao viewedOfferingDao;
+	@Autowired private OfferingDao offeringDao;
+	@Autowired private UserDao userDao;
+	
+	private static Logger logger = LoggerFactory.getLogger(ViewedOfferingBoImpl.class);
+	
+	@Override
+	@Transactional
+	public void registerViews(Collection<OfferingView> views) {
+		
+		List<OfferingView> sortedViews = new ArrayList<>(views);
+		Collections.sort(sortedViews, new Comparator<OfferingView>() {
+			
+			@Override
+			public int compare(OfferingView view1, OfferingView view2) {
+				return view1.getDate().compareTo(view2.getDate());
+			}
+		});
+		
+		// Views are grouped by user so the last viewed offerings of each user are retrieved once
+		Map<String, List<OfferingView>> usersViews = new LinkedHashMap<>();
+		for (OfferingView view: sortedViews) {
+			List<OfferingView> userViews = usersViews.get(view.getUserName());
+			
+			if (userViews == null) {
+				userViews = new ArrayList<>();
+				usersViews.put(view.getUserName(), userViews);
+			}
+			
+			userViews.add(view);
+		}
+		
+		// Offerings are shared among users. Their views counters are increased in memory and
+		// saved once when the transaction is committed.
+		Map<Integer, Offering> offerings = new HashMap<>();
+		
+		for (Map.Entry<String, List<OfferingView>> userViews: usersViews.entrySet()) {
+			try {
+				registerUserViews(userDao.findByName(userViews.getKey()), userViews.getValue(), offerings);
+			} catch (UserNotFoundException e) {
+				// The user has been deleted after viewing the offerings
+				logger.debug("Views of user {} discarded: the user does not exist", userViews.getKey());
+			}
+		}
+	}
+	
+	private void registerUserViews(User user, List<OfferingView> views, Map<Integer, Offering> offerings) 
+			throws UserNotFoundException {
+		
+		// Sorted by date (the most recent first)
+		List<ViewedOffering> lastViewedOfferings = new ArrayList<>(
+				viewedOfferingDao.getUserViewedOfferings(user.getUserName()));
+		
+		for (OfferingView view: views) {
+			
+			Offering offering = getOffering(view.getOfferingId(), offerings);
+			if (offering == null) {
+				continue;
+			}
+			
+			ViewedOffering viewedOffering = null;
+			for (int i = 0; i < lastViewedOfferings.size() && viewedOffering == null; i++) {
+				if (offering.getId().equals(lastViewedOfferings.get(i).getOffering().getId())) {
+					viewedOffering = lastViewedOfferings.remove(i);
+				}
+			}
+			
+			if (viewedOffering != null) {
+				
+				long difference = view.getDate().getTime() - viewedOffering.getDate().getTime();
+				long millisecondsBetweenViews = HOURS_BETWEEN_VIEWS * 3600 * 1000;
+				
+				// Increase offerings views number only if the user has viewed this
+				// offering more than one day ago
+				if (difference > millisecondsBetweenViews) {
+					offering.setViews(offering.getViews() + 1);
+				}
+				
+				viewedOffering.setDate(view.getDate());
+				
+			} else {
+				
+				viewedOffering = new ViewedOffering();
+				viewedOffering.setUser(user);
+				viewedOffering.setOffering(offering);
+				viewedOffering.setDate(view.getDate());
+				
+				viewedOfferingDao.save(viewedOffering);
+				
+				// Increase offerings views number
+				offering.setViews(offering.getViews() + 1);
+			}
+			
+			lastViewedOfferings.add(0, viewedOffering);
+		}
+		
+		// Only the last 10 viewed offerings are stored
+		for (int i = N_LAST_VIEWED; i < lastViewedOfferings.size(); i++) {
+			viewedOfferingDao.delete(lastViewedOfferings.get(i));
+		}
+	}
+	
+	private Offering getOffering(int offeringId, Map<Integer, Offering> offerings) {
+		
+		Offering offering = offerings.get(offeringId);
+		
+		if (offering == null && !offerings.containsKey(offeringId)) {
+			try {
+				offering = offeringDao.findById(offeringId);
+			} catch (OfferingNotFoundException e) {
+				// The offering has been deleted after being viewed
+				logger.debug("Views of offering {} discarded: the offering does not exist", offeringId);
+			}
+			
+			offerings.put(offeringId, offering);
+		}
+		
+		return offering;
+	}
+
+}
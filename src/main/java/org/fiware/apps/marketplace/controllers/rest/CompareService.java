@@ -32,41 +32,134 @@ package org.fiware.apps.marketplace.controllers.rest;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.fiware.apps.marketplace.bo.CompareBo;
 import org.fiware.apps.marketplace.bo.MaintenanceBo;
+import org.fiware.apps.marketplace.helpers.ParallelServiceManifestationComparator.PartialResultListener;
 import org.fiware.apps.marketplace.model.ComparisonResult;
+import org.fiware.apps.marketplace.model.ComparisonResult.ServiceContainer;
 import org.fiware.apps.marketplace.utils.ApplicationContextProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
 @Path("/compare")
 public class CompareService {
 
+	private static final String STREAM_MEDIA_TYPE = "application/x-ndjson";
+
 	ApplicationContext appContext = ApplicationContextProvider.getApplicationContext();
 	CompareBo compareBo = (CompareBo) appContext.getBean("compareBo");
 	MaintenanceBo maintenanceBo = (MaintenanceBo) appContext.getBean("maintenanceBo");
 	
+	private static Logger logger = LoggerFactory.getLogger(CompareService.class);
+	
 	@GET
-	@Produces({ "application/xml", "application/json" })
+	@Produces({ "application/xml", "application/json", STREAM_MEDIA_TYPE })
 	@Path("/{sourceId}")
-	public ComparisonResult compareServiceManifestation(@PathParam("sourceId") String sourceIdString) {
+	public Response compareServiceManifestation(@PathParam("sourceId") final String sourceIdString, 
+			@QueryParam("max") @DefaultValue("0") final int maxResults,
+			@QueryParam("stream") @DefaultValue("false") boolean stream, @Context HttpHeaders headers) {
 		try {
+			// Results that are not streamed are only available as XML or JSON
+			MediaType resultMediaType = stream ? null : getResultMediaType(headers);
+			if (!stream && resultMediaType == null) {
+				return Response.status(Response.Status.NOT_ACCEPTABLE)
+						.entity(STREAM_MEDIA_TYPE + " is only available when stream=true").build();
+			}
+			
 			maintenanceBo.initialize();
-			ComparisonResult result = compareBo.compareService(sourceIdString);
+			
+			// The status cannot be changed once the partial results have been written
+			if (!compareBo.isServiceAvailable(sourceIdString)) {
+				return Response.status(Response.Status.NOT_FOUND).entity("Something went wrong").build();
+			}
+			
+			if (stream) {
+				// Each line is a JSON document. Targets are written as soon as each partition has been 
+				// compared, but only the ones that have entered the best targets since the previous line. 
+				// The last line contains the final result.
+				StreamingOutput output = new StreamingOutput() {
+					@Override
+					public void write(final OutputStream outputStream) throws IOException, WebApplicationException {
+						final ObjectMapper mapper = new ObjectMapper();
+						ComparisonResult result = compareBo.compareService(sourceIdString, maxResults, 
+								new PartialResultListener() {
+							@Override
+							public void onPartialResult(List<ServiceContainer> newTargets, int comparedTargets, 
+									int totalTargets) {
+								Map<String, Object> line = new LinkedHashMap<String, Object>();
+								line.put("compared", comparedTargets);
+								line.put("total", totalTargets);
+								line.put("targets", newTargets);
+								try {
+									writeLine(outputStream, mapper, line);
+								} catch (IOException ex) {
+									throw new RuntimeException(ex);
+								}
+							}
+						});
+						
+						Map<String, Object> line = new LinkedHashMap<String, Object>();
+						line.put("result", result);
+						writeLine(outputStream, mapper, line);
+					}
+				};
+				return Response.ok(output, STREAM_MEDIA_TYPE).build();
+			}
+			
+			ComparisonResult result = compareBo.compareService(sourceIdString, maxResults, null);
 			if (result == null)
-				throw new WebApplicationException(Response.status(Response.Status.NOT_FOUND).entity("Something went wrong").build());
-			return result;
+				return Response.status(Response.Status.NOT_FOUND).entity("Something went wrong").build();
+			return Response.ok(result, resultMediaType).build();
 		} catch (Exception ex) {
-			System.out.println("Comparison failed. " + ex.getMessage());
+			logger.warn("Comparison failed", ex);
 			return null;
 		}
 	}
+	
+	/**
+	 * @param headers The headers of the request
+	 * @return The media type (XML or JSON) preferred by the client or null if the client accepts none of them
+	 */
+	private static MediaType getResultMediaType(HttpHeaders headers) {
+		// Acceptable media types are sorted by preference
+		for (MediaType acceptable: headers.getAcceptableMediaTypes()) {
+			if (acceptable.isCompatible(MediaType.APPLICATION_XML_TYPE)) {
+				return MediaType.APPLICATION_XML_TYPE;
+			} else if (acceptable.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+				return MediaType.APPLICATION_JSON_TYPE;
+			}
+		}
+		
+		return null;
+	}
+	
+	private static void writeLine(OutputStream outputStream, ObjectMapper mapper, Map<String, Object> line) 
+			throws IOException {
+		outputStream.write(mapper.writeValueAsBytes(line));
+		outputStream.write('\n');
+		outputStream.flush();
+	}
 
 	@GET
 	@Produces({ "application/xml", "application/json" })
@@ -81,7 +174,7 @@ public class CompareService {
 			return result;
 
 		} catch (Exception ex) {
-			System.out.println("Comparison failed. " + ex.getMessage());
+			logger.warn("Comparison failed", ex);
 			return null;
 		}
 	}
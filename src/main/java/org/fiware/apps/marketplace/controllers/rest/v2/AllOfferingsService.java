@@ -43,9 +43,12 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.fiware.apps.marketplace.bo.OfferingBo;
+import org.fiware.apps.marketplace.bo.SearchBo;
 import org.fiware.apps.marketplace.exceptions.NotAuthorizedException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
 import org.fiware.apps.marketplace.model.Offerings;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.slf4j.LoggerFactory;
@@ -57,6 +60,7 @@ import org.springframework.stereotype.Component;
 public class AllOfferingsService {
 	
 	@Autowired private OfferingBo offeringBo;
+	@Autowired private SearchBo searchBo;
 	
 	// CLASS ATTRIBUTES //
 	private static final ErrorUtils ERROR_UTILS = new ErrorUtils(
@@ -68,7 +72,8 @@ public class AllOfferingsService {
 	public Response listOfferings(@DefaultValue("0") @QueryParam("offset") int offset,
 			@DefaultValue("100") @QueryParam("max") int max,
 			@DefaultValue("id") @QueryParam("orderBy") String orderBy,
-			@DefaultValue("false") @QueryParam("desc") boolean desc) {
+			@DefaultValue("false") @QueryParam("desc") boolean desc,
+			@QueryParam("cursor") String cursor) {
 		
 		Response response;
 
@@ -76,12 +81,22 @@ public class AllOfferingsService {
 			// Offset and Max should be checked
 			response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
 					//String.format("offset (%d) and/or max (%d) are not valid", offset, max));
+		} else if (cursor != null && offset != 0) {
+			response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 		} else {
 			try {
-				List<Offering> offeringsPage = offeringBo.getOfferingsPage(offset, max, orderBy, desc);
-				response = Response.status(Status.OK).entity(new Offerings(offeringsPage)).build();
+				// Deep pages are retrieved by seeking from the cursor instead of skipping rows
+				List<Offering> offeringsPage = cursor == null ? 
+						offeringBo.getOfferingsPage(offset, max, orderBy, desc) : 
+						offeringBo.getOfferingsPage(PageCursor.parse(cursor, orderBy, desc), max, orderBy, desc);
+				
+				Offerings offerings = new Offerings(offeringsPage);
+				offerings.setNextCursor(PageCursor.next(offeringsPage, max, orderBy, desc));
+				response = Response.status(Status.OK).entity(offerings).build();
 			} catch (NotAuthorizedException ex) {
 				response = ERROR_UTILS.notAuthorizedResponse(ex);
+			} catch (IllegalArgumentException ex) {
+				response = ERROR_UTILS.badRequestResponse(ex.getMessage());
 			} catch (QueryException | SQLGrammarException ex) {
 				response = ERROR_UTILS.badRequestResponse("Offerings cannot be ordered by " + orderBy + ".");
 			} catch (Exception ex) {
@@ -176,5 +191,36 @@ public class AllOfferingsService {
 		}
 		
 		return response;
-	}	
+	}
+	
+	@GET
+	@Produces({"application/xml", "application/json"})
+	@Path("/search")	
+	public Response search(@QueryParam("q") String keyword,
+			@QueryParam("category") String category,
+			@QueryParam("store") String store,
+			@QueryParam("minPrice") Float minPrice,
+			@QueryParam("maxPrice") Float maxPrice,
+			@DefaultValue("0") @QueryParam("offset") int offset,
+			@DefaultValue("100") @QueryParam("max") int max) {
+		
+		Response response;
+
+		if (offset < 0 || max <= 0) {
+			// Offset and Max should be checked
+			response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
+		} else if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+			response = ERROR_UTILS.badRequestResponse("minPrice cannot be greater than maxPrice");
+		} else {
+			try {
+				OfferingSearchResults results = searchBo.searchOfferings(keyword, category, store, 
+						minPrice, maxPrice, offset, max);
+				response = Response.status(Status.OK).entity(results).build();
+			} catch (Exception ex) {
+				response = ERROR_UTILS.internalServerError(ex);
+			}
+		}
+		
+		return response;
+	}
 }
@@ -49,6 +49,7 @@ import org.fiware.apps.marketplace.model.Categories;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
 import org.fiware.apps.marketplace.model.Offerings;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.slf4j.LoggerFactory;
@@ -96,7 +97,8 @@ public class CategoriesService {
 			@DefaultValue("0") @QueryParam("offset") int offset,
 			@DefaultValue("100") @QueryParam("max") int max,
 			@DefaultValue("averageScore") @QueryParam("orderBy") String orderBy,
-			@DefaultValue("true") @QueryParam("desc") boolean desc) {
+			@DefaultValue("true") @QueryParam("desc") boolean desc,
+			@QueryParam("cursor") String cursor) {
 		
 		Response response;
 		
@@ -104,13 +106,22 @@ public class CategoriesService {
 			if (offset < 0 || max <= 0) {
 				// Offset and Max should be checked
 				response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
+			} else if (cursor != null && offset != 0) {
+				response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 			} else {
-				List<Offering> offerings = categoryBo.getCategoryOfferingsSortedBy(categoryName, offset, max, 
-						orderBy, desc);
-				response = Response.ok().entity(new Offerings(offerings)).build();
+				List<Offering> offerings = cursor == null ? 
+						categoryBo.getCategoryOfferingsSortedBy(categoryName, offset, max, orderBy, desc) :
+						categoryBo.getCategoryOfferingsSortedBy(categoryName, 
+								PageCursor.parse(cursor, orderBy, desc), max, orderBy, desc);
+				
+				Offerings returnedOfferings = new Offerings(offerings);
+				returnedOfferings.setNextCursor(PageCursor.next(offerings, max, orderBy, desc));
+				response = Response.ok().entity(returnedOfferings).build();
 			}
 		} catch (CategoryNotFoundException e) {
 			response = ERROR_UTILS.entityNotFoundResponse(e);
+		} catch (IllegalArgumentException e) {
+			response = ERROR_UTILS.badRequestResponse(e.getMessage());
 		} catch (QueryException | SQLGrammarException ex) {
 			response = ERROR_UTILS.badRequestResponse("Offerings cannot be ordered by " + orderBy + ".");
 		} catch (Exception e) {
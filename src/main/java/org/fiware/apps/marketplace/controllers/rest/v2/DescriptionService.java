@@ -34,6 +34,7 @@ package org.fiware.apps.marketplace.controllers.rest.v2;
  */
 
 import java.net.URI;
+import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -57,6 +58,7 @@ import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Descriptions;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.HibernateException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -197,16 +199,25 @@ public class DescriptionService {
 	@Path("/")	
 	public Response listDescriptionsInStore(@PathParam("storeName") String storeName, 
 			@DefaultValue("0") @QueryParam("offset") int offset,
-			@DefaultValue("100") @QueryParam("max") int max) {
+			@DefaultValue("100") @QueryParam("max") int max,
+			@QueryParam("cursor") String cursor) {
 		Response response;
 
 		if (offset < 0 || max <= 0) {
 			// Offset and Max should be checked
 			response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
+		} else if (cursor != null && offset != 0) {
+			response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 		} else {
 			try {
-				Descriptions returnedDescriptions = new Descriptions(descriptionBo
-						.getStoreDescriptionsPage(storeName, offset, max));
+				// Descriptions in a store are always returned ordered by ID
+				List<Description> descriptions = cursor == null ? 
+						descriptionBo.getStoreDescriptionsPage(storeName, offset, max) :
+						descriptionBo.getStoreDescriptionsPage(storeName, 
+								PageCursor.parse(cursor, "id", false), max);
+				
+				Descriptions returnedDescriptions = new Descriptions(descriptions);
+				returnedDescriptions.setNextCursor(PageCursor.next(descriptions, max, "id", false));
 				
 				response = Response.status(Status.OK).entity(returnedDescriptions).build();
 					
@@ -214,6 +225,8 @@ public class DescriptionService {
 				response = ERROR_UTILS.notAuthorizedResponse(ex);
 			} catch (StoreNotFoundException ex) {
 				response = ERROR_UTILS.entityNotFoundResponse(ex);
+			} catch (IllegalArgumentException ex) {
+				response = ERROR_UTILS.badRequestResponse(ex.getMessage());
 			} catch (Exception ex) {
 				response = ERROR_UTILS.internalServerError(ex);
 			}
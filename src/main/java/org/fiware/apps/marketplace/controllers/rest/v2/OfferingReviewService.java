@@ -59,6 +59,7 @@ import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.DetailedReview;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.Reviews;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.slf4j.LoggerFactory;
@@ -155,7 +156,8 @@ public class OfferingReviewService {
 			@DefaultValue("100") @QueryParam("max") int max,
 			@DefaultValue("id") @QueryParam("orderBy") String orderBy,
 			@DefaultValue("false") @QueryParam("desc") boolean desc,
-			@DefaultValue("false") @QueryParam("detailed") boolean detailed) {
+			@DefaultValue("false") @QueryParam("detailed") boolean detailed,
+			@QueryParam("cursor") String cursor) {
 		
 		Response response;
 		
@@ -164,10 +166,18 @@ public class OfferingReviewService {
 			if (offset < 0 || max <= 0) {
 				// Offset and Max should be checked
 				response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
+			} else if (cursor != null && offset != 0) {
+				response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 			} else {
 			
-				List<Review> reviews = offeringBo.getReviewsPage(storeName, descriptionName, offeringName, 
-						offset, max, orderBy, desc);
+				List<Review> reviews = cursor == null ? 
+						offeringBo.getReviewsPage(storeName, descriptionName, offeringName, 
+								offset, max, orderBy, desc) :
+						offeringBo.getReviewsPage(storeName, descriptionName, offeringName, 
+								PageCursor.parse(cursor, orderBy, desc), max, orderBy, desc);
+				
+				// The cursor is built before replacing reviews by detailed reviews
+				String nextCursor = PageCursor.next(reviews, max, orderBy, desc);
 				
 				// Replace reviews by detailed reviews when query param is set
 				if (detailed) {
@@ -176,13 +186,17 @@ public class OfferingReviewService {
 					}
 				}
 				
-				response = Response.ok().entity(new Reviews(reviews)).build();
+				Reviews reviewsPage = new Reviews(reviews);
+				reviewsPage.setNextCursor(nextCursor);
+				response = Response.ok().entity(reviewsPage).build();
 			}
 			
 		} catch (NotAuthorizedException ex) {
 			response = ERROR_UTILS.notAuthorizedResponse(ex);
 		} catch (OfferingNotFoundException | StoreNotFoundException | DescriptionNotFoundException ex) {
 			response = ERROR_UTILS.entityNotFoundResponse(ex);
+		} catch (IllegalArgumentException ex) {
+			response = ERROR_UTILS.badRequestResponse(ex.getMessage());
 		} catch (QueryException | SQLGrammarException ex) {
 			response = ERROR_UTILS.badRequestResponse("Reviews cannot be ordered by " + orderBy + ".");
 		} catch (Exception ex) {
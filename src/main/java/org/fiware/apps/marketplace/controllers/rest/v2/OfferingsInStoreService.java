@@ -32,6 +32,8 @@ package org.fiware.apps.marketplace.controllers.rest.v2;
  * #L%
  */
 
+import java.util.List;
+
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -44,7 +46,9 @@ import javax.ws.rs.core.Response.Status;
 import org.fiware.apps.marketplace.bo.OfferingBo;
 import org.fiware.apps.marketplace.exceptions.NotAuthorizedException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
+import org.fiware.apps.marketplace.model.Offering;
 import org.fiware.apps.marketplace.model.Offerings;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.slf4j.LoggerFactory;
@@ -69,7 +73,8 @@ public class OfferingsInStoreService {
 			@DefaultValue("0") @QueryParam("offset") int offset,
 			@DefaultValue("100") @QueryParam("max") int max,
 			@DefaultValue("id") @QueryParam("orderBy") String orderBy,
-			@DefaultValue("false") @QueryParam("desc") boolean desc) {
+			@DefaultValue("false") @QueryParam("desc") boolean desc,
+			@QueryParam("cursor") String cursor) {
 
 		Response response;
 
@@ -77,13 +82,23 @@ public class OfferingsInStoreService {
 			// Offset and Max should be checked
 			response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
 					//(String.format("offset (%d) and/or max (%d) are not valid", offset, max));
+		} else if (cursor != null && offset != 0) {
+			response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 		} else {
 			try {
-				Offerings offerings = new Offerings(offeringBo.getStoreOfferingsPage(
-						storeName, offset, max, orderBy, desc));
+				// Deep pages are retrieved by seeking from the cursor instead of skipping rows
+				List<Offering> offeringsPage = cursor == null ? 
+						offeringBo.getStoreOfferingsPage(storeName, offset, max, orderBy, desc) : 
+						offeringBo.getStoreOfferingsPage(storeName, PageCursor.parse(cursor, orderBy, desc), 
+								max, orderBy, desc);
+				
+				Offerings offerings = new Offerings(offeringsPage);
+				offerings.setNextCursor(PageCursor.next(offeringsPage, max, orderBy, desc));
 				response = Response.status(Status.OK).entity(offerings).build();
 			} catch (NotAuthorizedException ex) {
 				response = ERROR_UTILS.notAuthorizedResponse(ex);
+			} catch (IllegalArgumentException ex) {
+				response = ERROR_UTILS.badRequestResponse(ex.getMessage());
 			} catch (StoreNotFoundException ex) {
 				response = ERROR_UTILS.entityNotFoundResponse(ex);
 			} catch (QueryException | SQLGrammarException ex) {
@@ -56,6 +56,7 @@ import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.DetailedReview;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.Reviews;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.slf4j.LoggerFactory;
@@ -144,7 +145,8 @@ public class StoreReviewService {
 			@DefaultValue("100") @QueryParam("max") int max,
 			@DefaultValue("id") @QueryParam("orderBy") String orderBy,
 			@DefaultValue("false") @QueryParam("desc") boolean desc,
-			@DefaultValue("false") @QueryParam("detailed") boolean detailed) {
+			@DefaultValue("false") @QueryParam("detailed") boolean detailed,
+			@QueryParam("cursor") String cursor) {
 		
 		Response response;
 		
@@ -153,9 +155,17 @@ public class StoreReviewService {
 			if (offset < 0 || max <= 0) {
 				// Offset and Max should be checked
 				response = ERROR_UTILS.badRequestResponse("offset and/or max are not valid");
+			} else if (cursor != null && offset != 0) {
+				response = ERROR_UTILS.badRequestResponse("offset and cursor cannot be used together");
 			} else {
 			
-				List<Review> reviews = storeBo.getReviewsPage(storeName, offset, max, orderBy, desc);
+				List<Review> reviews = cursor == null ? 
+						storeBo.getReviewsPage(storeName, offset, max, orderBy, desc) :
+						storeBo.getReviewsPage(storeName, PageCursor.parse(cursor, orderBy, desc), 
+								max, orderBy, desc);
+				
+				// The cursor is built before replacing reviews by detailed reviews
+				String nextCursor = PageCursor.next(reviews, max, orderBy, desc);
 				
 				// Replace reviews by detailed reviews when query param is set
 				if (detailed) {
@@ -164,13 +174,17 @@ public class StoreReviewService {
 					}
 				}
 				
-				response = Response.ok().entity(new Reviews(reviews)).build();
+				Reviews reviewsPage = new Reviews(reviews);
+				reviewsPage.setNextCursor(nextCursor);
+				response = Response.ok().entity(reviewsPage).build();
 			}
 
 		} catch (NotAuthorizedException ex) {
 			response = ERROR_UTILS.notAuthorizedResponse(ex);
 		} catch (StoreNotFoundException ex) {
 			response = ERROR_UTILS.entityNotFoundResponse(ex);
+		} catch (IllegalArgumentException ex) {
+			response = ERROR_UTILS.badRequestResponse(ex.getMessage());
 		} catch (QueryException | SQLGrammarException ex) {
 			response = ERROR_UTILS.badRequestResponse("Reviews cannot be ordered by " + orderBy + ".");
 		} catch (Exception ex) {
@@ -57,6 +57,7 @@ import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.Store;
 import org.fiware.apps.marketplace.model.User;
 import org.slf4j.Logger;
@@ -86,7 +87,8 @@ public class DescriptionController extends AbstractController {
 		try {
 			User user = getCurrentUser();
 			Store store = getStoreBo().findByName(storeName);
-			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName);
+			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName, 
+					OfferingFetchProfile.BASIC);
 
 			model.addAttribute("user", user);
 			model.addAttribute("title", description.getDisplayName() + " - " + getContextName());
@@ -143,7 +145,8 @@ public class DescriptionController extends AbstractController {
 		try {
 			User user = getCurrentUser();
 			Store store = getStoreBo().findByName(storeName);
-			Description oldDescription = getDescriptionBo().findByNameAndStore(storeName, descriptionName);
+			Description oldDescription = getDescriptionBo().findByNameAndStore(storeName, descriptionName, 
+					OfferingFetchProfile.BASIC);
 
 			model.addAttribute("user", user);
 			model.addAttribute("title", oldDescription.getDisplayName() + " - " + getContextName());
@@ -219,7 +222,8 @@ public class DescriptionController extends AbstractController {
 		try {
 			User user = getCurrentUser();
 			Store store = getStoreBo().findByName(storeName);
-			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName);
+			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName, 
+					OfferingFetchProfile.BASIC);
 
 			model.addAttribute("user", user);
 			model.addAttribute("title", description.getDisplayName() + " - " + getContextName());
@@ -270,7 +274,8 @@ public class DescriptionController extends AbstractController {
 
 		try {
 			Store store = getStoreBo().findByName(storeName);
-			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName);
+			Description description = getDescriptionBo().findByNameAndStore(storeName, descriptionName, 
+					OfferingFetchProfile.BASIC);
 
 			getDescriptionBo().delete(store.getName(), description.getName());
 			setFlashMessage(request, "The description '" + description.getDisplayName() + "' was deleted successfully.");
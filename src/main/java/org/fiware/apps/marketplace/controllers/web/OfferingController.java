@@ -51,6 +51,7 @@ import org.fiware.apps.marketplace.exceptions.OfferingNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -86,13 +87,13 @@ public class OfferingController extends AbstractController {
 			model.addAttribute("user", getCurrentUser());
 
 			offering = offeringBo.findOfferingByNameStoreAndDescription(
-					storeName, descriptionName, offeringName);
+					storeName, descriptionName, offeringName, OfferingFetchProfile.DETAIL);
 
 			model.addAttribute("offering", offering);
 			model.addAttribute("title", offering.getDisplayName() + " - " + getContextName());
 			model.addAttribute("currentView", "detail");
 
-			if (offeringBo.getAllBookmarkedOfferings().contains(offering)) {
+			if (offeringBo.isBookmarked(offering)) {
 				model.addAttribute("bookmark", true);
 			}
 
@@ -149,7 +150,7 @@ public class OfferingController extends AbstractController {
 			model.addAttribute("user", getCurrentUser());
 
 			offering = offeringBo.findOfferingByNameStoreAndDescription(
-					storeName, descriptionName, offeringName);
+					storeName, descriptionName, offeringName, OfferingFetchProfile.PRICE_PLANS);
 
 			model.addAttribute("offering", offering);
 			model.addAttribute("title", offering.getDisplayName() + " - " + getContextName());
@@ -159,7 +160,7 @@ public class OfferingController extends AbstractController {
 				model.addAttribute("review", reviewBo.getUserReview(offering));
 			} catch (Exception e) {}
 
-			if (offeringBo.getAllBookmarkedOfferings().contains(offering)) {
+			if (offeringBo.isBookmarked(offering)) {
 				model.addAttribute("bookmark", true);
 			}
 
@@ -211,7 +212,7 @@ public class OfferingController extends AbstractController {
 			model.addAttribute("user", getCurrentUser());
 
 			Offering offering = offeringBo.findOfferingByNameStoreAndDescription(
-					storeName, descriptionName, offeringName);
+					storeName, descriptionName, offeringName, OfferingFetchProfile.SERVICES);
 
 			model.addAttribute("offering", offering);
 			model.addAttribute("title", "Services - " + offering.getDisplayName() + " - " + getContextName());
@@ -39,6 +39,7 @@ import org.fiware.apps.marketplace.exceptions.DescriptionNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 public interface DescriptionDao {
 
@@ -152,6 +153,18 @@ public interface DescriptionDao {
 	 */
 	public List<Description> getStoreDescriptionsPage(String storeName, 
 			int offset, int max) throws StoreNotFoundException;
+	
+	/**
+	 * Returns a sublist of all the descriptions contained in the a store starting after the given cursor. 
+	 * Descriptions are sorted by ID.
+	 * @param storeName The name of the store that contains the descriptions to be retrieved
+	 * @param cursor The position after which descriptions are returned or null to start from the first one
+	 * @param max The max number of descriptions to be returned
+	 * @return A sublist of all the descriptions contained in the store defined by the provided name
+	 * @throws StoreNotFoundException If it does not exist a store with the provided name
+	 */
+	public List<Description> getStoreDescriptionsPage(String storeName, 
+			PageCursor cursor, int max) throws StoreNotFoundException;
 
 	/**
 	 * Returns the current list of descriptions created by a user in one specific store
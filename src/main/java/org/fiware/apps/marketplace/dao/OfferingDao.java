@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.dao;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.List;
 
 import org.fiware.apps.marketplace.exceptions.DescriptionNotFoundException;
@@ -39,6 +40,8 @@ import org.fiware.apps.marketplace.exceptions.OfferingNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 public interface OfferingDao {
 	
@@ -82,6 +85,14 @@ public interface OfferingDao {
 			String offeringName) throws StoreNotFoundException, DescriptionNotFoundException, 
 			OfferingNotFoundException;
 	
+	/**
+	 * Returns an offering based on its ID
+	 * @param id The ID of the offering
+	 * @return The offering with the given ID
+	 * @throws OfferingNotFoundException If it does not exist an offering with the given ID
+	 */
+	public Offering findById(Integer id) throws OfferingNotFoundException;
+	
 	
 	////////////////////////////////////////////////////////////////////////////////////
 	/////////////////////////////////////// LIST ///////////////////////////////////////
@@ -99,6 +110,16 @@ public interface OfferingDao {
 	 */
 	public List<Offering> getOfferingsPage(int offset, int max, String orderBy, boolean desc);
 	
+	/**
+	 * Returns a sublist of all the offerings stored in the database starting after the given cursor
+	 * @param cursor The position after which offerings are returned or null to start from the first one
+	 * @param max The max number of offerings to be returned
+	 * @param orderBy The field that will be used to order the returned offerings
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the offerings stored in the database
+	 */
+	public List<Offering> getOfferingsPage(PageCursor cursor, int max, String orderBy, boolean desc);
+	
 	// public List<Offering> getAllStoreOfferings(String storeName) 
 	//	 	throws StoreNotFoundException;
 	
@@ -115,6 +136,19 @@ public interface OfferingDao {
 	public List<Offering> getStoreOfferingsPage(String storeName, int offset, int max, String orderBy, boolean desc) 
 			throws StoreNotFoundException;
 	
+	/**
+	 * Returns a sublist of all the offerings contained in a given store starting after the given cursor
+	 * @param storeName The name of the store that contains the offerings to be retrieved
+	 * @param cursor The position after which offerings are returned or null to start from the first one
+	 * @param max The max number of offerings to be returned
+	 * @param orderBy The field that will be used to order the returned offerings
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the offerings contained in the given store
+	 * @throws StoreNotFoundException If it does not exist a store with the given name
+	 */
+	public List<Offering> getStoreOfferingsPage(String storeName, PageCursor cursor, int max, String orderBy, 
+			boolean desc) throws StoreNotFoundException;
+	
 	// public List<Offering> getAllDescriptionOfferings(String storeName, String descriptionName)
 	// 		throws StoreNotFoundException, DescriptionNotFoundException;
 	
@@ -147,5 +181,27 @@ public interface OfferingDao {
 	 */
 	public List<Offering> getBookmarkedOfferingsPage(String userName, int offset, int max, String orderBy, 
 			boolean desc) throws UserNotFoundException;
+	
+	/**
+	 * Checks if an offering has been bookmarked by a given user
+	 * @param userName The name of the user
+	 * @param offering The offering to be checked
+	 * @return true if the user has bookmarked the offering. False otherwise.
+	 */
+	public boolean isBookmarked(String userName, Offering offering);
+	
+	
+	////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// FETCH //////////////////////////////////////
+	////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Loads the associations included in the given profile. Associations are lazy and batch 
+	 * fetched, so each association is retrieved in one query for all the given offerings. This 
+	 * method must be called within the transaction that retrieved the offerings.
+	 * @param offerings The offerings whose associations have to be loaded
+	 * @param profile The associations to be loaded
+	 */
+	public void initialize(Collection<Offering> offerings, OfferingFetchProfile profile);
 
 }
@@ -34,11 +34,29 @@ package org.fiware.apps.marketplace.dao;
 
 import java.util.List;
 
+import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.ReviewableEntity;
+import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.utils.PageCursor;
 
 public interface ReviewDao {
 	
+	/**
+	 * Deletes a review
+	 * @param review The review to be deleted
+	 */
+	public void delete(Review review);
+	
+	/**
+	 * Returns a review of a given entity without loading the rest of reviews of the entity
+	 * @param entity The reviewed entity
+	 * @param reviewId The ID of the review
+	 * @return The review with the given ID
+	 * @throws ReviewNotFoundException If the entity does not contain a review with the given ID
+	 */
+	public Review findById(ReviewableEntity entity, int reviewId) throws ReviewNotFoundException;
+	
 	/**
 	 * Returns a sublist of all the reviews of a given entity
 	 * @param entity The entity whose reviews want to be retrieved
@@ -49,5 +67,43 @@ public interface ReviewDao {
 	 * @return A sublist of all the reviews of the given entity
 	 */
 	public List<Review> getReviewsPage(ReviewableEntity entity, int offset, int max, String orderBy, boolean desc);
+	
+	/**
+	 * Returns a sublist of all the reviews of a given entity starting after the given cursor
+	 * @param entity The entity whose reviews want to be retrieved
+	 * @param cursor The position after which reviews are returned or null to start from the first one
+	 * @param max The max number of reviews to be returned
+	 * @param orderBy The field that will be used to order the returned reviews
+	 * @param desc true to sort results in reverse order
+	 * @return A sublist of all the reviews of the given entity
+	 */
+	public List<Review> getReviewsPage(ReviewableEntity entity, PageCursor cursor, int max, String orderBy, 
+			boolean desc);
+	
+	/**
+	 * Returns the review that a given user has posted about a given entity
+	 * @param entity The reviewed entity
+	 * @param user The user that posted the review
+	 * @return The review posted by the given user about the given entity
+	 * @throws ReviewNotFoundException If the user has not reviewed the given entity
+	 */
+	public Review findUserReview(ReviewableEntity entity, User user) throws ReviewNotFoundException;
+	
+	/**
+	 * Adds reviews with a given score to the aggregates (number of reviews, sum of scores, number of 
+	 * reviews of each score and average score) of a given entity. Aggregates are modified in the database 
+	 * in a single statement so changes made by concurrent transactions are not lost.
+	 * @param entity The reviewed entity
+	 * @param score The score of the reviews
+	 * @param count The number of reviews to be added (negative to remove reviews)
+	 */
+	public void updateAggregates(ReviewableEntity entity, int score, int count);
+	
+	/**
+	 * Rebuilds the aggregates of the entities that do not match their stored reviews. Aggregates are 
+	 * checked and rebuilt in a single statement so changes made by concurrent transactions are not lost.
+	 * @return The number of entities whose aggregates have been rebuilt
+	 */
+	public int rebuildAggregates();
 
 }
@@ -35,6 +35,7 @@ package org.fiware.apps.marketplace.dao;
 import java.util.List;
 
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
+import org.fiware.apps.marketplace.model.OfferingView;
 import org.fiware.apps.marketplace.model.ViewedOffering;
 
 public interface ViewedOfferingDao {
@@ -86,12 +87,10 @@ public interface ViewedOfferingDao {
 			throws UserNotFoundException;
 	
 	/**
-	 * Returns a sublist of all the offerings viewed by other users (ordered by view date)
-	 * @param userName The user to be excluded
-	 * @param max The max number of offerings to be returned
-	 * @return A sublist of all the offerings viewed by other users
-	 * @throws UserNotFoundException If it does not exist a user with the given user name
+	 * Returns the last views of offerings by any user (the most recent first)
+	 * @param max The max number of views to be returned
+	 * @return The last views of offerings
 	 */
-	public List<ViewedOffering> getOfferingsViewedByOtherUsers(String userName, int max) throws UserNotFoundException;
+	public List<OfferingView> getLastViews(int max);
 
 }
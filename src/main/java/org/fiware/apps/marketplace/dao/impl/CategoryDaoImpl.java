@@ -39,6 +39,8 @@ import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
 import org.fiware.apps.marketplace.utils.MarketplaceHibernateDao;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.hibernate.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -55,23 +57,14 @@ public class CategoryDaoImpl extends MarketplaceHibernateDao implements Category
 	
 	@Override
 	public boolean isNameAvailable(String name) {
-		
-		boolean exists = false;
-		
-		try {
-			findByName(name);
-		} catch (CategoryNotFoundException e) {
-			exists = true;
-		}
-		
-		return exists;
+		return !exists(createCountQuery(CATEGORIES_TABLE_NAME, "name = :name")
+				.setParameter("name", name));
 	}
 
 	@Override
 	public Category findByName(String categoryName) throws CategoryNotFoundException {
 		
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where name=:name", CATEGORIES_TABLE_NAME))
+		List<?> list = createNameLookupQuery(String.format("from %s where name=:name", CATEGORIES_TABLE_NAME))
 				.setParameter("name", categoryName)
 				.list();
 		
@@ -86,13 +79,7 @@ public class CategoryDaoImpl extends MarketplaceHibernateDao implements Category
 	public List<Offering> getCategoryOfferingsSortedBy(String categoryName, int offset, int max, 
 			String orderBy, boolean desc) throws CategoryNotFoundException {
 		
-		Category category = findByName(categoryName);
-		String ascOrDesc = desc ? "DESC" : "ASC";
-				
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where :category in elements(categories) "
-						+ "ORDER BY %s %s", OFFERINGS_TABLE_NAME, orderBy, ascOrDesc))
-				.setParameter("category", category)
+		List<?> list = createCategoryOfferingsQuery(categoryName, null, orderBy, desc)
 				.setFirstResult(offset)
 				.setMaxResults(max)
 				.list();
@@ -103,6 +90,29 @@ public class CategoryDaoImpl extends MarketplaceHibernateDao implements Category
 		return lo;
 	}
 	
+	@Override
+	public List<Offering> getCategoryOfferingsSortedBy(String categoryName, PageCursor cursor, int max, 
+			String orderBy, boolean desc) throws CategoryNotFoundException {
+		
+		List<?> list = createCategoryOfferingsQuery(categoryName, cursor, orderBy, desc)
+				.setMaxResults(max)
+				.list();
+		
+		@SuppressWarnings("unchecked")
+		List<Offering> lo = (List<Offering>) list;
+		
+		return lo;
+	}
+	
+	private Query createCategoryOfferingsQuery(String categoryName, PageCursor cursor, String orderBy, 
+			boolean desc) throws CategoryNotFoundException {
+		
+		Category category = findByName(categoryName);
+		
+		return createPageQuery(OFFERINGS_TABLE_NAME, ":category in elements(categories)", cursor, orderBy, desc)
+				.setParameter("category", category);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	@Transactional(readOnly = true)
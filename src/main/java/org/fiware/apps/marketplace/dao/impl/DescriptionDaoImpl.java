@@ -42,9 +42,12 @@ import org.fiware.apps.marketplace.exceptions.DescriptionNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Store;
 import org.fiware.apps.marketplace.utils.MarketplaceHibernateDao;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
+import org.hibernate.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -105,13 +108,13 @@ public class DescriptionDaoImpl extends MarketplaceHibernateDao implements Descr
 			throws DescriptionNotFoundException, StoreNotFoundException {
 		
 		// Throws StoreNotFoundException if the Store does not exist
-		storeDao.findByName(storeName);
+		Store store = storeDao.findByName(storeName);
 		
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where name = :descriptionName and store.name = :storeName", 
-						TABLE_NAME))
+		// Stores are not joined so cached results are not discarded when stores or their reviews change
+		List<?> list = createNameLookupQuery(String.format(
+						"from %s where name = :descriptionName and store.id = :storeId", TABLE_NAME))
 				.setParameter("descriptionName", descriptionName)
-				.setParameter("storeName", storeName)
+				.setParameter("storeId", store.getId())
 				.list();
 
 		if (list.isEmpty()) {
@@ -124,36 +127,23 @@ public class DescriptionDaoImpl extends MarketplaceHibernateDao implements Descr
 
 	@Override
 	public boolean isNameAvailableInStore(String storeName, String name) {
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where name = :name and store.name = :storeName", TABLE_NAME))
+		return !exists(createCountQuery(TABLE_NAME, "name = :name and store.name = :storeName")
 				.setParameter("name", name)
-				.setParameter("storeName", storeName)
-				.list();
-
-		return list.isEmpty();
+				.setParameter("storeName", storeName));
 	}
 
 	@Override
 	public boolean isDisplayNameAvailableInStore(String storeName, String displayName) {
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where displayName = :displayName and store.name = :storeName", 
-						TABLE_NAME))
+		return !exists(createCountQuery(TABLE_NAME, "displayName = :displayName and store.name = :storeName")
 				.setParameter("displayName", displayName)
-				.setParameter("storeName", storeName)
-				.list();
-
-		return list.isEmpty();
+				.setParameter("storeName", storeName));
 	}
 
 	@Override
 	public boolean isURLAvailableInStore(String storeName, String url) {
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where url = :url and store.name = :storeName", TABLE_NAME))
+		return !exists(createCountQuery(TABLE_NAME, "url = :url and store.name = :storeName")
 				.setParameter("url", url)
-				.setParameter("storeName", storeName)
-				.list();
-
-		return list.isEmpty();
+				.setParameter("storeName", storeName));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -201,16 +191,32 @@ public class DescriptionDaoImpl extends MarketplaceHibernateDao implements Descr
 	public List<Description> getStoreDescriptionsPage(String storeName, int offset, int max) 
 			throws StoreNotFoundException {
 
-		// Throws StoreNotFoundException if the store does not exist
-		storeDao.findByName(storeName);
-
-		return getSession().createQuery(String.format("from %s where store.name = :storeName", TABLE_NAME))
-				.setParameter("storeName", storeName)
+		return createStoreDescriptionsQuery(storeName, null)
 				.setFirstResult(offset)
 				.setMaxResults(max)
 				.list();
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Description> getStoreDescriptionsPage(String storeName, PageCursor cursor, int max) 
+			throws StoreNotFoundException {
+
+		return createStoreDescriptionsQuery(storeName, cursor)
+				.setMaxResults(max)
+				.list();
+	}
+	
+	private Query createStoreDescriptionsQuery(String storeName, PageCursor cursor) 
+			throws StoreNotFoundException {
+		
+		// Throws StoreNotFoundException if the store does not exist
+		storeDao.findByName(storeName);
+
+		return createPageQuery(TABLE_NAME, "store.name = :storeName", cursor, "id", false)
+				.setParameter("storeName", storeName);
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public List<Description> getUserDescriptionsInStore(String userName, String storeName)
@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.dao.impl;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.List;
 
 import org.fiware.apps.marketplace.dao.DescriptionDao;
@@ -43,8 +44,13 @@ import org.fiware.apps.marketplace.exceptions.OfferingNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
+import org.fiware.apps.marketplace.model.PricePlan;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.utils.MarketplaceHibernateDao;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.hibernate.Hibernate;
+import org.hibernate.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -72,6 +78,17 @@ public class OfferingDaoImpl extends MarketplaceHibernateDao implements Offering
 		getSession().delete(offering);
 	}
 
+	@Override
+	public Offering findById(Integer id) throws OfferingNotFoundException {
+		Object res = getSession().get(Offering.class, id);
+		
+		if (res == null) {
+			throw new OfferingNotFoundException("Offering with ID " + id + " not found");
+		}
+		
+		return (Offering) res;
+	}
+
 	@Override
 	public Offering findByNameStoreAndDescription(String storeName, 
 			String descriptionName, String offeringName) throws OfferingNotFoundException, 
@@ -106,15 +123,19 @@ public class OfferingDaoImpl extends MarketplaceHibernateDao implements Offering
 	@SuppressWarnings("unchecked")
 	@Override
 	public List<Offering> getOfferingsPage(int offset, int max, String orderBy, boolean desc) {
-		
-		String descText = desc ? "DESC" : "ASC";
-		
-		// Avoid Hibernate Null Pointer Exception
-		return getSession().createQuery("FROM " + TABLE_NAME + " ORDER BY " + orderBy + " " + descText)
+		return createPageQuery(TABLE_NAME, null, null, orderBy, desc)
 				.setFirstResult(offset)
 				.setMaxResults(max)
 				.list();
 	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Offering> getOfferingsPage(PageCursor cursor, int max, String orderBy, boolean desc) {
+		return createPageQuery(TABLE_NAME, null, cursor, orderBy, desc)
+				.setMaxResults(max)
+				.list();
+	}
 
 	/*@Override
 	public List<Offering> getAllStoreOfferings(String storeName) 
@@ -127,18 +148,31 @@ public class OfferingDaoImpl extends MarketplaceHibernateDao implements Offering
 	public List<Offering> getStoreOfferingsPage(String storeName, int offset,	
 			int max, String orderBy, boolean desc) throws StoreNotFoundException {
 		
-		String descText = desc ? "DESC" : "ASC";
+		return createStoreOfferingsQuery(storeName, null, orderBy, desc)
+				.setFirstResult(offset)
+				.setMaxResults(max)
+				.list();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Offering> getStoreOfferingsPage(String storeName, PageCursor cursor,	
+			int max, String orderBy, boolean desc) throws StoreNotFoundException {
+		
+		return createStoreOfferingsQuery(storeName, cursor, orderBy, desc)
+				.setMaxResults(max)
+				.list();
+	}
+	
+	private Query createStoreOfferingsQuery(String storeName, PageCursor cursor, String orderBy, 
+			boolean desc) throws StoreNotFoundException {
 		
 		// Throw exceptions if the Store or the Description does not exist
 		storeDao.findByName(storeName);
 		
 		// Get the offerings
-		return getSession().createQuery("FROM " + TABLE_NAME + " WHERE describedIn.store.name = :storeName" + " "
-						+ "ORDER BY " + orderBy + " " + descText)
-				.setParameter("storeName", storeName)
-				.setFirstResult(offset)
-				.setMaxResults(max)
-				.list();
+		return createPageQuery(TABLE_NAME, "describedIn.store.name = :storeName", cursor, orderBy, desc)
+				.setParameter("storeName", storeName);
 	}
 
 	/*@Override
@@ -189,5 +223,42 @@ public class OfferingDaoImpl extends MarketplaceHibernateDao implements Offering
 				.list();
 		
 	}
+	
+	@Override
+	public boolean isBookmarked(String userName, Offering offering) {
+		return exists(getSession().createQuery("SELECT COUNT(*) FROM " + TABLE_NAME + " o "
+						+ "JOIN o.usersBookmarkedMe u WHERE o.id = :offeringId AND u.userName = :userName")
+				.setParameter("offeringId", offering.getId())
+				.setParameter("userName", userName));
+	}
+	
+	@Override
+	public void initialize(Collection<Offering> offerings, OfferingFetchProfile profile) {
+		
+		// Collections are batch fetched: initializing the collection of the first offering
+		// loads the same collection for the rest of offerings attached to the session
+		for (Offering offering: offerings) {
+			
+			if (profile.includesCategories()) {
+				Hibernate.initialize(offering.getCategories());
+			}
+			
+			if (profile.includesPricePlans() && offering.getPricePlans() != null) {
+				Hibernate.initialize(offering.getPricePlans());
+				
+				for (PricePlan pricePlan: offering.getPricePlans()) {
+					Hibernate.initialize(pricePlan.getPriceComponents());
+				}
+			}
+			
+			if (profile.includesServices() && offering.getServices() != null) {
+				Hibernate.initialize(offering.getServices());
+				
+				for (org.fiware.apps.marketplace.model.Service service: offering.getServices()) {
+					Hibernate.initialize(service.getCategories());
+				}
+			}
+		}
+	}
 
 }
@@ -3,25 +3,50 @@ package org.fiware.apps.marketplace.dao.impl;
 import java.util.List;
 
 import org.fiware.apps.marketplace.dao.ReviewDao;
+import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.ReviewableEntity;
+import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.utils.MarketplaceHibernateDao;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.springframework.stereotype.Repository;
 
 @Repository("reviewDao")
 public class ReviewDaoImpl extends MarketplaceHibernateDao implements ReviewDao {
 	
 	private static final String TABLE_NAME = Review.class.getName();
+	
+	// Aggregates are updated with SQL statements so they can be computed by the database
+	private static final String AGGREGATES_TABLE = "reviewable_entity";
+	private static final String REVIEWS_TABLE = "reviews";
+	
+	@Override
+	public void delete(Review review) {
+		getSession().delete(review);
+	}
+	
+	@Override
+	public Review findById(ReviewableEntity entity, int reviewId) throws ReviewNotFoundException {
+		
+		Review review = (Review) getSession()
+				.createQuery(String.format("from %s where reviewableEntity=:entity and id=:id", TABLE_NAME))
+				.setParameter("entity", entity)
+				.setParameter("id", reviewId)
+				.uniqueResult();
+		
+		if (review == null) {
+			throw new ReviewNotFoundException(String.format("Review %d not found in %s %s", reviewId, 
+					entity.getClass().getSimpleName(), entity.toString()));
+		}
+		
+		return review;
+	}
 
 	@Override
 	public List<Review> getReviewsPage(ReviewableEntity entity, int offset, int max, String orderBy, boolean desc) {
 		
-		String descString = desc ? "DESC" : "ASC";
-		
 		@SuppressWarnings("unchecked")
-		List<Review> list = getSession()
-				.createQuery(String.format("from %s where reviewableEntity=:entity ORDER BY %s %s", 
-						TABLE_NAME, orderBy, descString))
+		List<Review> list = createPageQuery(TABLE_NAME, "reviewableEntity=:entity", null, orderBy, desc)
 				.setParameter("entity", entity)
 				.setFirstResult(offset)
 				.setMaxResults(max)
@@ -29,5 +54,87 @@ public class ReviewDaoImpl extends MarketplaceHibernateDao implements ReviewDao
 		
 		return list;
 	}
+	
+	@Override
+	public List<Review> getReviewsPage(ReviewableEntity entity, PageCursor cursor, int max, String orderBy, 
+			boolean desc) {
+		
+		@SuppressWarnings("unchecked")
+		List<Review> list = createPageQuery(TABLE_NAME, "reviewableEntity=:entity", cursor, orderBy, desc)
+				.setParameter("entity", entity)
+				.setMaxResults(max)
+				.list();
+		
+		return list;
+	}
+	
+	@Override
+	public Review findUserReview(ReviewableEntity entity, User user) throws ReviewNotFoundException {
+		
+		Review review = (Review) getSession()
+				.createQuery(String.format("from %s where reviewableEntity=:entity and user=:user", TABLE_NAME))
+				.setParameter("entity", entity)
+				.setParameter("user", user)
+				.setMaxResults(1)
+				.uniqueResult();
+		
+		if (review == null) {
+			throw new ReviewNotFoundException("User " + user.getUserName() + " has not reviewed this entity");
+		}
+		
+		return review;
+	}
+	
+	@Override
+	public void updateAggregates(ReviewableEntity entity, int score, int count) {
+		
+		if (score < ReviewableEntity.MIN_SCORE || score > ReviewableEntity.MAX_SCORE) {
+			throw new IllegalArgumentException("Invalid score: " + score);
+		}
+		
+		// MySQL assigns columns from left to right using the updated values, so the average 
+		// is assigned first (as in standard SQL, it's computed from the previous values)
+		getSession()
+				.createSQLQuery(String.format("update %1$s set "
+						+ "averageScore = case when reviewsCount + :count = 0 then 0 "
+						+ "else (scoresSum + :sum) * 1e0 / (reviewsCount + :count) end, "
+						+ "reviewsCount = reviewsCount + :count, scoresSum = scoresSum + :sum, "
+						+ "score%2$dCount = score%2$dCount + :count where id = :id", AGGREGATES_TABLE, score))
+				.addSynchronizedEntityClass(ReviewableEntity.class)
+				.setParameter("count", count)
+				.setParameter("sum", (long) score * count)
+				.setParameter("id", entity.getId())
+				.executeUpdate();
+	}
+	
+	@Override
+	public int rebuildAggregates() {
+		
+		StringBuilder counts = new StringBuilder();
+		StringBuilder assignments = new StringBuilder();
+		StringBuilder conditions = new StringBuilder();
+		
+		for (int score = ReviewableEntity.MIN_SCORE; score <= ReviewableEntity.MAX_SCORE; score++) {
+			String column = "score" + score + "Count";
+			counts.append(String.format(", sum(score = %d) as %s", score, column));
+			assignments.append(String.format(", e.%1$s = coalesce(r.%1$s, 0)", column));
+			conditions.append(String.format(" or e.%1$s <> coalesce(r.%1$s, 0)", column));
+		}
+		
+		String averageScore = "case when r.reviewsCount is null then 0 else r.scoresSum * 1e0 / r.reviewsCount end";
+		
+		return getSession()
+				.createSQLQuery(String.format("update %s e left join ("
+						+ "select entity, count(*) as reviewsCount, sum(score) as scoresSum%s "
+						+ "from %s group by entity) r on r.entity = e.id "
+						+ "set e.averageScore = %s, e.reviewsCount = coalesce(r.reviewsCount, 0), "
+						+ "e.scoresSum = coalesce(r.scoresSum, 0)%s "
+						+ "where e.averageScore <> %s or e.reviewsCount <> coalesce(r.reviewsCount, 0) "
+						+ "or e.scoresSum <> coalesce(r.scoresSum, 0)%s", 
+						AGGREGATES_TABLE, counts, REVIEWS_TABLE, averageScore, assignments, averageScore, 
+						conditions))
+				.addSynchronizedEntityClass(ReviewableEntity.class)
+				.executeUpdate();
+	}
 
 }
@@ -53,8 +53,7 @@ public class ServiceDaoImpl extends MarketplaceHibernateDao implements ServiceDa
 	@Override
 	public Service findByURI(String uri) throws ServiceNotFoundException {
 		
-		List<?> list = getSession()
-				.createQuery(String.format("from %s where uri=:uri", TABLE_NAME))
+		List<?> list = createNameLookupQuery(String.format("from %s where uri=:uri", TABLE_NAME))
 				.setParameter("uri", uri)
 				.list();
 		
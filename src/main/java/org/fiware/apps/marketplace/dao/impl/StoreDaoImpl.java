@@ -79,33 +79,20 @@ public class StoreDaoImpl extends MarketplaceHibernateDao implements StoreDao {
 
 	@Override
 	public boolean isNameAvailable(String name) {
-		List<?> list = getSession()
-				.createQuery("from Store where name = :name")
-				.setParameter("name", name)
-				.list();
-
-		return list.isEmpty();
+		return !exists(createCountQuery("Store", "name = :name")
+				.setParameter("name", name));
 	}
 
 	@Override
 	public boolean isDisplayNameAvailable(String displayName) {
-		List<?> list = getSession()
-				.createQuery("from Store where displayName = :displayName")
-				.setParameter("displayName", displayName)
-				.list();
-
-		return list.isEmpty();
+		return !exists(createCountQuery("Store", "displayName = :displayName")
+				.setParameter("displayName", displayName));
 	}
 
 	@Override
 	public boolean isURLAvailable(String url) {
-		List<?> list = getSession()
-				.createQuery("from Store where url = :url")
-				.setParameter("url", url)
-				.list();
-
-		return list.isEmpty();
-
+		return !exists(createCountQuery("Store", "url = :url")
+				.setParameter("url", url));
 	}
 
 	@SuppressWarnings("unchecked")
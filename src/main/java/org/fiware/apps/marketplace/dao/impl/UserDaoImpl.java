@@ -102,29 +102,15 @@ public class UserDaoImpl extends MarketplaceHibernateDao implements UserDao {
 
 	@Override
 	public boolean isUserNameAvailable(String userName) {
-
-		boolean available = false;
-
-		try {
-			findByName(userName);
-		} catch (UserNotFoundException e) {
-			available = true;
-		}
-
-		return available;
+		return !exists(createCountQuery(TABLE_NAME, "userName = :userName")
+				.setParameter("userName", userName));
 	}
 
 	@Override
 	@Transactional(readOnly = true)
 	public boolean isEmailAvailable(String email) {
-		String query = String.format("from %s where email=:email", TABLE_NAME);
-
-		List<?> list = getSession()
-				.createQuery(query)
-				.setParameter("email", email)
-				.list();
-
-		return list.isEmpty();
+		return !exists(createCountQuery(TABLE_NAME, "email = :email")
+				.setParameter("email", email));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,272 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.fiware.apps.marketplace.model.ServiceAttribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Stores the similarity scores of attribute pairs and the hierarchical scores of attribute type pairs so 
+ * they are not calculated again each time two services are compared. Attributes are identified by their
+ * type and their values, so equal attributes of different services share their scores. 
+ * 
+ * Scores depend on the attribute types and on their statistics, so the cache must be invalidated when any 
+ * of them changes. Each cache is bounded: it's emptied when the maximum number of entries is reached.
+ */
+@Component
+@Scope("singleton")
+public class AttributeSimilarityCache {
+
+	@Value("${comparison.similarityCache.maxEntries:100000}") private int maxEntries;
+	@Autowired(required = false) private MetricRegistry metricRegistry;
+
+	private final AtomicInteger generation = new AtomicInteger();
+	private final ScoresCache attributeScores = new ScoresCache();
+	private final ScoresCache hierarchicalScores = new ScoresCache();
+
+	public AttributeSimilarityCache() {
+		// Required by Spring
+	}
+
+	public AttributeSimilarityCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@PostConstruct
+	public void init() {
+		if (metricRegistry != null) {
+			registerGauges();
+		}
+	}
+
+	/**
+	 * Identifies a pair of attributes (or attribute types) compared using a given statistics map. Keys also 
+	 * contain the generation of the cache when they were created, so scores calculated before invalidating 
+	 * the cache are never returned after it.
+	 */
+	public static final class Key {
+
+		private final Object scope;
+		private final String source;
+		private final String target;
+		private final int generation;
+		private final int hash;
+
+		private Key(Object scope, String source, String target, int generation) {
+			this.scope = scope;
+			this.source = source;
+			this.target = target;
+			this.generation = generation;
+			this.hash = ((System.identityHashCode(scope) * 31 + source.hashCode()) * 31 + target.hashCode()) * 31 + generation;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+			// Scopes (statistics maps) are compared by identity
+			return scope == other.scope && generation == other.generation && 
+					source.equals(other.source) && target.equals(other.target);
+		}
+	}
+
+	private class ScoresCache {
+
+		private final ConcurrentHashMap<Key, Double> scores = new ConcurrentHashMap<>();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		private Double get(Key key) {
+			Double score = scores.get(key);
+			if (score != null) {
+				hits.incrementAndGet();
+			} else {
+				misses.incrementAndGet();
+			}
+			return score;
+		}
+
+		private void put(Key key, double score) {
+			if (scores.size() >= maxEntries) {
+				scores.clear();
+			}
+			scores.put(key, score);
+		}
+
+		private double getHitRatio() {
+			long hits = this.hits.get();
+			long total = hits + misses.get();
+			return total == 0 ? 0 : (double) hits / total;
+		}
+	}
+
+	/**
+	 * Returns a string that identifies the type and the values of an attribute (including its value references)
+	 * @param attribute The attribute
+	 * @return The signature of the attribute
+	 */
+	public static String getSignature(ServiceAttribute attribute) {
+		StringBuilder builder = new StringBuilder();
+		appendSignature(builder, attribute);
+		return builder.toString();
+	}
+
+	private static void appendSignature(StringBuilder builder, ServiceAttribute attribute) {
+		if (attribute == null) {
+			builder.append("null");
+			return;
+		}
+
+		builder.append(attribute.getClass().getSimpleName()).append('|').append(attribute.getTypeUri())
+				.append('|').append(attribute.getValue()).append('|').append(attribute.getMinValue())
+				.append('|').append(attribute.getMaxValue()).append('|').append(attribute.getUnit());
+
+		List<ServiceAttribute> valueReferences = attribute.getValueReferences();
+		if (valueReferences != null) {
+			builder.append('[');
+			for (ServiceAttribute valueReference : valueReferences) {
+				appendSignature(builder, valueReference);
+				builder.append(',');
+			}
+			builder.append(']');
+		}
+	}
+
+	/**
+	 * @param scope The statistics map used to calculate the score
+	 * @param source The signature of the source attribute or the URI of the source attribute type
+	 * @param target The signature of the target attribute or the URI of the target attribute type
+	 * @return The key that identifies the score
+	 */
+	public Key getKey(Object scope, String source, String target) {
+		return new Key(scope, String.valueOf(source), String.valueOf(target), generation.get());
+	}
+
+	public Double getAttributeScore(Key key) {
+		return attributeScores.get(key);
+	}
+
+	public void putAttributeScore(Key key, double score) {
+		attributeScores.put(key, score);
+	}
+
+	public Double getHierarchicalScore(Key key) {
+		return hierarchicalScores.get(key);
+	}
+
+	public void putHierarchicalScore(Key key, double score) {
+		hierarchicalScores.put(key, score);
+	}
+
+	/**
+	 * Discards all the stored scores. Must be called when attribute types or their statistics change.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		attributeScores.scores.clear();
+		hierarchicalScores.scores.clear();
+	}
+
+	/**
+	 * @return The ratio of attribute pairs whose score was already stored
+	 */
+	public double getAttributeScoresHitRatio() {
+		return attributeScores.getHitRatio();
+	}
+
+	/**
+	 * @return The ratio of attribute type pairs whose hierarchical score was already stored
+	 */
+	public double getHierarchicalScoresHitRatio() {
+		return hierarchicalScores.getHitRatio();
+	}
+
+	/**
+	 * @return The number of scores currently stored
+	 */
+	public int getSize() {
+		return attributeScores.scores.size() + hierarchicalScores.scores.size();
+	}
+
+	private void registerGauges() {
+
+		metricRegistry.register(MetricRegistry.name(AttributeSimilarityCache.class, "attributeScores", "hitRatio"), 
+				new Gauge<Double>() {
+			@Override
+			public Double getValue() {
+				return getAttributeScoresHitRatio();
+			}
+		});
+
+		metricRegistry.register(MetricRegistry.name(AttributeSimilarityCache.class, "hierarchicalScores", "hitRatio"), 
+				new Gauge<Double>() {
+			@Override
+			public Double getValue() {
+				return getHierarchicalScoresHitRatio();
+			}
+		});
+
+		metricRegistry.register(MetricRegistry.name(AttributeSimilarityCache.class, "size"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getSize();
+			}
+		});
+	}
+}
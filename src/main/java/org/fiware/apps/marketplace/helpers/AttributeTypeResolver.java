@@ -33,14 +33,32 @@ package org.fiware.apps.marketplace.helpers;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.fiware.apps.marketplace.model.ServiceAttributeType;
 import org.fiware.apps.marketplace.model.ServiceNominalAttributeType;
 import org.fiware.apps.marketplace.model.ServiceOrdinalAttributeType;
 import org.fiware.apps.marketplace.model.ServiceRatioAttributeType;
 import org.fiware.apps.marketplace.rdf.RdfHelper;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -52,33 +70,128 @@ import org.springframework.stereotype.Service;
 @Service("attributeTypeResolver")
 public class AttributeTypeResolver {
 	
-	// FIXME: The code is not tested. It has been adapted to the new RdfHelper implementation
+	@Autowired private RdfModelCache rdfModelCache;
+	@Value("${attributeTypes.fetch.threads:8}") private int fetchThreads;
+	@Value("${attributeTypes.fetch.timeout:60000}") private long fetchTimeout;
+	
+	private ExecutorService executor;
+	
+	private static Logger logger = LoggerFactory.getLogger(AttributeTypeResolver.class);
+	
+	@PostConstruct
+	public void init() {
+		executor = Executors.newFixedThreadPool(fetchThreads);
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		executor.shutdownNow();
+	}
 	
 	/**
-	 * Resolves all service attribute types that are contained under the given uri.
-	 * @param uri
-	 * @return
+	 * Resolves all service attribute types that are contained under the given uris. Uris are fetched 
+	 * concurrently. The types of the uris that cannot be resolved before the timeout are not returned.
+	 * @param uris
+	 * @return The attribute types in the same order as the uris
 	 */
-	public List<ServiceAttributeType> resolveAttributeTypesFromUri(String uri) {
+	public List<ServiceAttributeType> resolveAttributeTypesFromUris(Collection<String> uris) {
+		return resolveAttributeTypesFromUris(uris, Collections.<ServiceAttributeType>emptyList());
+	}
+	
+	/**
+	 * Resolves all service attribute types that are contained under the given uris. Uris are fetched 
+	 * concurrently. When some uris cannot be resolved (they fail or they are not fetched before the timeout), 
+	 * the known types are used instead: types do not record the uri that defines them, so all the known 
+	 * types that have not been resolved again are kept.
+	 * @param uris
+	 * @param knownTypes The types resolved previously
+	 * @return The attribute types in the same order as the uris, followed by the known types kept
+	 */
+	public List<ServiceAttributeType> resolveAttributeTypesFromUris(Collection<String> uris, 
+			Collection<ServiceAttributeType> knownTypes) {
+		
+		List<Callable<List<ServiceAttributeType>>> tasks = new ArrayList<>();
+		for (final String uri : uris) {
+			tasks.add(new Callable<List<ServiceAttributeType>>() {
 				
+				@Override
+				public List<ServiceAttributeType> call() throws Exception {
+					return fetchAttributeTypes(uri);
+				}
+			});
+		}
+		
+		List<ServiceAttributeType> types = new ArrayList<ServiceAttributeType>();
+		boolean failed = false;
+		
 		try {
-			RdfHelper helper = new RdfHelper(uri);
+			// Tasks that have not finished before the timeout are cancelled
+			List<Future<List<ServiceAttributeType>>> results = executor.invokeAll(tasks, fetchTimeout, 
+					TimeUnit.MILLISECONDS);
+			int i = 0;
 			
-			List<ServiceAttributeType> types = new ArrayList<ServiceAttributeType>();
-			StringBuilder queryTypes = new StringBuilder();
-			queryTypes.append("SELECT DISTINCT ?x WHERE { ");
-			queryTypes.append("?x a skos:Concept . ");
-			queryTypes.append("{ { ?x rdfs:subClassOf gr:QualitativeValue } UNION { ?x rdfs:subClassOf gr:QuantitativeValue } } } ");
-			
-			for (String typeUri : helper.queryUris(queryTypes.toString(), "x")) {
-				types.add(createAttributeType(typeUri, helper));
+			for (String uri : uris) {
+				try {
+					types.addAll(results.get(i++).get());
+				} catch (CancellationException | ExecutionException e) {
+					failed = true;
+					logger.warn("Attribute types of {} could not be resolved. Known types will be kept", uri);
+				}
+			}
+		} catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+		}
+		
+		if (failed) {
+			Set<String> resolvedUris = new HashSet<>();
+			for (ServiceAttributeType type : types) {
+				resolvedUris.add(type.getUri());
 			}
 			
-			return types;
+			for (ServiceAttributeType knownType : knownTypes) {
+				if (!resolvedUris.contains(knownType.getUri())) {
+					types.add(knownType);
+				}
+			}
+		}
+		
+		return types;
+	}
+	
+	/**
+	 * Resolves all service attribute types that are contained under the given uri.
+	 * @param uri
+	 * @return The attribute types or an empty list if the uri cannot be resolved
+	 */
+	public List<ServiceAttributeType> resolveAttributeTypesFromUri(String uri) {
+		try {
+			return fetchAttributeTypes(uri);
 		} catch (Exception e) {
 			return Collections.emptyList();
 		}
 	}
+	
+	private List<ServiceAttributeType> fetchAttributeTypes(String uri) throws Exception {
+		
+		RdfHelper helper = rdfModelCache.getHelper(uri);
+		
+		List<ServiceAttributeType> types = new ArrayList<ServiceAttributeType>();
+		StringBuilder queryTypes = new StringBuilder();
+		queryTypes.append("SELECT DISTINCT ?x WHERE { ");
+		queryTypes.append("?x a skos:Concept . ");
+		queryTypes.append("{ { ?x rdfs:subClassOf gr:QualitativeValue } UNION { ?x rdfs:subClassOf gr:QuantitativeValue } } } ");
+		
+		for (String typeUri : helper.queryUris(queryTypes.toString(), "x")) {
+			ServiceAttributeType type = createAttributeType(toUri(typeUri), helper);
+			// Types whose basic type cannot be determined are ignored
+			if (type != null) {
+				types.add(type);
+			}
+		}
+		
+		return types;
+	}
 
 	/**
 	 * Creates an instance of ServiceAttributeType from the given typeUri and model.
@@ -87,14 +200,15 @@ public class AttributeTypeResolver {
 	 * @return Returns null if more than two parent classes have been found or the contained type is unknown. 
 	 */
 	protected ServiceAttributeType createAttributeType(String typeUri, RdfHelper helper) {
-		List<String> baseTypeUris = helper.getObjectUris(typeUri, "rdfs:subClassOf");
+		String subject = "<" + typeUri + ">";
+		List<String> baseTypeUris = toUris(helper.getObjectUris(subject, "rdfs:subClassOf"));
 		if (baseTypeUris.size() > 2) {
 			System.out.println(AttributeTypeResolver.class.getName() + " - Too many base type uris: " + typeUri);
 			return null;
 		}
 
-		String rightSiblingUri = helper.getObjectUri(typeUri, "genVoc:hasRightSibling");
-		String leftSiblingUri = helper.getObjectUri(typeUri, "genVoc:hasLeftSibling");
+		String rightSiblingUri = toUri(helper.getObjectUri(subject, "genVoc:hasRightSibling"));
+		String leftSiblingUri = toUri(helper.getObjectUri(subject, "genVoc:hasLeftSibling"));
 
 		ServiceAttributeType attributeType = null;
 		if (isRatioAttributeType(baseTypeUris))
@@ -109,10 +223,10 @@ public class AttributeTypeResolver {
 		}
 
 		attributeType.setUri(typeUri);
-		attributeType.setPreferedLabel(helper.getLiteral(typeUri, "skos:prefLabel"));
-		attributeType.setDescription(helper.getLiteral(typeUri, "dcterms:description"));
-		attributeType.setBroaderTypeUri(helper.getObjectUri(typeUri, "skos:broader"));
-		for (String narrowerTypeUri : helper.getObjectUris(typeUri, "skos:narrower")) {
+		attributeType.setPreferedLabel(helper.getLiteral(subject, "skos:prefLabel"));
+		attributeType.setDescription(helper.getLiteral(subject, "dcterms:description"));
+		attributeType.setBroaderTypeUri(toUri(helper.getObjectUri(subject, "skos:broader")));
+		for (String narrowerTypeUri : toUris(helper.getObjectUris(subject, "skos:narrower"))) {
 			attributeType.addNarrowerTypeUri(narrowerTypeUri);
 		}
 		for (String baseTypeUri : baseTypeUris) {
@@ -125,6 +239,26 @@ public class AttributeTypeResolver {
 		return attributeType;
 	}
 
+	/**
+	 * Removes the angle brackets of the URIs returned by the RdfHelper, so type URIs can be matched 
+	 * with the type URIs of the attributes.
+	 * @param node
+	 * @return
+	 */
+	private static String toUri(String node) {
+		if (node != null && node.startsWith("<") && node.endsWith(">"))
+			return node.substring(1, node.length() - 1);
+		return node;
+	}
+
+	private static List<String> toUris(List<String> nodes) {
+		List<String> uris = new ArrayList<String>();
+		for (String node : nodes) {
+			uris.add(toUri(node));
+		}
+		return uris;
+	}
+
 	protected boolean isRatioAttributeType(List<String> baseTypeUris) {
 		return baseTypeUris.contains(ServiceRatioAttributeType.baseTypeUri);
 	}
@@ -0,0 +1,231 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.fiware.apps.marketplace.model.ServiceAttribute;
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.fiware.apps.marketplace.model.ServiceQuantitativeAttribute;
+
+/**
+ * Keeps the statistics of the attribute types up to date while service manifestations are added and 
+ * removed, so the cost of an update depends on the number of attributes changed and not on the number of 
+ * service manifestations. Statistics are the same as the ones calculated by 
+ * {@link AttributeTypeStatisticsResolver#resolveStatistics(HashMap, List)}.
+ * 
+ * The type hierarchy is read when service manifestations are added and removed, so a new accumulator
+ * must be created when attribute types change. This class is not thread safe.
+ */
+public class AttributeTypeStatisticsAccumulator {
+	
+	private final HashMap<String, ServiceAttributeType> typeMap;
+	private final Map<String, TypeAccumulator> accumulators = new HashMap<>();
+	private HashMap<String, ServiceAttributeTypeStatistics> statistics;
+	
+	/**
+	 * Multiset of values that returns its min and its max in O(log n) also when values are removed
+	 */
+	private static class ValueRange {
+		
+		private final TreeMap<Double, Integer> values = new TreeMap<>();
+		
+		private void update(Double value, int delta) {
+			if (value == null)
+				return;
+			
+			Integer count = values.get(value);
+			int newCount = (count == null ? 0 : count) + delta;
+			
+			if (newCount > 0) {
+				values.put(value, newCount);
+			} else {
+				values.remove(value);
+			}
+		}
+		
+		private Double getMin() {
+			return values.isEmpty() ? null : values.firstKey();
+		}
+		
+		private Double getMax() {
+			return values.isEmpty() ? null : values.lastKey();
+		}
+	}
+	
+	private static class TypeAccumulator {
+		
+		private int occurrences = 0;
+		private final ValueRange values = new ValueRange();
+		private final ValueRange minValues = new ValueRange();
+		private final ValueRange maxValues = new ValueRange();
+		// Statistics of the value references
+		private final Map<String, TypeAccumulator> accumulators = new HashMap<>();
+	}
+	
+	/**
+	 * @param typeMap Attribute types used to resolve the broader types of the attributes. It must not
+	 * be modified while the accumulator is used.
+	 */
+	public AttributeTypeStatisticsAccumulator(HashMap<String, ServiceAttributeType> typeMap) {
+		this.typeMap = typeMap;
+	}
+	
+	/**
+	 * @return true if the accumulator was created with the given attribute types
+	 */
+	public boolean isBasedOn(HashMap<String, ServiceAttributeType> typeMap) {
+		return this.typeMap == typeMap;
+	}
+	
+	public void add(Collection<ServiceManifestation> serviceManifestations) {
+		for (ServiceManifestation serviceManifestation : serviceManifestations) {
+			update(accumulators, serviceManifestation.getAttributes(), 1);
+		}
+		statistics = null;
+	}
+	
+	/**
+	 * Removes service manifestations previously added to the accumulator
+	 */
+	public void remove(Collection<ServiceManifestation> serviceManifestations) {
+		for (ServiceManifestation serviceManifestation : serviceManifestations) {
+			update(accumulators, serviceManifestation.getAttributes(), -1);
+		}
+		statistics = null;
+	}
+	
+	/**
+	 * Statistics are created (and probabilities normalized) only when they have changed since the last call.
+	 * @return The current statistics (type URIs as keys). The returned map must not be modified.
+	 */
+	public HashMap<String, ServiceAttributeTypeStatistics> getStatistics() {
+		if (statistics == null) {
+			HashMap<String, ServiceAttributeTypeStatistics> newStatistics = new HashMap<>();
+			
+			// As the resolver does, all the known types are included even if they have not been found 
+			for (String typeUri : typeMap.keySet()) {
+				ServiceAttributeTypeStatistics stats = new ServiceAttributeTypeStatistics();
+				stats.setUri(typeUri);
+				newStatistics.put(typeUri, stats);
+			}
+			
+			createStatistics(accumulators, newStatistics);
+			AttributeTypeStatisticsResolver.normalizeProbabilities(newStatistics);
+			statistics = newStatistics;
+		}
+		
+		return statistics;
+	}
+	
+	private void update(Map<String, TypeAccumulator> accumulators, List<ServiceAttribute> attributes, int delta) {
+		if (attributes == null)
+			return;
+		
+		for (ServiceAttribute attribute : attributes) {
+			TypeAccumulator accumulator = getAccumulator(accumulators, attribute.getTypeUri());
+			accumulator.occurrences += delta;
+			updateValues(attribute, accumulator, delta);
+			updateBroaderTypes(accumulators, attribute.getTypeUri(), delta);
+			update(accumulator.accumulators, attribute.getValueReferences(), delta);
+		}
+	}
+	
+	private void updateBroaderTypes(Map<String, TypeAccumulator> accumulators, String typeUri, int delta) {
+		ServiceAttributeType type = typeUri == null ? null : typeMap.get(typeUri);
+		String broaderTypeUri = type == null ? null : type.getBroaderTypeUri();
+		
+		if (broaderTypeUri != null) {
+			getAccumulator(accumulators, broaderTypeUri).occurrences += delta;
+			updateBroaderTypes(accumulators, broaderTypeUri, delta);
+		}
+	}
+	
+	private static TypeAccumulator getAccumulator(Map<String, TypeAccumulator> accumulators, String typeUri) {
+		TypeAccumulator accumulator = accumulators.get(typeUri);
+		if (accumulator == null) {
+			accumulator = new TypeAccumulator();
+			accumulators.put(typeUri, accumulator);
+		}
+		return accumulator;
+	}
+	
+	private static void updateValues(ServiceAttribute attribute, TypeAccumulator accumulator, int delta) {
+		if (!attribute.getClass().equals(ServiceQuantitativeAttribute.class))
+			return;
+		
+		ServiceQuantitativeAttribute quantitativeAttribute = (ServiceQuantitativeAttribute) attribute;
+		Double normalizationFactor = AttributeUnitFactorResolver.resolveNormalizationFactor(
+				quantitativeAttribute.getUnit());
+		if (normalizationFactor == null)
+			return;
+		
+		accumulator.values.update(normalize(quantitativeAttribute.getValue(), normalizationFactor), delta);
+		accumulator.minValues.update(normalize(quantitativeAttribute.getMinValue(), normalizationFactor), delta);
+		accumulator.maxValues.update(normalize(quantitativeAttribute.getMaxValue(), normalizationFactor), delta);
+	}
+	
+	private static Double normalize(Double value, double normalizationFactor) {
+		return value == null ? null : value * normalizationFactor;
+	}
+	
+	private static void createStatistics(Map<String, TypeAccumulator> accumulators, 
+			HashMap<String, ServiceAttributeTypeStatistics> typeStatsMap) {
+		
+		for (Map.Entry<String, TypeAccumulator> entry : accumulators.entrySet()) {
+			TypeAccumulator accumulator = entry.getValue();
+			
+			// Types of removed attributes
+			if (accumulator.occurrences <= 0 && !typeStatsMap.containsKey(entry.getKey()))
+				continue;
+			
+			ServiceAttributeTypeStatistics stats = AttributeTypeStatisticsResolver.getStatisticsContainer(
+					typeStatsMap, entry.getKey());
+			stats.setOccurrences(accumulator.occurrences);
+			stats.setMinOfValue(accumulator.values.getMin());
+			stats.setMaxOfValue(accumulator.values.getMax());
+			stats.setMinOfMinValue(accumulator.minValues.getMin());
+			stats.setMaxOfMinValue(accumulator.minValues.getMax());
+			stats.setMinOfMaxValue(accumulator.maxValues.getMin());
+			stats.setMaxOfMaxValue(accumulator.maxValues.getMax());
+			createStatistics(accumulator.accumulators, stats.getTypeStatsMap());
+		}
+	}
+}
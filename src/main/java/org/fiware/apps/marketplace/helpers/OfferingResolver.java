@@ -50,6 +50,7 @@ import org.fiware.apps.marketplace.bo.DescriptionBo;
 import org.fiware.apps.marketplace.bo.ServiceBo;
 import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ParseException;
+import org.fiware.apps.marketplace.exceptions.RdfLimitExceededException;
 import org.fiware.apps.marketplace.exceptions.ServiceNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Category;
@@ -60,6 +61,7 @@ import org.fiware.apps.marketplace.model.PricePlan;
 import org.fiware.apps.marketplace.model.Service;
 import org.fiware.apps.marketplace.model.Store;
 import org.fiware.apps.marketplace.rdf.RdfHelper;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
 import org.fiware.apps.marketplace.utils.NameGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +84,7 @@ public class OfferingResolver {
 
 	@Autowired private CategoryBo categoryBo;
 	@Autowired private ServiceBo serviceBo;
+	@Autowired private RdfModelCache rdfModelCache;
 	
 	// AUXILIAR
 	
@@ -290,7 +293,7 @@ public class OfferingResolver {
 	 * @throws IOException when the USDL cannot be read
 	 */
 	RdfHelper getRdfHelper(Description description) throws IOException {
-		return new RdfHelper(description.getUrl());
+		return rdfModelCache.getHelper(description.getUrl());
 	}
 	
 	/**
@@ -472,6 +475,8 @@ public class OfferingResolver {
 			throw new ParseException("The file does not exist");
 		} catch (ParseException ex) {
 			throw ex;
+		} catch (RdfLimitExceededException ex) {
+			throw new ParseException(ex.getMessage());
 		} catch (Exception ex) {
 			
 			// When an exception arises is because the USDL cannot be parsed. In these cases, we throw
@@ -0,0 +1,372 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.fiware.apps.marketplace.model.ComparisonResult;
+import org.fiware.apps.marketplace.model.ComparisonResult.ServiceContainer;
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares a service manifestation with a collection of targets using a fork-join pool. Targets are split 
+ * in partitions that are scored concurrently and only the best targets are kept, so the memory needed 
+ * does not depend on the size of the catalogue when the number of results is bounded.
+ */
+public abstract class ParallelServiceManifestationComparator {
+
+	/**
+	 * Partitions smaller than this are scored sequentially by a single worker
+	 */
+	protected static final int PARTITION_SIZE = 16;
+
+	/**
+	 * Maximum time (in milliseconds) the calling thread waits for partial results before checking 
+	 * whether the comparison has failed
+	 */
+	private static final long PARTIAL_RESULTS_POLL_PERIOD = 100;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+	
+	private static Logger logger = LoggerFactory.getLogger(ParallelServiceManifestationComparator.class);
+
+	/**
+	 * Notified when partitions have been scored. It is called from the thread that runs the comparison, 
+	 * never from the workers of the pool, so implementations can block (e.g. to write the targets to a 
+	 * client) without delaying other comparisons.
+	 */
+	public interface PartialResultListener {
+		
+		/**
+		 * @param newTargets The targets that have entered the best targets since the previous call, 
+		 * best first. When the number of results is bounded, they can displace targets notified before.
+		 * @param comparedTargets The number of targets that have been compared so far
+		 * @param totalTargets The number of targets to be compared
+		 */
+		public void onPartialResult(List<ServiceContainer> newTargets, int comparedTargets, int totalTargets);
+	}
+
+	/**
+	 * Compares a service manifestation (source) with a collection of other service manifestations (targets).
+	 * 
+	 * @param source Service manifestation that is being compared
+	 * @param targets Collection of service manifestation which are compared with source
+	 * @param typeMap Map containing attribute type data
+	 * @param statisticsMap Map containing the attribute statistics data
+	 * @param cache Cache containing the scores calculated previously. Can be null.
+	 * @param maxResults The maximum number of targets to be included in the result. All the targets will be 
+	 * returned when this value is lower than 1.
+	 * @param listener Notified with the best targets found each time a partition has been scored. Can be null.
+	 * @return Overall and per attribute similarity for the best targets.
+	 */
+	public static ComparisonResult compare(ServiceManifestation source, Collection<ServiceManifestation> targets,
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache, int maxResults, PartialResultListener listener) {
+		if (source == null) {
+			logger.debug("No comparison source");
+			return null;
+		}
+		if (targets == null || targets.size() <= 0) {
+			logger.debug("No comparison target(s)");
+			return null;
+		}
+		if (typeMap == null || typeMap.size() <= 0) {
+			logger.debug("No data in attribute type map");
+			return null;
+		}
+		if (statisticsMap == null || statisticsMap.size() <= 0) {
+			logger.debug("No data in statistics map");
+			return null;
+		}
+
+		List<ServiceManifestation> targetsList = new ArrayList<ServiceManifestation>(targets);
+		BestTargets bestTargets = new BestTargets(source, typeMap, maxResults, targetsList.size(), listener != null);
+		ComparisonTask task = new ComparisonTask(source, targetsList, 0, targetsList.size(), typeMap, statisticsMap, 
+				cache, bestTargets);
+		
+		if (listener == null) {
+			POOL.invoke(task);
+		} else {
+			notifyPartialResults(POOL.submit(task), bestTargets, listener);
+		}
+		
+		return bestTargets.getResult();
+	}
+	
+	/**
+	 * Passes the partial results queued by the workers to the listener until all the targets have been 
+	 * compared. Partial results queued while the listener was running are notified together.
+	 */
+	private static void notifyPartialResults(ForkJoinTask<?> comparison, BestTargets bestTargets, 
+			PartialResultListener listener) {
+		
+		List<PartialResult> pending = new ArrayList<PartialResult>();
+		int comparedTargets = 0;
+		
+		try {
+			while (comparedTargets < bestTargets.totalTargets) {
+				PartialResult partialResult = bestTargets.partialResults.poll(PARTIAL_RESULTS_POLL_PERIOD, 
+						TimeUnit.MILLISECONDS);
+				
+				if (partialResult == null) {
+					if (comparison.isDone()) {
+						// The comparison has failed. The error is thrown when the task is joined.
+						break;
+					}
+					continue;
+				}
+				
+				pending.clear();
+				pending.add(partialResult);
+				bestTargets.partialResults.drainTo(pending);
+				
+				List<ServiceContainer> newTargets = new ArrayList<ServiceContainer>();
+				for (PartialResult pendingResult: pending) {
+					newTargets.addAll(pendingResult.newTargets);
+					comparedTargets = Math.max(comparedTargets, pendingResult.comparedTargets);
+				}
+				
+				Collections.sort(newTargets, BEST_CONTAINER_FIRST);
+				listener.onPartialResult(newTargets, comparedTargets, bestTargets.totalTargets);
+			}
+		} catch (InterruptedException e) {
+			comparison.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Comparison interrupted", e);
+		} catch (RuntimeException e) {
+			// The listener has failed, so there is no point in scoring the rest of targets
+			comparison.cancel(true);
+			throw e;
+		}
+		
+		comparison.join();
+	}
+
+	/**
+	 * A scored target and its position in the list of targets. The position is used to break ties 
+	 * so the order of the results is the same one the sequential comparator returns.
+	 */
+	private static class ScoredTarget {
+		private final ServiceContainer container;
+		private final int position;
+
+		private ScoredTarget(ServiceContainer container, int position) {
+			this.container = container;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * Sorts scored targets from the worst to the best one, so the head of a priority queue is 
+	 * always the first target to be discarded
+	 */
+	private static final Comparator<ScoredTarget> WORST_FIRST = new Comparator<ScoredTarget>() {
+		@Override
+		public int compare(ScoredTarget t1, ScoredTarget t2) {
+			int result = Double.compare(t1.container.getTotalScore(), t2.container.getTotalScore());
+			return result != 0 ? result : Integer.compare(t2.position, t1.position);
+		}
+	};
+
+	private static final Comparator<ServiceContainer> BEST_CONTAINER_FIRST = new Comparator<ServiceContainer>() {
+		@Override
+		public int compare(ServiceContainer c1, ServiceContainer c2) {
+			return Double.compare(c2.getTotalScore(), c1.getTotalScore());
+		}
+	};
+
+	/**
+	 * Bounded heap containing the best targets. When the bound is exceeded, the worst target is discarded.
+	 */
+	private static class TopTargets {
+		
+		private final int maxResults;
+		private final PriorityQueue<ScoredTarget> heap;
+
+		private TopTargets(int maxResults) {
+			this.maxResults = maxResults;
+			this.heap = new PriorityQueue<ScoredTarget>(11, WORST_FIRST);
+		}
+
+		/**
+		 * @return true if the target is one of the best targets, false if it has been discarded
+		 */
+		private boolean offer(ScoredTarget target) {
+			if (maxResults > 0 && heap.size() >= maxResults) {
+				if (WORST_FIRST.compare(target, heap.peek()) <= 0) {
+					return false;
+				}
+				heap.poll();
+			}
+			heap.offer(target);
+			return true;
+		}
+
+		private List<ScoredTarget> bestFirst() {
+			List<ScoredTarget> targets = new ArrayList<ScoredTarget>(heap);
+			Collections.sort(targets, Collections.reverseOrder(WORST_FIRST));
+			return targets;
+		}
+	}
+
+	/**
+	 * Targets of a partition that have entered the best targets when the partition was merged
+	 */
+	private static class PartialResult {
+		private final List<ServiceContainer> newTargets;
+		private final int comparedTargets;
+
+		private PartialResult(List<ServiceContainer> newTargets, int comparedTargets) {
+			this.newTargets = newTargets;
+			this.comparedTargets = comparedTargets;
+		}
+	}
+
+	/**
+	 * Shared between all the tasks of a comparison. Partitions are merged into it once they have been scored.
+	 * Workers only hold the lock to update the best targets: partial results are queued and notified by the 
+	 * thread that runs the comparison.
+	 */
+	private static class BestTargets {
+
+		private final ServiceManifestation source;
+		private final HashMap<String, ServiceAttributeType> typeMap;
+		private final TopTargets topTargets;
+		private final int totalTargets;
+		private final BlockingQueue<PartialResult> partialResults;
+		private int comparedTargets = 0;
+
+		private BestTargets(ServiceManifestation source, HashMap<String, ServiceAttributeType> typeMap, 
+				int maxResults, int totalTargets, boolean partialResultsRequired) {
+			this.source = source;
+			this.typeMap = typeMap;
+			this.topTargets = new TopTargets(maxResults);
+			this.totalTargets = totalTargets;
+			this.partialResults = partialResultsRequired ? new LinkedBlockingQueue<PartialResult>() : null;
+		}
+
+		private synchronized void merge(TopTargets partition, int partitionSize) {
+			List<ServiceContainer> newTargets = new ArrayList<ServiceContainer>();
+			for (ScoredTarget target : partition.heap) {
+				if (topTargets.offer(target)) {
+					newTargets.add(target.container);
+				}
+			}
+			comparedTargets += partitionSize;
+
+			// Queued while holding the lock so the number of compared targets is always increasing. 
+			// The queue is not bounded, so this never blocks.
+			if (partialResults != null) {
+				partialResults.add(new PartialResult(newTargets, comparedTargets));
+			}
+		}
+
+		private synchronized ComparisonResult getResult() {
+			ComparisonResult result = new ComparisonResult(source, typeMap);
+			for (ScoredTarget target : topTargets.bestFirst()) {
+				result.addTarget(target.container);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Scores the targets contained in [start, end). Big ranges are split in two halves that are
+	 * scored in parallel.
+	 */
+	private static class ComparisonTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ServiceManifestation source;
+		private final List<ServiceManifestation> targets;
+		private final int start;
+		private final int end;
+		private final HashMap<String, ServiceAttributeType> typeMap;
+		private final HashMap<String, ServiceAttributeTypeStatistics> statisticsMap;
+		private final AttributeSimilarityCache cache;
+		private final BestTargets bestTargets;
+
+		private ComparisonTask(ServiceManifestation source, List<ServiceManifestation> targets, int start, int end,
+				HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+				AttributeSimilarityCache cache, BestTargets bestTargets) {
+			this.source = source;
+			this.targets = targets;
+			this.start = start;
+			this.end = end;
+			this.typeMap = typeMap;
+			this.statisticsMap = statisticsMap;
+			this.cache = cache;
+			this.bestTargets = bestTargets;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= PARTITION_SIZE) {
+				TopTargets partition = new TopTargets(bestTargets.topTargets.maxResults);
+				for (int i = start; i < end; i++) {
+					ServiceManifestation target = targets.get(i);
+					if (target != source) {
+						ServiceContainer container = ServiceManifestationComparator.calculateSimilarity(source, target,
+								typeMap, statisticsMap, cache);
+						if (container != null) {
+							partition.offer(new ScoredTarget(container, i));
+						}
+					}
+				}
+				bestTargets.merge(partition, end - start);
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ComparisonTask(source, targets, start, middle, typeMap, statisticsMap, cache, bestTargets),
+						new ComparisonTask(source, targets, middle, end, typeMap, statisticsMap, cache, bestTargets));
+			}
+		}
+	}
+}
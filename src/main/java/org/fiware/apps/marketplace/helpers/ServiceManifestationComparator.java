@@ -39,6 +39,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.fiware.apps.marketplace.model.ComparisonResult;
+import org.fiware.apps.marketplace.model.ComparisonResult.ServiceContainer;
 import org.fiware.apps.marketplace.model.ServiceAttribute;
 import org.fiware.apps.marketplace.model.ServiceAttributeType;
 import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
@@ -70,6 +71,22 @@ public abstract class ServiceManifestationComparator {
 	 */
 	public static ComparisonResult compare(ServiceManifestation source, ServiceManifestation target,
 			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+		return compare(source, target, typeMap, statisticsMap, null);
+	}
+
+	/**
+	 * Compares two service manifestations (compares source with target).
+	 * 
+	 * @param source Service manifestation that is being compared
+	 * @param target Service manifestation which is compared to source
+	 * @param typeMap Map containing attribute type data
+	 * @param statisticsMap Map containing the attribute statistics data
+	 * @param cache Cache containing the scores calculated previously. Can be null.
+	 * @return Overall and per attribute similarity.
+	 */
+	public static ComparisonResult compare(ServiceManifestation source, ServiceManifestation target,
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		if (source == null) {
 			System.out.println("No comparison source.");
 			return null;
@@ -88,7 +105,7 @@ public abstract class ServiceManifestationComparator {
 		}
 
 		ComparisonResult result = new ComparisonResult(source, typeMap);
-		calculateSimilarity(source, target, typeMap, statisticsMap, result);
+		calculateSimilarity(source, target, typeMap, statisticsMap, result, cache);
 		return result;
 	}
 
@@ -103,6 +120,22 @@ public abstract class ServiceManifestationComparator {
 	 */
 	public static ComparisonResult compare(ServiceManifestation source, Collection<ServiceManifestation> targets,
 			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+		return compare(source, targets, typeMap, statisticsMap, null);
+	}
+
+	/**
+	 * Compares a service manifestation (source) with a collection of other service manifestations (targets).
+	 * 
+	 * @param source Service manifestation that is being compared
+	 * @param targets Collection of service manifestation which are compared with source
+	 * @param typeMap Map containing attribute type data
+	 * @param statisticsMap Map containing the attribute statistics data
+	 * @param cache Cache containing the scores calculated previously. Can be null.
+	 * @return Overall and per attribute similarity for each target.
+	 */
+	public static ComparisonResult compare(ServiceManifestation source, Collection<ServiceManifestation> targets,
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		if (source == null) {
 			System.out.println("No comparison source.");
 			return null;
@@ -123,7 +156,7 @@ public abstract class ServiceManifestationComparator {
 		ComparisonResult result = new ComparisonResult(source, typeMap);
 		for (ServiceManifestation target : targets) {
 			if (target != source) {
-				calculateSimilarity(source, target, typeMap, statisticsMap, result);
+				calculateSimilarity(source, target, typeMap, statisticsMap, result, cache);
 			}
 		}
 		return result;
@@ -139,29 +172,48 @@ public abstract class ServiceManifestationComparator {
 	 */
 	protected static void calculateSimilarity(ServiceManifestation source, ServiceManifestation target,
 			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
-			ComparisonResult result) {
+			ComparisonResult result, AttributeSimilarityCache cache) {
+		ServiceContainer container = calculateSimilarity(source, target, typeMap, statisticsMap, cache);
+		if (container != null)
+			result.addTarget(container);
+	}
+
+	/**
+	 * Calculates a number between 0 and 1 stating the similarity of the two service manifestations. The result instance is not
+	 * touched so this method can be called concurrently for different targets.
+	 * 
+	 * @param source Service manifestation that is being compared
+	 * @param target Service manifestation which is compared to source
+	 * @param typeMap
+	 * @param statisticsMap
+	 * @return The target with its total and per attribute similarity or null if the target cannot be compared.
+	 */
+	protected static ServiceContainer calculateSimilarity(ServiceManifestation source, ServiceManifestation target,
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		if (target == null)
-			return;
+			return null;
 		if (source.getAttributes() == null || target.getAttributes() == null)
-			return;
+			return null;
 		if (source.getAttributes().size() <= 0 || target.getAttributes().size() <= 0)
-			return;
+			return null;
 
-		double[][] attributeScores = calculateAttributeScores(source.getAttributes(), target.getAttributes(), typeMap, statisticsMap);
+		double[][] attributeScores = calculateAttributeScores(source.getAttributes(), target.getAttributes(), typeMap, statisticsMap, cache);
 		int[] bestAttributeAssignment = AttributeAssignmentResolver.getMaximalAttributeAssignments(attributeScores);
 
-		result.addTarget(target);
+		ServiceContainer container = new ServiceContainer(target);
 		double totalScore = 0.0;
 		for (int i = 0; i < bestAttributeAssignment.length; i++) {
 			if (bestAttributeAssignment[i] != -1) {
 				if (attributeScores[i][bestAttributeAssignment[i]] > 0) {
 					totalScore += attributeScores[i][bestAttributeAssignment[i]];
-					result.addAttributeToLastTarget(target.getAttributes().get(bestAttributeAssignment[i]), typeMap,
+					container.addAttribute(target.getAttributes().get(bestAttributeAssignment[i]), typeMap,
 							attributeScores[i][bestAttributeAssignment[i]], i);
 				}
 			}
 		}
-		result.addTotalScoreToLastTarget(totalScore / bestAttributeAssignment.length);
+		container.setTotalScore(totalScore / bestAttributeAssignment.length);
+		return container;
 	}
 
 	/**
@@ -171,15 +223,41 @@ public abstract class ServiceManifestationComparator {
 	 * @param targetAttributes List of target attributes that will be compared with the source attributes
 	 * @param typeMap
 	 * @param statisticsMap
+	 * @param cache Cache containing the scores calculated previously. Can be null.
 	 * @return Two-dimensional array with row indices representing source and column indices representing target attributes.
 	 */
 	protected static double[][] calculateAttributeScores(List<ServiceAttribute> sourceAttributes, List<ServiceAttribute> targetAttributes,
-			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		double[][] scores = new double[sourceAttributes.size()][targetAttributes.size()];
+
+		if (cache == null) {
+			for (int sourceIndex = 0; sourceIndex < sourceAttributes.size(); sourceIndex++) {
+				for (int targetIndex = 0; targetIndex < targetAttributes.size(); targetIndex++) {
+					scores[sourceIndex][targetIndex] = calculateAttributeScore(sourceAttributes.get(sourceIndex),
+							targetAttributes.get(targetIndex), typeMap, statisticsMap, cache);
+				}
+			}
+			return scores;
+		}
+
+		// Scores only depend on the types and values of the attributes so equal attributes share their scores
+		String[] targetSignatures = new String[targetAttributes.size()];
+		for (int targetIndex = 0; targetIndex < targetAttributes.size(); targetIndex++) {
+			targetSignatures[targetIndex] = AttributeSimilarityCache.getSignature(targetAttributes.get(targetIndex));
+		}
+
 		for (int sourceIndex = 0; sourceIndex < sourceAttributes.size(); sourceIndex++) {
+			String sourceSignature = AttributeSimilarityCache.getSignature(sourceAttributes.get(sourceIndex));
 			for (int targetIndex = 0; targetIndex < targetAttributes.size(); targetIndex++) {
-				scores[sourceIndex][targetIndex] = calculateAttributeScore(sourceAttributes.get(sourceIndex),
-						targetAttributes.get(targetIndex), typeMap, statisticsMap);
+				AttributeSimilarityCache.Key key = cache.getKey(statisticsMap, sourceSignature, targetSignatures[targetIndex]);
+				Double score = cache.getAttributeScore(key);
+				if (score == null) {
+					score = calculateAttributeScore(sourceAttributes.get(sourceIndex), targetAttributes.get(targetIndex), typeMap,
+							statisticsMap, cache);
+					cache.putAttributeScore(key, score);
+				}
+				scores[sourceIndex][targetIndex] = score;
 			}
 		}
 		return scores;
@@ -195,7 +273,8 @@ public abstract class ServiceManifestationComparator {
 	 * @return
 	 */
 	protected static double calculateAttributeScore(ServiceAttribute source, ServiceAttribute target,
-			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		if (source == null || target == null)
 			return 0.0;
 
@@ -214,11 +293,11 @@ public abstract class ServiceManifestationComparator {
 			return 0.0;
 
 		if (sourceType.getClass().equals(ServiceNominalAttributeType.class))
-			return calculateNominalScore(source, sourceType, target, targetType, typeMap, statisticsMap);
+			return calculateNominalScore(source, sourceType, target, targetType, typeMap, statisticsMap, cache);
 		if (sourceType.getClass().equals(ServiceOrdinalAttributeType.class))
-			return calculateOrdinalScore(source, sourceType, target, targetType, typeMap, statisticsMap);
+			return calculateOrdinalScore(source, sourceType, target, targetType, typeMap, statisticsMap, cache);
 		if (sourceType.getClass().equals(ServiceRatioAttributeType.class))
-			return calculateRatioScore(source, sourceType, target, targetType, typeMap, statisticsMap);
+			return calculateRatioScore(source, sourceType, target, targetType, typeMap, statisticsMap, cache);
 
 		System.out
 				.println(ServiceManifestationComparator.class.getName() + " - Unknown attribute type: " + sourceType.getClass().getName());
@@ -238,12 +317,13 @@ public abstract class ServiceManifestationComparator {
 	 */
 	protected static double calculateNominalScore(ServiceAttribute source, ServiceAttributeType sourceType, ServiceAttribute target,
 			ServiceAttributeType targetType, HashMap<String, ServiceAttributeType> typeMap,
-			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
-		Double hierarchicalScore = calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap);
+			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
+		Double hierarchicalScore = calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap, cache);
 		if (hierarchicalScore <= 0.0)
 			return 0.0;
 
-		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap);
+		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap, cache);
 		if (referencedValuesScore == null)
 			return hierarchicalScore;
 
@@ -263,12 +343,13 @@ public abstract class ServiceManifestationComparator {
 	 */
 	private static double calculateOrdinalScore(ServiceAttribute source, ServiceAttributeType sourceType, ServiceAttribute target,
 			ServiceAttributeType targetType, HashMap<String, ServiceAttributeType> typeMap,
-			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		double siblingScore = calculateSiblingsScore(sourceType, targetType, typeMap, statisticsMap);
 		if (siblingScore <= 0.0)
 			return 0.0;
 
-		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap);
+		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap, cache);
 		if (referencedValuesScore == null)
 			return siblingScore;
 
@@ -394,12 +475,13 @@ public abstract class ServiceManifestationComparator {
 	 */
 	protected static double calculateRatioScore(ServiceAttribute source, ServiceAttributeType sourceType, ServiceAttribute target,
 			ServiceAttributeType targetType, HashMap<String, ServiceAttributeType> typeMap,
-			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
-		Double hierarchicalScore = calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap);
+			HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
+		Double hierarchicalScore = calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap, cache);
 		if (hierarchicalScore <= 0.0)
 			return 0.0;
 
-		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap);
+		Double referencedValuesScore = calculateReferencedAttributesScore(source, target, typeMap, statisticsMap, cache);
 		Double numericValueScore = calculateNumericValueScore(source, target, statisticsMap);
 
 		if (referencedValuesScore == null && numericValueScore == null)
@@ -422,6 +504,21 @@ public abstract class ServiceManifestationComparator {
 	 * @return Returns 0.0 if no hierarchical connection exists. Returns 1.0 if they are identical.
 	 */
 	protected static double calculateHierarchicalScore(ServiceAttributeType sourceType, ServiceAttributeType targetType,
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
+		if (cache == null)
+			return calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap);
+
+		AttributeSimilarityCache.Key key = cache.getKey(statisticsMap, sourceType.getUri(), targetType.getUri());
+		Double score = cache.getHierarchicalScore(key);
+		if (score == null) {
+			score = calculateHierarchicalScore(sourceType, targetType, typeMap, statisticsMap);
+			cache.putHierarchicalScore(key, score);
+		}
+		return score;
+	}
+
+	private static double calculateHierarchicalScore(ServiceAttributeType sourceType, ServiceAttributeType targetType,
 			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
 		ServiceAttributeType nearestCommonAncestorType = getNearestCommonAncestorType(sourceType, targetType, typeMap);
 		if (nearestCommonAncestorType == null)
@@ -479,7 +576,8 @@ public abstract class ServiceManifestationComparator {
 	 *         referenced attribute is identical (also the nested ones).
 	 */
 	protected static Double calculateReferencedAttributesScore(ServiceAttribute source, ServiceAttribute target,
-			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap) {
+			HashMap<String, ServiceAttributeType> typeMap, HashMap<String, ServiceAttributeTypeStatistics> statisticsMap,
+			AttributeSimilarityCache cache) {
 		if (source.getValueReferences() == null || source.getValueReferences().size() <= 0)
 			return null;
 
@@ -487,7 +585,7 @@ public abstract class ServiceManifestationComparator {
 			return 0.0;
 
 		double[][] attributeReferenceScores = calculateAttributeScores(source.getValueReferences(), target.getValueReferences(), typeMap,
-				statisticsMap.get(source.getTypeUri()).getTypeStatsMap());
+				statisticsMap.get(source.getTypeUri()).getTypeStatsMap(), cache);
 		if (attributeReferenceScores.length == 0)
 			return null;
 
@@ -149,6 +149,10 @@ public class ComparisonResult {
 		this.targets.add(new ServiceContainer(target));
 	}
 	
+	public void addTarget(ServiceContainer target) {
+		this.targets.add(target);
+	}
+	
 	public void addAttributeToLastTarget(ServiceAttribute attribute, HashMap<String, ServiceAttributeType> typeMap, Double score, Integer index) {
 		this.targets.get(this.targets.size() - 1).addAttribute(attribute, typeMap, score, index);
 	}
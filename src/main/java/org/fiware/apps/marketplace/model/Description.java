@@ -46,6 +46,7 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -55,16 +56,23 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlID;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.fiware.apps.marketplace.utils.xmladapters.StoreXMLAdapter;
 import org.fiware.apps.marketplace.utils.xmladapters.UserXMLAdapter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 @Entity
-// Each offerings description has to be unique for a store context
-@Table(name = "descriptions", uniqueConstraints = { @UniqueConstraint(columnNames = { "name", "store" }) })
+// Each offerings description has to be unique for a store context. URLs are too long to be indexed
+// entirely, so their index (idx_descriptions_store_url) is created by the migration scripts.
+@Table(name = "descriptions", uniqueConstraints = { @UniqueConstraint(columnNames = { "name", "store" }) }, 
+		indexes = { @Index(name = "idx_descriptions_store_display_name", columnList = "store, display_name") })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "description")
 @XmlRootElement(name = "description")
 @IgnoreMediaTypes("application/*+json")
 public class Description {
@@ -80,6 +88,7 @@ public class Description {
 	private User lasteditor;	
 	private User creator;
 	private List<Offering> offerings;
+	private String contentHash;
 	
 	public Description() {
 		this.offerings = new ArrayList<Offering>();
@@ -198,9 +207,20 @@ public class Description {
 		this.updatedAt = updatedAt;
 	}
 	
+	@XmlTransient
+	@Column(name = "content_hash", length = 64)
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+	
     @XmlElement(name = "offering")
     @JsonProperty("offerings")
-	@OneToMany(mappedBy = "describedIn", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(mappedBy = "describedIn", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+	@BatchSize(size = 100)
 	public List<Offering> getOfferings() {
 		return offerings;
 	}
@@ -39,6 +39,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 @XmlRootElement(name = "descriptions")
@@ -46,6 +47,7 @@ import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 public class Descriptions {
 	
     private List<Description> descriptions = null;
+    private String nextCursor = null;
     
     public Descriptions() {
     	this.setDescriptions(new ArrayList<Description>());
@@ -64,4 +66,17 @@ public class Descriptions {
     public void setDescriptions(List<Description> descriptions) {
     	this.descriptions = descriptions;
     }
+
+    /**
+     * @return Cursor to retrieve the next page or null when the returned page is not full
+     */
+    @XmlElement
+    @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
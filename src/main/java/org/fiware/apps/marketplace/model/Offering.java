@@ -41,6 +41,7 @@ import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
@@ -57,10 +58,14 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.fiware.apps.marketplace.utils.xmladapters.DescriptionXMLAdapter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 @Entity
-@Table(name = "offerings", uniqueConstraints = { @UniqueConstraint(columnNames = { "described_in", "uri" }) })
+@Table(name = "offerings", uniqueConstraints = { @UniqueConstraint(columnNames = { "described_in", "uri" }) },
+		indexes = { @Index(name = "idx_offerings_described_in_name", columnList = "described_in, name") })
 @XmlRootElement(name = "offering")
 @IgnoreMediaTypes("application/*+json")
 public class Offering extends ReviewableEntity {
@@ -180,7 +185,9 @@ public class Offering extends ReviewableEntity {
 
 	@XmlElement(name = "pricePlan")
 	@JsonProperty("pricePlans")
-	@OneToMany(mappedBy = "offering", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(mappedBy = "offering", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+	@BatchSize(size = 100)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "offering.pricePlans")
 	public Set<PricePlan> getPricePlans() {
 		return pricePlans;
 	}
@@ -191,7 +198,8 @@ public class Offering extends ReviewableEntity {
 
 	@XmlElement(name = "service")
 	@JsonProperty("services")
-	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)	// Not many services are supposed to be attached
+	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)	// Not many services are supposed to be attached
+	@BatchSize(size = 100)
 	@JoinTable(name = "offerings_services", 
 	joinColumns = {@JoinColumn(name = "offering_id", referencedColumnName = "id")},
 	inverseJoinColumns = {@JoinColumn(name = "service_id", referencedColumnName = "id")})
@@ -205,7 +213,8 @@ public class Offering extends ReviewableEntity {
 
 	@XmlElement(name = "category")
 	@JsonProperty("categories")
-	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	@BatchSize(size = 100)
 	@JoinTable(name = "offerings_categories",
 	joinColumns = {@JoinColumn(name = "offering_id", referencedColumnName = "id")},
 	inverseJoinColumns = {@JoinColumn(name = "category_id", referencedColumnName = "id")})
@@ -0,0 +1,90 @@
+package org.fiware.apps.marketplace.model;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Associations of an offering that have to be loaded before it leaves the transaction that 
+ * retrieved it. Offering associations are lazy, so each use case picks the profile that matches
+ * what it renders.
+ */
+public enum OfferingFetchProfile {
+	
+	/**
+	 * Only the offering fields (name, description, image, score...)
+	 */
+	BASIC(false, false, false),
+	
+	/**
+	 * Offering fields and categories (offering detail header)
+	 */
+	DETAIL(true, false, false),
+	
+	/**
+	 * Offering fields, categories and price plans with their components
+	 */
+	PRICE_PLANS(true, true, false),
+	
+	/**
+	 * Offering fields, categories and services with their categories
+	 */
+	SERVICES(true, false, true),
+	
+	/**
+	 * All the associations serialized by the API
+	 */
+	FULL(true, true, true);
+	
+	private final boolean categories;
+	private final boolean pricePlans;
+	private final boolean services;
+	
+	private OfferingFetchProfile(boolean categories, boolean pricePlans, boolean services) {
+		this.categories = categories;
+		this.pricePlans = pricePlans;
+		this.services = services;
+	}
+	
+	public boolean includesCategories() {
+		return categories;
+	}
+	
+	public boolean includesPricePlans() {
+		return pricePlans;
+	}
+	
+	public boolean includesServices() {
+		return services;
+	}
+
+}
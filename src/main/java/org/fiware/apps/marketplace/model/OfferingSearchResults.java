@@ -0,0 +1,96 @@
+package org.fiware.apps.marketplace.model;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
+
+/**
+ * Page of offerings that match a search together with the facets of all the matching offerings
+ */
+@XmlRootElement(name = "searchResults")
+@IgnoreMediaTypes("application/*+json")
+public class OfferingSearchResults {
+	
+	private int total;
+	private List<OfferingSearchHit> offerings = new ArrayList<>();
+	private List<Facet> categories = new ArrayList<>();
+	private List<Facet> stores = new ArrayList<>();
+	
+	@XmlElement
+	public int getTotal() {
+		return total;
+	}
+	
+	public void setTotal(int total) {
+		this.total = total;
+	}
+	
+	@XmlElement(name = "offering")
+	@JsonProperty("offerings")
+	public List<OfferingSearchHit> getOfferings() {
+		return offerings;
+	}
+	
+	public void setOfferings(List<OfferingSearchHit> offerings) {
+		this.offerings = offerings;
+	}
+	
+	@XmlElement(name = "category")
+	@JsonProperty("categories")
+	public List<Facet> getCategories() {
+		return categories;
+	}
+	
+	public void setCategories(List<Facet> categories) {
+		this.categories = categories;
+	}
+	
+	@XmlElement(name = "store")
+	@JsonProperty("stores")
+	public List<Facet> getStores() {
+		return stores;
+	}
+	
+	public void setStores(List<Facet> stores) {
+		this.stores = stores;
+	}
+
+}
@@ -7,6 +7,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 @XmlRootElement(name = "offerings")
@@ -14,6 +15,7 @@ import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 public class Offerings {
 
 	private List<Offering> offerings = null;
+	private String nextCursor = null;
 
 	public Offerings() {
 		this.setOfferings(new ArrayList<Offering>());
@@ -32,4 +34,17 @@ public class Offerings {
 	public void setOfferings(List<Offering> offerings) {
 		this.offerings = offerings;
 	}
+
+	/**
+	 * @return Cursor to retrieve the next page or null when the returned page is not full
+	 */
+	@XmlElement
+	@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 }
@@ -49,11 +49,14 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 import org.fiware.apps.marketplace.exceptions.ParseException;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 import org.springframework.web.util.HtmlUtils;
 
 @Entity
 @Table(name = "price_components")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "priceComponent")
 @XmlRootElement(name = "priceComponents")
 @IgnoreMediaTypes("application/*+json")
 public class PriceComponent {
@@ -55,11 +55,15 @@ import javax.xml.bind.annotation.XmlTransient;
 
 import org.codehaus.jackson.annotate.JsonProperty;
 import org.fiware.apps.marketplace.exceptions.ParseException;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 import org.springframework.web.util.HtmlUtils;
 
 @Entity
 @Table(name = "price_plans")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pricePlan")
 @XmlRootElement(name = "pricePlan")
 @IgnoreMediaTypes("application/*+json")
 public class PricePlan {
@@ -146,7 +150,9 @@ public class PricePlan {
 
 	@XmlElement(name = "priceComponent")
 	@JsonProperty("priceComponents")
-	@OneToMany(mappedBy = "pricePlan", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(mappedBy = "pricePlan", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+	@BatchSize(size = 100)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pricePlan.priceComponents")
 	public Set<PriceComponent> getPriceComponents() {
 		return priceComponents;
 	}
@@ -41,6 +41,7 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -54,7 +55,8 @@ import org.fiware.apps.marketplace.utils.xmladapters.UserXMLAdapter;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 @Entity
-@Table(name = "reviews")
+// Reviews are always listed per entity and they can be sorted by creation date
+@Table(name = "reviews", indexes = { @Index(name = "idx_reviews_entity_created_at", columnList = "entity, created_at") })
 @XmlRootElement(name = "review")
 @IgnoreMediaTypes("application/*+json")
 public class Review {
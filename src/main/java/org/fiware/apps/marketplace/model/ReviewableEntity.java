@@ -46,9 +46,12 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlTransient;
 
+import org.hibernate.annotations.BatchSize;
+
 @Entity
 @Table(name = "reviewable_entity")
 @Inheritance(strategy = InheritanceType.JOINED)
@@ -60,6 +63,15 @@ public class ReviewableEntity {
 	private List<Review> reviews;
 	private double averageScore = 0.0;		// Default value
 	
+	// Aggregates maintained on each review mutation so reviews don't need to be loaded. They are 
+	// only modified by the database (see ReviewDao) so they are never written from the entity.
+	private int reviewsCount = 0;
+	private long scoresSum = 0;
+	private int[] scoresCount = new int[MAX_SCORE - MIN_SCORE + 1];
+	
+	public static final int MIN_SCORE = 1;
+	public static final int MAX_SCORE = 5;
+	
 	@Id
 	@GeneratedValue(strategy = IDENTITY)
 	@Column(name = "id", unique = true, nullable = false)
@@ -73,7 +85,8 @@ public class ReviewableEntity {
 	}
 	
 	@XmlTransient
-	@OneToMany(mappedBy = "reviewableEntity", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(mappedBy = "reviewableEntity", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+	@BatchSize(size = 100)
 	public List<Review> getReviews() {
 		return reviews;
 	}
@@ -83,7 +96,7 @@ public class ReviewableEntity {
 	}
 
 	@XmlElement
-	@Column(name = "averageScore")
+	@Column(name = "averageScore", updatable = false)
 	public double getAverageScore() {
 		return averageScore;
 	}
@@ -91,5 +104,90 @@ public class ReviewableEntity {
 	public void setAverageScore(double averageScore) {
 		this.averageScore = averageScore;
 	}
+	
+	@XmlTransient
+	@Column(name = "reviewsCount", nullable = false, updatable = false)
+	public int getReviewsCount() {
+		return reviewsCount;
+	}
+	
+	public void setReviewsCount(int reviewsCount) {
+		this.reviewsCount = reviewsCount;
+	}
+	
+	@XmlTransient
+	@Column(name = "scoresSum", nullable = false, updatable = false)
+	public long getScoresSum() {
+		return scoresSum;
+	}
+	
+	public void setScoresSum(long scoresSum) {
+		this.scoresSum = scoresSum;
+	}
+	
+	/**
+	 * @param score A score between {@link #MIN_SCORE} and {@link #MAX_SCORE}
+	 * @return The number of reviews with the given score
+	 */
+	@Transient
+	public int getScoreCount(int score) {
+		return scoresCount[score - MIN_SCORE];
+	}
+	
+	public void setScoreCount(int score, int count) {
+		this.scoresCount[score - MIN_SCORE] = count;
+	}
+	
+	// The histogram is stored in one column per score
+	
+	@XmlTransient
+	@Column(name = "score1Count", nullable = false, updatable = false)
+	public int getScore1Count() {
+		return getScoreCount(1);
+	}
+	
+	public void setScore1Count(int count) {
+		setScoreCount(1, count);
+	}
+	
+	@XmlTransient
+	@Column(name = "score2Count", nullable = false, updatable = false)
+	public int getScore2Count() {
+		return getScoreCount(2);
+	}
+	
+	public void setScore2Count(int count) {
+		setScoreCount(2, count);
+	}
+	
+	@XmlTransient
+	@Column(name = "score3Count", nullable = false, updatable = false)
+	public int getScore3Count() {
+		return getScoreCount(3);
+	}
+	
+	public void setScore3Count(int count) {
+		setScoreCount(3, count);
+	}
+	
+	@XmlTransient
+	@Column(name = "score4Count", nullable = false, updatable = false)
+	public int getScore4Count() {
+		return getScoreCount(4);
+	}
+	
+	public void setScore4Count(int count) {
+		setScoreCount(4, count);
+	}
+	
+	@XmlTransient
+	@Column(name = "score5Count", nullable = false, updatable = false)
+	public int getScore5Count() {
+		return getScoreCount(5);
+	}
+	
+	public void setScore5Count(int count) {
+		setScoreCount(5, count);
+	}
 
 }
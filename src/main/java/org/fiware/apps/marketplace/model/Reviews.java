@@ -7,6 +7,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 /*
@@ -46,6 +47,7 @@ import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 public class Reviews {
 
 	private List<Review> reviews = null;
+	private String nextCursor = null;
 
 	public Reviews() {
 		this.setReviews(new ArrayList<Review>());
@@ -65,5 +67,16 @@ public class Reviews {
 		this.reviews = reviews;
 	}
 
+	/**
+	 * @return Cursor to retrieve the next page or null when the returned page is not full
+	 */
+	@XmlElement
+	@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+	public String getNextCursor() {
+		return nextCursor;
+	}
 
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
 }
@@ -51,11 +51,15 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jboss.resteasy.annotations.providers.jaxb.IgnoreMediaTypes;
 
 
 @Entity
 @Table(name = "services")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "service")
 @XmlRootElement(name = "service")
 @IgnoreMediaTypes("application/*+json")
 public class Service {
@@ -135,7 +139,8 @@ public class Service {
 	@XmlElement(name = "category")
 	@JsonProperty("categories")
 	// Services are not supposed to have too many categories... (one is the most common) 
-	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	@BatchSize(size = 100)
 	@JoinTable(name = "services_categories", 
 		      joinColumns = {@JoinColumn(name = "service_id", referencedColumnName = "id")},
 		      inverseJoinColumns = {@JoinColumn(name = "category_id", referencedColumnName = "id")})
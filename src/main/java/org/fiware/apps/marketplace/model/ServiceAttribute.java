@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.model;
  * #L%
  */
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,7 +44,10 @@ import com.mysql.jdbc.StringUtils;
 import com.sun.xml.txw2.annotation.XmlElement;
 
 @XmlElement
-public abstract class ServiceAttribute {
+public abstract class ServiceAttribute implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private String typeUri;
 	private String uri;
 	private String label;
@@ -32,10 +32,14 @@ package org.fiware.apps.marketplace.model;
  * #L%
  */
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-public abstract class ServiceAttributeType {
+public abstract class ServiceAttributeType implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private String uri;
 	private String baseTypeUri;
 	private String broaderTypeUri;
@@ -32,9 +32,13 @@ package org.fiware.apps.marketplace.model;
  * #L%
  */
 
+import java.io.Serializable;
 import java.util.HashMap;
 
-public class ServiceAttributeTypeStatistics {
+public class ServiceAttributeTypeStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private int occurrences = 0;
 	private double occurrenceProbability = 0.0;
 	private String uri;
@@ -32,6 +32,7 @@ package org.fiware.apps.marketplace.model;
  * #L%
  */
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,7 +41,10 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 @XmlRootElement(name = "serviceManifestation")
-public class ServiceManifestation {
+public class ServiceManifestation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	
 	private Integer id;
 	private String offeringUri;
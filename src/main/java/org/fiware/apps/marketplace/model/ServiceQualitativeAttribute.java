@@ -34,4 +34,6 @@ package org.fiware.apps.marketplace.model;
 
 public class ServiceQualitativeAttribute extends ServiceAttribute {
 
+	private static final long serialVersionUID = 1L;
+
 }
@@ -34,6 +34,8 @@ package org.fiware.apps.marketplace.model;
 
 public class ServiceQuantitativeAttribute extends ServiceAttribute {
 
+	private static final long serialVersionUID = 1L;
+
 	// TODO suitable unit implementation
 
 	private Double value;
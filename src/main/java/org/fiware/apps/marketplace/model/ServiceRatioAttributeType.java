@@ -34,6 +34,8 @@ package org.fiware.apps.marketplace.model;
  */
 
 public class ServiceRatioAttributeType extends ServiceAttributeType {
+
+	private static final long serialVersionUID = 1L;
 	
 	public static final String baseTypeUri = "http://purl.org/goodrelations/v1#QuantitativeValue";
 	
@@ -40,12 +40,15 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 @Entity
-@Table(name = "last_viewed")
+// Views are retrieved per user and for all the users, from the most recent one
+@Table(name = "last_viewed", indexes = { @Index(name = "idx_last_viewed_user_date", columnList = "user_id, date"),
+		@Index(name = "idx_last_viewed_date", columnList = "date") })
 public class ViewedOffering {
 	
 	private int id;
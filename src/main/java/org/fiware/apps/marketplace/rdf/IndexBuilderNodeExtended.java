@@ -37,6 +37,7 @@ import java.io.IOException;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.larq.ARQLuceneException;
@@ -54,14 +55,23 @@ public class IndexBuilderNodeExtended extends IndexBuilderNode {
 		super(path);
 	}
 	
+	public IndexBuilderNodeExtended(IndexWriter writer){
+		super(writer);
+	}
+	
 	public void index(Node node, String indexStr, String docId) {
 		try {
 			Document doc = new Document();
 			LARQ.store(doc, node);
 			LARQ.index(doc, indexStr);
 			
-			Field field = new Field("docId", docId, Field.Store.YES, Field.Index.TOKENIZED);	    
+			Field field = new Field(IndexManager.DOC_ID_FIELD, docId, Field.Store.YES, Field.Index.TOKENIZED);	    
 			doc.add(field);
+			
+			// Used to remove this literal when the description is incrementally indexed
+			Field literalField = new Field(IndexManager.LITERAL_ID_FIELD, 
+					IndexManager.getLiteralId(docId, node), Field.Store.NO, Field.Index.UN_TOKENIZED);
+			doc.add(literalField);
 
 			getIndexWriter().addDocument(doc);
 		} catch (IOException ex) { 
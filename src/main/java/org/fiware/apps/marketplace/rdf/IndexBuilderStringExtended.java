@@ -36,6 +36,8 @@ package org.fiware.apps.marketplace.rdf;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.apache.lucene.index.IndexWriter;
+
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.larq.ARQLuceneException;
 import com.hp.hpl.jena.query.larq.IndexBuilderString;
@@ -73,6 +75,17 @@ public class IndexBuilderStringExtended extends IndexBuilderString {
 		this.docId = docId;
 	}
 
+	/**
+	 * Helper to index a document using a shared writer. closeWriter() should not be
+	 * called since the writer is owned by the caller.
+	 * @param writer The writer used to store the index
+	 * @param docId The document to be indexed
+	 */
+	public IndexBuilderStringExtended(IndexWriter writer, String docId) {
+		this.index = new IndexBuilderNodeExtended(writer);
+		this.docId = docId;
+	}
+
 	/**
 	 * Function to index a statement that belongs to the service
 	 * that is being indexed
@@ -80,24 +93,38 @@ public class IndexBuilderStringExtended extends IndexBuilderString {
 	 * to the service
 	 */
 	public void indexStatement(Statement statement) {
-		if (indexThisStatement(statement)) {
-			try {
-				if (statement.getObject().isLiteral()) {
-					
-					Node node = statement.getObject().asNode();
-					
-					if (!indexedNodes.contains(node)){
-						if (indexThisLiteral(statement.getLiteral())){
-							IndexBuilderNodeExtended indexExt = (IndexBuilderNodeExtended) index;
-							indexExt.index(node, node.getLiteralLexicalForm(), this.docId);
-						}
-
-						indexedNodes.add(node);
-					}
+		try {
+			if (isIndexable(statement)) {
+				
+				Node node = statement.getObject().asNode();
+				
+				if (!indexedNodes.contains(node)){
+					indexNode(node);
 				}
-			} catch (Exception e) { 
-				throw new ARQLuceneException("indexStatement", e); 
 			}
+		} catch (Exception e) { 
+			throw new ARQLuceneException("indexStatement", e); 
 		}
 	}
+	
+	/**
+	 * Function to know whether the object of a statement should be indexed
+	 * @param statement The statement to be checked
+	 * @return true if the object of the statement is a literal that must be indexed. False otherwise.
+	 */
+	public boolean isIndexable(Statement statement) {
+		return indexThisStatement(statement) && statement.getObject().isLiteral() && 
+				indexThisLiteral(statement.getLiteral());
+	}
+	
+	/**
+	 * Function to index a literal node that belongs to the service
+	 * that is being indexed
+	 * @param node The literal node to be indexed
+	 */
+	public void indexNode(Node node) {
+		IndexBuilderNodeExtended indexExt = (IndexBuilderNodeExtended) index;
+		indexExt.index(node, node.getLiteralLexicalForm(), this.docId);
+		indexedNodes.add(node);
+	}
 }
@@ -0,0 +1,272 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.fiware.apps.marketplace.utils.RefreshableIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.larq.IndexLARQ;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+
+/**
+ * Holds the Lucene index used to search descriptions. A single writer is shared by all the
+ * index mutations and searches are performed against a reader that is periodically refreshed
+ * (based on the refresh period specified in the configuration file) to include the latest changes.
+ * When a description is indexed again, only the documents of the literals that have been added or
+ * removed are modified. To do so, the fingerprints of the literals indexed for each description are
+ * kept in memory. Descriptions without fingerprints (i.e. after a restart) are fully indexed again.
+ */
+@Service("indexManager")
+public class IndexManager {
+	
+	public static final String DOC_ID_FIELD = "docId";
+	public static final String LITERAL_ID_FIELD = "literalId";
+	
+	@Value("${lucene.IndexPath}") private String lucenePath;
+	@Value("${lucene.refreshPeriod:5}") private int refreshPeriod;
+	@Value("${lucene.incrementalIndexing:true}") private boolean incrementalIndexing = true;
+	
+	private RefreshableIndex<IndexLARQ> index;
+	
+	// Sorted fingerprints of the literals indexed for each description. Only accessed 
+	// while updating the index, so it's guarded by the writer lock.
+	private final Map<String, long[]> fingerprints = new HashMap<>();
+	
+	private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+	
+	@PostConstruct
+	public void init() throws IOException {
+		
+		this.index = new RefreshableIndex<IndexLARQ>(lucenePath, new StandardAnalyzer(), refreshPeriod) {
+			
+			@Override
+			protected IndexLARQ createSearcher(IndexReader reader) {
+				return new IndexLARQ(reader);
+			}
+		};
+		
+		index.open();
+	}
+	
+	@PreDestroy
+	public void destroy() throws IOException {
+		index.close();
+	}
+	
+	/**
+	 * Replaces all the documents of the given description by the literals contained in the given statements.
+	 * Changes will be visible for searches after the next refresh.
+	 * @param docId The ID of the description whose statements are being indexed
+	 * @param statements The statements to be indexed
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void index(final String docId, final StmtIterator statements) throws IOException {
+		
+		index.update(new RefreshableIndex.Update() {
+			
+			@Override
+			public boolean apply(IndexWriter writer) throws IOException {
+				
+				IndexBuilderStringExtended larqBuilder = new IndexBuilderStringExtended(writer, docId);
+				
+				// Literals to be indexed by fingerprint
+				Map<Long, Node> literals = new HashMap<>();
+				while (statements.hasNext()) {
+					Statement statement = statements.next();
+					if (larqBuilder.isIndexable(statement)) {
+						Node node = statement.getObject().asNode();
+						literals.put(getFingerprint(node), node);
+					}
+				}
+				
+				long[] newFingerprints = new long[literals.size()];
+				int i = 0;
+				for (Long fingerprint: literals.keySet()) {
+					newFingerprints[i++] = fingerprint;
+				}
+				Arrays.sort(newFingerprints);
+				
+				// Fingerprints are restored once all the documents have been modified. If the writer fails,
+				// it may contain only some of the changes so the description will be fully indexed next time.
+				long[] oldFingerprints = fingerprints.remove(docId);
+				boolean changed;
+				
+				if (!incrementalIndexing || oldFingerprints == null) {
+				
+					writer.deleteDocuments(new Term(DOC_ID_FIELD, docId));
+					for (long fingerprint: newFingerprints) {
+						larqBuilder.indexNode(literals.get(fingerprint));
+					}
+				
+					changed = true;
+				
+				} else {
+				
+					int removed = 0;
+					int added = 0;
+					int oldIndex = 0;
+					int newIndex = 0;
+				
+					// Both arrays are sorted so they can be merged to find the differences
+					while (oldIndex < oldFingerprints.length || newIndex < newFingerprints.length) {
+				
+						if (newIndex == newFingerprints.length || (oldIndex < oldFingerprints.length && 
+								oldFingerprints[oldIndex] < newFingerprints[newIndex])) {
+							writer.deleteDocuments(new Term(LITERAL_ID_FIELD, 
+									getLiteralId(docId, oldFingerprints[oldIndex++])));
+							removed++;
+						} else if (oldIndex == oldFingerprints.length || 
+								oldFingerprints[oldIndex] > newFingerprints[newIndex]) {
+							larqBuilder.indexNode(literals.get(newFingerprints[newIndex++]));
+							added++;
+						} else {
+							// Literal already indexed
+							oldIndex++;
+							newIndex++;
+						}
+					}
+				
+					changed = removed > 0 || added > 0;
+					logger.debug("Description {} indexed incrementally: {} literals added, {} removed", 
+							new Object[]{docId, added, removed});
+				}
+				
+				fingerprints.put(docId, newFingerprints);
+				
+				return changed;
+			}
+		});
+	}
+	
+	/**
+	 * Removes all the documents of the given description. Changes will be visible for searches
+	 * after the next refresh.
+	 * @param docId The ID of the description whose documents are being deleted
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void delete(final String docId) throws IOException {
+		
+		index.update(new RefreshableIndex.Update() {
+			
+			@Override
+			public boolean apply(IndexWriter writer) throws IOException {
+				writer.deleteDocuments(new Term(DOC_ID_FIELD, docId));
+				fingerprints.remove(docId);
+				return true;
+			}
+		});
+	}
+	
+	/**
+	 * Commits the pending changes (if any) and reopens the reader so searches can see them. 
+	 * @throws IOException When the changes cannot be committed or the reader cannot be reopened
+	 */
+	public void refresh() throws IOException {
+		index.refresh();
+	}
+	
+	/**
+	 * Returns the index to be used to perform searches. {@link #release()} MUST be called 
+	 * (in a finally block) once the search has finished.
+	 * @return The index to be used to perform searches
+	 */
+	public IndexLARQ acquire() {
+		return index.acquire();
+	}
+	
+	/**
+	 * Releases the index obtained through {@link #acquire()}
+	 */
+	public void release() {
+		index.release();
+	}
+	
+	/**
+	 * @param docId The ID of the description that contains the literal
+	 * @param node The literal node
+	 * @return The value of the field used to identify the document of the literal in the given description
+	 */
+	static String getLiteralId(String docId, Node node) {
+		return getLiteralId(docId, getFingerprint(node));
+	}
+	
+	private static String getLiteralId(String docId, long fingerprint) {
+		return docId + "/" + Long.toHexString(fingerprint);
+	}
+	
+	/**
+	 * @param node The literal node
+	 * @return A 64-bit fingerprint of the lexical form, the language and the datatype of the literal
+	 */
+	static long getFingerprint(Node node) {
+		
+		String literal = node.getLiteralLexicalForm() + "\u0000" + node.getLiteralLanguage() + "\u0000" + 
+				node.getLiteralDatatypeURI();
+		
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(literal.getBytes(StandardCharsets.UTF_8));
+			long fingerprint = 0;
+			
+			for (int i = 0; i < 8; i++) {
+				fingerprint = (fingerprint << 8) | (digest[i] & 0xff);
+			}
+			
+			return fingerprint;
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform is required to support MD5
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * RDF document downloaded from a remote URL. Apart from the parsed model, it contains the raw
+ * content and the headers required to revalidate the document.
+ */
+public class RdfDocument {
+	
+	private final byte[] content;
+	private final String etag;
+	private final String lastModified;
+	private final String contentHash;
+	private final Model model;
+	private volatile RdfHelper helper;
+	
+	RdfDocument(byte[] content, String etag, String lastModified, Model model) {
+		this.content = content;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.contentHash = hash(content);
+		this.model = model;
+	}
+	
+	byte[] getContent() {
+		return content;
+	}
+	
+	String getEtag() {
+		return etag;
+	}
+	
+	String getLastModified() {
+		return lastModified;
+	}
+	
+	/**
+	 * @return The parsed model. This model cannot be modified.
+	 */
+	public Model getModel() {
+		return model;
+	}
+	
+	/**
+	 * @return A helper to query the model. The helper is shared, so lookups performed on the 
+	 * document are not performed again.
+	 */
+	public RdfHelper getHelper() {
+		if (helper == null) {
+			// Creating two helpers is harmless
+			helper = new RdfHelper(model, true);
+		}
+		return helper;
+	}
+	
+	/**
+	 * @return The memory (in bytes) accounted to the document in the cache: its raw content and the 
+	 * results stored by its helper, which grow as lookups are performed
+	 */
+	long getWeight() {
+		RdfHelper helper = this.helper;
+		return content.length + (helper == null ? 0 : helper.getResultsSize());
+	}
+	
+	/**
+	 * @return The SHA-256 hash of the raw content of the document (hex encoded)
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+	
+	private static String hash(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder builder = new StringBuilder(digest.length * 2);
+			
+			for (byte b: digest) {
+				builder.append(String.format("%02x", b));
+			}
+			
+			return builder.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -33,12 +33,16 @@ package org.fiware.apps.marketplace.rdf;
  * #L%
  */
 
-import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,22 +55,25 @@ import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.shared.PrefixMapping;
 import com.hp.hpl.jena.sparql.util.FmtUtils;
 
 public class RdfHelper {
 
 	private Model model;
 	
+	// Results of the lookups performed against the model. Only used when the model cannot be modified.
+	private final Map<String, Object> results;
+	// Estimated memory (in bytes) used by the stored results
+	private final AtomicLong resultsSize = new AtomicLong();
+	
 	private static final Logger logger = LoggerFactory.getLogger(RdfHelper.class);
 
-	/**
-	 * Preliminary List of prefixes for queries
-	 * TODO: Resolve prefixes reasonably depending on the preferences...
-	 */
 	private static final String QUERY_PREFIXES = "PREFIX gr: <http://purl.org/goodrelations/v1#> "
 			+ "PREFIX skos: <http://www.w3.org/2004/02/skos/core#> "
 			+ "PREFIX foaf: <http://xmlns.com/foaf/0.1/>"
@@ -84,15 +91,42 @@ public class RdfHelper {
 			+ "PREFIX os: <http://appsnserv.testbed.fi-ware.eu/cloudservices/rdf/vocabulary/Vocabulary_OperatingSystem_003#> "
 			+ "PREFIX support: <http://appsnserv.testbed.fi-ware.eu/cloudservices/rdf/vocabulary/Vocabulary_Support_003#> ";
 	
+	private static final PrefixMapping PREFIX_MAPPING = PrefixMapping.Factory.create();
+	
+	static {
+		Matcher matcher = Pattern.compile("PREFIX\\s+(\\w*):\\s*<([^>]*)>").matcher(QUERY_PREFIXES);
+		while (matcher.find()) {
+			PREFIX_MAPPING.setNsPrefix(matcher.group(1), matcher.group(2));
+		}
+		PREFIX_MAPPING.lock();
+	}
+	
+	// Parsing a query is much more expensive than executing it against a description, and 
+	// the same queries are executed for every offering
+	private static final int MAX_PARSED_QUERIES = 1000;
+	private static final Map<String, Query> PARSED_QUERIES = new ConcurrentHashMap<>();
+	
+	// Rough memory used by the header of each object of the stored results (strings, lists, map entries...)
+	private static final int OBJECT_OVERHEAD = 48;
+	
+	/**
+	 * Constructor for RdfHelper
+	 * @param model The model to be queried. Models of remote RDF documents should be 
+	 * obtained through {@link RdfModelCache}
+	 */
+	public RdfHelper(Model model) {
+		this(model, false);
+	}
+	
 	/**
 	 * Constructor for RdfHelper
-	 * @param descriptionURL The URL where the RDF is hosted
-	 * @throws IOException When the RDF cannot be read
+	 * @param model The model to be queried
+	 * @param readOnly Whether the model can be modified or not. When it cannot, the results of 
+	 * the lookups are stored so they are not performed again.
 	 */
-	public RdfHelper(String descriptionURL) throws IOException {
-		this.model = ModelFactory.createDefaultModel();
-		URL url = new URL(descriptionURL);
-		model.read(url.openStream(), null);
+	RdfHelper(Model model, boolean readOnly) {
+		this.model = model;
+		this.results = readOnly ? new ConcurrentHashMap<String, Object>() : null;
 	}
 	
 	/**
@@ -110,6 +144,154 @@ public class RdfHelper {
 	public Model getModel() {
 		return this.model;
 	}
+	
+	private static Query parseQuery(String queryString) {
+		Query query = PARSED_QUERIES.get(queryString);
+		
+		if (query == null) {
+			query = QueryFactory.create(QUERY_PREFIXES + queryString);
+			// Queries are shared between threads, so they must not be modified when they are executed
+			query.setResultVars();
+			
+			// Queries built with literal values may not be repeated
+			if (PARSED_QUERIES.size() >= MAX_PARSED_QUERIES) {
+				PARSED_QUERIES.clear();
+			}
+			PARSED_QUERIES.put(queryString, query);
+		}
+		
+		return query;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> List<T> getResult(String key) {
+		return results == null ? null : (List<T>) results.get(key);
+	}
+	
+	private <T> List<T> putResult(String key, List<T> result) {
+		if (results == null) {
+			return result;
+		}
+		
+		List<T> unmodifiableResult = Collections.unmodifiableList(result);
+		if (results.put(key, unmodifiableResult) == null) {
+			resultsSize.addAndGet(OBJECT_OVERHEAD + estimateSize(key) + estimateSize(result));
+		}
+		return unmodifiableResult;
+	}
+	
+	private static long estimateSize(Object value) {
+		long size = OBJECT_OVERHEAD;
+		
+		if (value instanceof String) {
+			size += 2L * ((String) value).length();
+		} else if (value instanceof Collection) {
+			for (Object element: (Collection<?>) value) {
+				size += estimateSize(element);
+			}
+		} else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry: ((Map<?, ?>) value).entrySet()) {
+				size += OBJECT_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+			}
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * @return The estimated memory (in bytes) used by the results stored by this helper
+	 */
+	long getResultsSize() {
+		return resultsSize.get();
+	}
+	
+	private static String getKey(String method, String... args) {
+		StringBuilder key = new StringBuilder(method);
+		for (String arg: args) {
+			key.append('\n').append(arg);
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Returns the resource identified by the given SPARQL term (<uri> or prefix:name)
+	 * @param term The term
+	 * @return The resource or null if the term cannot be resolved
+	 */
+	private Resource getResource(String term) {
+		String uri = expandTerm(term);
+		return uri == null ? null : model.getResource(uri);
+	}
+	
+	/**
+	 * Returns the property identified by the given SPARQL term (<uri> or prefix:name)
+	 * @param term The term
+	 * @return The property or null if the term cannot be resolved
+	 */
+	private Property getProperty(String term) {
+		String uri = expandTerm(term);
+		return uri == null ? null : model.getProperty(uri);
+	}
+	
+	private static String expandTerm(String term) {
+		if (term == null) {
+			return null;
+		} else if (term.startsWith("<") && term.endsWith(">")) {
+			return term.substring(1, term.length() - 1);
+		} else if (term.indexOf(':') > 0 && !term.startsWith("_:")) {
+			String expanded = PREFIX_MAPPING.expandPrefix(term);
+			// Unknown prefix
+			return expanded.equals(term) ? null : expanded;
+		} else {
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the objects of the given subject and predicate. The graph indexes its triples by 
+	 * subject, so the lookup does not iterate over the whole model.
+	 * @param subject The subject
+	 * @param property The predicate or null to get the objects of all the predicates
+	 * @return The objects found
+	 */
+	private List<RDFNode> listObjects(Resource subject, Property property) {
+		List<RDFNode> objects = new ArrayList<>();
+		StmtIterator it = model.listStatements(subject, property, (RDFNode) null);
+		try {
+			while (it.hasNext()) {
+				objects.add(it.next().getObject());
+			}
+		} finally {
+			it.close();
+		}
+		return objects;
+	}
+	
+	/**
+	 * Returns the objects of the triples with the given subject and predicate. Simple lookups are 
+	 * performed directly against the graph. SPARQL is only used when the subject is not a URI.
+	 * @param subject The subject (SPARQL term)
+	 * @param predicate The predicate (SPARQL term)
+	 * @return The objects found
+	 */
+	private List<RDFNode> getObjects(String subject, String predicate) {
+		List<RDFNode> objects = new ArrayList<>();
+		Resource subjectResource = getResource(subject);
+		Property property = getProperty(predicate);
+		
+		if (subjectResource != null && property != null) {
+			objects.addAll(listObjects(subjectResource, property));
+		} else {
+			String query = "SELECT ?x WHERE { " + subject + " " + predicate + " ?x . } ";
+			logger.debug("Executing JENA query {}", query);
+			
+			for (QuerySolution solution : this.query(query)) {
+				objects.add(solution.get("x"));
+			}
+		}
+		
+		return objects;
+	}
 
 	/**
 	 * Executes the given query and returns the results as list or an empty list
@@ -119,13 +301,12 @@ public class RdfHelper {
 	 */
 	public List<QuerySolution> query(String queryString) {
 		
-		Query query = QueryFactory.create(QUERY_PREFIXES + queryString);
 		List<QuerySolution> solutions = new ArrayList<QuerySolution>();
 		QueryExecution queryExec = null;
 
 		try {
 			
-			queryExec = QueryExecutionFactory.create(query, model);
+			queryExec = QueryExecutionFactory.create(parseQuery(queryString), model);
 			ResultSet results = queryExec.execSelect();
 
 			while(results.hasNext()) {
@@ -151,11 +332,18 @@ public class RdfHelper {
 	 * @return Literals found via the given query
 	 */
 	public List<String> queryLiterals(String query, String queriedVar) {
-		List<String> literals = new ArrayList<>();
-		List<QuerySolution> solutions = this.query(query);
+		String key = getKey("queryLiterals", query, queriedVar);
+		List<String> literals = getResult(key);
 		
-		for (QuerySolution solution: solutions) {
-			literals.add(HtmlUtils.htmlEscape(solution.getLiteral(queriedVar).getLexicalForm()));
+		if (literals == null) {
+			literals = new ArrayList<>();
+			List<QuerySolution> solutions = this.query(query);
+			
+			for (QuerySolution solution: solutions) {
+				literals.add(HtmlUtils.htmlEscape(solution.getLiteral(queriedVar).getLexicalForm()));
+			}
+			
+			literals = putResult(key, literals);
 		}
 		
 		return literals;
@@ -179,14 +367,20 @@ public class RdfHelper {
 	 * @return List of found URIs or empty list
 	 */
 	public List<String> queryUris(String query, String queriedVar) {
-
-		List<String> uris = new ArrayList<String>();
+		String key = getKey("queryUris", query, queriedVar);
+		List<String> uris = getResult(key);
 		
-		for (QuerySolution solution : this.query(query)) {
-			Resource res = solution.getResource(queriedVar);
-			if (res != null) {
-				uris.add(FmtUtils.stringForNode(res.asNode()));
+		if (uris == null) {
+			uris = new ArrayList<String>();
+			
+			for (QuerySolution solution : this.query(query)) {
+				Resource res = solution.getResource(queriedVar);
+				if (res != null) {
+					uris.add(FmtUtils.stringForNode(res.asNode()));
+				}
 			}
+			
+			uris = putResult(key, uris);
 		}
 
 		return uris;
@@ -211,12 +405,8 @@ public class RdfHelper {
 	 * @return URI or null
 	 */
 	public String getObjectUri(String subject, String predicate) {
-		
-		String queriedVar = "x";
-		String query = "SELECT ?" + queriedVar + " WHERE { " + subject + " " + predicate + " ?" + queriedVar + " . } ";
-		
-		logger.info("Executing JENA query {}", query);
-		return queryUri(query, queriedVar);
+		List<String> uris = getObjectUris(subject, predicate);
+		return uris.isEmpty() ? null : uris.get(0);
 	}
 
 	/**
@@ -227,12 +417,22 @@ public class RdfHelper {
 	 * @return URI or null
 	 */
 	public List<String> getObjectUris(String subject, String predicate) {
+		String key = getKey("getObjectUris", subject, predicate);
+		List<String> uris = getResult(key);
 		
-		String queriedVar = "x";
-		String query = "SELECT ?" + queriedVar + " WHERE { " + subject + " " + predicate + " ?" + queriedVar + " . } ";
+		if (uris == null) {
+			uris = new ArrayList<String>();
+			
+			for (RDFNode object : getObjects(subject, predicate)) {
+				if (object != null && object.isResource()) {
+					uris.add(FmtUtils.stringForNode(object.asNode()));
+				}
+			}
+			
+			uris = putResult(key, uris);
+		}
 		
-		logger.info("Executing JENA query {}", query);
-		return queryUris(query, queriedVar);
+		return uris;
 	}
 
 	/**
@@ -243,12 +443,22 @@ public class RdfHelper {
 	 * @return The literal or null
 	 */
 	public String getLiteral(String subject, String predicate) {
+		String key = getKey("getLiteral", subject, predicate);
+		List<String> literals = getResult(key);
 		
-		String queriedVar = "x";
-		String query = "SELECT ?" + queriedVar + " WHERE { " + subject + " " + predicate + " ?" + queriedVar + " . } ";
+		if (literals == null) {
+			literals = new ArrayList<>();
+			
+			for (RDFNode object : getObjects(subject, predicate)) {
+				if (object != null && object.isLiteral()) {
+					literals.add(HtmlUtils.htmlEscape(object.asLiteral().getLexicalForm()));
+				}
+			}
+			
+			literals = putResult(key, literals);
+		}
 		
-		logger.info("Executing JENA query {}", query);
-		return queryLiteral(query, queriedVar);
+		return literals.isEmpty() ? null : literals.get(0);
 	}
 	
 	/**
@@ -258,13 +468,44 @@ public class RdfHelper {
 	 * @return The literals of the blank nodes attached to the corresponding triples
 	 */
 	public List<String> getBlankNodesLabels(String subject, String predicate) {
+		String key = getKey("getBlankNodesLabels", subject, predicate);
+		List<String> labels = getResult(key);
 		
-		String queriedVar = "y";
-		String query = "SELECT ?" + queriedVar + " WHERE { " + subject + " " + predicate + " ?x . ?x rdfs:label ?" + 
-				queriedVar + " . } ";
+		if (labels == null) {
+			labels = new ArrayList<>();
+			Property label = getProperty("rdfs:label");
+			
+			for (RDFNode object : getObjects(subject, predicate)) {
+				if (object != null && object.isResource()) {
+					for (RDFNode labelNode : listObjects(object.asResource(), label)) {
+						if (labelNode.isLiteral()) {
+							labels.add(HtmlUtils.htmlEscape(labelNode.asLiteral().getLexicalForm()));
+						}
+					}
+				}
+			}
+			
+			labels = putResult(key, labels);
+		}
 		
-		logger.info("Executing JENA query {}", query);
-		return queryLiterals(query, queriedVar);
+		return labels;
+	}
+	
+	private void addNodeProperty(Map<String, List<Object>> nodeProperties, Property predicate, RDFNode object) {
+		
+		String predicateName = predicate.getLocalName();
+		List<Object> predicateValues = nodeProperties.get(predicateName);
+		
+		if (predicateValues == null) {
+			predicateValues = new ArrayList<Object>();
+			nodeProperties.put(predicateName, predicateValues);
+		}
+		
+		if (object.isLiteral()) {
+			predicateValues.add(object.asLiteral().getString());
+		} else if (object.isResource()) {
+			predicateValues.add(parseNode(object.asResource()));
+		}
 	}
 	
 	private Map<String, List<Object>> parseNode(Resource resource) {
@@ -272,22 +513,13 @@ public class RdfHelper {
 		Map<String, List<Object>> nodeProperties = new HashMap<>();
 		StmtIterator it = resource.listProperties();
 		
-		while(it.hasNext()) {
-			
-			Statement st = it.next();
-			String predicateName = st.getPredicate().getLocalName();
-			List<Object> predicateValues = nodeProperties.get(predicateName);
-			
-			if (predicateValues == null) {
-				predicateValues = new ArrayList<Object>();
-				nodeProperties.put(predicateName, predicateValues);
-			}
-			
-			if (st.getObject().isLiteral()) {
-				predicateValues.add(st.getObject().asLiteral().getString());
-			} else if (st.getObject().isResource()) {
-				predicateValues.add(parseNode(st.getObject().asResource()));
+		try {
+			while(it.hasNext()) {
+				Statement st = it.next();
+				addNodeProperty(nodeProperties, st.getPredicate(), st.getObject());
 			}
+		} finally {
+			it.close();
 		}
 		
 		return nodeProperties;
@@ -302,17 +534,21 @@ public class RdfHelper {
 	 * that will be performed based on the given subject and predicate
 	 */
 	public List<Map<String, List<Object>>> getBlankNodesProperties(String subject, String predicate) {
-				
-		String queriedVar = "x";
-		String query = "SELECT ?" + queriedVar +  " WHERE { " + subject + " " + predicate + " ?" + queriedVar + " . } ";
-		List<QuerySolution> solutions = this.query(query);
-		List<Map<String, List<Object>>> results = new ArrayList<>();
-
-		for (QuerySolution solution: solutions) {	
-			Resource resource = solution.get(queriedVar).asResource();
-			results.add(parseNode(resource));
+		String key = getKey("getBlankNodesProperties", subject, predicate);
+		List<Map<String, List<Object>>> nodes = getResult(key);
+		
+		if (nodes == null) {
+			nodes = new ArrayList<>();
+			
+			for (RDFNode object : getObjects(subject, predicate)) {
+				if (object != null && object.isResource()) {
+					nodes.add(parseNode(object.asResource()));
+				}
+			}
+			
+			nodes = putResult(key, nodes);
 		}
 		
-		return results;
+		return nodes;
 	}
 }
@@ -35,77 +35,39 @@ package org.fiware.apps.marketplace.rdf;
 
 import java.io.IOException;
 
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.index.CorruptIndexException;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.StaleReaderException;
-import org.apache.lucene.index.Term;
-import org.apache.lucene.store.LockObtainFailedException;
 import org.fiware.apps.marketplace.model.Description;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.Statement;
-import com.hp.hpl.jena.rdf.model.StmtIterator;
 
 @Service("rdfIndexer")
 public class RdfIndexer {
 	
-	@Value("${lucene.IndexPath}") private String lucenePath;
+	@Autowired private IndexManager indexManager;
+	@Autowired private RdfModelCache rdfModelCache;
 	
 	private static final Logger logger = LoggerFactory.getLogger(RdfIndexer.class);	
 	
 	public void indexOrUpdateService(Description description) throws IOException {
 
-		Model model = new RdfHelper(description.getUrl()).getModel();
-		String serviceId = description.getId().toString();
+		Model model = rdfModelCache.getModel(description.getUrl());
 		
-		// Delete previous indexes for this description (if any)
+		// Previous indexes for this description (if any) are replaced.
 		// If a description is being updated, a JenaException should have been thrown previously and
 		// this method won't be called, so the previous index is not deleted.
-		deleteService(description);
-
-		IndexBuilderStringExtended larqBuilder = new IndexBuilderStringExtended(lucenePath, serviceId);	
-
-		StmtIterator indexModel = model.listStatements();
-		while(indexModel.hasNext()) {	  			  
-			Statement statement = indexModel.next();	
-			larqBuilder.indexStatement(statement);
-		}
-
-		larqBuilder.closeWriter();
-
+		indexManager.index(description.getId().toString(), model.listStatements());
 	}
 
 	public void deleteService(Description description) {
 
-		Analyzer analyzer = new StandardAnalyzer();
-		IndexWriter indexWriter = null;
-		
 		try {
-			indexWriter = new IndexWriter(lucenePath, analyzer);
-			indexWriter.deleteDocuments(new Term ("docId", description.getId().toString()));
-		} catch (StaleReaderException e) {
-			logger.error("Deleting Service from Index - StaleReaderException", e);
-		} catch (CorruptIndexException e) {
-			logger.error("Deleting Service from Index - CorruptIndexException", e);
-		} catch (LockObtainFailedException e) {
-			logger.error("Deleting Service from Index - LockObtainFailedException", e);
+			indexManager.delete(description.getId().toString());
 		} catch (IOException e) {
 			logger.error("Deleting Service from Index - IOException", e);
 		}
-
-		try {
-			indexWriter.optimize();
-			indexWriter.close();
-		} catch (IOException e) {
-			logger.error("Deleting Service form Index (Optimizing) - IOException", e);
-		}
-
 	}
 
 }
@@ -0,0 +1,495 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.fiware.apps.marketplace.exceptions.RdfLimitExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+/**
+ * Cache of the RDF models downloaded from remote URLs. The raw content of each document is stored
+ * together with its ETag and Last-Modified headers so cached documents are revalidated using 
+ * conditional requests. Models returned by this cache are shared and cannot be modified.
+ */
+@Service("rdfModelCache")
+public class RdfModelCache {
+	
+	@Value("${rdf.cache.maxSize:52428800}") private long maxSize;
+	@Value("${rdf.fetch.connectTimeout:10000}") private int connectTimeout;
+	@Value("${rdf.fetch.readTimeout:30000}") private int readTimeout;
+	@Value("${rdf.fetch.timeout:60000}") private int fetchTimeout;
+	@Value("${rdf.fetch.maxSize:10485760}") private long maxDocumentSize;
+	@Value("${rdf.fetch.maxTriples:500000}") private long maxTriples;
+	@Autowired(required = false) private MetricRegistry metricRegistry;
+	
+	// Closes the connections of the downloads that exceed the fetch timeout
+	private final ScheduledThreadPoolExecutor aborter = createAborter();
+	
+	// Access ordered so the least recently used documents are evicted first
+	private final Map<String, RdfDocument> documents = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0;
+	
+	// Statistics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong refetches = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong fetchedBytes = new AtomicLong();
+	
+	@PostConstruct
+	public void init() {
+		
+		if (metricRegistry != null) {
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "hits"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getHits();
+				}
+			});
+			
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "misses"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getMisses();
+				}
+			});
+			
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "refetches"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getRefetches();
+				}
+			});
+			
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "rejections"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getRejections();
+				}
+			});
+			
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "fetchedBytes"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getFetchedBytes();
+				}
+			});
+			
+			metricRegistry.register(MetricRegistry.name(RdfModelCache.class, "size"), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getSize();
+				}
+			});
+		}
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		aborter.shutdownNow();
+	}
+	
+	private static ScheduledThreadPoolExecutor createAborter() {
+		ScheduledThreadPoolExecutor aborter = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "rdf-fetch-aborter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// Most of the downloads finish before the timeout
+		aborter.setRemoveOnCancelPolicy(true);
+		return aborter;
+	}
+	
+	/**
+	 * Returns the model of the RDF document hosted in the given URL. If the document has been 
+	 * previously downloaded, it is revalidated and the cached model is returned when it has not 
+	 * been modified.
+	 * @param descriptionURL The URL where the RDF is hosted
+	 * @return The model of the RDF document. This model cannot be modified.
+	 * @throws IOException When the RDF cannot be read
+	 */
+	public Model getModel(String descriptionURL) throws IOException {
+		return getDocument(descriptionURL).getModel();
+	}
+	
+	/**
+	 * Returns a helper to query the model of the RDF document hosted in the given URL. Helpers 
+	 * are shared by all the users of the same document, so repeated lookups are not performed again.
+	 * @param descriptionURL The URL where the RDF is hosted
+	 * @return The helper to query the model of the RDF document
+	 * @throws IOException When the RDF cannot be read
+	 */
+	public RdfHelper getHelper(String descriptionURL) throws IOException {
+		return getDocument(descriptionURL).getHelper();
+	}
+	
+	/**
+	 * Returns the RDF document hosted in the given URL. If the document has been previously
+	 * downloaded, it is revalidated and the cached document is returned when it has not been 
+	 * modified.
+	 * @param descriptionURL The URL where the RDF is hosted
+	 * @return The RDF document, including its parsed model and the hash of its content
+	 * @throws IOException When the RDF cannot be read
+	 */
+	public RdfDocument getDocument(String descriptionURL) throws IOException {
+		
+		RdfDocument cached;
+		synchronized (documents) {
+			cached = documents.get(descriptionURL);
+			
+			// The lookups performed since the document was last used may have made it grow
+			if (cached != null) {
+				evict();
+			}
+		}
+		
+		URLConnection connection = new URL(descriptionURL).openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		final HttpURLConnection httpConnection = connection instanceof HttpURLConnection ? 
+				(HttpURLConnection) connection : null;
+		
+		// The read timeout applies to each read, so a server sending a few bytes at a time could keep the 
+		// connection open indefinitely. The connection is closed when the whole download takes too long.
+		long deadline = fetchTimeout > 0 ? System.currentTimeMillis() + fetchTimeout : Long.MAX_VALUE;
+		final AtomicBoolean aborted = new AtomicBoolean(false);
+		ScheduledFuture<?> abort = null;
+		
+		if (fetchTimeout > 0 && httpConnection != null) {
+			abort = aborter.schedule(new Runnable() {
+				
+				@Override
+				public void run() {
+					aborted.set(true);
+					httpConnection.disconnect();
+				}
+			}, fetchTimeout, TimeUnit.MILLISECONDS);
+		}
+		
+		byte[] content;
+		
+		try {
+			if (cached != null && httpConnection != null) {
+				
+				if (cached.getEtag() != null) {
+					httpConnection.setRequestProperty("If-None-Match", cached.getEtag());
+				}
+				
+				if (cached.getLastModified() != null) {
+					httpConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+				}
+				
+				if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					httpConnection.disconnect();
+					hits.incrementAndGet();
+					return cached;
+				}
+			}
+			
+			// Documents that are known to be too big are not downloaded
+			if (maxDocumentSize > 0 && connection.getContentLengthLong() > maxDocumentSize) {
+				if (httpConnection != null) {
+					httpConnection.disconnect();
+				}
+				throw rejected(descriptionURL, "is bigger than " + maxDocumentSize + " bytes");
+			}
+			
+			try (InputStream stream = connection.getInputStream()) {
+				content = read(stream, descriptionURL, deadline);
+			}
+		} catch (IOException e) {
+			if (aborted.get()) {
+				throw timedOut(descriptionURL, e);
+			}
+			throw e;
+		} finally {
+			if (abort != null) {
+				abort.cancel(false);
+			}
+		}
+		
+		// Some servers do not support conditional requests. The model does not need to be parsed 
+		// again if the content has not changed.
+		if (cached != null && Arrays.equals(cached.getContent(), content)) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		
+		if (cached == null) {
+			misses.incrementAndGet();
+		} else {
+			refetches.incrementAndGet();
+		}
+		
+		Model model = parse(content, getLanguage(connection.getContentType(), descriptionURL), descriptionURL);
+		Model readOnlyModel = ModelFactory.createModelForGraph(new ReadOnlyGraph(model.getGraph()));
+		
+		RdfDocument document = new RdfDocument(content, connection.getHeaderField("ETag"), 
+				connection.getHeaderField("Last-Modified"), readOnlyModel);
+		put(descriptionURL, document);
+		
+		return document;
+	}
+	
+	/**
+	 * Removes the model of the given URL from the cache
+	 * @param descriptionURL The URL whose model has to be removed
+	 */
+	public void invalidate(String descriptionURL) {
+		synchronized (documents) {
+			if (documents.remove(descriptionURL) != null) {
+				evict();
+			}
+		}
+	}
+	
+	private void put(String descriptionURL, RdfDocument document) {
+		
+		synchronized (documents) {
+			
+			documents.remove(descriptionURL);
+			
+			// Documents bigger than the cache are not stored
+			if (document.getWeight() <= maxSize) {
+				documents.put(descriptionURL, document);
+			}
+			
+			evict();
+		}
+	}
+	
+	/**
+	 * Computes the size of the cached documents and evicts the least recently used ones until it does not
+	 * exceed the maximum size. The results stored by the helpers make documents grow after they have been 
+	 * cached, so the size is computed again each time the cache is modified or a cached document is used.
+	 * Must be called holding the lock of the documents.
+	 */
+	private void evict() {
+		
+		size = 0;
+		for (RdfDocument document: documents.values()) {
+			size += document.getWeight();
+		}
+		
+		Iterator<RdfDocument> iterator = documents.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().getWeight();
+			iterator.remove();
+		}
+	}
+	
+	private RdfLimitExceededException rejected(String descriptionURL, String reason) {
+		rejections.incrementAndGet();
+		return new RdfLimitExceededException("The document " + descriptionURL + " " + reason);
+	}
+	
+	private SocketTimeoutException timedOut(String descriptionURL, IOException cause) {
+		SocketTimeoutException exception = new SocketTimeoutException("The document " + descriptionURL + 
+				" could not be downloaded in " + fetchTimeout + " ms");
+		exception.initCause(cause);
+		return exception;
+	}
+	
+	/**
+	 * Reads the given stream. Reading is aborted as soon as the maximum document size is exceeded or 
+	 * the deadline has passed.
+	 */
+	private byte[] read(InputStream stream, String descriptionURL, long deadline) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		
+		while ((read = stream.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+			fetchedBytes.addAndGet(read);
+			
+			if (maxDocumentSize > 0 && output.size() > maxDocumentSize) {
+				throw rejected(descriptionURL, "is bigger than " + maxDocumentSize + " bytes");
+			}
+			
+			if (System.currentTimeMillis() > deadline) {
+				throw timedOut(descriptionURL, null);
+			}
+		}
+		
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Returns the Jena language that has to be used to parse a document based on its content type. When 
+	 * the content type is not a RDF one, the extension of the URL is used. RDF/XML is used by default.
+	 * @param contentType The content type returned by the server
+	 * @param descriptionURL The URL of the document
+	 * @return The language name
+	 */
+	static String getLanguage(String contentType, String descriptionURL) {
+		
+		String mediaType = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ENGLISH);
+		
+		switch (mediaType) {
+		case "text/turtle":
+		case "application/x-turtle":
+		case "text/n3":
+		case "text/rdf+n3":
+			return "TURTLE";
+		case "application/n-triples":
+			return "N-TRIPLE";
+		case "application/rdf+xml":
+			return "RDF/XML";
+		default:
+			String path = descriptionURL.toLowerCase(Locale.ENGLISH).split("[?#]")[0];
+			
+			if (path.endsWith(".ttl") || path.endsWith(".n3")) {
+				return "TURTLE";
+			} else if (path.endsWith(".nt")) {
+				return "N-TRIPLE";
+			} else {
+				return "RDF/XML";
+			}
+		}
+	}
+	
+	/**
+	 * Parses the given content. Parsing is aborted as soon as the maximum number of triples is exceeded.
+	 */
+	private Model parse(byte[] content, String language, String descriptionURL) throws IOException {
+		
+		final Model model = ModelFactory.createDefaultModel();
+		final long[] triples = {0};
+		
+		if (maxTriples > 0) {
+			model.register(new StatementListener() {
+				@Override
+				public void addedStatement(Statement statement) {
+					if (++triples[0] > maxTriples) {
+						throw new IllegalStateException("Too many triples");
+					}
+				}
+			});
+		}
+		
+		try {
+			model.read(new ByteArrayInputStream(content), null, language);
+		} catch (RuntimeException ex) {
+			// Parsers can wrap the exception thrown by the listener
+			if (maxTriples > 0 && triples[0] > maxTriples) {
+				throw rejected(descriptionURL, "contains more than " + maxTriples + " triples");
+			}
+			throw ex;
+		}
+		
+		return model;
+	}
+	
+	/**
+	 * @return The number of documents rejected because they exceeded the size or triples limits
+	 */
+	public long getRejections() {
+		return rejections.get();
+	}
+	
+	/**
+	 * @return The number of bytes downloaded
+	 */
+	public long getFetchedBytes() {
+		return fetchedBytes.get();
+	}
+	
+	/**
+	 * @return The number of requests served with a cached model
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * @return The number of requests of documents that were not cached
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * @return The number of requests of cached documents that have been modified
+	 */
+	public long getRefetches() {
+		return refetches.get();
+	}
+	
+	/**
+	 * @return The size (in bytes) of the cached documents, including the results stored by their helpers
+	 */
+	public long getSize() {
+		synchronized (documents) {
+			return size;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.hp.hpl.jena.graph.BulkUpdateHandler;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.impl.WrappedGraph;
+import com.hp.hpl.jena.shared.AddDeniedException;
+import com.hp.hpl.jena.shared.DeleteDeniedException;
+
+/**
+ * Graph that wraps another graph and rejects any modification. It is used to share
+ * parsed models between threads safely.
+ */
+public class ReadOnlyGraph extends WrappedGraph {
+
+	public ReadOnlyGraph(Graph base) {
+		super(base);
+	}
+	
+	@Override
+	public void add(Triple triple) {
+		throw new AddDeniedException("Read only graph", triple);
+	}
+	
+	@Override
+	public void performAdd(Triple triple) {
+		throw new AddDeniedException("Read only graph", triple);
+	}
+	
+	@Override
+	public void delete(Triple triple) {
+		throw new DeleteDeniedException("Read only graph", triple);
+	}
+	
+	@Override
+	public void performDelete(Triple triple) {
+		throw new DeleteDeniedException("Read only graph", triple);
+	}
+	
+	@Override
+	public BulkUpdateHandler getBulkUpdateHandler() {
+		// The default handler modifies the base graph directly
+		return READ_ONLY_BULK_UPDATE_HANDLER;
+	}
+	
+	@Override
+	public void close() {
+		// The base graph is shared, so it cannot be closed
+	}
+	
+	private static final BulkUpdateHandler READ_ONLY_BULK_UPDATE_HANDLER = new BulkUpdateHandler() {
+		
+		@Override
+		public void add(Triple[] triples) {
+			throw new AddDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void add(List<Triple> triples) {
+			throw new AddDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void add(Iterator<Triple> it) {
+			throw new AddDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void add(Graph graph, boolean withReifications) {
+			throw new AddDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void add(Graph graph) {
+			throw new AddDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void delete(Triple[] triples) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void delete(List<Triple> triples) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void delete(Iterator<Triple> it) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void delete(Graph graph) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void delete(Graph graph, boolean withReifications) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void removeAll() {
+			throw new DeleteDeniedException("Read only graph");
+		}
+		
+		@Override
+		public void remove(Node s, Node p, Node o) {
+			throw new DeleteDeniedException("Read only graph");
+		}
+	};
+
+}
@@ -0,0 +1,205 @@
+package org.fiware.apps.marketplace.security;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.fiware.apps.marketplace.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.codahale.metrics.Histogram;
+
+/**
+ * Stores the current user and the authorization decisions taken while a request is being processed, so the 
+ * user is retrieved from the database only once per request. Outside requests (e.g. background tasks), 
+ * nothing is stored.
+ */
+public final class RequestUserContext {
+	
+	private static final String USER_NAME_ATTRIBUTE = RequestUserContext.class.getName() + ".userName";
+	private static final String USER_ATTRIBUTE = RequestUserContext.class.getName() + ".user";
+	private static final String USER_LOOKUPS_ATTRIBUTE = RequestUserContext.class.getName() + ".userLookups";
+	private static final String DECISIONS_ATTRIBUTE = RequestUserContext.class.getName() + ".decisions";
+	
+	private static final Logger logger = LoggerFactory.getLogger(RequestUserContext.class);
+	
+	private RequestUserContext() {
+		// Not to be instantiated
+	}
+	
+	private static RequestAttributes getAttributes() {
+		return RequestContextHolder.getRequestAttributes();
+	}
+	
+	/**
+	 * @param userName The name of the authenticated user
+	 * @return true if the user with the given name has been already looked up in this request
+	 */
+	public static boolean containsUser(String userName) {
+		RequestAttributes attributes = getAttributes();
+		return attributes != null && userName != null && 
+				userName.equals(attributes.getAttribute(USER_NAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+	}
+	
+	/**
+	 * @return The user stored in this request. null if the user does not exist or it has not been stored.
+	 */
+	public static User getUser() {
+		RequestAttributes attributes = getAttributes();
+		return attributes == null ? null : 
+				(User) attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+	}
+	
+	/**
+	 * Stores the user retrieved for the given user name. Authorization decisions taken for a different
+	 * user are discarded.
+	 * @param userName The name of the authenticated user
+	 * @param user The user or null when it does not exist
+	 */
+	public static void setUser(String userName, User user) {
+		RequestAttributes attributes = getAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(USER_NAME_ATTRIBUTE, userName, RequestAttributes.SCOPE_REQUEST);
+			attributes.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+			attributes.removeAttribute(DECISIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+	
+	/**
+	 * Discards the user and the authorization decisions stored in this request. To be called when the 
+	 * current user is modified.
+	 */
+	public static void clear() {
+		RequestAttributes attributes = getAttributes();
+		if (attributes != null) {
+			attributes.removeAttribute(USER_NAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+			attributes.removeAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+			attributes.removeAttribute(DECISIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+	
+	/**
+	 * Counts a new user lookup in the database. The number of lookups is logged when the request finishes.
+	 * @param lookupsPerRequest Updated with the number of lookups when the request finishes. Can be null.
+	 */
+	public static void recordUserLookup(final Histogram lookupsPerRequest) {
+		final RequestAttributes attributes = getAttributes();
+		if (attributes != null) {
+			int lookups = getUserLookups() + 1;
+			attributes.setAttribute(USER_LOOKUPS_ATTRIBUTE, lookups, RequestAttributes.SCOPE_REQUEST);
+			
+			if (lookups == 1) {
+				attributes.registerDestructionCallback(USER_LOOKUPS_ATTRIBUTE, new Runnable() {
+					@Override
+					public void run() {
+						int requestLookups = getUserLookups(attributes);
+						logger.debug("User lookups in request: {}", requestLookups);
+						
+						if (lookupsPerRequest != null) {
+							lookupsPerRequest.update(requestLookups);
+						}
+					}
+				}, RequestAttributes.SCOPE_REQUEST);
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of times the current user has been looked up in the database in this request
+	 */
+	public static int getUserLookups() {
+		return getUserLookups(getAttributes());
+	}
+	
+	private static int getUserLookups(RequestAttributes attributes) {
+		Object lookups = attributes == null ? null : 
+				attributes.getAttribute(USER_LOOKUPS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		return lookups == null ? 0 : (Integer) lookups;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<Object, Boolean> getDecisions(String action, boolean create) {
+		RequestAttributes attributes = getAttributes();
+		if (attributes == null) {
+			return null;
+		}
+		
+		Map<String, Map<Object, Boolean>> decisions = (Map<String, Map<Object, Boolean>>) 
+				attributes.getAttribute(DECISIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (decisions == null) {
+			if (!create) {
+				return null;
+			}
+			decisions = new HashMap<>();
+			attributes.setAttribute(DECISIONS_ATTRIBUTE, decisions, RequestAttributes.SCOPE_REQUEST);
+		}
+		
+		Map<Object, Boolean> actionDecisions = decisions.get(action);
+		if (actionDecisions == null && create) {
+			// Entities are compared by identity: their fields may change while the request is processed
+			actionDecisions = new IdentityHashMap<>();
+			decisions.put(action, actionDecisions);
+		}
+		
+		return actionDecisions;
+	}
+	
+	/**
+	 * @param action The checked action
+	 * @param entity The entity on which the action is performed
+	 * @return The decision taken before in this request or null if it has not been taken yet
+	 */
+	public static Boolean getDecision(String action, Object entity) {
+		Map<Object, Boolean> decisions = getDecisions(action, false);
+		return decisions == null ? null : decisions.get(entity);
+	}
+	
+	/**
+	 * Stores a decision taken for the current user
+	 * @param action The checked action
+	 * @param entity The entity on which the action is performed
+	 * @param decision The decision
+	 */
+	public static void putDecision(String action, Object entity, boolean decision) {
+		Map<Object, Boolean> decisions = getDecisions(action, true);
+		if (decisions != null) {
+			decisions.put(entity, decision);
+		}
+	}
+}
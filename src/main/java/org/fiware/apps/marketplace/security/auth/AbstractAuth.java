@@ -35,6 +35,7 @@ package org.fiware.apps.marketplace.security.auth;
 import org.fiware.apps.marketplace.bo.UserBo;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.security.RequestUserContext;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public abstract class AbstractAuth<T> {
@@ -58,6 +59,14 @@ public abstract class AbstractAuth<T> {
 	 * @return true if the logged user is the owner of the entity. False otherwise.
 	 */
 	protected boolean isOwner(T entity) {
+		// The same entity is usually checked several times while a request is processed
+		String action = "owner:" + getClass().getName();
+		Boolean decision = RequestUserContext.getDecision(action, entity);
+		
+		if (decision != null) {
+			return decision;
+		}
+		
 		boolean canAccess = false;
 		User loggedUser = null;
 
@@ -71,6 +80,7 @@ public abstract class AbstractAuth<T> {
 			// Nothing to do... False will be returned
 		}
 		
+		RequestUserContext.putDecision(action, entity, canAccess);
 		return canAccess;		
 	}
 	
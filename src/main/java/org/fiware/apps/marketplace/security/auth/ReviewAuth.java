@@ -32,18 +32,20 @@ package org.fiware.apps.marketplace.security.auth;
  * #L%
  */
 
-import java.util.HashSet;
-import java.util.Set;
-
+import org.fiware.apps.marketplace.dao.ReviewDao;
+import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.ReviewableEntity;
 import org.fiware.apps.marketplace.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service("ratingAuth")
 public class ReviewAuth extends AbstractAuth<Review>{
 	
+	@Autowired private ReviewDao reviewDao;
+	
 	@Override
 	protected User getEntityOwner(Review rating) {
 		return rating.getUser();
@@ -67,17 +69,12 @@ public class ReviewAuth extends AbstractAuth<Review>{
 		
 		try {
 			
-			// Check if the user has created another review for the same entity
-			Set<User> users = new HashSet<>();
-			
-			for (Review previousReviews: entity.getReviews()) {
-				users.add(previousReviews.getUser());
-			}
-			
-			if (!users.contains(getUserBo().getCurrentUser())) {
-				canCreate = true;
-			}
+			// Check if the user has created another review for the same entity. Only the 
+			// review of the user is queried (reviews of the entity are not loaded).
+			reviewDao.findUserReview(entity, getUserBo().getCurrentUser());
 			
+		} catch (ReviewNotFoundException ex) {
+			canCreate = true;
 		} catch (UserNotFoundException ex) {
 			// Nothing to do...
 		}
@@ -0,0 +1,86 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a description is created, updated or deleted, so the data derived from it can be updated.
+ */
+public class DescriptionChangeEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String storeName;
+	private final String descriptionName;
+	private final Set<String> previousOfferingUris;
+	private final boolean deleted;
+
+	/**
+	 * @param source The object that published the event
+	 * @param storeName The name of the store that contains the description
+	 * @param descriptionName The name of the description
+	 * @param previousOfferingUris The URIs of the offerings contained in the description before the change
+	 * @param deleted Whether the description has been deleted
+	 */
+	public DescriptionChangeEvent(Object source, String storeName, String descriptionName, 
+			Collection<String> previousOfferingUris, boolean deleted) {
+		super(source);
+		this.storeName = storeName;
+		this.descriptionName = descriptionName;
+		this.previousOfferingUris = Collections.unmodifiableSet(new HashSet<>(previousOfferingUris));
+		this.deleted = deleted;
+	}
+
+	public String getStoreName() {
+		return storeName;
+	}
+
+	public String getDescriptionName() {
+		return descriptionName;
+	}
+
+	public Set<String> getPreviousOfferingUris() {
+		return previousOfferingUris;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+}
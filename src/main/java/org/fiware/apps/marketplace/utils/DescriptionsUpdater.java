@@ -32,14 +32,30 @@ package org.fiware.apps.marketplace.utils;
  * #L%
  */
 
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.fiware.apps.marketplace.bo.DescriptionBo;
+import org.fiware.apps.marketplace.exceptions.NotAuthorizedException;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.rdf.RdfDocument;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,9 +63,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
 /**
  * This class creates a thread that update periodically all the offerings contained in all the stored descriptions
- * based on the update time specified in the configuration file.
+ * based on the update time specified in the configuration file. Descriptions are refreshed concurrently by a pool
+ * of workers, limiting the number of simultaneous requests sent to the same host. Each description is updated in
+ * its own transaction and only when the content of its USDL has changed.
  * @author aitor
  *
  */
@@ -59,17 +80,35 @@ public class DescriptionsUpdater {
 	
 	// Spring references
 	@Value("${descriptions.updatePeriod}") private int updatePeriod;
+	@Value("${descriptions.refresh.workers:4}") private int workers;
+	@Value("${descriptions.refresh.maxPerHost:2}") private int maxPerHost;
 	@Autowired private DescriptionBo descriptionBo;
+	@Autowired private RdfModelCache rdfModelCache;
+	@Autowired(required = false) private MetricRegistry metricRegistry;
 	
-	// Executor
+	// Executors
 	private ScheduledExecutorService executor;
+	private ExecutorService workersPool;
+	
+	// Permits of each host
+	private final ConcurrentMap<String, Semaphore> hostsPermits = new ConcurrentHashMap<>();
+	
+	// Statistics of the last run
+	private volatile RefreshResult lastResult = new RefreshResult(0, 0, 0, 0);
 	
 	private static Logger logger = LoggerFactory.getLogger(DescriptionsUpdater.class);
 	
+	private enum Outcome { CHANGED, UNCHANGED, FAILED }
+	
 	@PostConstruct
 	public void init() {
 		
+		this.workersPool = Executors.newFixedThreadPool(workers);
 		this.executor = Executors.newScheduledThreadPool(1);
+		
+		if (metricRegistry != null) {
+			registerGauges();
+		}
 				
 		executor.scheduleAtFixedRate(new Runnable() {
 			
@@ -77,7 +116,7 @@ public class DescriptionsUpdater {
 			public void run() {
 				try {
 					// Call update all offerings method
-					descriptionBo.updateAllDescriptions();
+					refreshAll();
 				} catch (Exception e) {
 					logger.warn("Unexpected error when autoupdating descriptions", e);
 				}
@@ -88,6 +127,201 @@ public class DescriptionsUpdater {
 	@PreDestroy
 	public void destroy() {
 		executor.shutdown();
+		workersPool.shutdownNow();
+	}
+	
+	/**
+	 * Refreshes all the descriptions stored in the database and waits until all of them have been processed
+	 * @return The statistics of the run
+	 * @throws NotAuthorizedException If descriptions cannot be listed
+	 * @throws InterruptedException If the thread is interrupted while waiting for the workers
+	 */
+	public RefreshResult refreshAll() throws NotAuthorizedException, InterruptedException {
+		
+		logger.info("Trying to update all the descriptions...");
+		long start = System.nanoTime();
+		
+		List<Callable<Outcome>> tasks = new ArrayList<>();
+		for (Description description: descriptionBo.getAllDescriptions()) {
+			
+			final String storeName = description.getStore().getName();
+			final String descriptionName = description.getName();
+			final String url = description.getUrl();
+			final String contentHash = description.getContentHash();
+			
+			tasks.add(new Callable<Outcome>() {
+				
+				@Override
+				public Outcome call() {
+					return refresh(storeName, descriptionName, url, contentHash);
+				}
+			});
+		}
+		
+		int changed = 0;
+		int unchanged = 0;
+		int failed = 0;
+		
+		for (Future<Outcome> future: workersPool.invokeAll(tasks)) {
+			
+			Outcome outcome;
+			try {
+				outcome = future.get();
+			} catch (ExecutionException e) {
+				outcome = Outcome.FAILED;
+			}
+			
+			if (outcome == Outcome.CHANGED) {
+				changed++;
+			} else if (outcome == Outcome.UNCHANGED) {
+				unchanged++;
+			} else {
+				failed++;
+			}
+		}
+		
+		long duration = System.nanoTime() - start;
+		lastResult = new RefreshResult(changed, unchanged, failed, TimeUnit.NANOSECONDS.toMillis(duration));
+		
+		if (metricRegistry != null) {
+			metricRegistry.timer(MetricRegistry.name(DescriptionsUpdater.class, "duration"))
+					.update(duration, TimeUnit.NANOSECONDS);
+		}
+		
+		logger.info(String.format("Descriptions updated in %d ms (changed: %d, unchanged: %d, failed: %d)", 
+				lastResult.getDuration(), changed, unchanged, failed));
+		
+		return lastResult;
+	}
+	
+	private Outcome refresh(String storeName, String descriptionName, String url, String contentHash) {
+		
+		try {
+			String newContentHash = fetch(url).getContentHash();
+			
+			// Avoid opening a transaction when the USDL has not changed
+			if (newContentHash.equals(contentHash)) {
+				return Outcome.UNCHANGED;
+			}
+			
+			if (descriptionBo.refreshDescription(storeName, descriptionName, newContentHash)) {
+				logger.info(String.format("Description %s (store: %s) updated", descriptionName, storeName));
+				return Outcome.CHANGED;
+			} else {
+				return Outcome.UNCHANGED;
+			}
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Outcome.FAILED;
+		} catch (Exception e) {
+			logger.warn(String.format("Description %s (store: %s) could not be updated", 
+					descriptionName, storeName), e);
+			return Outcome.FAILED;
+		}
+	}
+	
+	private RdfDocument fetch(String url) throws IOException, InterruptedException {
+		
+		Semaphore permits = getHostPermits(url);
+		permits.acquire();
+		
+		try {
+			return rdfModelCache.getDocument(url);
+		} finally {
+			permits.release();
+		}
+	}
+	
+	private Semaphore getHostPermits(String url) throws MalformedURLException {
+		
+		String host = new URL(url).getHost();
+		Semaphore permits = hostsPermits.get(host);
+		
+		if (permits == null) {
+			Semaphore newPermits = new Semaphore(maxPerHost);
+			permits = hostsPermits.putIfAbsent(host, newPermits);
+			permits = permits == null ? newPermits : permits;
+		}
+		
+		return permits;
+	}
+	
+	private void registerGauges() {
+		
+		metricRegistry.register(MetricRegistry.name(DescriptionsUpdater.class, "changed"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return lastResult.getChanged();
+			}
+		});
+		
+		metricRegistry.register(MetricRegistry.name(DescriptionsUpdater.class, "unchanged"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return lastResult.getUnchanged();
+			}
+		});
+		
+		metricRegistry.register(MetricRegistry.name(DescriptionsUpdater.class, "failed"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return lastResult.getFailed();
+			}
+		});
+	}
+	
+	/**
+	 * @return The statistics of the last run
+	 */
+	public RefreshResult getLastResult() {
+		return lastResult;
+	}
+	
+	/**
+	 * Statistics of a run of the updater
+	 */
+	public static class RefreshResult {
+		
+		private final int changed;
+		private final int unchanged;
+		private final int failed;
+		private final long duration;
+		
+		public RefreshResult(int changed, int unchanged, int failed, long duration) {
+			this.changed = changed;
+			this.unchanged = unchanged;
+			this.failed = failed;
+			this.duration = duration;
+		}
+		
+		/**
+		 * @return The number of descriptions whose offerings have been updated
+		 */
+		public int getChanged() {
+			return changed;
+		}
+		
+		/**
+		 * @return The number of descriptions whose USDL has not changed
+		 */
+		public int getUnchanged() {
+			return unchanged;
+		}
+		
+		/**
+		 * @return The number of descriptions that could not be updated
+		 */
+		public int getFailed() {
+			return failed;
+		}
+		
+		/**
+		 * @return The duration of the run (in milliseconds)
+		 */
+		public long getDuration() {
+			return duration;
+		}
 	}
 
 }
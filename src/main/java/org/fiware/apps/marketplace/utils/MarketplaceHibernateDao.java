@@ -32,16 +32,90 @@ package org.fiware.apps.marketplace.utils;
  * #L%
  */
 
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class MarketplaceHibernateDao {
 	
+	/**
+	 * Region of the query cache where entities looked up by name are stored
+	 */
+	public static final String NAME_LOOKUPS_REGION = "nameLookups";
+	
 	@Autowired private SessionFactory sessionFactory;
 	
 	protected Session getSession() {
 		return this.sessionFactory.getCurrentSession();
 	}
 	
+	/**
+	 * Creates a query whose results are stored in the query cache. Stored results are discarded as soon as
+	 * any of the queried tables is modified.
+	 * @param hql The query
+	 * @return The query
+	 */
+	protected Query createNameLookupQuery(String hql) {
+		return getSession().createQuery(hql)
+				.setCacheable(true)
+				.setCacheRegion(NAME_LOOKUPS_REGION);
+	}
+	
+	/**
+	 * Creates a query that counts the entities that match the given filter. Only the number is retrieved
+	 * (entities are not loaded), so this query should be used to check whether an entity exists. Parameters
+	 * used in the filter have to be set by the caller.
+	 * @param entityName The name of the entity to be queried
+	 * @param filter HQL condition that the entities must satisfy
+	 * @return The query
+	 */
+	protected Query createCountQuery(String entityName, String filter) {
+		return getSession().createQuery("SELECT COUNT(*) FROM " + entityName + " WHERE " + filter);
+	}
+	
+	/**
+	 * @param countQuery A query created with {@link #createCountQuery(String, String)}
+	 * @return true if the query counts at least one entity
+	 */
+	protected boolean exists(Query countQuery) {
+		Number count = (Number) countQuery.uniqueResult();
+		return count != null && count.longValue() > 0;
+	}
+	
+	/**
+	 * Creates a query that returns the entities that match the given filter sorted by the given field. 
+	 * When a cursor is given, only the entities placed after it are returned. Parameters used in the
+	 * filter have to be set by the caller.
+	 * @param entityName The name of the entity to be queried
+	 * @param filter HQL condition that the entities must satisfy or null to return all of them
+	 * @param cursor The position after which entities are returned or null to start from the beginning
+	 * @param orderBy The field that will be used to order the returned entities
+	 * @param desc true to sort results in reverse order
+	 * @return The query
+	 */
+	protected Query createPageQuery(String entityName, String filter, PageCursor cursor, String orderBy, 
+			boolean desc) {
+		
+		StringBuilder hql = new StringBuilder("FROM ").append(entityName);
+		
+		if (filter != null) {
+			hql.append(" WHERE ").append(filter);
+		}
+		
+		if (cursor != null) {
+			hql.append(filter != null ? " AND " : " WHERE ").append(cursor.getCondition());
+		}
+		
+		hql.append(" ").append(PageCursor.getOrderClause(orderBy, desc));
+		
+		Query query = getSession().createQuery(hql.toString());
+		
+		if (cursor != null) {
+			cursor.setParameters(query);
+		}
+		
+		return query;
+	}
+	
 }
@@ -1,21 +1,26 @@
 package org.fiware.apps.marketplace.utils;
 
 import java.text.Normalizer;
+import java.util.regex.Pattern;
 
 public class NameGenerator {
 	
+	// Names are generated for every offering and category of each description, so the patterns
+	// are compiled once
+	private static final Pattern NON_ASCII = Pattern.compile("[^\\p{ASCII}]");
+	private static final Pattern SPECIAL_CHARACTERS = Pattern.compile("[^a-zA-Z0-9\\s\\-]+");
+	private static final Pattern SPACES = Pattern.compile("[\\s]+");
+	
 	public static String getURLName(String name) {
 		
 		// Normalize the String
-		name = Normalizer
-				.normalize(name, Normalizer.Form.NFD)
-				.replaceAll("[^\\p{ASCII}]", "");
+		name = NON_ASCII.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
 		
 		// Remove special characters ("-" and spaces are preserved)
-		name = name.replaceAll("[^a-zA-Z0-9\\s\\-]+", "");
+		name = SPECIAL_CHARACTERS.matcher(name).replaceAll("");
 
 		// Replace " " by "-"
-		name = name.replaceAll("[\\s]+", "-");
+		name = SPACES.matcher(name).replaceAll("-");
 		
 		// Lower case
 		return name.toLowerCase();
@@ -0,0 +1,495 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumberTools;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.HitCollector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.RangeFilter;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.fiware.apps.marketplace.model.Category;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Facet;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingSearchHit;
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
+import org.fiware.apps.marketplace.model.PriceComponent;
+import org.fiware.apps.marketplace.model.PricePlan;
+import org.fiware.apps.marketplace.model.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Lucene index with one document per offering. Documents contain all the fields required to
+ * return search results (including facets and prices) so the database is not accessed when 
+ * searching. As in the RDF index, changes are made visible to searches periodically. The price of 
+ * an offering is the price of its cheapest price plan (the sum of its price components, regardless 
+ * of their currency and unit).
+ */
+@Component
+public class OfferingIndex {
+	
+	// Fields
+	static final String DESCRIPTION_ID_FIELD = "descriptionId";
+	static final String NAME_FIELD = "name";
+	static final String DISPLAY_NAME_FIELD = "displayName";
+	static final String DESCRIPTION_FIELD = "description";
+	static final String IMAGE_URL_FIELD = "imageUrl";
+	static final String STORE_FIELD = "store";
+	static final String DESCRIBED_IN_FIELD = "describedIn";
+	static final String CATEGORY_FIELD = "category";
+	static final String PRICE_FIELD = "price";
+	static final String PRICE_VALUE_FIELD = "priceValue";
+	static final String TEXT_FIELD = "text";
+	
+	@Value("${lucene.offeringsIndexPath:offeringsIndex}") private String indexPath;
+	@Value("${lucene.refreshPeriod:5}") private int refreshPeriod;
+	
+	private final Analyzer analyzer = new StandardAnalyzer();
+	
+	private RefreshableIndex<IndexSearcher> index;
+	private boolean created = false;
+	
+	private static final Logger logger = LoggerFactory.getLogger(OfferingIndex.class);
+	
+	@PostConstruct
+	public void init() throws IOException {
+		
+		this.index = new RefreshableIndex<IndexSearcher>(indexPath, analyzer, refreshPeriod) {
+			
+			@Override
+			protected IndexSearcher createSearcher(IndexReader reader) {
+				return new IndexSearcher(reader);
+			}
+		};
+		
+		this.created = index.open();
+	}
+	
+	@PreDestroy
+	public void destroy() throws IOException {
+		index.close();
+	}
+	
+	/**
+	 * @return true if the index did not exist and it has been created when the application started. 
+	 * In this case, it must be populated with the offerings stored in the database.
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+	
+	/**
+	 * Replaces the documents of the offerings contained in the given description. When called within
+	 * a transaction, the index is modified once the transaction has been committed.
+	 * @param description The description whose offerings are being indexed
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void index(Description description) throws IOException {
+		
+		// Documents are created straight away since the description may not be accessible 
+		// once the transaction has finished
+		List<Document> documents = new ArrayList<>();
+		for (Offering offering: description.getOfferings()) {
+			documents.add(createDocument(description, offering));
+		}
+		
+		update(new Term(DESCRIPTION_ID_FIELD, description.getId().toString()), documents);
+	}
+	
+	/**
+	 * Removes the documents of the offerings contained in the given description. When called within
+	 * a transaction, the index is modified once the transaction has been committed.
+	 * @param description The description whose offerings are being deleted
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void delete(Description description) throws IOException {
+		update(new Term(DESCRIPTION_ID_FIELD, description.getId().toString()), 
+				Collections.<Document>emptyList());
+	}
+	
+	/**
+	 * Removes the documents of all the offerings contained in the given store. When called within
+	 * a transaction, the index is modified once the transaction has been committed.
+	 * @param storeName The name of the store whose offerings are being deleted
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void deleteStore(String storeName) throws IOException {
+		update(new Term(STORE_FIELD, storeName), Collections.<Document>emptyList());
+	}
+	
+	/**
+	 * Deletes the documents matching the given term and adds the given ones
+	 */
+	private void update(final Term deleted, final List<Document> added) throws IOException {
+		
+		final RefreshableIndex.Update update = new RefreshableIndex.Update() {
+			
+			@Override
+			public boolean apply(IndexWriter writer) throws IOException {
+				
+				writer.deleteDocuments(deleted);
+				
+				for (Document document: added) {
+					writer.addDocument(document);
+				}
+				
+				return true;
+			}
+		};
+		
+		// Otherwise, the index would contain offerings that have not been stored (or it would not contain
+		// offerings that have not been deleted) when the transaction is rolled back
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					try {
+						index.update(update);
+					} catch (IOException e) {
+						logger.error(String.format("Offerings index could not be updated (%s)", deleted), e);
+					}
+				}
+			});
+		} else {
+			index.update(update);
+		}
+	}
+	
+	/**
+	 * Commits the pending changes (if any) and reopens the searcher so searches can see them. When called 
+	 * within a transaction, the index is refreshed once the transaction has been committed (after applying
+	 * the changes made within the transaction).
+	 * @throws IOException When the changes cannot be committed or the searcher cannot be reopened
+	 */
+	public void refresh() throws IOException {
+		
+		// Synchronizations are run in order, so the changes registered before are applied first
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					try {
+						index.refresh();
+					} catch (IOException e) {
+						logger.error("Offerings index could not be refreshed", e);
+					}
+				}
+			});
+		} else {
+			index.refresh();
+		}
+	}
+	
+	/**
+	 * Searches offerings
+	 * @param keyword The text to look for. All the offerings are matched if it's null or empty.
+	 * @param category If not null, only offerings of this category (name) are returned
+	 * @param store If not null, only offerings of this store (name) are returned
+	 * @param minPrice If not null, only offerings whose price is greater than or equal to this one are returned
+	 * @param maxPrice If not null, only offerings whose price is less than or equal to this one are returned
+	 * @param offset The first result to be returned
+	 * @param max The max number of results to be returned
+	 * @return The ranked offerings and the facets of all the matching offerings
+	 * @throws IOException When the index cannot be read
+	 */
+	public OfferingSearchResults search(String keyword, String category, String store, Float minPrice, 
+			Float maxPrice, int offset, int max) throws IOException {
+		
+		Query query = buildQuery(keyword, category, store);
+		Filter filter = buildPriceFilter(minPrice, maxPrice);
+		OfferingSearchResults results = new OfferingSearchResults();
+		
+		IndexSearcher searcher = index.acquire();
+		try {
+			
+			IndexReader reader = searcher.getIndexReader();
+			
+			// Documents matching the query are required to compute the facets
+			final BitSet matches = new BitSet(reader.maxDoc());
+			searcher.search(query, filter, new HitCollector() {
+				
+				@Override
+				public void collect(int doc, float score) {
+					matches.set(doc);
+				}
+			});
+			
+			results.setTotal(matches.cardinality());
+			results.setCategories(countFacets(reader, CATEGORY_FIELD, matches));
+			results.setStores(countFacets(reader, STORE_FIELD, matches));
+			
+			if (offset < results.getTotal()) {
+				
+				// The searcher allocates as many entries as requested results. Long arithmetic 
+				// is used to avoid overflows.
+				int requested = (int) Math.min((long) offset + max, results.getTotal());
+				TopDocs topDocs = searcher.search(query, filter, requested);
+				ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+				
+				for (int i = offset; i < scoreDocs.length; i++) {
+					results.getOfferings().add(createHit(searcher.doc(scoreDocs[i].doc), scoreDocs[i].score));
+				}
+			}
+			
+		} finally {
+			index.release();
+		}
+		
+		return results;
+	}
+	
+	private Query buildQuery(String keyword, String category, String store) {
+		
+		BooleanQuery query = new BooleanQuery();
+		
+		if (keyword == null || keyword.trim().isEmpty()) {
+			query.add(new MatchAllDocsQuery(), Occur.MUST);
+		} else {
+			try {
+				QueryParser parser = new QueryParser(TEXT_FIELD, analyzer);
+				query.add(parser.parse(QueryParser.escape(keyword)), Occur.MUST);
+			} catch (ParseException ex) {
+				// Not expected: the keyword has been escaped
+				throw new IllegalArgumentException(ex);
+			}
+		}
+		
+		// Category and store do not affect the score
+		if (category != null) {
+			query.add(createConstantQuery(CATEGORY_FIELD, category), Occur.MUST);
+		}
+		
+		if (store != null) {
+			query.add(createConstantQuery(STORE_FIELD, store), Occur.MUST);
+		}
+		
+		return query;
+	}
+	
+	private static Query createConstantQuery(String field, String value) {
+		Query query = new ConstantScoreQuery(new QueryWrapperFilter(new TermQuery(new Term(field, value))));
+		query.setBoost(0f);
+		return query;
+	}
+	
+	private static Filter buildPriceFilter(Float minPrice, Float maxPrice) {
+		
+		if (minPrice == null && maxPrice == null) {
+			return null;
+		}
+		
+		String lower = minPrice != null ? encodePrice(minPrice) : null;
+		String upper = maxPrice != null ? encodePrice(maxPrice) : null;
+		
+		return new RangeFilter(PRICE_FIELD, lower, upper, lower != null, upper != null);
+	}
+	
+	private static List<Facet> countFacets(IndexReader reader, String field, BitSet matches) throws IOException {
+		
+		List<Facet> facets = new ArrayList<>();
+		TermEnum terms = reader.terms(new Term(field, ""));
+		TermDocs termDocs = reader.termDocs();
+		
+		try {
+			do {
+				Term term = terms.term();
+				
+				if (term == null || !term.field().equals(field)) {
+					break;
+				}
+				
+				int count = 0;
+				termDocs.seek(terms);
+				while (termDocs.next()) {
+					if (matches.get(termDocs.doc())) {
+						count++;
+					}
+				}
+				
+				if (count > 0) {
+					facets.add(new Facet(term.text(), count));
+				}
+				
+			} while (terms.next());
+		} finally {
+			terms.close();
+			termDocs.close();
+		}
+		
+		// Most common values first
+		Collections.sort(facets, new Comparator<Facet>() {
+			
+			@Override
+			public int compare(Facet facet1, Facet facet2) {
+				return Integer.compare(facet2.getCount(), facet1.getCount());
+			}
+		});
+		
+		return facets;
+	}
+	
+	private static Document createDocument(Description description, Offering offering) {
+		
+		Document doc = new Document();
+		StringBuilder text = new StringBuilder();
+		
+		doc.add(new Field(DESCRIPTION_ID_FIELD, description.getId().toString(), 
+				Field.Store.NO, Field.Index.UN_TOKENIZED));
+		doc.add(new Field(STORE_FIELD, description.getStore().getName(), Field.Store.YES, 
+				Field.Index.UN_TOKENIZED));
+		doc.add(new Field(DESCRIBED_IN_FIELD, description.getName(), Field.Store.YES, Field.Index.NO));
+		
+		addStoredField(doc, NAME_FIELD, offering.getName());
+		addStoredField(doc, DISPLAY_NAME_FIELD, offering.getDisplayName());
+		addStoredField(doc, DESCRIPTION_FIELD, offering.getDescription());
+		addStoredField(doc, IMAGE_URL_FIELD, offering.getImageUrl());
+		appendText(text, offering.getDisplayName());
+		appendText(text, offering.getDescription());
+		appendText(text, description.getDisplayName());
+		
+		if (offering.getCategories() != null) {
+			for (Category category: offering.getCategories()) {
+				doc.add(new Field(CATEGORY_FIELD, category.getName(), Field.Store.NO, Field.Index.UN_TOKENIZED));
+				appendText(text, category.getDisplayName());
+			}
+		}
+		
+		if (offering.getServices() != null) {
+			for (Service service: offering.getServices()) {
+				appendText(text, service.getDisplayName());
+			}
+		}
+		
+		Float price = null;
+		if (offering.getPricePlans() != null) {
+			for (PricePlan pricePlan: offering.getPricePlans()) {
+				
+				appendText(text, pricePlan.getTitle());
+				
+				float pricePlanPrice = 0;
+				if (pricePlan.getPriceComponents() != null) {
+					for (PriceComponent priceComponent: pricePlan.getPriceComponents()) {
+						pricePlanPrice += priceComponent.getValue();
+					}
+				}
+				
+				price = price == null ? pricePlanPrice : Math.min(price, pricePlanPrice);
+			}
+		}
+		
+		// Offerings without price plans are not matched when filtering by price
+		if (price != null) {
+			doc.add(new Field(PRICE_FIELD, encodePrice(price), Field.Store.NO, Field.Index.UN_TOKENIZED));
+			doc.add(new Field(PRICE_VALUE_FIELD, Float.toString(price), Field.Store.YES, Field.Index.NO));
+		}
+		
+		doc.add(new Field(TEXT_FIELD, text.toString(), Field.Store.NO, Field.Index.TOKENIZED));
+		
+		return doc;
+	}
+	
+	private static OfferingSearchHit createHit(Document doc, float score) {
+		
+		OfferingSearchHit hit = new OfferingSearchHit();
+		hit.setName(doc.get(NAME_FIELD));
+		hit.setDisplayName(doc.get(DISPLAY_NAME_FIELD));
+		hit.setDescription(doc.get(DESCRIPTION_FIELD));
+		hit.setImageUrl(doc.get(IMAGE_URL_FIELD));
+		hit.setStore(doc.get(STORE_FIELD));
+		hit.setDescribedIn(doc.get(DESCRIBED_IN_FIELD));
+		hit.setScore(score);
+		
+		String price = doc.get(PRICE_VALUE_FIELD);
+		if (price != null) {
+			hit.setPrice(Float.valueOf(price));
+		}
+		
+		return hit;
+	}
+	
+	private static void addStoredField(Document doc, String name, String value) {
+		if (value != null) {
+			doc.add(new Field(name, value, Field.Store.YES, Field.Index.NO));
+		}
+	}
+	
+	private static void appendText(StringBuilder text, String value) {
+		if (value != null) {
+			text.append(value).append('\n');
+		}
+	}
+	
+	/**
+	 * Prices are indexed in cents using a representation that keeps the numeric order
+	 */
+	private static String encodePrice(float price) {
+		return NumberTools.longToString(Math.round(price * 100));
+	}
+
+}
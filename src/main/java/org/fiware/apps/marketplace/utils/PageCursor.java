@@ -0,0 +1,325 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.hibernate.Query;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+
+/**
+ * Opaque position in a sorted listing. A cursor stores the sort key and the ID of the last 
+ * element returned, so the next page is retrieved by seeking on (sort key, ID) instead of 
+ * skipping the previous rows. Rows are sorted by the sort key and then by ID, with NULL sort 
+ * keys first in ascending order and last in descending order (MySQL semantics).
+ */
+public class PageCursor {
+	
+	private static final String SEPARATOR = "\n";
+	private static final String ID_FIELD = "id";
+	private static final String ASC = "ASC";
+	private static final String DESC = "DESC";
+	
+	private static final char NULL = 'N';
+	private static final char STRING = 'S';
+	private static final char INTEGER = 'I';
+	private static final char LONG = 'L';
+	private static final char DOUBLE = 'D';
+	private static final char FLOAT = 'F';
+	private static final char BOOLEAN = 'B';
+	private static final char DATE = 'T';
+	
+	private final String orderBy;
+	private final boolean desc;
+	private final Object value;
+	private final int id;
+	
+	private PageCursor(String orderBy, boolean desc, Object value, int id) {
+		this.orderBy = orderBy;
+		this.desc = desc;
+		this.value = value;
+		this.id = id;
+	}
+	
+	/**
+	 * Creates the cursor that points to the element following the given one
+	 * @param entity The last element of a page
+	 * @param orderBy The field used to sort the page
+	 * @param desc true if the page is sorted in reverse order
+	 * @return The cursor to retrieve the next page or null if the sort field or the ID of the
+	 * element cannot be stored in a cursor
+	 */
+	public static PageCursor after(Object entity, String orderBy, boolean desc) {
+		
+		try {
+			Object id = PropertyAccessorFactory.forBeanPropertyAccess(entity).getPropertyValue(ID_FIELD);
+			Object value = PropertyAccessorFactory.forBeanPropertyAccess(entity).getPropertyValue(orderBy);
+			
+			if (id instanceof Integer && getType(value) != 0) {
+				return new PageCursor(orderBy, desc, value, (Integer) id);
+			} else {
+				return null;
+			}
+		} catch (BeansException ex) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Parses a cursor previously returned by {@link #toString()}
+	 * @param cursor The cursor to be parsed
+	 * @return The parsed cursor
+	 * @throws IllegalArgumentException If the given string is not a valid cursor
+	 */
+	public static PageCursor parse(String cursor) {
+		
+		try {
+			String base64 = cursor.replace('-', '+').replace('_', '/');
+			while (base64.length() % 4 != 0) {
+				base64 += "=";
+			}
+			
+			String[] fields = new String(DatatypeConverter.parseBase64Binary(base64), 
+					StandardCharsets.UTF_8).split(SEPARATOR, 4);
+			
+			if (fields.length != 4 || fields[0].isEmpty() || fields[3].isEmpty() || 
+					!(ASC.equals(fields[1]) || DESC.equals(fields[1]))) {
+				throw new IllegalArgumentException("cursor is not valid");
+			}
+			
+			return new PageCursor(fields[0], DESC.equals(fields[1]), parseValue(fields[3]), 
+					Integer.parseInt(fields[2]));
+			
+		} catch (RuntimeException ex) {
+			throw new IllegalArgumentException("cursor is not valid", ex);
+		}
+	}
+	
+	/**
+	 * Parses a cursor and checks that it was created for the given order
+	 * @param cursor The cursor to be parsed
+	 * @param orderBy The field used to sort the requested page
+	 * @param desc true if the requested page is sorted in reverse order
+	 * @return The parsed cursor
+	 * @throws IllegalArgumentException If the given string is not a valid cursor or if it was created
+	 * for a different order
+	 */
+	public static PageCursor parse(String cursor, String orderBy, boolean desc) {
+		
+		PageCursor pageCursor = parse(cursor);
+		
+		if (!pageCursor.matches(orderBy, desc)) {
+			throw new IllegalArgumentException("cursor does not match the requested order");
+		}
+		
+		return pageCursor;
+	}
+	
+	/**
+	 * Returns the cursor to retrieve the page that follows the given one
+	 * @param page The returned page
+	 * @param max The max number of elements that were requested
+	 * @param orderBy The field used to sort the page
+	 * @param desc true if the page is sorted in reverse order
+	 * @return The encoded cursor or null if the page is not full (there are no more elements)
+	 */
+	public static String next(List<?> page, int max, String orderBy, boolean desc) {
+		
+		if (page.isEmpty() || page.size() < max) {
+			return null;
+		}
+		
+		PageCursor cursor = after(page.get(page.size() - 1), orderBy, desc);
+		return cursor == null ? null : cursor.toString();
+	}
+	
+	/**
+	 * Returns the ORDER BY clause that sorts the elements the way cursors expect
+	 * @param orderBy The field used to sort the elements
+	 * @param desc true to sort elements in reverse order
+	 * @return The ORDER BY clause
+	 */
+	public static String getOrderClause(String orderBy, boolean desc) {
+		
+		String direction = desc ? DESC : ASC;
+		
+		if (ID_FIELD.equals(orderBy)) {
+			return String.format("ORDER BY %s %s", ID_FIELD, direction);
+		} else {
+			return String.format("ORDER BY %s %s, %s %s", orderBy, direction, ID_FIELD, direction);
+		}
+	}
+	
+	public String getOrderBy() {
+		return orderBy;
+	}
+	
+	public boolean isDesc() {
+		return desc;
+	}
+	
+	public Object getValue() {
+		return value;
+	}
+	
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * @param orderBy The field used to sort the requested page
+	 * @param desc true if the requested page is sorted in reverse order
+	 * @return true if this cursor was created for the given order
+	 */
+	public boolean matches(String orderBy, boolean desc) {
+		return this.orderBy.equals(orderBy) && this.desc == desc;
+	}
+	
+	/**
+	 * Returns the HQL condition that filters the elements placed before this cursor. Parameters 
+	 * have to be set by calling {@link #setParameters(Query)}.
+	 * @return The HQL condition
+	 */
+	public String getCondition() {
+		
+		String idComparator = desc ? "<" : ">";
+		
+		if (ID_FIELD.equals(orderBy)) {
+			return String.format("%s %s :cursorId", ID_FIELD, idComparator);
+		} else if (value == null) {
+			// NULL keys are placed at the beginning in ascending order and at the end in descending order 
+			String nextKeys = desc ? "" : String.format(" OR %s IS NOT NULL", orderBy);
+			return String.format("((%s IS NULL AND %s %s :cursorId)%s)", orderBy, ID_FIELD, idComparator, 
+					nextKeys);
+		} else {
+			String nullKeys = desc ? String.format(" OR %s IS NULL", orderBy) : "";
+			return String.format("(%s %s :cursorValue OR (%s = :cursorValue AND %s %s :cursorId)%s)", 
+					orderBy, idComparator, orderBy, ID_FIELD, idComparator, nullKeys);
+		}
+	}
+	
+	/**
+	 * Sets the parameters used in the condition returned by {@link #getCondition()}
+	 * @param query The query whose parameters have to be set
+	 */
+	public void setParameters(Query query) {
+		
+		query.setParameter("cursorId", id);
+		
+		if (!ID_FIELD.equals(orderBy) && value != null) {
+			query.setParameter("cursorValue", value);
+		}
+	}
+	
+	/**
+	 * @return The cursor encoded as a URL safe string
+	 */
+	@Override
+	public String toString() {
+		
+		String content = orderBy + SEPARATOR + (desc ? DESC : ASC) + SEPARATOR + id + SEPARATOR + 
+				formatValue(value);
+		
+		return DatatypeConverter.printBase64Binary(content.getBytes(StandardCharsets.UTF_8))
+				.replace('+', '-').replace('/', '_').replace("=", "");
+	}
+	
+	private static char getType(Object value) {
+		
+		if (value == null) {
+			return NULL;
+		} else if (value instanceof String) {
+			return STRING;
+		} else if (value instanceof Integer) {
+			return INTEGER;
+		} else if (value instanceof Long) {
+			return LONG;
+		} else if (value instanceof Double) {
+			return DOUBLE;
+		} else if (value instanceof Float) {
+			return FLOAT;
+		} else if (value instanceof Boolean) {
+			return BOOLEAN;
+		} else if (value instanceof Date) {
+			return DATE;
+		} else {
+			return 0;
+		}
+	}
+	
+	private static String formatValue(Object value) {
+		
+		char type = getType(value);
+		
+		if (type == NULL) {
+			return String.valueOf(NULL);
+		} else if (type == DATE) {
+			return type + Long.toString(((Date) value).getTime());
+		} else {
+			return type + value.toString();
+		}
+	}
+	
+	private static Object parseValue(String value) {
+		
+		String content = value.substring(1);
+		
+		switch (value.charAt(0)) {
+		case NULL:
+			return null;
+		case STRING:
+			return content;
+		case INTEGER:
+			return Integer.valueOf(content);
+		case LONG:
+			return Long.valueOf(content);
+		case DOUBLE:
+			return Double.valueOf(content);
+		case FLOAT:
+			return Float.valueOf(content);
+		case BOOLEAN:
+			return Boolean.valueOf(content);
+		case DATE:
+			return new Date(Long.parseLong(content));
+		default:
+			throw new IllegalArgumentException("Unknown cursor value type: " + value.charAt(0));
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lucene index with a single writer shared by all the mutations and a searcher that is periodically 
+ * refreshed to include the latest changes. Changes are not visible to searches until the next refresh.
+ * @param <S> The type of the objects used to search the index
+ */
+public abstract class RefreshableIndex<S> {
+	
+	/**
+	 * Changes to be applied to the index
+	 */
+	public interface Update {
+		
+		/**
+		 * Applies the changes. It's called while holding the writer lock, so it can be used to guard 
+		 * any other state that must be kept in sync with the index.
+		 * @param writer The writer of the index
+		 * @return true if the index has been modified
+		 * @throws IOException When the index cannot be modified
+		 */
+		public boolean apply(IndexWriter writer) throws IOException;
+	}
+	
+	private final String path;
+	private final Analyzer analyzer;
+	private final int refreshPeriod;
+	
+	// Writer. Mutations and commits are serialized using the writer lock.
+	private final Object writerLock = new Object();
+	private IndexWriter writer;
+	// Number of mutations applied to the writer. Guarded by the writer lock.
+	private long generation = 0;
+	
+	// Refreshes are serialized using the refresh lock, so the writer is not locked while the 
+	// reader is reopened. Generation visible to searches. Guarded by the refresh lock.
+	private final Object refreshLock = new Object();
+	private long refreshedGeneration = 0;
+	
+	// Searcher. Searches hold the read lock so the reader cannot be closed while they are in progress.
+	private final ReadWriteLock readerLock = new ReentrantReadWriteLock();
+	private IndexReader reader;
+	private S searcher;
+	
+	private ScheduledExecutorService executor;
+	
+	private static final Logger logger = LoggerFactory.getLogger(RefreshableIndex.class);
+	
+	/**
+	 * @param path The directory where the index is stored
+	 * @param analyzer The analyzer used by the writer
+	 * @param refreshPeriod The period (in seconds) used to make changes visible to searches
+	 */
+	public RefreshableIndex(String path, Analyzer analyzer, int refreshPeriod) {
+		this.path = path;
+		this.analyzer = analyzer;
+		this.refreshPeriod = refreshPeriod;
+	}
+	
+	/**
+	 * @param reader The reader of the index
+	 * @return The object used to search the index through the given reader
+	 */
+	protected abstract S createSearcher(IndexReader reader);
+	
+	/**
+	 * Opens the writer and the reader of the index and schedules the refreshes
+	 * @return true if the index did not exist and it has been created
+	 * @throws IOException When the index cannot be opened
+	 */
+	public boolean open() throws IOException {
+		
+		Directory directory = FSDirectory.getDirectory(path);
+		
+		// This is the only writer of the index. If the index is locked, the lock has been left
+		// by a previous execution that was not properly stopped.
+		if (IndexReader.isLocked(directory)) {
+			logger.warn("Lucene index {} is locked. Unlocking it...", path);
+			IndexReader.unlock(directory);
+		}
+		
+		boolean created = !IndexReader.indexExists(directory);
+		this.writer = new IndexWriter(directory, analyzer, created);
+		this.reader = IndexReader.open(directory);
+		this.searcher = createSearcher(reader);
+		
+		this.executor = Executors.newSingleThreadScheduledExecutor();
+		executor.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					refresh();
+				} catch (Exception e) {
+					logger.warn("Unexpected error when refreshing the Lucene index " + path, e);
+				}
+			}
+		}, refreshPeriod, refreshPeriod, TimeUnit.SECONDS);
+		
+		return created;
+	}
+	
+	/**
+	 * Stops the refreshes and closes the writer (so pending changes are committed) and the reader
+	 * @throws IOException When the index cannot be closed
+	 */
+	public void close() throws IOException {
+		
+		executor.shutdown();
+		
+		synchronized (writerLock) {
+			writer.close();
+		}
+		
+		readerLock.writeLock().lock();
+		try {
+			reader.close();
+		} finally {
+			readerLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Applies the given changes. Changes will be visible for searches after the next refresh.
+	 * @param update The changes to be applied
+	 * @throws IOException When the index cannot be modified
+	 */
+	public void update(Update update) throws IOException {
+		
+		synchronized (writerLock) {
+			try {
+				if (update.apply(writer)) {
+					generation++;
+				}
+			} catch (IOException | RuntimeException e) {
+				// The writer may contain part of the changes
+				generation++;
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * Commits the pending changes (if any) and reopens the reader so searches can see them. 
+	 * The previous reader is closed once all the searches that are using it have finished.
+	 * Changes are not considered visible until the reader has been reopened, so they are 
+	 * made visible by the next refresh if this one fails.
+	 * @throws IOException When the changes cannot be committed or the reader cannot be reopened
+	 */
+	public void refresh() throws IOException {
+		
+		synchronized (refreshLock) {
+			
+			long flushedGeneration;
+			
+			synchronized (writerLock) {
+				
+				if (generation == refreshedGeneration) {
+					return;
+				}
+				
+				writer.flush();
+				flushedGeneration = generation;
+			}
+			
+			// The writer is not locked so the index can be modified while the reader is reopened
+			// and while the searches that are using the previous reader finish
+			IndexReader newReader = reader.reopen();
+			
+			if (newReader != reader) {
+				
+				IndexReader oldReader;
+				
+				readerLock.writeLock().lock();
+				try {
+					oldReader = reader;
+					reader = newReader;
+					searcher = createSearcher(newReader);
+				} finally {
+					readerLock.writeLock().unlock();
+				}
+				
+				oldReader.close();
+			}
+			
+			refreshedGeneration = flushedGeneration;
+		}
+	}
+	
+	/**
+	 * Returns the object to be used to perform searches. {@link #release()} MUST be called 
+	 * (in a finally block) once the search has finished.
+	 * @return The object to be used to perform searches
+	 */
+	public S acquire() {
+		readerLock.readLock().lock();
+		return searcher;
+	}
+	
+	/**
+	 * Releases the object obtained through {@link #acquire()}
+	 */
+	public void release() {
+		readerLock.readLock().unlock();
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.fiware.apps.marketplace.bo.ReviewBo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Review aggregates (number of reviews, sum of scores and number of reviews of each score) are updated 
+ * incrementally by the database each time a review is created, updated or deleted. This class checks 
+ * periodically that they match the stored reviews and rebuilds the wrong ones. The first check is run once 
+ * the first period elapses, so it does not compete with the application startup (aggregates of reviews 
+ * created by previous versions are initialized by the migration scripts).
+ */
+@Component
+@Scope("singleton")
+public class ReviewAggregatesRebuilder {
+	
+	@Value("${reviews.aggregates.rebuildPeriod:86400}") private int rebuildPeriod;
+	@Autowired private ReviewBo reviewBo;
+	
+	private ScheduledExecutorService executor;
+	
+	private static Logger logger = LoggerFactory.getLogger(ReviewAggregatesRebuilder.class);
+	
+	@PostConstruct
+	public void init() {
+		
+		this.executor = Executors.newSingleThreadScheduledExecutor();
+		
+		executor.scheduleAtFixedRate(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					rebuild();
+				} catch (Exception e) {
+					logger.warn("Unexpected error when rebuilding review aggregates", e);
+				}
+			}
+		}, rebuildPeriod, rebuildPeriod, TimeUnit.SECONDS);
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		executor.shutdown();
+	}
+	
+	/**
+	 * Checks the review aggregates of all the entities and rebuilds the wrong ones
+	 * @return The number of entities whose aggregates have been rebuilt
+	 */
+	public int rebuild() {
+		
+		int fixed = reviewBo.rebuildAggregates();
+		
+		if (fixed > 0) {
+			logger.warn(String.format("Review aggregates of %d entities were not valid and have been rebuilt", 
+					fixed));
+		} else {
+			logger.info("Review aggregates are valid");
+		}
+		
+		return fixed;
+	}
+
+}
@@ -0,0 +1,288 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.fiware.apps.marketplace.bo.ViewedOfferingBo;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.fiware.apps.marketplace.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Offering views are not stored when offerings are retrieved. Instead, they are queued in a bounded buffer
+ * and stored in batches by a background thread. Views of the same offering by the same user are coalesced 
+ * before being stored. When the buffer is full, new views are dropped. Stored views are also added to the
+ * feed of recently viewed offerings.
+ */
+@Component
+@Scope("singleton")
+public class ViewedOfferingsBuffer {
+	
+	@Value("${views.buffer.capacity:10000}") private int capacity;
+	@Value("${views.flushPeriod:5}") private int flushPeriod;
+	@Autowired private ViewedOfferingBo viewedOfferingBo;
+	@Autowired private ViewedOfferingsFeed viewedOfferingsFeed;
+	@Autowired(required = false) private MetricRegistry metricRegistry;
+	
+	private BlockingQueue<OfferingView> views;
+	private ScheduledExecutorService executor;
+	
+	// Statistics
+	private final AtomicLong recorded = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong stored = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	
+	private static Logger logger = LoggerFactory.getLogger(ViewedOfferingsBuffer.class);
+	
+	@PostConstruct
+	public void init() {
+		
+		this.views = new ArrayBlockingQueue<>(capacity);
+		this.executor = Executors.newSingleThreadScheduledExecutor();
+		
+		if (metricRegistry != null) {
+			registerGauges();
+		}
+		
+		executor.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					flush();
+				} catch (Exception e) {
+					logger.warn("Unexpected error when storing offering views", e);
+				}
+			}
+		}, flushPeriod, flushPeriod, TimeUnit.SECONDS);
+	}
+	
+	@PreDestroy
+	public void destroy() {
+		
+		executor.shutdown();
+		
+		try {
+			executor.awaitTermination(flushPeriod, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		// Store pending views
+		flush();
+	}
+	
+	/**
+	 * Queues a view of an offering. This method never blocks.
+	 * @param user The user that has viewed the offering
+	 * @param offering The viewed offering
+	 * @return true if the view has been queued or false if the buffer is full and the view has been dropped
+	 */
+	public boolean record(User user, Offering offering) {
+		
+		recorded.incrementAndGet();
+		
+		if (views.offer(new OfferingView(user.getUserName(), offering.getId(), new Date()))) {
+			return true;
+		} else {
+			dropped.incrementAndGet();
+			return false;
+		}
+	}
+	
+	/**
+	 * Stores all the queued views. This method is called periodically but it can also be called to store 
+	 * the views immediately (e.g. in tests).
+	 * @return The number of views that have been processed
+	 */
+	public synchronized int flush() {
+		
+		List<OfferingView> pending = new ArrayList<>();
+		views.drainTo(pending);
+		
+		if (pending.isEmpty()) {
+			return 0;
+		}
+		
+		// Only the last view of each offering by each user is kept
+		Map<String, OfferingView> coalesced = new LinkedHashMap<>();
+		Map<String, Integer> occurrences = new HashMap<>();
+		for (OfferingView view: pending) {
+			String key = view.getUserName() + "\n" + view.getOfferingId();
+			Integer previous = occurrences.get(key);
+			coalesced.put(key, view);
+			occurrences.put(key, previous == null ? 1 : previous + 1);
+		}
+		
+		try {
+			store(coalesced.values());
+			stored.addAndGet(pending.size());
+		} catch (RuntimeException e) {
+			
+			if (coalesced.size() == 1) {
+				failed.addAndGet(pending.size());
+				logger.warn(String.format("%d offering views could not be stored", pending.size()), e);
+			} else {
+				// The batch is stored in one transaction, so a single wrong view discards all of them.
+				// Views are stored one by one to keep the valid ones.
+				logger.warn("Offering views could not be stored in a batch. Storing them one by one", e);
+				storeOneByOne(coalesced, occurrences);
+			}
+		}
+		
+		return pending.size();
+	}
+	
+	private void storeOneByOne(Map<String, OfferingView> coalesced, Map<String, Integer> occurrences) {
+		
+		int failedViews = 0;
+		
+		for (Map.Entry<String, OfferingView> view: coalesced.entrySet()) {
+			int viewOccurrences = occurrences.get(view.getKey());
+			
+			try {
+				store(Collections.singletonList(view.getValue()));
+				stored.addAndGet(viewOccurrences);
+			} catch (RuntimeException e) {
+				failedViews += viewOccurrences;
+				logger.debug(String.format("View of offering %d by %s could not be stored", 
+						view.getValue().getOfferingId(), view.getValue().getUserName()), e);
+			}
+		}
+		
+		if (failedViews > 0) {
+			failed.addAndGet(failedViews);
+			logger.warn(String.format("%d offering views could not be stored", failedViews));
+		}
+	}
+	
+	private void store(Collection<OfferingView> views) {
+		viewedOfferingBo.registerViews(views);
+		viewedOfferingsFeed.add(views);
+	}
+	
+	private void registerGauges() {
+		
+		metricRegistry.register(MetricRegistry.name(ViewedOfferingsBuffer.class, "pending"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getPending();
+			}
+		});
+		
+		metricRegistry.register(MetricRegistry.name(ViewedOfferingsBuffer.class, "dropped"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getDropped();
+			}
+		});
+		
+		metricRegistry.register(MetricRegistry.name(ViewedOfferingsBuffer.class, "stored"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getStored();
+			}
+		});
+		
+		metricRegistry.register(MetricRegistry.name(ViewedOfferingsBuffer.class, "failed"), new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return getFailed();
+			}
+		});
+	}
+	
+	/**
+	 * @return The number of views waiting to be stored
+	 */
+	public int getPending() {
+		return views.size();
+	}
+	
+	/**
+	 * @return The number of views received since the application started
+	 */
+	public long getRecorded() {
+		return recorded.get();
+	}
+	
+	/**
+	 * @return The number of views dropped because the buffer was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * @return The number of views that have been stored
+	 */
+	public long getStored() {
+		return stored.get();
+	}
+	
+	/**
+	 * @return The number of views that could not be stored
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import org.fiware.apps.marketplace.dao.ViewedOfferingDao;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded feed with the offerings that have been viewed most recently. For each offering, the last two
+ * users that have viewed it are kept, so the offerings viewed by other users can be obtained for any user
+ * without querying the whole views history. The feed is filled with the last stored views the first time 
+ * it's read and it's updated every time views are stored. When the feed is full, the offering whose last 
+ * view is the oldest one is discarded.
+ */
+@Component
+@Scope("singleton")
+public class ViewedOfferingsFeed {
+	
+	// Number of stored views loaded per feed entry: the same offering is usually viewed by several users
+	private static final int LOADED_VIEWS_PER_ENTRY = 3;
+	
+	@Value("${views.feed.capacity:100}") private int capacity;
+	@Autowired private ViewedOfferingDao viewedOfferingDao;
+	
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private final TreeSet<Entry> sortedEntries = new TreeSet<>(new Comparator<Entry>() {
+		
+		@Override
+		public int compare(Entry entry1, Entry entry2) {
+			// The most recent first
+			int result = entry2.lastDate.compareTo(entry1.lastDate);
+			return result != 0 ? result : Integer.compare(entry1.offeringId, entry2.offeringId);
+		}
+	});
+	
+	private boolean loaded = false;
+	
+	/**
+	 * Adds views to the feed. Views can be added in any order.
+	 * @param views The views to be added
+	 */
+	public synchronized void add(Collection<OfferingView> views) {
+		for (OfferingView view: views) {
+			add(view);
+		}
+	}
+	
+	private void add(OfferingView view) {
+		
+		Entry entry = entries.get(view.getOfferingId());
+		
+		if (entry == null) {
+			entry = new Entry(view.getOfferingId(), view.getUserName(), view.getDate());
+			entries.put(entry.offeringId, entry);
+		} else {
+			// Entries are sorted by their last view, so they have to be re-inserted when it changes
+			sortedEntries.remove(entry);
+			entry.view(view.getUserName(), view.getDate());
+		}
+		
+		sortedEntries.add(entry);
+		
+		if (sortedEntries.size() > capacity) {
+			entries.remove(sortedEntries.pollLast().offeringId);
+		}
+	}
+	
+	/**
+	 * Removes an offering from the feed
+	 * @param offeringId The ID of the offering to be removed (e.g. because it does not exist anymore)
+	 */
+	public synchronized void remove(int offeringId) {
+		
+		Entry entry = entries.remove(offeringId);
+		
+		if (entry != null) {
+			sortedEntries.remove(entry);
+		}
+	}
+	
+	/**
+	 * Returns the offerings that have been viewed recently by users other than the given one, sorted by
+	 * the date of their last view by other users (the most recent first). The feed is filled with the last 
+	 * stored views when it's read for the first time, so this method must be called inside a transaction.
+	 * @param userName The user whose views are ignored
+	 * @param max The max number of offerings to be returned
+	 * @return The IDs of the offerings
+	 */
+	public synchronized List<Integer> getOfferingsViewedByOtherUsers(String userName, int max) {
+		
+		if (!loaded) {
+			add(viewedOfferingDao.getLastViews(capacity * LOADED_VIEWS_PER_ENTRY));
+			loaded = true;
+		}
+		
+		List<Integer> offerings = new ArrayList<>();
+		
+		// Offerings whose last view is from the given user are placed according to their previous view
+		PriorityQueue<Entry> delayed = new PriorityQueue<>(max, new Comparator<Entry>() {
+			
+			@Override
+			public int compare(Entry entry1, Entry entry2) {
+				return entry2.previousDate.compareTo(entry1.previousDate);
+			}
+		});
+		
+		Iterator<Entry> iterator = sortedEntries.iterator();
+		
+		while (iterator.hasNext() && offerings.size() < max) {
+			Entry entry = iterator.next();
+			
+			while (!delayed.isEmpty() && delayed.peek().previousDate.after(entry.lastDate) && 
+					offerings.size() < max) {
+				offerings.add(delayed.poll().offeringId);
+			}
+			
+			if (!userName.equals(entry.lastUserName)) {
+				if (offerings.size() < max) {
+					offerings.add(entry.offeringId);
+				}
+			} else if (entry.previousUserName != null) {
+				delayed.add(entry);
+			}
+		}
+		
+		while (!delayed.isEmpty() && offerings.size() < max) {
+			offerings.add(delayed.poll().offeringId);
+		}
+		
+		return offerings;
+	}
+	
+	/**
+	 * @return The number of offerings in the feed
+	 */
+	public synchronized int getSize() {
+		return sortedEntries.size();
+	}
+	
+	/**
+	 * Last two different users that have viewed an offering
+	 */
+	private static class Entry {
+		
+		private final int offeringId;
+		private String lastUserName;
+		private Date lastDate;
+		private String previousUserName;
+		private Date previousDate;
+		
+		private Entry(int offeringId, String userName, Date date) {
+			this.offeringId = offeringId;
+			this.lastUserName = userName;
+			this.lastDate = date;
+		}
+		
+		private void view(String userName, Date date) {
+			
+			if (userName.equals(lastUserName)) {
+				if (date.after(lastDate)) {
+					lastDate = date;
+				}
+			} else if (date.after(lastDate)) {
+				previousUserName = lastUserName;
+				previousDate = lastDate;
+				lastUserName = userName;
+				lastDate = date;
+			} else if (previousUserName == null || date.after(previousDate)) {
+				previousUserName = userName;
+				previousDate = date;
+			}
+		}
+	}
+
+}
@@ -42,6 +42,7 @@ import static org.mockito.Mockito.when;
 import java.util.List;
 
 import org.fiware.apps.marketplace.dao.CategoryDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
 import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Offering;
@@ -55,6 +56,7 @@ import org.mockito.MockitoAnnotations;
 public class CategoryBoImplTest {
 	
 	@Mock private CategoryDao categoryDaoMock;
+	@Mock private OfferingDao offeringDaoMock;
 	@InjectMocks private CategoryBoImpl categoryBo;
 	
 	@Before 
@@ -47,6 +47,7 @@ import org.fiware.apps.marketplace.bo.UserBo;
 import org.fiware.apps.marketplace.bo.impl.DescriptionBoImpl;
 import org.fiware.apps.marketplace.dao.CategoryDao;
 import org.fiware.apps.marketplace.dao.DescriptionDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
 import org.fiware.apps.marketplace.dao.ServiceDao;
 import org.fiware.apps.marketplace.dao.StoreDao;
 import org.fiware.apps.marketplace.exceptions.DescriptionNotFoundException;
@@ -57,6 +58,7 @@ import org.fiware.apps.marketplace.helpers.OfferingResolver;
 import org.fiware.apps.marketplace.model.Category;
 import org.fiware.apps.marketplace.model.Description;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.PricePlan;
 import org.fiware.apps.marketplace.model.Service;
 import org.fiware.apps.marketplace.model.Store;
@@ -64,6 +66,7 @@ import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.DescriptionValidator;
 import org.fiware.apps.marketplace.rdf.RdfIndexer;
 import org.fiware.apps.marketplace.security.auth.DescriptionAuth;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.Before;
@@ -74,6 +77,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.util.HtmlUtils;
 
 import com.hp.hpl.jena.shared.JenaException;
@@ -83,13 +87,16 @@ public class DescriptionBoImplTest {
 	@Mock private DescriptionAuth descriptionAuthMock;
 	@Mock private DescriptionValidator descriptionValidatorMock;
 	@Mock private DescriptionDao descriptionDaoMock;
+	@Mock private OfferingDao offeringDaoMock;
 	@Mock private StoreDao storeDaoMock;
 	@Mock private UserBo userBoMock;
 	@Mock private OfferingResolver offeringResolverMock;
 	@Mock private RdfIndexer rdfIndexerMock;
+	@Mock private OfferingIndex offeringIndexMock;
 	@Mock private SessionFactory sessionFactory;
 	@Mock private CategoryDao categoryDao;
 	@Mock private ServiceDao serviceDao;
+	@Mock private ApplicationEventPublisher eventPublisher;
 	@InjectMocks private DescriptionBoImpl descriptionBo;
 
 	private static final String STORE_NAME = "store";
@@ -247,6 +254,7 @@ public class DescriptionBoImplTest {
 
 			// Verify that the description has been indexed
 			verify(rdfIndexerMock).indexOrUpdateService(description);
+			verify(offeringIndexMock).index(description);
 
 			// Verify that the description is now included in the store
 			verify(store).addDescription(description);
@@ -555,6 +563,7 @@ public class DescriptionBoImplTest {
 			
 			// Verify that the index has been updated
 			verify(rdfIndexerMock).indexOrUpdateService(storedDescription);
+			verify(offeringIndexMock).index(storedDescription);
 
 			// Check that the URL has been updated properly
 			assertThat(storedDescription.getUrl()).isEqualTo(updatedDescription.getUrl());
@@ -954,6 +963,9 @@ public class DescriptionBoImplTest {
 		verify(categoryDao, never()).delete(catB);
 		verify(serviceDao, never()).delete(serA);
 		verify(serviceDao).delete(serB);
+		
+		// Verify that the offerings have been removed from the index
+		verify(offeringIndexMock).delete(description);
 
 	}
 	
@@ -1098,13 +1110,24 @@ public class DescriptionBoImplTest {
 	//////////////////////////// GET CURRENT USER DESCRIPTIONS ////////////////////////////
 	///////////////////////////////////////////////////////////////////////////////////////
 	
+	private List<Description> generateDescriptionsWithOfferings() {
+		
+		Description description = new Description();
+		description.setOfferings(new ArrayList<Offering>());
+		description.addOffering(new Offering());
+		
+		List<Description> descriptions = new ArrayList<>();
+		descriptions.add(description);
+		
+		return descriptions;
+	}
+	
 	@Test
 	public void testGetCurrentUserDescriptions() throws Exception {
 		
 		String userName = "userName";
 		
-		@SuppressWarnings("unchecked")
-		List<Description> descriptions = mock(List.class);
+		List<Description> descriptions = generateDescriptionsWithOfferings();
 		User user = mock(User.class);
 		
 		
@@ -1118,6 +1141,7 @@ public class DescriptionBoImplTest {
 		
 		// Verifications
 		assertThat(returnedDescriptions).isEqualTo(descriptions);
+		verify(offeringDaoMock).initialize(descriptions.get(0).getOfferings(), OfferingFetchProfile.BASIC);
 		verify(descriptionDaoMock).getUserDescriptions(userName);
 		verify(userBoMock).getCurrentUser();
 		
@@ -1175,8 +1199,7 @@ public class DescriptionBoImplTest {
 	public void testGetDescriptionsPage() throws Exception {
 		
 		
-		@SuppressWarnings("unchecked")
-		List<Description> descriptions = mock(List.class);		
+		List<Description> descriptions = generateDescriptionsWithOfferings();
 		
 		int offset = 0;
 		int max = 103;
@@ -1190,6 +1213,7 @@ public class DescriptionBoImplTest {
 		
 		// Verifications
 		assertThat(returnedDescriptions).isEqualTo(descriptions);
+		verify(offeringDaoMock).initialize(descriptions.get(0).getOfferings(), OfferingFetchProfile.FULL);
 		verify(descriptionDaoMock).getDescriptionsPage(offset, max);
 		
 	}
@@ -1222,8 +1246,7 @@ public class DescriptionBoImplTest {
 	@Test
 	public void testGetStoreDescriptions() throws Exception {
 		
-		@SuppressWarnings("unchecked")
-		List<Description> descriptions = mock(List.class);
+		List<Description> descriptions = generateDescriptionsWithOfferings();
 		Store store = mock(Store.class);
 		
 		String storeName = "store";
@@ -1238,6 +1261,7 @@ public class DescriptionBoImplTest {
 		
 		// Verifications
 		assertThat(returnedDescriptions).isEqualTo(descriptions);
+		verify(offeringDaoMock).initialize(descriptions.get(0).getOfferings(), OfferingFetchProfile.FULL);
 		verify(storeDaoMock).findByName(storeName);
 	}
 	
@@ -1276,8 +1300,7 @@ public class DescriptionBoImplTest {
 	@Test
 	public void testGetStoreDescriptionspAGE() throws Exception {
 		
-		@SuppressWarnings("unchecked")
-		List<Description> descriptions = mock(List.class);
+		List<Description> descriptions = generateDescriptionsWithOfferings();
 		Store store = mock(Store.class);
 		
 		String storeName = "store";
@@ -1294,6 +1317,7 @@ public class DescriptionBoImplTest {
 		
 		// Verifications
 		assertThat(returnedDescriptions).isEqualTo(descriptions);
+		verify(offeringDaoMock).initialize(descriptions.get(0).getOfferings(), OfferingFetchProfile.FULL);
 		verify(storeDaoMock).findByName(storeName);
 		verify(descriptionDaoMock).getStoreDescriptionsPage(storeName, offset, max);
 	}
@@ -1325,4 +1349,66 @@ public class DescriptionBoImplTest {
 					"list descriptions in store " + storeName));
 		}
 	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// REFRESH ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testRefreshDescriptionNotChanged() throws Exception {
+		
+		String contentHash = "hash";
+		
+		Description description = generateDescription(new ArrayList<Offering>());
+		description.setContentHash(contentHash);
+		doReturn(description).when(descriptionDaoMock).findByNameAndStore(STORE_NAME, NAME);
+		
+		// Call the function
+		assertThat(descriptionBo.refreshDescription(STORE_NAME, NAME, contentHash)).isFalse();
+		
+		// Offerings are not resolved again
+		verify(offeringResolverMock, never()).resolveOfferingsFromServiceDescription(description);
+		verify(descriptionDaoMock, never()).update(description);
+	}
+	
+	@Test
+	public void testRefreshDescriptionChanged() throws Exception {
+		
+		String contentHash = "new_hash";
+		
+		Description description = generateDescription(new ArrayList<Offering>());
+		description.setContentHash("old_hash");
+		doReturn(description).when(descriptionDaoMock).findByNameAndStore(STORE_NAME, NAME);
+		when(offeringResolverMock.resolveOfferingsFromServiceDescription(description))
+				.thenReturn(new ArrayList<Offering>());
+		
+		// Call the function
+		assertThat(descriptionBo.refreshDescription(STORE_NAME, NAME, contentHash)).isTrue();
+		
+		// Offerings are resolved, rights are not checked and the new hash is stored
+		verify(offeringResolverMock).resolveOfferingsFromServiceDescription(description);
+		verify(descriptionAuthMock, never()).canUpdate(description);
+		verify(rdfIndexerMock).indexOrUpdateService(description);
+		verify(descriptionDaoMock).update(description);
+		assertThat(description.getContentHash()).isEqualTo(contentHash);
+		assertThat(description.getUrl()).isEqualTo(DESCRIPTION_URL);
+	}
+	
+	@Test
+	public void testUpdateUrlResetsContentHash() throws Exception {
+		
+		Description description = generateDescription(new ArrayList<Offering>());
+		description.setContentHash("hash");
+		doReturn(description).when(descriptionDaoMock).findByNameAndStore(STORE_NAME, NAME);
+		when(descriptionAuthMock.canUpdate(description)).thenReturn(true);
+		
+		Description updatedDescription = new Description();
+		updatedDescription.setUrl(DESCRIPTION_URL + "a");
+		
+		// Call the function
+		descriptionBo.update(STORE_NAME, NAME, updatedDescription);
+		
+		assertThat(description.getContentHash()).isNull();
+	}
 }
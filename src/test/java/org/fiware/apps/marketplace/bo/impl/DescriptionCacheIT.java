@@ -0,0 +1,438 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.fiware.apps.marketplace.bo.UserBo;
+import org.fiware.apps.marketplace.dao.CategoryDao;
+import org.fiware.apps.marketplace.dao.DescriptionDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
+import org.fiware.apps.marketplace.dao.ServiceDao;
+import org.fiware.apps.marketplace.dao.StoreDao;
+import org.fiware.apps.marketplace.dao.impl.UserDaoImpl;
+import org.fiware.apps.marketplace.helpers.OfferingResolver;
+import org.fiware.apps.marketplace.model.Category;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.PriceComponent;
+import org.fiware.apps.marketplace.model.PricePlan;
+import org.fiware.apps.marketplace.model.Service;
+import org.fiware.apps.marketplace.model.Store;
+import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.model.validators.DescriptionValidator;
+import org.fiware.apps.marketplace.rdf.RdfIndexer;
+import org.fiware.apps.marketplace.security.auth.DescriptionAuth;
+import org.fiware.apps.marketplace.utils.MarketplaceHibernateDao;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+/**
+ * Updates a description against an embedded MariaDB with the second-level cache enabled (the same 
+ * configuration used by the application) and checks that the description, its price plans and their 
+ * price components are not read from stale cache entries once the update is committed.
+ */
+public class DescriptionCacheIT {
+	
+	private static final String DATABASE = "marketplace_cache";
+	
+	private static final String STORE_NAME = "store";
+	private static final String DESCRIPTION_NAME = "description";
+	private static final String DESCRIPTION_URL = "http://store.example.org/usdl/1";
+	private static final String UPDATED_DESCRIPTION_URL = "http://store.example.org/usdl/2";
+	
+	private static DB db;
+	private static SessionFactory sessionFactory;
+	private static AnnotationConfigApplicationContext context;
+	
+	private User user;
+	private DescriptionDao descriptionDao;
+	private OfferingResolver offeringResolverMock;
+	private DescriptionBoImpl descriptionBo;
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// SET UP ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@BeforeClass
+	public static void startDatabase() throws Exception {
+		DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+		config.setPort(0);		// Automatic port
+		
+		// mysqld refuses to run as root unless it's explicitly asked to
+		if ("root".equals(System.getProperty("user.name"))) {
+			config.addArg("--user=root");
+		}
+		
+		db = DB.newEmbeddedDB(config.build());
+		db.start();
+		
+		String serverUrl = String.format("jdbc:mysql://localhost:%d/", db.getConfiguration().getPort());
+		
+		try (Connection connection = DriverManager.getConnection(serverUrl, "root", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("CREATE DATABASE " + DATABASE);
+		}
+		
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(serverUrl + DATABASE, "root", "");
+		dataSource.setDriverClassName("com.mysql.jdbc.Driver");
+		
+		// Same cache configuration than the one used by the application
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+		properties.setProperty("hibernate.hbm2ddl.auto", "update");
+		properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+		properties.setProperty("hibernate.cache.use_query_cache", "true");
+		properties.setProperty("hibernate.cache.region.factory_class", 
+				"org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+		properties.setProperty("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+		properties.setProperty("hibernate.generate_statistics", "true");
+		properties.setProperty("hibernate.current_session_context_class", "thread");
+		
+		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+		builder.scanPackages(Offering.class.getPackage().getName());
+		builder.addProperties(properties);
+		sessionFactory = builder.buildSessionFactory();
+		
+		// DAOs are wired the same way they are in the application
+		context = new AnnotationConfigApplicationContext();
+		context.getBeanFactory().registerSingleton("sessionFactory", sessionFactory);
+		context.scan(UserDaoImpl.class.getPackage().getName());
+		context.refresh();
+	}
+	
+	@AfterClass
+	public static void stopDatabase() throws Exception {
+		if (context != null) {
+			context.close();
+		}
+		
+		if (sessionFactory != null) {
+			sessionFactory.close();
+		}
+		
+		if (db != null) {
+			db.stop();
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		populateDatabase();
+		
+		descriptionDao = context.getBean(DescriptionDao.class);
+		offeringResolverMock = mock(OfferingResolver.class);
+		
+		DescriptionAuth descriptionAuthMock = mock(DescriptionAuth.class);
+		when(descriptionAuthMock.canUpdate(any(Description.class))).thenReturn(true);
+		
+		UserBo userBoMock = mock(UserBo.class);
+		when(userBoMock.getCurrentUser()).thenReturn(user);
+		
+		// Real DAOs, so the entities go through the cache. The rest of dependencies are not relevant
+		descriptionBo = new DescriptionBoImpl();
+		ReflectionTestUtils.setField(descriptionBo, "descriptionAuth", descriptionAuthMock);
+		ReflectionTestUtils.setField(descriptionBo, "descriptionValidator", mock(DescriptionValidator.class));
+		ReflectionTestUtils.setField(descriptionBo, "descriptionDao", descriptionDao);
+		ReflectionTestUtils.setField(descriptionBo, "offeringDao", context.getBean(OfferingDao.class));
+		ReflectionTestUtils.setField(descriptionBo, "rdfIndexer", mock(RdfIndexer.class));
+		ReflectionTestUtils.setField(descriptionBo, "offeringIndex", mock(OfferingIndex.class));
+		ReflectionTestUtils.setField(descriptionBo, "offeringResolver", offeringResolverMock);
+		ReflectionTestUtils.setField(descriptionBo, "userBo", userBoMock);
+		ReflectionTestUtils.setField(descriptionBo, "storeDao", context.getBean(StoreDao.class));
+		ReflectionTestUtils.setField(descriptionBo, "categoryDao", context.getBean(CategoryDao.class));
+		ReflectionTestUtils.setField(descriptionBo, "serviceDao", context.getBean(ServiceDao.class));
+		ReflectionTestUtils.setField(descriptionBo, "sessionFactory", sessionFactory);
+		ReflectionTestUtils.setField(descriptionBo, "eventPublisher", mock(ApplicationEventPublisher.class));
+		
+		sessionFactory.getStatistics().clear();
+	}
+	
+	@After
+	public void tearDown() {
+		Session session = sessionFactory.getCurrentSession();
+		if (session.getTransaction().isActive()) {
+			session.getTransaction().rollback();
+		}
+		
+		sessionFactory.getCache().evictAllRegions();
+		
+		session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		session.createQuery("delete from PriceComponent").executeUpdate();
+		session.createQuery("delete from PricePlan").executeUpdate();
+		session.createSQLQuery("delete from offerings_categories").executeUpdate();
+		session.createSQLQuery("delete from offerings_services").executeUpdate();
+		session.createQuery("delete from Offering").executeUpdate();
+		session.createQuery("delete from Description").executeUpdate();
+		session.createQuery("delete from Store").executeUpdate();
+		session.createQuery("delete from User").executeUpdate();
+		session.createQuery("delete from Category").executeUpdate();
+		session.getTransaction().commit();
+	}
+	
+	private void populateDatabase() {
+		Session session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		
+		Date now = new Date();
+		
+		user = new User();
+		user.setUserName("user");
+		user.setDisplayName("User");
+		user.setEmail("user@example.org");
+		user.setPassword("password");
+		user.setCreatedAt(now);
+		user.setBookmarks(new ArrayList<Offering>());
+		session.save(user);
+		
+		Store store = new Store();
+		store.setName(STORE_NAME);
+		store.setDisplayName("Store");
+		store.setUrl("http://store.example.org");
+		store.setCreator(user);
+		store.setLasteditor(user);
+		store.setCreatedAt(now);
+		session.save(store);
+		
+		Description description = new Description();
+		description.setName(DESCRIPTION_NAME);
+		description.setDisplayName("Description");
+		description.setUrl(DESCRIPTION_URL);
+		description.setStore(store);
+		description.setCreator(user);
+		description.setLasteditor(user);
+		description.setCreatedAt(now);
+		session.save(description);
+		
+		session.save(createOffering(description, "offering1", "Plan A", "Fee A"));
+		session.save(createOffering(description, "offering2", "Plan B", "Fee B"));
+		
+		session.getTransaction().commit();
+	}
+	
+	private Offering createOffering(Description description, String name, String pricePlanTitle, 
+			String priceComponentTitle) {
+		
+		Offering offering = new Offering();
+		offering.setName(name);
+		offering.setDisplayName(name);
+		offering.setUri(String.format("http://store.example.org/usdl#%s", name));
+		offering.setDescribedIn(description);
+		offering.setCategories(new HashSet<Category>());
+		offering.setServices(new HashSet<Service>());
+		
+		PricePlan pricePlan = new PricePlan();
+		pricePlan.setOffering(offering);
+		pricePlan.setTitle(pricePlanTitle);
+		pricePlan.setComment(pricePlanTitle);
+		
+		PriceComponent priceComponent = new PriceComponent();
+		priceComponent.setPricePlan(pricePlan);
+		priceComponent.setTitle(priceComponentTitle);
+		priceComponent.setComment(priceComponentTitle);
+		priceComponent.setCurrency("EUR");
+		priceComponent.setUnit("single payment");
+		priceComponent.setValue(1);
+		
+		pricePlan.setPriceComponents(new HashSet<>(Arrays.asList(priceComponent)));
+		offering.setPricePlans(new HashSet<>(Arrays.asList(pricePlan)));
+		
+		return offering;
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// HELPERS //////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Reads the description in its own transaction, touching every cached entity and collection
+	 * @return The price components titles of each price plan of each offering (indexed by offering name)
+	 */
+	private Map<String, Map<String, Set<String>>> readPrices() throws Exception {
+		Session session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		
+		try {
+			Description description = descriptionDao.findByNameAndStore(STORE_NAME, DESCRIPTION_NAME);
+			Map<String, Map<String, Set<String>>> prices = new HashMap<>();
+			
+			for (Offering offering: description.getOfferings()) {
+				Map<String, Set<String>> pricePlans = new HashMap<>();
+				
+				for (PricePlan pricePlan: offering.getPricePlans()) {
+					Set<String> priceComponents = new HashSet<>();
+					
+					for (PriceComponent priceComponent: pricePlan.getPriceComponents()) {
+						priceComponents.add(priceComponent.getTitle());
+					}
+					
+					pricePlans.put(pricePlan.getTitle(), priceComponents);
+				}
+				
+				prices.put(offering.getName(), pricePlans);
+			}
+			
+			return prices;
+		} finally {
+			session.getTransaction().commit();
+		}
+	}
+	
+	private Description readDescription() throws Exception {
+		Session session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		
+		try {
+			return descriptionDao.findByNameAndStore(STORE_NAME, DESCRIPTION_NAME);
+		} finally {
+			session.getTransaction().commit();
+		}
+	}
+	
+	private Map<String, Map<String, Set<String>>> prices(String offeringName, String pricePlanTitle, 
+			String priceComponentTitle) {
+		
+		Map<String, Set<String>> pricePlans = new HashMap<>();
+		pricePlans.put(pricePlanTitle, new HashSet<>(Arrays.asList(priceComponentTitle)));
+		
+		Map<String, Map<String, Set<String>>> prices = new HashMap<>();
+		prices.put(offeringName, pricePlans);
+		return prices;
+	}
+	
+	private long getHitCount(String region) {
+		return sessionFactory.getStatistics().getSecondLevelCacheStatistics(region).getHitCount();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////// TESTS ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testCacheUsed() throws Exception {
+		// The first read populates the cache and the second one is served from it
+		Map<String, Map<String, Set<String>>> firstRead = readPrices();
+		Map<String, Map<String, Set<String>>> secondRead = readPrices();
+		
+		assertThat(secondRead).isEqualTo(firstRead);
+		
+		Statistics statistics = sessionFactory.getStatistics();
+		assertThat(statistics.getQueryCacheHitCount()).isGreaterThan(0);
+		assertThat(getHitCount(MarketplaceHibernateDao.NAME_LOOKUPS_REGION)).isGreaterThan(0);
+		assertThat(getHitCount("description")).isGreaterThan(0);
+		assertThat(getHitCount("offering.pricePlans")).isGreaterThan(0);
+		assertThat(getHitCount("pricePlan")).isGreaterThan(0);
+		assertThat(getHitCount("pricePlan.priceComponents")).isGreaterThan(0);
+		assertThat(getHitCount("priceComponent")).isGreaterThan(0);
+	}
+	
+	@Test
+	public void testUpdateDiscardsCachedEntries() throws Exception {
+		// Populate the cache with the current contents of the description
+		Map<String, Map<String, Set<String>>> expectedPrices = prices("offering1", "Plan A", "Fee A");
+		expectedPrices.putAll(prices("offering2", "Plan B", "Fee B"));
+		
+		assertThat(readPrices()).isEqualTo(expectedPrices);
+		assertThat(readPrices()).isEqualTo(expectedPrices);
+		assertThat(getHitCount("pricePlan.priceComponents")).isGreaterThan(0);
+		
+		// The new USDL keeps offering1 with a different price plan, removes offering2 and adds offering3
+		doAnswer(new Answer<List<Offering>>() {
+
+			@Override
+			public List<Offering> answer(InvocationOnMock invocation) throws Throwable {
+				Description description = (Description) invocation.getArguments()[0];
+				return new ArrayList<>(Arrays.asList(
+						createOffering(description, "offering1", "Plan C", "Fee C"),
+						createOffering(description, "offering3", "Plan D", "Fee D")));
+			}
+		}).when(offeringResolverMock).resolveOfferingsFromServiceDescription(any(Description.class));
+		
+		Description updatedDescription = new Description();
+		updatedDescription.setUrl(UPDATED_DESCRIPTION_URL);
+		updatedDescription.setDisplayName("Updated description");
+		
+		Session session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		descriptionBo.update(STORE_NAME, DESCRIPTION_NAME, updatedDescription);
+		session.getTransaction().commit();
+		
+		// Description returned by the cached name lookup
+		Description description = readDescription();
+		assertThat(description.getUrl()).isEqualTo(UPDATED_DESCRIPTION_URL);
+		assertThat(description.getDisplayName()).isEqualTo("Updated description");
+		
+		// Price plans and price components. The second read is served from the cache again
+		expectedPrices = prices("offering1", "Plan C", "Fee C");
+		expectedPrices.putAll(prices("offering3", "Plan D", "Fee D"));
+		
+		assertThat(readPrices()).isEqualTo(expectedPrices);
+		assertThat(readPrices()).isEqualTo(expectedPrices);
+	}
+}
@@ -0,0 +1,419 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.fiware.apps.marketplace.bo.OfferingBo;
+import org.fiware.apps.marketplace.bo.VocabularyBo;
+import org.fiware.apps.marketplace.helpers.AttributeSimilarityCache;
+import org.fiware.apps.marketplace.helpers.AttributeTypeResolver;
+import org.fiware.apps.marketplace.helpers.ServiceManifestationResolver;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.fiware.apps.marketplace.model.ServiceNominalAttributeType;
+import org.fiware.apps.marketplace.utils.DescriptionChangeEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class MaintenanceBoImplTest {
+	
+	private static final String STORE = "store";
+	private static final String DESCRIPTION = "description";
+	private static final String DESCRIPTION_URL = "http://example.org/usdl";
+	
+	@Rule public TemporaryFolder snapshotFolder = new TemporaryFolder();
+	
+	private File snapshotFile;
+	private List<MaintenanceBoImpl> createdBos = new ArrayList<>();
+	
+	// Data is kept by the actual business objects
+	private AttributeTypeBoImpl attributeTypeBo;
+	private ServiceManifestationBoImpl serviceManifestationBo;
+	private AttributeTypeStatisticsBoImpl attributeTypeStatisticsBo;
+	
+	private VocabularyBo vocabularyBoMock;
+	private OfferingBo offeringBoMock;
+	private AttributeTypeResolver attributeTypeResolverMock;
+	private ServiceManifestationResolver serviceManifestationResolverMock;
+	
+	private MaintenanceBoImpl maintenanceBo;
+	
+	@Before
+	public void setUp() throws Exception {
+		snapshotFile = new File(snapshotFolder.getRoot(), "comparisonData");
+		
+		vocabularyBoMock = mock(VocabularyBo.class);
+		offeringBoMock = mock(OfferingBo.class);
+		attributeTypeResolverMock = mock(AttributeTypeResolver.class);
+		serviceManifestationResolverMock = mock(ServiceManifestationResolver.class);
+		
+		when(vocabularyBoMock.getVocabularyUris()).thenReturn(Collections.<String>emptyList());
+		when(attributeTypeResolverMock.resolveAttributeTypesFromUris(anyCollectionOf(String.class), 
+				anyListOf(ServiceAttributeType.class))).thenReturn(Collections.<ServiceAttributeType>emptyList());
+		when(attributeTypeResolverMock.resolveAttributeTypesFromUris(anyCollectionOf(String.class)))
+				.thenReturn(Collections.<ServiceAttributeType>emptyList());
+		
+		maintenanceBo = createMaintenanceBo();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		for (MaintenanceBoImpl createdBo: createdBos) {
+			createdBo.destroy();
+		}
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Creates a maintenance BO with empty data. The snapshot is stored as soon as the data changes.
+	 */
+	private MaintenanceBoImpl createMaintenanceBo() {
+		AttributeSimilarityCache attributeSimilarityCache = mock(AttributeSimilarityCache.class);
+		
+		attributeTypeBo = new AttributeTypeBoImpl();
+		ReflectionTestUtils.setField(attributeTypeBo, "attributeSimilarityCache", attributeSimilarityCache);
+		serviceManifestationBo = new ServiceManifestationBoImpl();
+		attributeTypeStatisticsBo = new AttributeTypeStatisticsBoImpl();
+		ReflectionTestUtils.setField(attributeTypeStatisticsBo, "attributeSimilarityCache", 
+				attributeSimilarityCache);
+		
+		MaintenanceBoImpl maintenanceBo = new MaintenanceBoImpl();
+		ReflectionTestUtils.setField(maintenanceBo, "vocabularyBo", vocabularyBoMock);
+		ReflectionTestUtils.setField(maintenanceBo, "attributeTypeBo", attributeTypeBo);
+		ReflectionTestUtils.setField(maintenanceBo, "offeringBo", offeringBoMock);
+		ReflectionTestUtils.setField(maintenanceBo, "serviceManifestationBo", serviceManifestationBo);
+		ReflectionTestUtils.setField(maintenanceBo, "attributeTypeStatisticsBo", attributeTypeStatisticsBo);
+		ReflectionTestUtils.setField(maintenanceBo, "attributeTypeResolver", attributeTypeResolverMock);
+		ReflectionTestUtils.setField(maintenanceBo, "serviceManifestationResolver", 
+				serviceManifestationResolverMock);
+		ReflectionTestUtils.setField(maintenanceBo, "snapshotPath", snapshotFile.getAbsolutePath());
+		ReflectionTestUtils.setField(maintenanceBo, "warmup", false);
+		ReflectionTestUtils.setField(maintenanceBo, "snapshotDelay", 0);
+		maintenanceBo.init();
+		
+		createdBos.add(maintenanceBo);
+		return maintenanceBo;
+	}
+	
+	/**
+	 * Waits until the tasks submitted to the maintenance thread so far have been run
+	 */
+	private void waitForMaintenance(MaintenanceBoImpl maintenanceBo) throws Exception {
+		ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(maintenanceBo, "executor");
+		executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				return null;
+			}
+		}).get();
+	}
+	
+	private Offering createOffering(String uri) {
+		Description description = new Description();
+		description.setName(DESCRIPTION);
+		description.setUrl(DESCRIPTION_URL);
+		
+		Offering offering = new Offering();
+		offering.setUri(uri);
+		offering.setDescribedIn(description);
+		return offering;
+	}
+	
+	private ServiceManifestation createServiceManifestation(String offeringUri, String pricePlanUri) {
+		ServiceManifestation serviceManifestation = new ServiceManifestation();
+		serviceManifestation.setName(offeringUri + " " + pricePlanUri);
+		serviceManifestation.setOfferingUri(offeringUri);
+		serviceManifestation.setPricePlanUri(pricePlanUri);
+		return serviceManifestation;
+	}
+	
+	private ServiceAttributeType createAttributeType(String uri) {
+		ServiceAttributeType attributeType = new ServiceNominalAttributeType();
+		attributeType.setUri(uri);
+		return attributeType;
+	}
+	
+	private List<String> getOfferingUris(Collection<ServiceManifestation> serviceManifestations) {
+		List<String> offeringUris = new ArrayList<>();
+		for (ServiceManifestation serviceManifestation: serviceManifestations) {
+			offeringUris.add(serviceManifestation.getOfferingUri() + " " + serviceManifestation.getPricePlanUri());
+		}
+		return offeringUris;
+	}
+	
+	/**
+	 * Initializes the data with two offerings: offering1 (plans 1 and 2) and offering2 (plan 1)
+	 */
+	private void initializeSampleData() throws Exception {
+		Offering offering1 = createOffering("offering1");
+		Offering offering2 = createOffering("offering2");
+		List<Offering> offerings = Arrays.asList(offering1, offering2);
+		
+		doReturn(offerings).when(offeringBoMock).getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		when(attributeTypeResolverMock.resolveAttributeTypesFromUris(anyCollectionOf(String.class), 
+				anyListOf(ServiceAttributeType.class))).thenReturn(Arrays.asList(createAttributeType("type1")));
+		when(serviceManifestationResolverMock.resolveServiceManifestations(offerings)).thenReturn(Arrays.asList(
+				createServiceManifestation("offering1", "plan1"), createServiceManifestation("offering1", "plan2"),
+				createServiceManifestation("offering2", "plan1")));
+		
+		maintenanceBo.initialize();
+		waitForMaintenance(maintenanceBo);
+		assertThat(maintenanceBo.isInitializationDone()).isTrue();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////// INITIALIZATION ////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testInitialize() throws Exception {
+		initializeSampleData();
+		
+		assertThat(getOfferingUris(serviceManifestationBo.getAllServiceManifestations()))
+				.containsOnly("offering1 plan1", "offering1 plan2", "offering2 plan1");
+		assertThat(attributeTypeBo.getByUri("type1")).isNotNull();
+		assertThat(attributeTypeStatisticsBo.getByUri("type1")).isNotNull();
+		assertThat(snapshotFile.exists()).isTrue();
+	}
+	
+	@Test
+	public void testInitializeRetriedAfterFailure() throws Exception {
+		doThrow(new RuntimeException("Database not available")).when(offeringBoMock)
+				.getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		
+		maintenanceBo.initialize();
+		waitForMaintenance(maintenanceBo);
+		assertThat(maintenanceBo.isInitializationDone()).isFalse();
+		
+		// Next request
+		initializeSampleData();
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).hasSize(3);
+	}
+	
+	@Test
+	public void testInitializeOnlyOnce() throws Exception {
+		initializeSampleData();
+		
+		maintenanceBo.initialize();
+		waitForMaintenance(maintenanceBo);
+		
+		verify(offeringBoMock).getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// SNAPSHOT ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testSnapshotLoadedWhenInitializationFails() throws Exception {
+		initializeSampleData();
+		
+		// The new instance cannot resolve the data, so the snapshot is used
+		doThrow(new RuntimeException("Database not available")).when(offeringBoMock)
+				.getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		MaintenanceBoImpl restartedBo = createMaintenanceBo();
+		restartedBo.initialize();
+		waitForMaintenance(restartedBo);
+		
+		assertThat(restartedBo.isInitializationDone()).isFalse();
+		assertThat(getOfferingUris(serviceManifestationBo.getAllServiceManifestations()))
+				.containsOnly("offering1 plan1", "offering1 plan2", "offering2 plan1");
+		assertThat(attributeTypeBo.getByUri("type1")).isNotNull();
+		assertThat(attributeTypeStatisticsBo.getByUri("type1")).isNotNull();
+	}
+	
+	@Test
+	public void testCorruptSnapshotIgnored() throws Exception {
+		Files.write(snapshotFile.toPath(), "not a snapshot".getBytes("UTF-8"));
+		
+		initializeSampleData();
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).hasSize(3);
+		
+		// The corrupt file has been replaced
+		doThrow(new RuntimeException("Database not available")).when(offeringBoMock)
+				.getOfferingsPage(0, Integer.MAX_VALUE, "id", false);
+		MaintenanceBoImpl restartedBo = createMaintenanceBo();
+		restartedBo.initialize();
+		waitForMaintenance(restartedBo);
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).hasSize(3);
+	}
+	
+	@Test
+	public void testSnapshotStoredAfterDelay() throws Exception {
+		initializeSampleData();
+		long initialSnapshotSize = snapshotFile.length();
+		Files.delete(snapshotFile.toPath());
+		ReflectionTestUtils.setField(maintenanceBo, "snapshotDelay", 3600);
+		
+		when(serviceManifestationResolverMock.resolveServiceManifestations(anyListOf(Offering.class)))
+				.thenReturn(Collections.<ServiceManifestation>emptyList());
+		
+		for (int i = 0; i < 3; i++) {
+			maintenanceBo.onApplicationEvent(new DescriptionChangeEvent(this, STORE, DESCRIPTION, 
+					Arrays.asList("offering" + (i + 1)), true));
+		}
+		waitForMaintenance(maintenanceBo);
+		
+		// Changes are not stored until the delay elapses (or the application is stopped)
+		assertThat(snapshotFile.exists()).isFalse();
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).isEmpty();
+		
+		maintenanceBo.destroy();
+		assertThat(snapshotFile.exists()).isTrue();
+		assertThat(snapshotFile.length()).isLessThan(initialSnapshotSize);
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// UPDATES ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testUpdateReplacesOnlyDescriptionOfferings() throws Exception {
+		initializeSampleData();
+		Integer offering2Id = serviceManifestationBo.getServiceManifestation("offering2", "plan1").getId();
+		
+		// offering1 has been updated (plan 2 removed) and offering3 has been added
+		List<Offering> offerings = Arrays.asList(createOffering("offering1"), createOffering("offering3"));
+		when(offeringBoMock.getDescriptionOfferingsPage(STORE, DESCRIPTION, 0, Integer.MAX_VALUE, "id", false))
+				.thenReturn(offerings);
+		when(serviceManifestationResolverMock.resolveServiceManifestations(offerings)).thenReturn(Arrays.asList(
+				createServiceManifestation("offering1", "plan1"), createServiceManifestation("offering3", "plan1")));
+		
+		maintenanceBo.onApplicationEvent(new DescriptionChangeEvent(this, STORE, DESCRIPTION, 
+				Arrays.asList("offering1"), false));
+		waitForMaintenance(maintenanceBo);
+		
+		assertThat(getOfferingUris(serviceManifestationBo.getAllServiceManifestations()))
+				.containsOnly("offering1 plan1", "offering2 plan1", "offering3 plan1");
+		assertThat(serviceManifestationBo.getServiceManifestation("offering2", "plan1").getId())
+				.isEqualTo(offering2Id);
+		verify(attributeTypeResolverMock).resolveAttributeTypesFromUris(Collections.singleton(DESCRIPTION_URL));
+	}
+	
+	@Test
+	public void testDeleteRemovesOnlyDescriptionOfferings() throws Exception {
+		initializeSampleData();
+		
+		maintenanceBo.onApplicationEvent(new DescriptionChangeEvent(this, STORE, DESCRIPTION, 
+				Arrays.asList("offering1"), true));
+		waitForMaintenance(maintenanceBo);
+		
+		assertThat(getOfferingUris(serviceManifestationBo.getAllServiceManifestations()))
+				.containsOnly("offering2 plan1");
+		verify(offeringBoMock, never()).getDescriptionOfferingsPage(anyString(), anyString(), anyInt(), anyInt(), 
+				anyString(), anyBoolean());
+	}
+	
+	@Test
+	public void testUpdateAppliedAfterCommit() throws Exception {
+		initializeSampleData();
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			maintenanceBo.onApplicationEvent(new DescriptionChangeEvent(this, STORE, DESCRIPTION, 
+					Arrays.asList("offering1"), true));
+			waitForMaintenance(maintenanceBo);
+			assertThat(serviceManifestationBo.getAllServiceManifestations()).hasSize(3);
+			
+			for (TransactionSynchronization synchronization: 
+					TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		waitForMaintenance(maintenanceBo);
+		assertThat(getOfferingUris(serviceManifestationBo.getAllServiceManifestations()))
+				.containsOnly("offering2 plan1");
+	}
+	
+	@Test
+	public void testUpdateNotAppliedWhenRolledBack() throws Exception {
+		initializeSampleData();
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			maintenanceBo.onApplicationEvent(new DescriptionChangeEvent(this, STORE, DESCRIPTION, 
+					Arrays.asList("offering1"), true));
+			
+			for (TransactionSynchronization synchronization: 
+					TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		waitForMaintenance(maintenanceBo);
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).hasSize(3);
+	}
+}
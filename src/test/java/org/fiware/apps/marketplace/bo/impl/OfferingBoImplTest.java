@@ -37,7 +37,8 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.fiware.apps.marketplace.bo.ReviewBo;
@@ -52,14 +53,16 @@ import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.exceptions.StoreNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.ViewedOffering;
 import org.fiware.apps.marketplace.model.validators.ReviewValidator;
 import org.fiware.apps.marketplace.security.auth.OfferingAuth;
+import org.fiware.apps.marketplace.utils.ViewedOfferingsBuffer;
+import org.fiware.apps.marketplace.utils.ViewedOfferingsFeed;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -72,6 +75,8 @@ public class OfferingBoImplTest {
 	@Mock private ReviewValidator reviewValidatorMock;
 	@Mock private ReviewBo reviewBoMock;
 	@Mock private ViewedOfferingDao viewedOfferingDaoMock;
+	@Mock private ViewedOfferingsBuffer viewedOfferingsBufferMock;
+	@Mock private ViewedOfferingsFeed viewedOfferingsFeedMock;
 	@InjectMocks private OfferingBoImpl offeringBo;
 	
 	private final static String STORE_NAME = "store";
@@ -223,107 +228,55 @@ public class OfferingBoImplTest {
 		offeringBo.findOfferingByNameStoreAndDescription(storeName, descriptionName, offeringName);		
 	}
 	
-	public void findOfferingByNameStoreAndDescription(boolean viewed, Date lastVisit, boolean increaseViews, 
-			boolean removeOldViewed) throws Exception {
-		
-		if (!viewed && !increaseViews) {
-			throw new IllegalArgumentException("increaseViews cannot be false when viewd is false");
-		}
+	@Test
+	public void findOfferingByNameStoreAndDescription() throws Exception {
 		
 		String storeName = "store";
 		String descriptionName = "description";
 		String offeringName = "offering";
-		String userName = "user";
-		int nViews = 10;
 		User user = mock(User.class);
 		Offering offering = mock(Offering.class);
-		List<ViewedOffering> viewedOfferings = new ArrayList<>();
-		ViewedOffering viewedOffering = null;
-		
-		if (viewed) {
-			viewedOffering = new ViewedOffering();
-			viewedOffering.setUser(user);
-			viewedOffering.setOffering(offering);
-			viewedOffering.setDate(lastVisit);
-			
-			viewedOfferings.add(viewedOffering);
-		}
 		
-		if (removeOldViewed) {
-			for (int i = 0; i < 10; i++) {
-				ViewedOffering otherViewedOffering = new ViewedOffering();
-				otherViewedOffering.setOffering(mock(Offering.class));
-				viewedOfferings.add(otherViewedOffering);
-			}
-		}
-
 		// Mocking
 		doReturn(offering).when(offeringDaoMock)
 				.findByNameStoreAndDescription(storeName, descriptionName, offeringName);
 		doReturn(true).when(offeringAuthMock).canGet(offering);
-		doReturn(userName).when(user).getUserName();
-		doReturn(nViews).when(offering).getViews();
 		doReturn(user).when(userBoMock).getCurrentUser();
-		doReturn(viewedOfferings).when(viewedOfferingDaoMock).getUserViewedOfferings(userName);
 		
 		// Call the function and check the returned value
 		Offering returnedOffering = offeringBo.findOfferingByNameStoreAndDescription(storeName, 
 				descriptionName, offeringName);
 		assertThat(returnedOffering).isSameAs(offering);
+		verify(offeringDaoMock).initialize(Collections.singletonList(offering), OfferingFetchProfile.FULL);
 		
-		// Assert that a new viewed offering has been created
-		if (viewed) {
-			verify(viewedOfferingDaoMock, never()).save(any(ViewedOffering.class));			
-		} else {
-			ArgumentCaptor<ViewedOffering> captor = ArgumentCaptor.forClass(ViewedOffering.class);
-			verify(viewedOfferingDaoMock).save(captor.capture());
-			viewedOffering = captor.getValue();
-		}
-		
-		// Check that the number of views has been increased
-		if (increaseViews) {
-			verify(offering).setViews(nViews + 1);
-		} else {
-			verify(offering, never()).setViews(anyInt());
-		}
-		
-		// Check viewed offering values
-		assertThat(viewedOffering.getOffering()).isEqualTo(offering);
-		assertThat(viewedOffering.getUser()).isEqualTo(user);
-		assertThat(viewedOffering.getDate()).isCloseTo(new Date(), 1000);
-
-		// Check that old viewed offerings have been remove (just in case)
-		if (!removeOldViewed) {
-			// Verify that no viewed offering has been removed
-			verify(viewedOfferingDaoMock, never()).delete(any(ViewedOffering.class));
-		} else {
-			// Verify that old viewed offerings have been removed
-			for (int i = 9; i < viewedOfferings.size(); i++) {
-				verify(viewedOfferingDaoMock).delete(viewedOfferings.get(i));
-			}
-		}
-	}
-	
-	@Test
-	public void findOfferingByNameStoreAndDescriptionOfferingNotViewedNotRemove() throws Exception {
-		findOfferingByNameStoreAndDescription(false, new Date(), true, false);
+		// The view is queued instead of being stored
+		verify(viewedOfferingsBufferMock).record(user, offering);
+		verify(viewedOfferingDaoMock, never()).save(any(ViewedOffering.class));
+		verify(offering, never()).setViews(anyInt());
 	}
 	
 	@Test
-	public void findOfferingByNameStoreAndDescriptionOfferingViewedNotRemove() throws Exception {
-		Date twelveHoursAgo = new Date(new Date().getTime() - (12 * 3600 * 1000) - 1);
-		findOfferingByNameStoreAndDescription(true, twelveHoursAgo, false, false);
-	}
-	
-	@Test
-	public void findOfferingByNameStoreAndDescriptionOfferingViewedNotRemoveIncreaseViews() throws Exception {
-		Date yesterday = new Date(new Date().getTime() - (24 * 3600 * 1000) - 1);
-		findOfferingByNameStoreAndDescription(true, yesterday, true, false);
-	}
-	
-	@Test
-	public void findOfferingByNameStoreAndDescriptionOfferingNotViewedRemove() throws Exception {
-		findOfferingByNameStoreAndDescription(false, new Date(), true, true);
+	public void findOfferingByNameStoreAndDescriptionWithProfile() throws Exception {
+		
+		String storeName = "store";
+		String descriptionName = "description";
+		String offeringName = "offering";
+		User user = mock(User.class);
+		Offering offering = mock(Offering.class);
+		
+		// Mocking
+		doReturn(offering).when(offeringDaoMock)
+				.findByNameStoreAndDescription(storeName, descriptionName, offeringName);
+		doReturn(true).when(offeringAuthMock).canGet(offering);
+		doReturn(user).when(userBoMock).getCurrentUser();
+		
+		// Call the function
+		Offering returnedOffering = offeringBo.findOfferingByNameStoreAndDescription(storeName, 
+				descriptionName, offeringName, OfferingFetchProfile.PRICE_PLANS);
+		
+		// Only the associations included in the profile are loaded
+		assertThat(returnedOffering).isSameAs(offering);
+		verify(offeringDaoMock).initialize(Collections.singletonList(offering), OfferingFetchProfile.PRICE_PLANS);
 	}
 	
 	
@@ -381,7 +334,9 @@ public class OfferingBoImplTest {
 		when(offeringDaoMock.findByNameStoreAndDescription(STORE_NAME, DESCRIPTION_NAME, 
 				OFFERING_NAME)).thenReturn(offering);
 		when(offeringAuthMock.canBookmark(any(Offering.class))).thenReturn(true);
+		when(user.getUserName()).thenReturn("user");
 		when(userBoMock.getCurrentUser()).thenReturn(user);
+		when(userBoMock.findByName("user")).thenReturn(user);
 		when(user.getBookmarks()).thenReturn(bookmarked);
 		when(bookmarked.contains(offering)).thenReturn(offeringBookmarked);
 
@@ -407,6 +362,38 @@ public class OfferingBoImplTest {
 		testChangeBookmarkState(true);
 	}
 	
+	@Test(expected=NotAuthorizedException.class)
+	public void testIsBookmarkedNotAuthorized() throws Exception {
+		when(offeringAuthMock.canListBookmarked()).thenReturn(false);
+		offeringBo.isBookmarked(mock(Offering.class));
+	}
+	
+	private void testIsBookmarked(boolean bookmarked) throws Exception {
+		Offering offering = mock(Offering.class);
+		User user = mock(User.class);
+		
+		when(offeringAuthMock.canListBookmarked()).thenReturn(true);
+		when(user.getUserName()).thenReturn("user");
+		when(userBoMock.getCurrentUser()).thenReturn(user);
+		when(offeringDaoMock.isBookmarked("user", offering)).thenReturn(bookmarked);
+		
+		assertThat(offeringBo.isBookmarked(offering)).isEqualTo(bookmarked);
+		
+		// Bookmarked offerings are not retrieved
+		verify(offeringDaoMock, never()).getBookmarkedOfferingsPage(anyString(), anyInt(), anyInt(), 
+				anyString(), anyBoolean());
+	}
+	
+	@Test
+	public void testIsBookmarked() throws Exception {
+		testIsBookmarked(true);
+	}
+	
+	@Test
+	public void testIsNotBookmarked() throws Exception {
+		testIsBookmarked(false);
+	}
+	
 	
 	///////////////////////////////////////////////////////////////////////////////////////
 	//////////////////////////////////// CREATE REVIEW ////////////////////////////////////
@@ -900,26 +887,49 @@ public class OfferingBoImplTest {
 		String userName = "user";
 		User user = mock(User.class);
 		
-		// List of viewed offerings
-		List<ViewedOffering> viewedOfferings = new ArrayList<>();
+		// Offerings in the feed
+		List<Offering> offerings = new ArrayList<>();
 		for (int i = 0; i < 3; i++) {
-			ViewedOffering vo = new ViewedOffering();
-			vo.setOffering(mock(Offering.class));
+			Offering offering = mock(Offering.class);
+			doReturn(offering).when(offeringDaoMock).findById(i);
+			offerings.add(offering);
 		}
 		
 		// Mock
 		doReturn(userName).when(user).getUserName();
 		doReturn(user).when(userBoMock).getCurrentUser();
 		doReturn(true).when(offeringAuthMock).canListLastViewedByOthers();
-		doReturn(viewedOfferings).when(viewedOfferingDaoMock).getOfferingsViewedByOtherUsers(anyString(), anyInt());
+		doReturn(Arrays.asList(2, 0, 1)).when(viewedOfferingsFeedMock).getOfferingsViewedByOtherUsers(userName, 7);
 		
 		// Call the function
 		List<Offering> returnedOfferings = offeringBo.getOfferingsViewedByOtherUsers(7);
 		
-		// Check returned offerings
-		for (int i = 0; i < viewedOfferings.size(); i++) {
-			assertThat(returnedOfferings.get(i)).isSameAs(viewedOfferings.get(i).getOffering());
-		}
+		// Offerings are returned in the order of the feed
+		assertThat(returnedOfferings).containsExactly(offerings.get(2), offerings.get(0), offerings.get(1));
+		verify(offeringDaoMock).initialize(returnedOfferings, OfferingFetchProfile.FULL);
+		verify(viewedOfferingDaoMock, never()).getLastViews(anyInt());
+	}
+	
+	@Test
+	public void testGetOfferingsViewedByOtherUsersDeletedOffering() throws Exception {
+		
+		User user = mock(User.class);
+		Offering offering = mock(Offering.class);
+		
+		// Mock
+		doReturn("user").when(user).getUserName();
+		doReturn(user).when(userBoMock).getCurrentUser();
+		doReturn(true).when(offeringAuthMock).canListLastViewedByOthers();
+		doReturn(Arrays.asList(1, 2)).when(viewedOfferingsFeedMock).getOfferingsViewedByOtherUsers("user", 7);
+		doThrow(new OfferingNotFoundException("not found")).when(offeringDaoMock).findById(1);
+		doReturn(offering).when(offeringDaoMock).findById(2);
+		
+		// Call the function
+		List<Offering> returnedOfferings = offeringBo.getOfferingsViewedByOtherUsers(7);
+		
+		// The deleted offering is skipped and removed from the feed
+		assertThat(returnedOfferings).containsExactly(offering);
+		verify(viewedOfferingsFeedMock).remove(1);
 	}
 	
 }
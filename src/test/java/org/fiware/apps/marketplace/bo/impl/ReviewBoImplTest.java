@@ -33,9 +33,13 @@ package org.fiware.apps.marketplace.bo.impl;
  */
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -75,6 +79,25 @@ public class ReviewBoImplTest {
 		this.reviewBo = spy(this.reviewBo);
 	}
 	
+	private ReviewableEntity generateEntity(List<Review> reviews) throws Exception {
+		
+		ReviewableEntity entity = spy(new ReviewableEntity());
+		entity.setReviews(reviews);
+		
+		doThrow(new ReviewNotFoundException("")).when(reviewDaoMock).findById(eq(entity), anyInt());
+		
+		for (Review review: reviews) {
+			
+			// Reviews can be spies so the ID is retrieved before stubbing
+			Integer reviewId = review.getId();
+			if (reviewId != null) {
+				doReturn(review).when(reviewDaoMock).findById(entity, reviewId);
+			}
+		}
+		
+		return entity;
+	}
+	
 	///////////////////////////////////////////////////////////////////////////////////////
 	//////////////////////////////////////// CREATE ///////////////////////////////////////
 	///////////////////////////////////////////////////////////////////////////////////////
@@ -108,13 +131,12 @@ public class ReviewBoImplTest {
 	}
 	
 	
-	private void testCreateReview(List<Review> reviews, int score, double expectedAverage) {
+	private void testCreateReview(List<Review> reviews, int score) {
 		
 		try {
 				
 			// Configure offering
-			ReviewableEntity entity = mock(ReviewableEntity.class);
-			when(entity.getReviews()).thenReturn(reviews);
+			ReviewableEntity entity = generateEntity(reviews);
 			
 			Review review = new Review();
 			review.setScore(score);
@@ -125,8 +147,9 @@ public class ReviewBoImplTest {
 			// Call the function
 			reviewBo.createReview(entity, review);
 			
-			// Verify that offering average score has been updated
-			verify(entity).setAverageScore(expectedAverage);
+			// Verify that the review has been added to the offering aggregates
+			verify(reviewDaoMock).updateAggregates(entity, score, 1);
+			verify(entity, never()).setAverageScore(anyDouble());
 		
 		} catch (Exception ex) {
 			fail("Exception not expected", ex);
@@ -136,8 +159,7 @@ public class ReviewBoImplTest {
 	
 	@Test
 	public void testCreateReviewANonRatedOffering() {
-		int score = 4;
-		testCreateReview(new ArrayList<Review>(), score, score);
+		testCreateReview(new ArrayList<Review>(), 4);
 	}
 	
 	@Test
@@ -145,21 +167,14 @@ public class ReviewBoImplTest {
 		
 		// Create a list of previous reviews
 		List<Review> reviews = new ArrayList<>();
-		double sum = 0;
 		
 		for (int i = 1; i < 4; i++) {
 			Review review = new Review();
 			review.setScore(i);
 			reviews.add(review);
-			
-			sum += i;
 		}
-				
-		int score = 1;
-		// 1 + 1 + 2 + 3 = 7 || 7 / 4 = 1.75 (decimal numbers preferred)
-		double newAverage = (sum + score) / (reviews.size() + 1);
 		
-		testCreateReview(reviews, score, newAverage);
+		testCreateReview(reviews, 1);
 	}
 	
 	
@@ -170,8 +185,7 @@ public class ReviewBoImplTest {
 	@Test(expected=ReviewNotFoundException.class)
 	public void testUpdateReviewReviewNotFoundException() throws Exception {
 		
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		when(entity.getReviews()).thenReturn(new ArrayList<Review>());
+		ReviewableEntity entity = generateEntity(new ArrayList<Review>());
 
 		// Call the function
 		Review review = new Review();
@@ -183,11 +197,10 @@ public class ReviewBoImplTest {
 			List<Review> additionalReviews) throws Exception {
 		
 		// Initialize the offering and its reviews
-		ReviewableEntity entity = mock(ReviewableEntity.class);
 		List<Review> reviews = new ArrayList<>();
 		reviews.add(review);
 		reviews.addAll(additionalReviews);
-		when(entity.getReviews()).thenReturn(reviews);
+		ReviewableEntity entity = generateEntity(reviews);
 
 		// Configure mock
 		doReturn(canUpdate).when(reviewAuthMock).canUpdate(review);
@@ -243,13 +256,10 @@ public class ReviewBoImplTest {
 
 		// Additional reviews
 		List<Review> additionalReviews = new ArrayList<>();
-		double sum = 0;
 		for (int i = 1; i < 4; i++) {
 			Review additionalReview = new Review();
 			additionalReview.setScore(i);
 			additionalReviews.add(additionalReview);
-			
-			sum += i;
 		}
 		
 		// Initialize
@@ -265,10 +275,33 @@ public class ReviewBoImplTest {
 		verify(storedReview).setScore(updatedReview.getScore());
 		verify(storedReview).setComment(updatedReview.getComment());
 		
-		// Verify that the average is updated
-		// 1 + 2 + 3 + 5 = 11 || 11 / 4 = 2.75 (decimal numbers preferred)
-		double average = (sum + updatedReview.getScore()) / (additionalReviews.size() + 1);
-		verify(entity).setAverageScore(average);		
+		// Verify that the previous score is replaced in the aggregates
+		verify(reviewDaoMock).updateAggregates(entity, 3, -1);
+		verify(reviewDaoMock).updateAggregates(entity, 5, 1);
+	}
+	
+	@Test
+	public void testUpdateReviewComment() throws Exception {
+		
+		int reviewId = 9;
+		
+		// The review to be updated
+		Review storedReview = new Review();
+		storedReview.setId(reviewId);
+		storedReview.setScore(3);
+		
+		// Initialize
+		ReviewableEntity entity = initializeUpdateReviews(storedReview, true, new ArrayList<Review>());
+		
+		// Call the function
+		Review updatedReview = new Review();
+		updatedReview.setScore(3);
+		updatedReview.setComment("new comment");
+		reviewBo.updateReview(entity, reviewId, updatedReview);
+		
+		// Verify that aggregates are not modified since the score has not changed
+		assertThat(storedReview.getComment()).isEqualTo("new comment");
+		verify(reviewDaoMock, never()).updateAggregates(eq(entity), anyInt(), anyInt());
 	}
 	
 	
@@ -352,8 +385,7 @@ public class ReviewBoImplTest {
 		List<Review> reviews = new ArrayList<>();
 		reviews.add(review);
 		
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		doReturn(reviews).when(entity).getReviews();
+		ReviewableEntity entity = generateEntity(reviews);
 		
 		// Actual call
 		reviewBo.getReview(entity, reviewId);
@@ -365,9 +397,7 @@ public class ReviewBoImplTest {
 		// Mocking
 		doReturn(true).when(reviewAuthMock).canList();
 				
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		List<Review> reviews = new ArrayList<>();
-		doReturn(reviews).when(entity).getReviews();
+		ReviewableEntity entity = generateEntity(new ArrayList<Review>());
 		
 		// Actual call
 		reviewBo.getReview(entity, 9);
@@ -386,8 +416,7 @@ public class ReviewBoImplTest {
 		List<Review> reviews = new ArrayList<>();
 		reviews.add(review);
 		
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		doReturn(reviews).when(entity).getReviews();
+		ReviewableEntity entity = generateEntity(reviews);
 		
 		// Actual call
 		assertThat(reviewBo.getReview(entity, reviewId)).isEqualTo(review);
@@ -401,8 +430,7 @@ public class ReviewBoImplTest {
 	@Test(expected=ReviewNotFoundException.class)
 	public void testDeleteReviewReviewNotFoundException() throws Exception {
 		
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		when(entity.getReviews()).thenReturn(new ArrayList<Review>());
+		ReviewableEntity entity = generateEntity(new ArrayList<Review>());
 
 		// Call the function
 		reviewBo.deleteReview(entity, 9);
@@ -413,11 +441,10 @@ public class ReviewBoImplTest {
 			List<Review> additionalReviews) throws Exception {
 		
 		// Initialize the offering and its reviews
-		ReviewableEntity entity = mock(ReviewableEntity.class);
 		List<Review> reviews = new ArrayList<>();
 		reviews.add(review);
 		reviews.addAll(additionalReviews);
-		when(entity.getReviews()).thenReturn(reviews);
+		ReviewableEntity entity = generateEntity(reviews);
 
 		// Configure mock
 		doReturn(canDelete).when(reviewAuthMock).canDelete(review);
@@ -429,6 +456,7 @@ public class ReviewBoImplTest {
 	private ReviewableEntity initializeDeleteReviews(int reviewId, boolean canDelete) throws Exception {
 		Review storedReview = new Review();
 		storedReview.setId(reviewId);
+		storedReview.setScore(4);
 		return initializeDeleteReviews(storedReview, canDelete, new ArrayList<Review>());
 	}
 	
@@ -456,8 +484,8 @@ public class ReviewBoImplTest {
 		// Call the function
 		reviewBo.deleteReview(entity, reviewId);
 		
-		// Verify that the average score is zero
-		verify(entity).setAverageScore(0);
+		// Verify that the review has been removed from the aggregates
+		verify(reviewDaoMock).updateAggregates(entity, 4, -1);
 		
 		// Verify that the review has been deleted from the list
 		List<Review> reviews = entity.getReviews();
@@ -475,14 +503,11 @@ public class ReviewBoImplTest {
 		storedReview.setScore(3);
 
 		// Additional reviews
-		double sum = 0;
 		List<Review> additionalReviews = new ArrayList<>();
 		for (int i = 1; i < 5; i++) {
 			Review additionalReview = new Review();
 			additionalReview.setScore(i);
 			additionalReviews.add(additionalReview);
-			
-			sum += i;
 		}
 		
 		// Initialize mocks
@@ -495,11 +520,8 @@ public class ReviewBoImplTest {
 		List<Review> reviews = entity.getReviews();
 		assertThat(reviews).doesNotContain(storedReview);
 		
-		// Verify that the average is updated. 
-		// reviews does not contains the deleted reviews at this point.
-		// 1 + 2 + 3 + 4 = 10 || 10 / 4 = 2.5 (decimal numbers preferred)
-		double average = sum / (double) additionalReviews.size();
-		verify(entity).setAverageScore(average);		
+		// Verify that the review has been removed from the aggregates
+		verify(reviewDaoMock).updateAggregates(entity, 3, -1);
 	}
 	
 	
@@ -509,26 +531,15 @@ public class ReviewBoImplTest {
 	
 	private void initReviewEntity(ReviewableEntity entity, User currentUser, Review currentUserReview) {
 		
-		User reviewer = new User();
-		reviewer.setId(currentUser.getId() + 1);
-		
-		// List of reviews
-		List<Review> reviews = new ArrayList<>();
-		for (int i = 0; i < 2; i++) {
-			Review review = new Review();
-			review.setUser(reviewer);
-			reviews.add(review);
-		}
-		
-		// Add one review created by the current user
-		if (currentUserReview != null) {
-			reviews.add(currentUserReview);
-		}
-		
 		// Mocking
 		try {
 			when(userBoMock.getCurrentUser()).thenReturn(currentUser);
-			when(entity.getReviews()).thenReturn(reviews);
+			
+			if (currentUserReview != null) {
+				when(reviewDaoMock.findUserReview(entity, currentUser)).thenReturn(currentUserReview);
+			} else {
+				doThrow(new ReviewNotFoundException("")).when(reviewDaoMock).findUserReview(entity, currentUser);
+			}
 		} catch (Exception e) {
 			fail("Exception not expected", e);
 		}
@@ -574,4 +585,15 @@ public class ReviewBoImplTest {
 		// Call the function
 		reviewBo.getUserReview(entity);
 	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AGGREGATES /////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testRebuildAggregates() throws Exception {
+		when(reviewDaoMock.rebuildAggregates()).thenReturn(2);
+		assertThat(reviewBo.rebuildAggregates()).isEqualTo(2);
+	}
 }
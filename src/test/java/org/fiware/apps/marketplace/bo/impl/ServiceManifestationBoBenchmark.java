@@ -0,0 +1,131 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+
+/**
+ * Measures the cost of looking up and replacing service manifestations in catalogues of different sizes.
+ * Nothing is asserted (timings depend on the machine), so it's not run by the build:
+ * 
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes org.fiware.apps.marketplace.bo.impl.ServiceManifestationBoBenchmark
+ * </pre>
+ * 
+ * The cost of a lookup should not depend on the size of the catalogue. Replacing the manifestations of
+ * an offering copies the catalogue, so its cost is expected to grow linearly.
+ */
+public class ServiceManifestationBoBenchmark {
+	
+	private static final int[] CATALOGUE_SIZES = { 1000, 10000, 100000 };
+	private static final int LOOKUPS = 100000;
+	private static final int REPLACEMENTS = 100;
+	private static final int PLANS_PER_OFFERING = 4;
+	
+	private static ServiceManifestation createServiceManifestation(int offering, int plan) {
+		ServiceManifestation serviceManifestation = new ServiceManifestation();
+		serviceManifestation.setName("offering" + offering + "-plan" + plan);
+		serviceManifestation.setOfferingUri("http://example.org/offering" + offering);
+		serviceManifestation.setPricePlanUri("http://example.org/offering" + offering + "/plan" + plan);
+		return serviceManifestation;
+	}
+	
+	private static List<ServiceManifestation> createOfferingManifestations(int offering) {
+		List<ServiceManifestation> serviceManifestations = new ArrayList<>();
+		for (int plan = 0; plan < PLANS_PER_OFFERING; plan++) {
+			serviceManifestations.add(createServiceManifestation(offering, plan));
+		}
+		return serviceManifestations;
+	}
+	
+	private static void run(int catalogueSize) {
+		ServiceManifestationBoImpl serviceManifestationBo = new ServiceManifestationBoImpl();
+		int offerings = catalogueSize / PLANS_PER_OFFERING;
+		
+		List<ServiceManifestation> serviceManifestations = new ArrayList<>();
+		for (int offering = 0; offering < offerings; offering++) {
+			serviceManifestations.addAll(createOfferingManifestations(offering));
+		}
+		serviceManifestationBo.replaceAll(serviceManifestations);
+		
+		// Spread the lookups over the whole catalogue
+		Integer[] ids = new Integer[serviceManifestations.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = serviceManifestations.get(i).getId();
+		}
+		
+		int found = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			found += serviceManifestationBo.getServiceManifestationById(ids[(i * 7919) % ids.length]) != null ? 1 : 0;
+		}
+		long byId = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			int offering = (i * 7919) % offerings;
+			found += serviceManifestationBo.getServiceManifestation("http://example.org/offering" + offering, 
+					"http://example.org/offering" + offering + "/plan0") != null ? 1 : 0;
+		}
+		long byKey = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		for (int i = 0; i < REPLACEMENTS; i++) {
+			int offering = (i * 7919) % offerings;
+			serviceManifestationBo.replaceOfferingsManifestations(
+					Arrays.asList("http://example.org/offering" + offering), createOfferingManifestations(offering));
+		}
+		long replacements = System.nanoTime() - start;
+		
+		System.out.printf("%7d manifestations: %6.1f ns/lookup by id, %6.1f ns/lookup by offering and plan, "
+				+ "%8.1f us/offering replacement (%d found)%n", serviceManifestations.size(), 
+				(double) byId / LOOKUPS, (double) byKey / LOOKUPS, replacements / 1000.0 / REPLACEMENTS, found);
+	}
+	
+	public static void main(String[] args) {
+		// Warm up
+		for (int catalogueSize: CATALOGUE_SIZES) {
+			run(catalogueSize);
+		}
+		
+		System.out.println("Results:");
+		for (int catalogueSize: CATALOGUE_SIZES) {
+			run(catalogueSize);
+		}
+	}
+}
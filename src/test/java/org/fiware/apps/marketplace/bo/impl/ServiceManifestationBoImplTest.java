@@ -0,0 +1,256 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServiceManifestationBoImplTest {
+	
+	private ServiceManifestationBoImpl serviceManifestationBo;
+	
+	@Before 
+	public void setUp() {
+		serviceManifestationBo = new ServiceManifestationBoImpl();
+	}
+	
+	private ServiceManifestation createServiceManifestation(String name, String offeringUri, String pricePlanUri) {
+		ServiceManifestation serviceManifestation = new ServiceManifestation();
+		serviceManifestation.setName(name);
+		serviceManifestation.setOfferingUri(offeringUri);
+		serviceManifestation.setPricePlanUri(pricePlanUri);
+		return serviceManifestation;
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// SAVE //////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testSaveAssignsIdAndIndexes() {
+		ServiceManifestation serviceManifestation = createServiceManifestation("a", "offering", "plan");
+		serviceManifestationBo.save(serviceManifestation);
+		
+		assertThat(serviceManifestation.getId()).isNotNull();
+		assertThat(serviceManifestationBo.getServiceManifestationById(serviceManifestation.getId()))
+				.isSameAs(serviceManifestation);
+		assertThat(serviceManifestationBo.getServiceManifestation("offering", "plan")).isSameAs(serviceManifestation);
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(serviceManifestation);
+	}
+	
+	@Test
+	public void testSaveDuplicatedIgnored() {
+		ServiceManifestation first = createServiceManifestation("a", "offering", "plan");
+		ServiceManifestation second = createServiceManifestation("b", "offering", "plan");
+		serviceManifestationBo.save(first);
+		serviceManifestationBo.save(second);
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(first);
+		assertThat(serviceManifestationBo.getServiceManifestation("offering", "plan")).isSameAs(first);
+	}
+	
+	@Test
+	public void testSaveKeepsSortedByName() {
+		ServiceManifestation b = createServiceManifestation("b", "offering1", "plan");
+		ServiceManifestation a = createServiceManifestation("a", "offering2", "plan");
+		serviceManifestationBo.save(b);
+		serviceManifestationBo.save(a);
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(a, b);
+	}
+	
+	@Test
+	public void testSaveDoesNotChangeReturnedList() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		ServiceManifestation b = createServiceManifestation("b", "offering2", "plan");
+		serviceManifestationBo.save(a);
+		
+		List<ServiceManifestation> serviceManifestations = serviceManifestationBo.getAllServiceManifestations();
+		serviceManifestationBo.save(b);
+		
+		assertThat(serviceManifestations).containsExactly(a);
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(a, b);
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testReturnedListCannotBeModified() {
+		serviceManifestationBo.getAllServiceManifestations().add(createServiceManifestation("a", "offering", "plan"));
+	}
+	
+	@Test
+	public void testConcurrentSaves() throws InterruptedException {
+		final int nThreads = 4;
+		final int perThread = 250;
+		Thread[] threads = new Thread[nThreads];
+		
+		for (int i = 0; i < nThreads; i++) {
+			final int thread = i;
+			threads[i] = new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					for (int j = 0; j < perThread; j++) {
+						serviceManifestationBo.save(createServiceManifestation("sm" + j, "offering" + thread, "plan" + j));
+					}
+				}
+			});
+			threads[i].start();
+		}
+		
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		List<ServiceManifestation> serviceManifestations = serviceManifestationBo.getAllServiceManifestations();
+		assertThat(serviceManifestations).hasSize(nThreads * perThread);
+		for (ServiceManifestation serviceManifestation : serviceManifestations) {
+			assertThat(serviceManifestationBo.getServiceManifestationById(serviceManifestation.getId()))
+					.isSameAs(serviceManifestation);
+		}
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// DELETE /////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testDelete() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		ServiceManifestation b = createServiceManifestation("b", "offering2", "plan");
+		serviceManifestationBo.replaceAll(Arrays.asList(a, b));
+		
+		serviceManifestationBo.delete(a);
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(b);
+		assertThat(serviceManifestationBo.getServiceManifestationById(a.getId())).isNull();
+		assertThat(serviceManifestationBo.getServiceManifestation("offering1", "plan")).isNull();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// REPLACE ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testReplaceAll() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		serviceManifestationBo.save(a);
+		
+		ServiceManifestation c = createServiceManifestation("c", "offering3", "plan");
+		ServiceManifestation b = createServiceManifestation("b", "offering2", "plan");
+		serviceManifestationBo.replaceAll(Arrays.asList(c, b));
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(b, c);
+		assertThat(serviceManifestationBo.getServiceManifestationById(a.getId())).isNull();
+		assertThat(serviceManifestationBo.getServiceManifestationById(b.getId())).isSameAs(b);
+	}
+	
+	@Test
+	public void testReplaceOfferingsManifestations() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		ServiceManifestation b = createServiceManifestation("b", "offering2", "plan1");
+		ServiceManifestation c = createServiceManifestation("c", "offering2", "plan2");
+		serviceManifestationBo.replaceAll(Arrays.asList(a, b, c));
+		
+		ServiceManifestation d = createServiceManifestation("d", "offering2", "plan3");
+		serviceManifestationBo.replaceOfferingsManifestations(Arrays.asList("offering2"), Arrays.asList(d));
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).containsExactly(a, d);
+		assertThat(serviceManifestationBo.getServiceManifestationById(a.getId())).isSameAs(a);
+		assertThat(serviceManifestationBo.getServiceManifestationById(b.getId())).isNull();
+		assertThat(serviceManifestationBo.getServiceManifestation("offering2", "plan1")).isNull();
+		assertThat(serviceManifestationBo.getServiceManifestation("offering2", "plan3")).isSameAs(d);
+	}
+	
+	@Test
+	public void testReplaceOfferingsManifestationsKeepsIds() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan1");
+		ServiceManifestation b = createServiceManifestation("b", "offering1", "plan2");
+		serviceManifestationBo.replaceAll(Arrays.asList(a, b));
+		Integer aId = a.getId();
+		
+		// The offering has been refreshed: its manifestations are resolved again
+		ServiceManifestation newA = createServiceManifestation("a", "offering1", "plan1");
+		ServiceManifestation c = createServiceManifestation("c", "offering1", "plan3");
+		serviceManifestationBo.replaceOfferingsManifestations(Arrays.asList("offering1"), Arrays.asList(newA, c));
+		
+		assertThat(newA.getId()).isEqualTo(aId);
+		assertThat(c.getId()).isNotIn(aId, b.getId());
+		assertThat(serviceManifestationBo.getServiceManifestationById(aId)).isSameAs(newA);
+		assertThat(serviceManifestationBo.getServiceManifestationById(b.getId())).isNull();
+	}
+	
+	@Test
+	public void testReplaceAllKeepsIds() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		serviceManifestationBo.save(a);
+		
+		ServiceManifestation newA = createServiceManifestation("a", "offering1", "plan");
+		serviceManifestationBo.replaceAll(Arrays.asList(newA));
+		
+		assertThat(newA.getId()).isEqualTo(a.getId());
+		assertThat(serviceManifestationBo.getServiceManifestationById(a.getId())).isSameAs(newA);
+	}
+	
+	@Test
+	public void testReplaceOfferingsManifestationsRemoveOnly() {
+		ServiceManifestation a = createServiceManifestation("a", "offering1", "plan");
+		serviceManifestationBo.save(a);
+		
+		serviceManifestationBo.replaceOfferingsManifestations(Arrays.asList("offering1"), 
+				Collections.<ServiceManifestation>emptyList());
+		
+		assertThat(serviceManifestationBo.getAllServiceManifestations()).isEmpty();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// LOOKUP /////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testLookupNotFound() {
+		assertThat(serviceManifestationBo.getServiceManifestationById(1)).isNull();
+		assertThat(serviceManifestationBo.getServiceManifestation("offering", "plan")).isNull();
+	}
+}
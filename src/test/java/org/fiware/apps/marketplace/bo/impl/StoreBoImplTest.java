@@ -57,6 +57,7 @@ import org.fiware.apps.marketplace.model.Store;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.StoreValidator;
 import org.fiware.apps.marketplace.security.auth.StoreAuth;
+import org.fiware.apps.marketplace.utils.OfferingIndex;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -77,6 +78,7 @@ public class StoreBoImplTest {
 	@Mock private StoreDao storeDaoMock;
 	@Mock private UserBo userBoMock;
 	@Mock private ReviewBo reviewBoMock;
+	@Mock private OfferingIndex offeringIndexMock;
 	@InjectMocks private StoreBoImpl storeBo;
 	
 	private static final String NAME = "wstore";
@@ -484,6 +486,7 @@ public class StoreBoImplTest {
 		
 		// Verify that the method has been called
 		verify(storeDaoMock).delete(store);
+		verify(offeringIndexMock).deleteStore(NAME);
 	}
 	
 	@Test
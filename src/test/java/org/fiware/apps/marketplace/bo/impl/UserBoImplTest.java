@@ -45,7 +45,9 @@ import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.exceptions.ValidationException;
 import org.fiware.apps.marketplace.model.User;
 import org.fiware.apps.marketplace.model.validators.UserValidator;
+import org.fiware.apps.marketplace.security.RequestUserContext;
 import org.fiware.apps.marketplace.security.auth.UserAuth;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -53,11 +55,20 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.pac4j.core.profile.UserProfile;
 import org.pac4j.springframework.security.authentication.ClientAuthenticationToken;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 
 public class UserBoImplTest {
 	
@@ -78,6 +89,12 @@ public class UserBoImplTest {
 		when(passwordEncoder.encode(anyString())).thenReturn(ENCODED_PASSWORD);
 	}
 	
+	@After
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+		SecurityContextHolder.clearContext();
+	}
+	
 	
 	///////////////////////////////////////////////////////////////////////////////////////
 	///////////////////////////////////////// SAVE ////////////////////////////////////////
@@ -723,4 +740,111 @@ public class UserBoImplTest {
 		testGetCurrentUser(user, context);
 	}
 
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	///////////////////////////// GET CURRENT USER (REQUEST) //////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private void initRequest(String userName) {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(userName, null));
+	}
+	
+	@Test
+	public void testGetCurrentUserRetrievedOncePerRequest() throws Exception {
+		User user = new User();
+		user.setUserName(USER_NAME);
+		
+		initRequest(USER_NAME);
+		when(userDaoMock.findByName(USER_NAME)).thenReturn(user);
+		
+		// Call the function several times
+		for (int i = 0; i < 5; i++) {
+			assertThat(userBo.getCurrentUser()).isSameAs(user);
+		}
+		
+		// The database has been queried only once
+		verify(userDaoMock, times(1)).findByName(USER_NAME);
+		assertThat(RequestUserContext.getUserLookups()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testGetCurrentUserNotFoundRetrievedOncePerRequest() throws Exception {
+		initRequest(USER_NAME);
+		doThrow(new UserNotFoundException("User " + USER_NAME + " not found"))
+				.when(userDaoMock).findByName(USER_NAME);
+		
+		for (int i = 0; i < 3; i++) {
+			try {
+				userBo.getCurrentUser();
+				fail("Exception expected");
+			} catch (UserNotFoundException ex) {
+				assertThat(ex.getMessage()).isEqualTo("User " + USER_NAME + " not found");
+			}
+		}
+		
+		verify(userDaoMock, times(1)).findByName(USER_NAME);
+	}
+	
+	@Test
+	public void testGetCurrentUserRetrievedAgainAfterUpdate() throws Exception {
+		User user = new User();
+		user.setUserName(USER_NAME);
+		
+		initRequest(USER_NAME);
+		when(userDaoMock.findByName(USER_NAME)).thenReturn(user);
+		when(userAuthMock.canUpdate(user)).thenReturn(true);
+		
+		userBo.getCurrentUser();
+		userBo.changeProviderStatus(USER_NAME);
+		userBo.getCurrentUser();
+		
+		// One query for each call to getCurrentUser and another one for changeProviderStatus
+		verify(userDaoMock, times(3)).findByName(USER_NAME);
+		assertThat(RequestUserContext.getUserLookups()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testGetCurrentUserLookupsMetric() throws Exception {
+		User user = new User();
+		user.setUserName(USER_NAME);
+		
+		MetricRegistry metricRegistry = new MetricRegistry();
+		ReflectionTestUtils.setField(userBo, "metricRegistry", metricRegistry);
+		userBo.init();
+		
+		initRequest(USER_NAME);
+		when(userDaoMock.findByName(USER_NAME)).thenReturn(user);
+		when(userAuthMock.canUpdate(user)).thenReturn(true);
+		
+		userBo.getCurrentUser();
+		userBo.changeProviderStatus(USER_NAME);
+		userBo.getCurrentUser();
+		
+		// The number of lookups is recorded when the request finishes
+		Histogram userLookups = metricRegistry.histogram(MetricRegistry.name(UserBoImpl.class, "userLookups"));
+		assertThat(userLookups.getCount()).isEqualTo(0);
+		
+		((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).requestCompleted();
+		assertThat(userLookups.getCount()).isEqualTo(1);
+		assertThat(userLookups.getSnapshot().getMax()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testGetCurrentUserOutsideRequest() throws Exception {
+		User user = new User();
+		user.setUserName(USER_NAME);
+		
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(USER_NAME, null));
+		when(userDaoMock.findByName(USER_NAME)).thenReturn(user);
+		
+		userBo.getCurrentUser();
+		userBo.getCurrentUser();
+		
+		// Nothing is stored when there is no request
+		verify(userDaoMock, times(2)).findByName(USER_NAME);
+	}
+
 }
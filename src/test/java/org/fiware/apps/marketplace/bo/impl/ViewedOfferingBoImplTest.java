@@ -0,0 +1,253 @@
+package org.fiware.apps.marketplace.bo.impl;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.fiware.apps.marketplace.dao.OfferingDao;
+import org.fiware.apps.marketplace.dao.UserDao;
+import org.fiware.apps.marketplace.dao.ViewedOfferingDao;
+import org.fiware.apps.marketplace.exceptions.OfferingNotFoundException;
+import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.model.ViewedOffering;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class ViewedOfferingBoImplTest {
+	
+	@Mock private ViewedOfferingDao viewedOfferingDaoMock;
+	@Mock private OfferingDao offeringDaoMock;
+	@Mock private UserDao userDaoMock;
+	@InjectMocks private ViewedOfferingBoImpl viewedOfferingBo;
+	
+	private static final String USER_NAME = "user";
+	private static final int OFFERING_ID = 7;
+	
+	private User user;
+	private Offering offering;
+	
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		
+		user = new User();
+		user.setUserName(USER_NAME);
+		
+		offering = new Offering();
+		offering.setId(OFFERING_ID);
+		offering.setViews(10);
+		
+		doReturn(user).when(userDaoMock).findByName(USER_NAME);
+		doReturn(offering).when(offeringDaoMock).findById(OFFERING_ID);
+	}
+	
+	private List<ViewedOffering> generateViewedOfferings(int n, boolean includeOffering, Date lastVisit) {
+		
+		List<ViewedOffering> viewedOfferings = new ArrayList<>();
+		
+		if (includeOffering) {
+			ViewedOffering viewedOffering = new ViewedOffering();
+			viewedOffering.setId(1);
+			viewedOffering.setUser(user);
+			viewedOffering.setOffering(offering);
+			viewedOffering.setDate(lastVisit);
+			viewedOfferings.add(viewedOffering);
+		}
+		
+		for (int i = 0; i < n; i++) {
+			Offering otherOffering = new Offering();
+			otherOffering.setId(100 + i);
+			
+			// Viewed offerings are compared by ID
+			ViewedOffering otherViewedOffering = new ViewedOffering();
+			otherViewedOffering.setId(100 + i);
+			otherViewedOffering.setUser(user);
+			otherViewedOffering.setOffering(otherOffering);
+			otherViewedOffering.setDate(new Date(0));
+			viewedOfferings.add(otherViewedOffering);
+		}
+		
+		return viewedOfferings;
+	}
+	
+	private void testRegisterView(boolean viewed, Date lastVisit, boolean increaseViews, 
+			boolean removeOldViewed) throws Exception {
+		
+		List<ViewedOffering> viewedOfferings = generateViewedOfferings(removeOldViewed ? 10 : 0, 
+				viewed, lastVisit);
+		doReturn(viewedOfferings).when(viewedOfferingDaoMock).getUserViewedOfferings(USER_NAME);
+		
+		Date viewDate = new Date();
+		viewedOfferingBo.registerViews(Arrays.asList(new OfferingView(USER_NAME, OFFERING_ID, viewDate)));
+		
+		// Check that a new viewed offering has been created
+		ViewedOffering viewedOffering;
+		if (viewed) {
+			verify(viewedOfferingDaoMock, never()).save(any(ViewedOffering.class));
+			viewedOffering = viewedOfferings.get(0);
+		} else {
+			ArgumentCaptor<ViewedOffering> captor = ArgumentCaptor.forClass(ViewedOffering.class);
+			verify(viewedOfferingDaoMock).save(captor.capture());
+			viewedOffering = captor.getValue();
+		}
+		
+		assertThat(viewedOffering.getOffering()).isSameAs(offering);
+		assertThat(viewedOffering.getUser()).isSameAs(user);
+		assertThat(viewedOffering.getDate()).isEqualTo(viewDate);
+		
+		// Check that the number of views has been increased
+		assertThat(offering.getViews()).isEqualTo(increaseViews ? 11 : 10);
+		
+		// Check that old viewed offerings have been removed
+		if (!removeOldViewed) {
+			verify(viewedOfferingDaoMock, never()).delete(any(ViewedOffering.class));
+		} else {
+			for (int i = 0; i < viewedOfferings.size(); i++) {
+				if (i < 9) {
+					verify(viewedOfferingDaoMock, never()).delete(viewedOfferings.get(i));
+				} else {
+					verify(viewedOfferingDaoMock).delete(viewedOfferings.get(i));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testRegisterViewOfferingNotViewedNotRemove() throws Exception {
+		testRegisterView(false, null, true, false);
+	}
+	
+	@Test
+	public void testRegisterViewOfferingViewedNotRemove() throws Exception {
+		Date twelveHoursAgo = new Date(new Date().getTime() - (12 * 3600 * 1000) - 1);
+		testRegisterView(true, twelveHoursAgo, false, false);
+	}
+	
+	@Test
+	public void testRegisterViewOfferingViewedNotRemoveIncreaseViews() throws Exception {
+		Date yesterday = new Date(new Date().getTime() - (24 * 3600 * 1000) - 1);
+		testRegisterView(true, yesterday, true, false);
+	}
+	
+	@Test
+	public void testRegisterViewOfferingNotViewedRemove() throws Exception {
+		testRegisterView(false, null, true, true);
+	}
+	
+	@Test
+	public void testRegisterViewsSeveralUsers() throws Exception {
+		
+		User otherUser = new User();
+		otherUser.setUserName("other");
+		doReturn(otherUser).when(userDaoMock).findByName("other");
+		doReturn(new ArrayList<ViewedOffering>()).when(viewedOfferingDaoMock).getUserViewedOfferings(USER_NAME);
+		doReturn(new ArrayList<ViewedOffering>()).when(viewedOfferingDaoMock).getUserViewedOfferings("other");
+		
+		Date now = new Date();
+		viewedOfferingBo.registerViews(Arrays.asList(
+				new OfferingView(USER_NAME, OFFERING_ID, now),
+				new OfferingView("other", OFFERING_ID, now)));
+		
+		// The offering is retrieved once and both views are counted
+		verify(offeringDaoMock).findById(OFFERING_ID);
+		assertThat(offering.getViews()).isEqualTo(12);
+		
+		ArgumentCaptor<ViewedOffering> captor = ArgumentCaptor.forClass(ViewedOffering.class);
+		verify(viewedOfferingDaoMock, times(2)).save(captor.capture());
+		assertThat(captor.getAllValues().get(0).getUser()).isSameAs(user);
+		assertThat(captor.getAllValues().get(1).getUser()).isSameAs(otherUser);
+	}
+	
+	@Test
+	public void testRegisterViewsOrderedByDate() throws Exception {
+		
+		doReturn(new ArrayList<ViewedOffering>()).when(viewedOfferingDaoMock).getUserViewedOfferings(USER_NAME);
+		
+		// The second view is older than the first one and more than one day before it: 
+		// after sorting, both views are counted
+		Date now = new Date();
+		Date twoDaysAgo = new Date(now.getTime() - 48 * 3600 * 1000);
+		viewedOfferingBo.registerViews(Arrays.asList(
+				new OfferingView(USER_NAME, OFFERING_ID, now),
+				new OfferingView(USER_NAME, OFFERING_ID, twoDaysAgo)));
+		
+		ArgumentCaptor<ViewedOffering> captor = ArgumentCaptor.forClass(ViewedOffering.class);
+		verify(viewedOfferingDaoMock).save(captor.capture());
+		assertThat(captor.getValue().getDate()).isEqualTo(now);
+		assertThat(offering.getViews()).isEqualTo(12);
+	}
+	
+	@Test
+	public void testRegisterViewsUserNotFound() throws Exception {
+		
+		doThrow(new UserNotFoundException("")).when(userDaoMock).findByName(USER_NAME);
+		
+		viewedOfferingBo.registerViews(Arrays.asList(new OfferingView(USER_NAME, OFFERING_ID, new Date())));
+		
+		verify(viewedOfferingDaoMock, never()).save(any(ViewedOffering.class));
+		assertThat(offering.getViews()).isEqualTo(10);
+	}
+	
+	@Test
+	public void testRegisterViewsOfferingNotFound() throws Exception {
+		
+		doReturn(new ArrayList<ViewedOffering>()).when(viewedOfferingDaoMock).getUserViewedOfferings(USER_NAME);
+		doThrow(new OfferingNotFoundException("")).when(offeringDaoMock).findById(anyInt());
+		
+		viewedOfferingBo.registerViews(Arrays.asList(new OfferingView(USER_NAME, OFFERING_ID, new Date())));
+		
+		verify(viewedOfferingDaoMock, never()).save(any(ViewedOffering.class));
+		verify(viewedOfferingDaoMock, never()).delete(any(ViewedOffering.class));
+	}
+
+}
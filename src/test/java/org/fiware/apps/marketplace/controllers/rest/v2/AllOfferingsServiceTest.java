@@ -33,29 +33,37 @@ package org.fiware.apps.marketplace.controllers.rest.v2;
  */
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.ws.rs.core.Response;
 
 import org.fiware.apps.marketplace.bo.OfferingBo;
+import org.fiware.apps.marketplace.bo.SearchBo;
 import org.fiware.apps.marketplace.exceptions.NotAuthorizedException;
 import org.fiware.apps.marketplace.model.ErrorType;
 import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
 import org.fiware.apps.marketplace.model.Offerings;
 import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.utils.PageCursor;
 import org.hibernate.QueryException;
 import org.hibernate.exception.SQLGrammarException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -63,6 +71,7 @@ import org.mockito.MockitoAnnotations;
 public class AllOfferingsServiceTest {
 	
 	@Mock private OfferingBo offeringBoMock;
+	@Mock private SearchBo searchBoMock;
 	@InjectMocks private AllOfferingsService allOfferingsService;
 	
 	private static final String OFFSET_MAX_INVALID = "offset and/or max are not valid";
@@ -83,7 +92,7 @@ public class AllOfferingsServiceTest {
 		doThrow(e).when(offeringBoMock).getOfferingsPage(anyInt(), anyInt(), anyString(), anyBoolean());
 
 		// Call the method
-		Response res = allOfferingsService.listOfferings(0, 100, "name", false);
+		Response res = allOfferingsService.listOfferings(0, 100, "name", false, null);
 
 		// Assertions
 		GenericRestTestUtils.checkAPIError(res, 403, ErrorType.FORBIDDEN, 
@@ -92,7 +101,7 @@ public class AllOfferingsServiceTest {
 	
 	private void testListAllOfferingsInvalidParams(int offset, int max, String orderBy, boolean desc) {
 		// Call the method
-		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc);
+		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc, null);
 
 		// Assertions
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, 
@@ -128,7 +137,7 @@ public class AllOfferingsServiceTest {
 		int max = 100;
 		String orderBy = "name";
 		boolean desc = true;
-		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc);
+		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc, null);
 		
 		// Verify
 		verify(offeringBoMock).getOfferingsPage(offset, max, orderBy, desc);
@@ -139,6 +148,53 @@ public class AllOfferingsServiceTest {
 				getOfferings()).isEqualTo(oferrings);
 	}
 	
+	@Test
+	public void testListAllOfferingsOffsetAndCursor() {
+		Response res = allOfferingsService.listOfferings(10, 100, "name", false, "cursor");
+		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, 
+				"offset and cursor cannot be used together");
+	}
+	
+	@Test
+	public void testListAllOfferingsInvalidCursor() {
+		Response res = allOfferingsService.listOfferings(0, 100, "name", false, "***");
+		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, "cursor is not valid");
+	}
+	
+	@Test
+	public void testListAllOfferingsCursor() throws NotAuthorizedException {
+		
+		List<Offering> offerings = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			Offering offering = new Offering();
+			offering.setId(i);
+			offering.setName("offering" + i);
+			offerings.add(offering);
+		}
+		
+		String cursor = PageCursor.after(offerings.get(0), "name", false).toString();
+		
+		// Mocks
+		when(offeringBoMock.getOfferingsPage(any(PageCursor.class), anyInt(), anyString(), anyBoolean()))
+				.thenReturn(offerings);
+		
+		// Call the method
+		Response res = allOfferingsService.listOfferings(0, 2, "name", false, cursor);
+		
+		// Verify
+		ArgumentCaptor<PageCursor> captor = ArgumentCaptor.forClass(PageCursor.class);
+		verify(offeringBoMock).getOfferingsPage(captor.capture(), eq(2), eq("name"), eq(false));
+		assertThat(captor.getValue().getId()).isEqualTo(0);
+		assertThat(captor.getValue().getValue()).isEqualTo("offering0");
+		
+		// Assertions
+		Offerings returnedOfferings = (Offerings) res.getEntity();
+		assertThat(res.getStatus()).isEqualTo(200);
+		assertThat(returnedOfferings.getOfferings()).isEqualTo(offerings);
+		assertThat(returnedOfferings.getNextCursor())
+				.isEqualTo(PageCursor.after(offerings.get(1), "name", false).toString());
+	}
+	
 	@Test
 	public void testListBookmarkedOfferingsGetNoErrors() throws NotAuthorizedException {
 		@SuppressWarnings("unchecked")
@@ -176,7 +232,7 @@ public class AllOfferingsServiceTest {
 		int max = 100;
 		String orderBy = "describedIn.registrationDate";
 		boolean desc = false;
-		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc);
+		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc, null);
 		
 		// Verify
 		verify(offeringBoMock).getOfferingsPage(offset, max, orderBy, desc);
@@ -216,7 +272,7 @@ public class AllOfferingsServiceTest {
 		int max = 100;
 		String orderBy = "name";
 		boolean desc = true;
-		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc);
+		Response res = allOfferingsService.listOfferings(offset, max, orderBy, desc, null);
 		
 		// Verify
 		verify(offeringBoMock).getOfferingsPage(offset, max, orderBy, desc);
@@ -350,6 +406,37 @@ public class AllOfferingsServiceTest {
 		assertThat(res.getStatus()).isEqualTo(200);
 		assertThat(((Offerings) res.getEntity()).getOfferings()).isEqualTo(oferrings);
 	}
-
-
+	
+	@Test
+	public void testSearchInvalidOffset() {
+		Response res = allOfferingsService.search("cloud", null, null, null, null, -1, 100);
+		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, OFFSET_MAX_INVALID);
+	}
+	
+	@Test
+	public void testSearchInvalidPriceRange() {
+		Response res = allOfferingsService.search("cloud", null, null, 10f, 5f, 0, 100);
+		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, 
+				"minPrice cannot be greater than maxPrice");
+	}
+	
+	@Test
+	public void testSearchException() throws Exception {
+		Exception e = new IOException("Index cannot be read");
+		doThrow(e).when(searchBoMock).searchOfferings("cloud", null, null, null, null, 0, 100);
+		
+		Response res = allOfferingsService.search("cloud", null, null, null, null, 0, 100);
+		GenericRestTestUtils.checkAPIError(res, 500, ErrorType.INTERNAL_SERVER_ERROR, e.getMessage());
+	}
+	
+	@Test
+	public void testSearchNoErrors() throws Exception {
+		OfferingSearchResults results = new OfferingSearchResults();
+		when(searchBoMock.searchOfferings("cloud", "storage", "store", 1f, 5f, 10, 20)).thenReturn(results);
+		
+		Response res = allOfferingsService.search("cloud", "storage", "store", 1f, 5f, 10, 20);
+		
+		assertThat(res.getStatus()).isEqualTo(200);
+		assertThat(res.getEntity()).isSameAs(results);
+	}
 }
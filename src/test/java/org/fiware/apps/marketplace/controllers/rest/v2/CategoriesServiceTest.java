@@ -142,7 +142,7 @@ public class CategoriesServiceTest {
 				.thenReturn(offerings);
 		
 		// Call the function
-		Response res = service.getCategoryRecommendations(categoryName, offset, max, orderBy, desc);
+		Response res = service.getCategoryRecommendations(categoryName, offset, max, orderBy, desc, null);
 		
 		// Check response
 		assertThat(res.getStatus()).isEqualTo(200);
@@ -165,7 +165,7 @@ public class CategoriesServiceTest {
 			doThrow(ex).when(categoryBoMock).getCategoryOfferingsSortedBy(categoryName, offset, max, orderBy, desc);
 			
 			// Call the function
-			Response res = service.getCategoryRecommendations(categoryName, offset, max, orderBy, desc);
+			Response res = service.getCategoryRecommendations(categoryName, offset, max, orderBy, desc, null);
 			
 			// Check response
 			assertThat(res.getStatus()).isEqualTo(errorStatus);
@@ -214,7 +214,7 @@ public class CategoriesServiceTest {
 	
 	private void testGetCategoryRecommendationsInvalidOffsetMax(int offset, int max) {
 		// Actual call
-		Response res = service.getCategoryRecommendations("category", offset, max, "id", false);
+		Response res = service.getCategoryRecommendations("category", offset, max, "id", false, null);
 		
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, OFFSET_MAX_INVALID);
 	}
@@ -507,7 +507,7 @@ public class DescriptionServiceTest {
 		doThrow(e).when(descriptionBoMock).getStoreDescriptionsPage(eq(STORE_NAME), anyInt(), anyInt());
 
 		// Call the method
-		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, 0, 100);
+		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, 0, 100, null);
 
 		// Assertions
 		GenericRestTestUtils.checkAPIError(res, 403, ErrorType.FORBIDDEN, e.getMessage());
@@ -516,7 +516,7 @@ public class DescriptionServiceTest {
 	
 	private void testListDescriptionsInvalidParams(int offset, int max) {
 		// Call the method
-		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max);
+		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max, null);
 
 		// Assertions
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, OFFSET_MAX_INVALID);
@@ -552,7 +552,7 @@ public class DescriptionServiceTest {
 		// Call the method
 		int offset = 5;
 		int max = 8;
-		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max);
+		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max, null);
 		
 		// Chceks
 		verify(descriptionBoMock).getStoreDescriptionsPage(STORE_NAME, offset, max);
@@ -572,7 +572,7 @@ public class DescriptionServiceTest {
 		// Call the method
 		int offset = 0;
 		int max = 100;
-		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max);
+		Response res = descriptionRegistrationService.listDescriptionsInStore(STORE_NAME, offset, max, null);
 		
 		// Verify
 		verify(descriptionBoMock).getStoreDescriptionsPage(STORE_NAME, offset, max);
@@ -270,7 +270,7 @@ public class OfferingReviewServiceTest {
 			
 			// Actual call
 			Response res = reviewsService.getReviews(STORE_NAME, DESCRIPTION_NAME, OFFERING_NAME, 
-					0, 100, orderBy, desc, false);
+					0, 100, orderBy, desc, false, null);
 			GenericRestTestUtils.checkAPIError(res, statusCode, errorType, message, field);
 			
 		} catch (Exception e1) {
@@ -322,7 +322,7 @@ public class OfferingReviewServiceTest {
 	private void testGetReviewsInvalidOffsetMax(int offset, int max) {
 		// Actual call
 		Response res = reviewsService.getReviews(STORE_NAME, DESCRIPTION_NAME, OFFERING_NAME, 
-				offset, max, "id", false, false);
+				offset, max, "id", false, false, null);
 		
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, OFFSET_MAX_INVALID);
 	}
@@ -352,7 +352,7 @@ public class OfferingReviewServiceTest {
 		
 		// Actual call
 		Response res = reviewsService.getReviews(STORE_NAME, DESCRIPTION_NAME, OFFERING_NAME, 
-				0, 100, "id", false, false);
+				0, 100, "id", false, false, null);
 		
 		// Check response
 		assertThat(res.getStatus()).isEqualTo(200);
@@ -383,7 +383,7 @@ public class OfferingReviewServiceTest {
 		
 		// Actual call
 		Response res = reviewsService.getReviews(STORE_NAME, DESCRIPTION_NAME, OFFERING_NAME, 
-				offset, max, orderBy, desc, true);
+				offset, max, orderBy, desc, true, null);
 		
 		// Check response
 		assertThat(res.getStatus()).isEqualTo(200);
@@ -79,7 +79,7 @@ public class OfferingsInStoreServiceTest {
 	
 	private void testListOfferingsInStoreInvalidParams(int offset, int max) {
 		// Call the method
-		Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, "name", true);
+		Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, "name", true, null);
 
 		// Assertions
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, 
@@ -119,7 +119,7 @@ public class OfferingsInStoreServiceTest {
 		int max = 100;
 		String orderBy = "name";
 		boolean desc = false;
-		Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, orderBy, desc);
+		Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, orderBy, desc, null);
 		
 		// Verify
 		verify(offeringBoMock).getStoreOfferingsPage(STORE_NAME, offset, max, orderBy, desc);
@@ -142,7 +142,7 @@ public class OfferingsInStoreServiceTest {
 			int offset = 0;
 			int max = 100;
 			boolean desc = true;
-			Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, orderBy, desc);
+			Response res = offeringsInStoreService.listOfferingsInStore(STORE_NAME, offset, max, orderBy, desc, null);
 			
 			// Verify
 			verify(offeringBoMock).getStoreOfferingsPage(STORE_NAME, offset, max, orderBy, desc);
@@ -241,7 +241,7 @@ public class StoreReviewServiceTest {
 			doThrow(ex).when(storeBoMock).getReviewsPage(STORE_NAME, offset, max, orderBy, desc);
 			
 			// Actual call
-			Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, false);
+			Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, false, null);
 			GenericRestTestUtils.checkAPIError(res, statusCode, errorType, message, field);
 			
 		} catch (Exception e1) {
@@ -280,7 +280,7 @@ public class StoreReviewServiceTest {
 	
 	private void testGetReviewsInvalidOffsetMax(int offset, int max) {
 		// Actual call
-		Response res = reviewsService.getReviews(STORE_NAME, offset, max, "id", false, false);
+		Response res = reviewsService.getReviews(STORE_NAME, offset, max, "id", false, false, null);
 		
 		GenericRestTestUtils.checkAPIError(res, 400, ErrorType.BAD_REQUEST, OFFSET_MAX_INVALID);
 	}
@@ -309,7 +309,7 @@ public class StoreReviewServiceTest {
 		doReturn(reviews).when(storeBoMock).getReviewsPage(STORE_NAME, offset, max, orderBy, desc);
 		
 		// Actual call
-		Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, false);
+		Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, false, null);
 		
 		// Check response
 		assertThat(res.getStatus()).isEqualTo(200);
@@ -338,7 +338,7 @@ public class StoreReviewServiceTest {
 		doReturn(reviews).when(storeBoMock).getReviewsPage(STORE_NAME, offset, max, orderBy, desc);
 		
 		// Actual call
-		Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, true);
+		Response res = reviewsService.getReviews(STORE_NAME, offset, max, orderBy, desc, true, null);
 		
 		// Check response
 		assertThat(res.getStatus()).isEqualTo(200);
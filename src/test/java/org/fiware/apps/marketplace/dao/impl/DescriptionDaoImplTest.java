@@ -0,0 +1,123 @@
+package org.fiware.apps.marketplace.dao.impl;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.fiware.apps.marketplace.model.Description;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class DescriptionDaoImplTest {
+	
+	private static final String TABLE_NAME = Description.class.getName();
+	private static final String STORE_NAME = "store";
+	
+	@Mock private SessionFactory sessionFactory;
+	@Mock private Session session;
+	@Mock private Query query;
+	@InjectMocks private DescriptionDaoImpl descriptionDao = new DescriptionDaoImpl();
+	
+	@Before 
+	public void initMocks() {
+		MockitoAnnotations.initMocks(this);
+		doReturn(session).when(sessionFactory).getCurrentSession();
+		doReturn(query).when(session).createQuery(anyString());
+		doReturn(query).when(query).setParameter(anyString(), anyObject());
+	}
+	
+	private void testAvailability(long count, String filter, String field, String value, boolean available) {
+		doReturn(count).when(query).uniqueResult();
+		
+		boolean returnedValue;
+		
+		switch (field) {
+		case "name":
+			returnedValue = descriptionDao.isNameAvailableInStore(STORE_NAME, value);
+			break;
+		case "displayName":
+			returnedValue = descriptionDao.isDisplayNameAvailableInStore(STORE_NAME, value);
+			break;
+		default:
+			returnedValue = descriptionDao.isURLAvailableInStore(STORE_NAME, value);
+		}
+		
+		assertThat(returnedValue).isEqualTo(available);
+		
+		// Only the number of descriptions is retrieved
+		verify(session).createQuery(String.format("SELECT COUNT(*) FROM %s WHERE %s", TABLE_NAME, filter));
+		verify(query).setParameter(field, value);
+		verify(query).setParameter("storeName", STORE_NAME);
+		verify(query, never()).list();
+	}
+	
+	@Test
+	public void testNameAvailable() {
+		testAvailability(0, "name = :name and store.name = :storeName", "name", "desc", true);
+	}
+	
+	@Test
+	public void testNameNotAvailable() {
+		testAvailability(1, "name = :name and store.name = :storeName", "name", "desc", false);
+	}
+	
+	@Test
+	public void testDisplayNameAvailable() {
+		testAvailability(0, "displayName = :displayName and store.name = :storeName", "displayName", 
+				"Description", true);
+	}
+	
+	@Test
+	public void testDisplayNameNotAvailable() {
+		testAvailability(2, "displayName = :displayName and store.name = :storeName", "displayName", 
+				"Description", false);
+	}
+	
+	@Test
+	public void testURLAvailable() {
+		testAvailability(0, "url = :url and store.name = :storeName", "url", "http://example.org/usdl", true);
+	}
+	
+	@Test
+	public void testURLNotAvailable() {
+		testAvailability(3, "url = :url and store.name = :storeName", "url", "http://example.org/usdl", false);
+	}
+}
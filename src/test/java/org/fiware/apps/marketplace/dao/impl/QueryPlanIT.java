@@ -0,0 +1,810 @@
+package org.fiware.apps.marketplace.dao.impl;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.fiware.apps.marketplace.dao.CategoryDao;
+import org.fiware.apps.marketplace.dao.DescriptionDao;
+import org.fiware.apps.marketplace.dao.OfferingDao;
+import org.fiware.apps.marketplace.dao.ReviewDao;
+import org.fiware.apps.marketplace.dao.ServiceDao;
+import org.fiware.apps.marketplace.dao.StoreDao;
+import org.fiware.apps.marketplace.dao.UserDao;
+import org.fiware.apps.marketplace.dao.ViewedOfferingDao;
+import org.fiware.apps.marketplace.model.Category;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingFetchProfile;
+import org.fiware.apps.marketplace.model.Review;
+import org.fiware.apps.marketplace.model.Service;
+import org.fiware.apps.marketplace.model.Store;
+import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.model.ViewedOffering;
+import org.fiware.apps.marketplace.utils.PageCursor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+/**
+ * Runs the queries of every DAO against an embedded MariaDB and checks their execution plan. A query fails 
+ * when MariaDB reads a whole table to resolve it. The schema is created by Hibernate from the entity 
+ * mappings and completed with the last migration script, so the indexes checked are the ones that a 
+ * deployed database has.
+ */
+public class QueryPlanIT {
+	
+	private static final String DATABASE = "marketplace_plans";
+	private static final String MIGRATION_SCRIPT = "database/migration_scripts/4.4.3_to_4.4.5.sql";
+	
+	private static final int USERS = 20;
+	private static final int CATEGORIES = 10;
+	private static final int STORES = 5;
+	private static final int DESCRIPTIONS_PER_STORE = 10;
+	private static final int OFFERINGS_PER_DESCRIPTION = 5;
+	private static final int ACTIONS_PER_USER = 10;
+	
+	private static final String USER_NAME = "user1";
+	private static final String STORE_NAME = "store1";
+	private static final String DESCRIPTION_NAME = "description1";
+	private static final String OFFERING_NAME = "offering1";
+	private static final String CATEGORY_NAME = "category1";
+	private static final String SERVICE_URI = "http://example.org/services/1";
+	
+	private static DB db;
+	private static String url;
+	private static SessionFactory sessionFactory;
+	private static AnnotationConfigApplicationContext context;
+	private static final List<ExecutedQuery> queries = Collections.synchronizedList(new ArrayList<ExecutedQuery>());
+	
+	private Session session;
+	
+	private UserDao userDao;
+	private StoreDao storeDao;
+	private DescriptionDao descriptionDao;
+	private OfferingDao offeringDao;
+	private CategoryDao categoryDao;
+	private ServiceDao serviceDao;
+	private ReviewDao reviewDao;
+	private ViewedOfferingDao viewedOfferingDao;
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// SET UP ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@BeforeClass
+	public static void startDatabase() throws Exception {
+		DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+		config.setPort(0);		// Automatic port
+		
+		// mysqld refuses to run as root unless it's explicitly asked to
+		if ("root".equals(System.getProperty("user.name"))) {
+			config.addArg("--user=root");
+		}
+		
+		db = DB.newEmbeddedDB(config.build());
+		db.start();
+		
+		String serverUrl = String.format("jdbc:mysql://localhost:%d/", db.getConfiguration().getPort());
+		url = serverUrl + DATABASE;
+		
+		try (Connection connection = DriverManager.getConnection(serverUrl, "root", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("CREATE DATABASE " + DATABASE);
+		}
+		
+		// Same configuration than the one used by the application, but caches are disabled so all
+		// the queries reach the database
+		DriverManagerDataSource driverDataSource = new DriverManagerDataSource(url, "root", "");
+		driverDataSource.setDriverClassName("com.mysql.jdbc.Driver");
+		
+		// Queries are recorded with their parameters so they can be explained later
+		DataSource dataSource = new DelegatingDataSource(driverDataSource) {
+			
+			@Override
+			public Connection getConnection() throws SQLException {
+				return recordQueries(super.getConnection());
+			}
+		};
+		
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+		properties.setProperty("hibernate.hbm2ddl.auto", "update");
+		properties.setProperty("hibernate.cache.use_second_level_cache", "false");
+		properties.setProperty("hibernate.cache.use_query_cache", "false");
+		properties.setProperty("hibernate.current_session_context_class", "thread");
+		
+		LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+		builder.scanPackages(Offering.class.getPackage().getName());
+		builder.addProperties(properties);
+		sessionFactory = builder.buildSessionFactory();
+		
+		// The script is run on a schema already updated by Hibernate (as it happens when the new version
+		// is deployed first) and then once again, so it must skip the indexes and columns that exist
+		applyMigrationScript();
+		applyMigrationScript();
+		
+		// DAOs are wired the same way they are in the application
+		context = new AnnotationConfigApplicationContext();
+		context.getBeanFactory().registerSingleton("sessionFactory", sessionFactory);
+		context.scan(UserDaoImpl.class.getPackage().getName());
+		context.refresh();
+		
+		populateDatabase();
+	}
+	
+	/**
+	 * Several stores, descriptions and users are created so the optimizer does not prefer to scan 
+	 * tables just because they are tiny
+	 */
+	private static void populateDatabase() throws SQLException {
+		Session session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		
+		Date now = new Date();
+		
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			User user = new User();
+			user.setUserName("user" + i);
+			user.setDisplayName("User " + i);
+			user.setEmail(String.format("user%d@example.org", i));
+			user.setPassword("password");
+			user.setCreatedAt(now);
+			user.setBookmarks(new ArrayList<Offering>());
+			session.save(user);
+			users.add(user);
+		}
+		
+		List<Category> categories = new ArrayList<>();
+		for (int i = 0; i < CATEGORIES; i++) {
+			Category category = new Category();
+			category.setName("category" + i);
+			category.setDisplayName("Category " + i);
+			session.save(category);
+			categories.add(category);
+		}
+		
+		List<Offering> offerings = new ArrayList<>();
+		for (int i = 0; i < STORES; i++) {
+			User creator = users.get(i % USERS);
+			
+			Store store = new Store();
+			store.setName("store" + i);
+			store.setDisplayName("Store " + i);
+			store.setUrl(String.format("http://store%d.example.org", i));
+			store.setCreator(creator);
+			store.setLasteditor(creator);
+			store.setCreatedAt(now);
+			session.save(store);
+			
+			for (int j = 0; j < DESCRIPTIONS_PER_STORE; j++) {
+				Description description = new Description();
+				description.setName("description" + j);
+				description.setDisplayName("Description " + j);
+				description.setUrl(String.format("http://store%d.example.org/usdl/%d", i, j));
+				description.setStore(store);
+				description.setCreator(creator);
+				description.setLasteditor(creator);
+				description.setCreatedAt(now);
+				session.save(description);
+				
+				for (int k = 0; k < OFFERINGS_PER_DESCRIPTION; k++) {
+					Category category = categories.get(offerings.size() % CATEGORIES);
+					
+					Service service = new Service();
+					service.setDisplayName("Service " + offerings.size());
+					service.setUri(String.format("http://example.org/services/%d", offerings.size()));
+					service.setCategories(new HashSet<>(Arrays.asList(category)));
+					session.save(service);
+					
+					Offering offering = new Offering();
+					offering.setName("offering" + k);
+					offering.setDisplayName("Offering " + k);
+					offering.setUri(String.format("%s#offering%d", description.getUrl(), k));
+					offering.setDescribedIn(description);
+					offering.setCategories(new HashSet<>(Arrays.asList(category)));
+					offering.setServices(new HashSet<>(Arrays.asList(service)));
+					session.save(offering);
+					offerings.add(offering);
+				}
+			}
+		}
+		
+		// Each user reviews, bookmarks and views a few offerings
+		for (int i = 0; i < USERS; i++) {
+			User user = users.get(i);
+			
+			for (int j = 0; j < ACTIONS_PER_USER; j++) {
+				Offering offering = offerings.get((i * ACTIONS_PER_USER + j) % offerings.size());
+				Date date = new Date(now.getTime() - (i * ACTIONS_PER_USER + j) * 1000L);
+				
+				Review review = new Review();
+				review.setUser(user);
+				review.setReviewableEntity(j == 0 ? offering.getDescribedIn().getStore() : offering);
+				review.setScore(1 + j % 5);
+				review.setCreatedAt(date);
+				review.setUpdatedAt(date);
+				session.save(review);
+				
+				ViewedOffering viewedOffering = new ViewedOffering();
+				viewedOffering.setUser(user);
+				viewedOffering.setOffering(offering);
+				viewedOffering.setDate(date);
+				session.save(viewedOffering);
+				
+				user.getBookmarks().add(offering);
+			}
+		}
+		
+		session.getTransaction().commit();
+		
+		// Refresh index statistics, otherwise the optimizer may not know the contents of the tables
+		try (Connection connection = DriverManager.getConnection(url, "root", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("ANALYZE TABLE users, stores, descriptions, offerings, reviewable_entity, "
+					+ "reviews, last_viewed, bookmarks, categories, services, offerings_categories, "
+					+ "offerings_services, services_categories");
+		}
+	}
+	
+	/**
+	 * Some indexes cannot be declared in the mapping (e.g. prefix indexes), so they are only created by the 
+	 * migration script.
+	 */
+	private static void applyMigrationScript() throws IOException, SQLException {
+		StringBuilder script = new StringBuilder();
+		
+		for (String line: Files.readAllLines(Paths.get(MIGRATION_SCRIPT), StandardCharsets.UTF_8)) {
+			if (!line.trim().startsWith("--")) {
+				script.append(line).append("\n");
+			}
+		}
+		
+		try (Connection connection = DriverManager.getConnection(url, "root", "");
+				Statement statement = connection.createStatement()) {
+			
+			for (String sql: script.toString().split(";")) {
+				if (!sql.trim().isEmpty()) {
+					statement.execute(sql);
+				}
+			}
+		}
+	}
+	
+	private static Connection recordQueries(final Connection connection) {
+		return (Connection) Proxy.newProxyInstance(QueryPlanIT.class.getClassLoader(), 
+				new Class<?>[] {Connection.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				Object result = invokeTarget(connection, method, args);
+				
+				if ("prepareStatement".equals(method.getName())) {
+					result = recordQuery((PreparedStatement) result, (String) args[0]);
+				}
+				
+				return result;
+			}
+		});
+	}
+	
+	private static PreparedStatement recordQuery(final PreparedStatement preparedStatement, String sql) {
+		final ExecutedQuery query = new ExecutedQuery(sql);
+		
+		return (PreparedStatement) Proxy.newProxyInstance(QueryPlanIT.class.getClassLoader(), 
+				new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				
+				// Parameters are set with methods like setString(int, String)
+				if (method.getName().startsWith("set") && args != null && args.length > 1 && 
+						args[0] instanceof Integer) {
+					query.parameters.add(new Object[] {method, args});
+				} else if ("executeQuery".equals(method.getName())) {
+					queries.add(query);
+				}
+				
+				return invokeTarget(preparedStatement, method, args);
+			}
+		});
+	}
+	
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException ex) {
+			throw ex.getCause();
+		}
+	}
+	
+	@AfterClass
+	public static void stopDatabase() throws Exception {
+		if (context != null) {
+			context.close();
+		}
+		
+		if (sessionFactory != null) {
+			sessionFactory.close();
+		}
+		
+		if (db != null) {
+			db.stop();
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		userDao = context.getBean(UserDao.class);
+		storeDao = context.getBean(StoreDao.class);
+		descriptionDao = context.getBean(DescriptionDao.class);
+		offeringDao = context.getBean(OfferingDao.class);
+		categoryDao = context.getBean(CategoryDao.class);
+		serviceDao = context.getBean(ServiceDao.class);
+		reviewDao = context.getBean(ReviewDao.class);
+		viewedOfferingDao = context.getBean(ViewedOfferingDao.class);
+		
+		session = sessionFactory.getCurrentSession();
+		session.beginTransaction();
+		queries.clear();
+	}
+	
+	@After
+	public void tearDown() {
+		session.getTransaction().rollback();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// HELPERS ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Explains all the queries run since the beginning of the test and checks that none of them reads a 
+	 * whole table, except for the tables that are expected to be listed. Queries are explained with the 
+	 * parameters they were run with.
+	 * @param listedTables Tables whose rows are all retrieved on purpose (e.g. unfiltered listings)
+	 */
+	private void assertNoFullScans(String... listedTables) throws Exception {
+		
+		List<ExecutedQuery> executedQueries;
+		synchronized (queries) {
+			executedQueries = new ArrayList<>(queries);
+		}
+		
+		List<String> allowedTables = Arrays.asList(listedTables);
+		List<String> fullScans = new ArrayList<>();
+		
+		try (Connection connection = DriverManager.getConnection(url, "root", "")) {
+			
+			for (ExecutedQuery query: executedQueries) {
+				try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + query.sql)) {
+					
+					for (Object[] parameter: query.parameters) {
+						((Method) parameter[0]).invoke(explain, (Object[]) parameter[1]);
+					}
+					
+					try (ResultSet plan = explain.executeQuery()) {
+						while (plan.next()) {
+							String table = plan.getString("table");
+							
+							if ("ALL".equals(plan.getString("type")) && 
+									!isAllowed(table, allowedTables, query.sql)) {
+								fullScans.add(String.format("%s (table: %s)", query.sql, table));
+							}
+						}
+					}
+				}
+			}
+		}
+		
+		assertThat(executedQueries).as("Executed queries").isNotEmpty();
+		assertThat(fullScans).as("Queries that scan a whole table").isEmpty();
+	}
+	
+	/**
+	 * EXPLAIN returns table aliases, so the alias of each listed table is looked up in the statement
+	 */
+	private static boolean isAllowed(String alias, List<String> allowedTables, String sql) {
+		for (String table: allowedTables) {
+			if (sql.matches(String.format("(?s).*\\b%s %s\\b.*", table, alias))) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private Offering getOffering() throws Exception {
+		Offering offering = offeringDao.findByNameStoreAndDescription(STORE_NAME, DESCRIPTION_NAME, 
+				OFFERING_NAME);
+		queries.clear();
+		return offering;
+	}
+	
+	private Store getStore() throws Exception {
+		Store store = storeDao.findByName(STORE_NAME);
+		queries.clear();
+		return store;
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////// USERS ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testUserFindByName() throws Exception {
+		userDao.findByName(USER_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserFindByEmail() throws Exception {
+		userDao.findByEmail("user1@example.org");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserNameAvailable() throws Exception {
+		userDao.isUserNameAvailable(USER_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserEmailAvailable() throws Exception {
+		userDao.isEmailAvailable("user1@example.org");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUsersPage() throws Exception {
+		userDao.getUsersPage(0, 10);
+		assertNoFullScans("users");
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// STORES ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testStoreFindByName() throws Exception {
+		storeDao.findByName(STORE_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreNameAvailable() throws Exception {
+		storeDao.isNameAvailable(STORE_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreDisplayNameAvailable() throws Exception {
+		storeDao.isDisplayNameAvailable("Store 1");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreURLAvailable() throws Exception {
+		storeDao.isURLAvailable("http://store1.example.org");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoresPage() throws Exception {
+		storeDao.getStoresPage(0, 10, "name", false);
+		assertNoFullScans("stores", "reviewable_entity");
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////// DESCRIPTIONS ////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testDescriptionFindByNameAndStore() throws Exception {
+		descriptionDao.findByNameAndStore(STORE_NAME, DESCRIPTION_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testDescriptionNameAvailable() throws Exception {
+		descriptionDao.isNameAvailableInStore(STORE_NAME, DESCRIPTION_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testDescriptionDisplayNameAvailable() throws Exception {
+		descriptionDao.isDisplayNameAvailableInStore(STORE_NAME, "Description 1");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testDescriptionURLAvailable() throws Exception {
+		descriptionDao.isURLAvailableInStore(STORE_NAME, "http://store1.example.org/usdl/1");
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserDescriptions() throws Exception {
+		descriptionDao.getUserDescriptions(USER_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserDescriptionsInStore() throws Exception {
+		descriptionDao.getUserDescriptionsInStore(USER_NAME, STORE_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreDescriptionsPage() throws Exception {
+		descriptionDao.getStoreDescriptionsPage(STORE_NAME, 0, 10);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testDescriptionsPage() throws Exception {
+		descriptionDao.getDescriptionsPage(0, 10);
+		assertNoFullScans("descriptions", "stores");
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////////// OFFERINGS /////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testOfferingFindByNameStoreAndDescription() throws Exception {
+		offeringDao.findByNameStoreAndDescription(STORE_NAME, DESCRIPTION_NAME, OFFERING_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testOfferingsPage() throws Exception {
+		offeringDao.getOfferingsPage(0, 10, "name", false);
+		assertNoFullScans("offerings", "reviewable_entity");
+	}
+	
+	@Test
+	public void testStoreOfferingsPage() throws Exception {
+		offeringDao.getStoreOfferingsPage(STORE_NAME, 0, 10, "name", false);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreOfferingsPageWithCursor() throws Exception {
+		Offering offering = getOffering();
+		offeringDao.getStoreOfferingsPage(STORE_NAME, PageCursor.after(offering, "name", false), 10, 
+				"name", false);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testDescriptionOfferingsPage() throws Exception {
+		offeringDao.getDescriptionOfferingsPage(STORE_NAME, DESCRIPTION_NAME, 0, 10, "name", false);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testBookmarkedOfferingsPage() throws Exception {
+		offeringDao.getBookmarkedOfferingsPage(USER_NAME, 0, 10, "name", false);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testIsBookmarked() throws Exception {
+		offeringDao.isBookmarked(USER_NAME, getOffering());
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testInitializeOfferings() throws Exception {
+		offeringDao.initialize(Arrays.asList(getOffering()), OfferingFetchProfile.FULL);
+		assertNoFullScans();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////////// CATEGORIES & SERVICES /////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testCategoryFindByName() throws Exception {
+		categoryDao.findByName(CATEGORY_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testCategoryNameAvailable() throws Exception {
+		categoryDao.isNameAvailable(CATEGORY_NAME);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testCategoryOfferings() throws Exception {
+		categoryDao.getCategoryOfferingsSortedBy(CATEGORY_NAME, 0, 10, "name", false);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testCategoriesPage() throws Exception {
+		categoryDao.getCategoriesPage(0, 10);
+		assertNoFullScans("categories");
+	}
+	
+	@Test
+	public void testServiceFindByURI() throws Exception {
+		serviceDao.findByURI(SERVICE_URI);
+		assertNoFullScans();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// REVIEWS //////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testReviewsPage() throws Exception {
+		reviewDao.getReviewsPage(getOffering(), 0, 10, "createdAt", true);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testStoreReviewsPage() throws Exception {
+		reviewDao.getReviewsPage(getStore(), 0, 10, "createdAt", true);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testUserReview() throws Exception {
+		Offering offering = getOffering();
+		User user = reviewDao.getReviewsPage(offering, 0, 1, "id", false).get(0).getUser();
+		queries.clear();
+		
+		reviewDao.findUserReview(offering, user);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testRebuildAggregates() throws Exception {
+		// Reviews are inserted directly, so the aggregates of all the reviewed entities are outdated
+		assertThat(reviewDao.rebuildAggregates()).isGreaterThan(0);
+		assertThat(reviewDao.rebuildAggregates()).isEqualTo(0);
+		
+		Offering offering = getOffering();
+		Object[] aggregates = getAggregates(offering);
+		Object[] expected = (Object[]) session.createSQLQuery("SELECT COUNT(*), SUM(score) FROM reviews "
+				+ "WHERE entity = :id").setParameter("id", offering.getId()).uniqueResult();
+		
+		assertThat(((Number) aggregates[0]).longValue()).isEqualTo(((Number) expected[0]).longValue());
+		assertThat(((Number) aggregates[1]).longValue()).isEqualTo(((Number) expected[1]).longValue());
+	}
+	
+	@Test
+	public void testUpdateAggregates() throws Exception {
+		reviewDao.rebuildAggregates();
+		Offering offering = getOffering();
+		Object[] previous = getAggregates(offering);
+		
+		reviewDao.updateAggregates(offering, 5, 1);
+		reviewDao.updateAggregates(offering, 5, 1);
+		reviewDao.updateAggregates(offering, 5, -1);
+		
+		Object[] aggregates = getAggregates(offering);
+		long reviewsCount = ((Number) previous[0]).longValue() + 1;
+		long scoresSum = ((Number) previous[1]).longValue() + 5;
+		assertThat(((Number) aggregates[0]).longValue()).isEqualTo(reviewsCount);
+		assertThat(((Number) aggregates[1]).longValue()).isEqualTo(scoresSum);
+		assertThat(((Number) aggregates[2]).doubleValue()).isEqualTo((double) scoresSum / reviewsCount);
+		
+		// The database can fix the aggregates updated concurrently
+		assertThat(reviewDao.rebuildAggregates()).isEqualTo(1);
+	}
+	
+	private Object[] getAggregates(Offering offering) {
+		return (Object[]) session.createSQLQuery("SELECT reviewsCount, scoresSum, averageScore "
+				+ "FROM reviewable_entity WHERE id = :id").setParameter("id", offering.getId()).uniqueResult();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////// VIEWED OFFERINGS /////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testUserViewedOfferingsPage() throws Exception {
+		viewedOfferingDao.getUserViewedOfferingsPage(USER_NAME, 0, 10);
+		assertNoFullScans();
+	}
+	
+	@Test
+	public void testLastViews() throws Exception {
+		viewedOfferingDao.getLastViews(100);
+		assertNoFullScans();
+	}
+	
+	/**
+	 * Query run by a DAO together with the calls that set its parameters
+	 */
+	private static class ExecutedQuery {
+		
+		private final String sql;
+		private final List<Object[]> parameters = new ArrayList<>();
+		
+		private ExecutedQuery(String sql) {
+			this.sql = sql;
+		}
+	}
+	
+}
@@ -36,11 +36,11 @@ import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.fiware.apps.marketplace.dao.UserDao;
-import org.fiware.apps.marketplace.model.Offering;
-import org.fiware.apps.marketplace.model.User;
+import org.fiware.apps.marketplace.model.OfferingView;
 import org.fiware.apps.marketplace.model.ViewedOffering;
 import org.hibernate.Query;
 import org.hibernate.Session;
@@ -53,119 +53,37 @@ import org.mockito.MockitoAnnotations;
 
 public class ViewedOfferingDaoImplTest {
 	
+	private static final String TABLE_NAME = ViewedOffering.class.getName();
+	
 	@Mock private UserDao userDaoMock;
-	@Mock private SessionFactory sessionFactory; 
+	@Mock private SessionFactory sessionFactory;
+	@Mock private Session session;
+	@Mock private Query query;
 	@InjectMocks private ViewedOfferingDaoImpl viewedOfferingDao = new ViewedOfferingDaoImpl();
 	
 	@Before 
 	public void initMocks() {
 		MockitoAnnotations.initMocks(this);
-	}
-	
-	private void testGetOfferingsViewedByOtherUsers(List<ViewedOffering> bbddOfferings, 
-			List<ViewedOffering> expectedOfferings, int max) {
-		
-		try {
-			
-			Query query = mock(Query.class);
-			doReturn(query).when(query).setParameter(anyString(), anyObject());
-			doReturn(bbddOfferings).when(query).list();
-			
-			Session session = mock(Session.class);
-			doReturn(query).when(session).createQuery(anyString());
-			
-			User user = mock(User.class);
-			
-			doReturn(session).when(sessionFactory).getCurrentSession();
-			doReturn(user).when(userDaoMock).findByName(anyString());
-	
-			List<ViewedOffering> returnedOfferings = viewedOfferingDao.getOfferingsViewedByOtherUsers("", max);
-			
-			// Verifications
-			String className = "org.fiware.apps.marketplace.model.ViewedOffering";
-			verify(session).createQuery(String.format("FROM %s where user != :user order by date desc", className));
-			verify(query).setParameter("user", user);
-			
-			// Check that the returned viewed offerings are OK!
-			assertThat(returnedOfferings).isEqualTo(expectedOfferings);
-		} catch (Exception ex) {
-			fail("Exception not expected", ex);
-		}
+		doReturn(session).when(sessionFactory).getCurrentSession();
+		doReturn(query).when(session).createQuery(anyString());
+		doReturn(query).when(query).setParameter(anyString(), anyObject());
+		doReturn(query).when(query).setMaxResults(anyInt());
 	}
 	
 	@Test
-	public void testGetOfferingViewedByOtherUsersOneElement() {
-		List<ViewedOffering> list = new ArrayList<>();
-		
-		ViewedOffering viewedOffering = mock(ViewedOffering.class);
-		Offering offering = mock(Offering.class);
-		doReturn(offering).when(viewedOffering).getOffering();
-		list.add(viewedOffering);
-		
-		testGetOfferingsViewedByOtherUsers(list, list, 20);
-	}
-	
-	@Test
-	public void testGetOfferingViewedByOtherUsersTwoElementsDifferentOffering() {
-		List<ViewedOffering> list = new ArrayList<>();
-		
-		ViewedOffering viewedOffering1 = mock(ViewedOffering.class);
-		Offering offering1 = mock(Offering.class);
-		doReturn(offering1).when(viewedOffering1).getOffering();
-		
-		ViewedOffering viewedOffering2 = mock(ViewedOffering.class);
-		Offering offering2 = mock(Offering.class);
-		doReturn(offering2).when(viewedOffering2).getOffering();
-		
-		list.add(viewedOffering1);
-		list.add(viewedOffering2);
-		
-		testGetOfferingsViewedByOtherUsers(list, list, 20);
-	}
-	
-	@Test
-	public void testGetOfferingViewedByOtherUsersTwoElementsDifferentOfferingMax() {
-		List<ViewedOffering> bbddList = new ArrayList<>();
-		List<ViewedOffering> expectedList = new ArrayList<>();
-
-		// Mock objects
-		ViewedOffering viewedOffering1 = mock(ViewedOffering.class);
-		Offering offering1 = mock(Offering.class);
-		doReturn(offering1).when(viewedOffering1).getOffering();
-		
-		ViewedOffering viewedOffering2 = mock(ViewedOffering.class);
-		Offering offering2 = mock(Offering.class);
-		doReturn(offering2).when(viewedOffering2).getOffering();
-		
-		// Fill the lists
-		bbddList.add(viewedOffering1);
-		bbddList.add(viewedOffering2);
-		expectedList.add(viewedOffering1);
-
-		testGetOfferingsViewedByOtherUsers(bbddList, expectedList, 1);
-	}
-	
-	@Test
-	public void testGetOfferingViewedByOtherUsersTwoElementsSameOffering() {
-		List<ViewedOffering> bbddList = new ArrayList<>();
-		List<ViewedOffering> expectedList = new ArrayList<>();
-		
-		// Mock objects
-		Offering offering= mock(Offering.class);
+	public void testGetLastViews() {
 		
-		ViewedOffering viewedOffering1 = mock(ViewedOffering.class);
-		doReturn(offering).when(viewedOffering1).getOffering();
+		List<OfferingView> views = new ArrayList<>();
+		views.add(new OfferingView("user", 1, new Date()));
 		
-		ViewedOffering viewedOffering2 = mock(ViewedOffering.class);
-		doReturn(offering).when(viewedOffering2).getOffering();
+		doReturn(views).when(query).list();
 		
-		// Fill the lists
-		bbddList.add(viewedOffering1);
-		bbddList.add(viewedOffering2);
-		expectedList.add(viewedOffering1);
+		assertThat(viewedOfferingDao.getLastViews(300)).isEqualTo(views);
 		
-		// Call the method
-		testGetOfferingsViewedByOtherUsers(bbddList, expectedList, 20);
+		// Only the requested views are retrieved and entities are not loaded
+		verify(session).createQuery(String.format("select new %s(user.userName, offering.id, date) from %s "
+				+ "order by date desc", OfferingView.class.getName(), TABLE_NAME));
+		verify(query).setMaxResults(300);
 	}
 
 }
@@ -0,0 +1,150 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AttributeAssignmentResolverTest {
+
+	private static final int MAX_SIZE = 8;
+	private static final int ITERATIONS = 200;
+
+	private static double[][] generateMatrix(Random random, int rows, int cols, double[] candidateValues) {
+		double[][] values = new double[rows][cols];
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				values[row][col] = candidateValues == null ? random.nextDouble() : 
+						candidateValues[random.nextInt(candidateValues.length)];
+			}
+		}
+		return values;
+	}
+
+	private static double getTotal(double[][] values, int[] assignment) {
+		double total = 0;
+		for (int row = 0; row < assignment.length; row++) {
+			if (assignment[row] != -1) {
+				total += values[row][assignment[row]];
+			}
+		}
+		return total;
+	}
+
+	private static void assertValidAssignment(double[][] values, int[] assignment) {
+		assertThat(assignment).hasSize(values.length);
+
+		int assigned = 0;
+		Set<Integer> cols = new HashSet<>();
+		for (int col : assignment) {
+			if (col != -1) {
+				assertThat(col).isLessThan(values[0].length);
+				assertThat(cols.add(col)).isTrue();
+				assigned++;
+			}
+		}
+
+		assertThat(assigned).isEqualTo(Math.min(values.length, values[0].length));
+	}
+
+	@Test
+	public void testEmptyMatrix() {
+		assertThat(AttributeAssignmentResolver.getMaximalAttributeAssignments(new double[0][0])).isEmpty();
+	}
+
+	@Test
+	public void testNoColumns() {
+		assertThat(AttributeAssignmentResolver.getMaximalAttributeAssignments(new double[2][0])).containsExactly(-1, -1);
+	}
+
+	@Test
+	public void testSingleRow() {
+		double[][] values = {{0.2, 0.7, 0.1, 0.7}};
+		assertThat(AttributeAssignmentResolver.getMaximalAttributeAssignments(values)).containsExactly(1);
+	}
+
+	@Test
+	public void testZeroMatrix() {
+		assertThat(AttributeAssignmentResolver.getMaximalAttributeAssignments(new double[3][2])).containsExactly(0, 1, -1);
+	}
+
+	@Test
+	public void testMoreRowsThanColumns() {
+		double[][] values = {{0.1, 0.2}, {0.9, 0.3}, {0.8, 0.7}};
+		assertThat(AttributeAssignmentResolver.getMaximalAttributeAssignments(values)).containsExactly(-1, 0, 1);
+	}
+
+	@Test
+	public void testSameAssignmentsThanMunkres() {
+		Random random = new Random(42);
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (int rows = 1; rows <= MAX_SIZE; rows++) {
+				for (int cols = 1; cols <= MAX_SIZE; cols++) {
+					// Random doubles: the optimal assignment is unique
+					double[][] values = generateMatrix(random, rows, cols, null);
+					int[] expected = MunkresAssignmentResolver.getMaximalAttributeAssignments(values);
+					int[] assignment = AttributeAssignmentResolver.getMaximalAttributeAssignments(values);
+
+					assertThat(assignment).isEqualTo(expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameTotalThanMunkresWithTies() {
+		Random random = new Random(42);
+		double[] candidateValues = {0.0, 0.5, 1.0};
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (int rows = 1; rows <= MAX_SIZE; rows++) {
+				for (int cols = 1; cols <= MAX_SIZE; cols++) {
+					// Several optimal assignments can exist, all of them must have the same total
+					double[][] values = generateMatrix(random, rows, cols, candidateValues);
+					int[] expected = MunkresAssignmentResolver.getMaximalAttributeAssignments(values);
+					int[] assignment = AttributeAssignmentResolver.getMaximalAttributeAssignments(values);
+
+					assertValidAssignment(values, assignment);
+					assertThat(getTotal(values, assignment)).isEqualTo(getTotal(values, expected), offset(1e-9));
+				}
+			}
+		}
+	}
+}
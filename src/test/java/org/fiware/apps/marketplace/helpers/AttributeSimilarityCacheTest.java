@@ -0,0 +1,142 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.HashMap;
+
+import org.fiware.apps.marketplace.helpers.AttributeSimilarityCache.Key;
+import org.fiware.apps.marketplace.model.ServiceAttribute;
+import org.fiware.apps.marketplace.model.ServiceQualitativeAttribute;
+import org.fiware.apps.marketplace.model.ServiceQuantitativeAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttributeSimilarityCacheTest {
+
+	private static final int MAX_ENTRIES = 3;
+
+	private AttributeSimilarityCache cache;
+	private Object scope;
+
+	@Before
+	public void setUp() {
+		cache = new AttributeSimilarityCache(MAX_ENTRIES);
+		scope = new HashMap<String, Object>();
+	}
+
+	private ServiceQuantitativeAttribute generateQuantitativeAttribute(String uri, double value) {
+		ServiceQuantitativeAttribute attribute = new ServiceQuantitativeAttribute();
+		attribute.setUri(uri);
+		attribute.setTypeUri("http://example.org/types#memory");
+		attribute.setValue(value);
+		attribute.setUnit("GB");
+		return attribute;
+	}
+
+	@Test
+	public void testSignatureIgnoresAttributeUri() {
+		ServiceAttribute attribute1 = generateQuantitativeAttribute("http://example.org/attributes#1", 4);
+		ServiceAttribute attribute2 = generateQuantitativeAttribute("http://example.org/attributes#2", 4);
+
+		assertThat(AttributeSimilarityCache.getSignature(attribute1))
+				.isEqualTo(AttributeSimilarityCache.getSignature(attribute2));
+	}
+
+	@Test
+	public void testSignatureDependsOnValues() {
+		ServiceAttribute attribute1 = generateQuantitativeAttribute("http://example.org/attributes#1", 4);
+		ServiceAttribute attribute2 = generateQuantitativeAttribute("http://example.org/attributes#1", 8);
+
+		assertThat(AttributeSimilarityCache.getSignature(attribute1))
+				.isNotEqualTo(AttributeSimilarityCache.getSignature(attribute2));
+	}
+
+	@Test
+	public void testSignatureDependsOnValueReferences() {
+		ServiceAttribute attribute1 = new ServiceQualitativeAttribute();
+		attribute1.setTypeUri("http://example.org/types#support");
+		ServiceAttribute attribute2 = new ServiceQualitativeAttribute();
+		attribute2.setTypeUri("http://example.org/types#support");
+		attribute2.addValueReference(generateQuantitativeAttribute("http://example.org/attributes#1", 4));
+
+		assertThat(AttributeSimilarityCache.getSignature(attribute1))
+				.isNotEqualTo(AttributeSimilarityCache.getSignature(attribute2));
+	}
+
+	@Test
+	public void testGetStoredScore() {
+		cache.putAttributeScore(cache.getKey(scope, "a", "b"), 0.5);
+
+		assertThat(cache.getAttributeScore(cache.getKey(scope, "a", "b"))).isEqualTo(0.5);
+		assertThat(cache.getAttributeScore(cache.getKey(scope, "b", "a"))).isNull();
+		assertThat(cache.getHierarchicalScore(cache.getKey(scope, "a", "b"))).isNull();
+		assertThat(cache.getAttributeScoresHitRatio()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void testScopesAreComparedByIdentity() {
+		cache.putHierarchicalScore(cache.getKey(scope, "a", "b"), 0.5);
+
+		// Equal but different maps
+		assertThat(cache.getHierarchicalScore(cache.getKey(new HashMap<String, Object>(), "a", "b"))).isNull();
+		assertThat(cache.getHierarchicalScore(cache.getKey(scope, "a", "b"))).isEqualTo(0.5);
+	}
+
+	@Test
+	public void testInvalidate() {
+		Key key = cache.getKey(scope, "a", "b");
+		cache.invalidate();
+
+		// Scores calculated before invalidating the cache are ignored
+		cache.putAttributeScore(key, 0.5);
+		assertThat(cache.getAttributeScore(cache.getKey(scope, "a", "b"))).isNull();
+
+		cache.putAttributeScore(cache.getKey(scope, "a", "b"), 0.7);
+		assertThat(cache.getAttributeScore(cache.getKey(scope, "a", "b"))).isEqualTo(0.7);
+
+		cache.invalidate();
+		assertThat(cache.getSize()).isEqualTo(0);
+		assertThat(cache.getAttributeScore(cache.getKey(scope, "a", "b"))).isNull();
+	}
+
+	@Test
+	public void testBounded() {
+		for (int i = 0; i < MAX_ENTRIES * 2; i++) {
+			cache.putAttributeScore(cache.getKey(scope, "a", Integer.toString(i)), 0.5);
+			assertThat(cache.getSize()).isLessThanOrEqualTo(MAX_ENTRIES);
+		}
+	}
+}
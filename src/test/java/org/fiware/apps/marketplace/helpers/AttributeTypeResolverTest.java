@@ -0,0 +1,176 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceRatioAttributeType;
+import org.fiware.apps.marketplace.rdf.RdfHelper;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+public class AttributeTypeResolverTest {
+	
+	@Mock private RdfModelCache rdfModelCacheMock;
+	@InjectMocks private AttributeTypeResolver attributeTypeResolver;
+	
+	private static final String VOCABULARY = 
+			"@prefix gr: <http://purl.org/goodrelations/v1#> . " +
+			"@prefix skos: <http://www.w3.org/2004/02/skos/core#> . " +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> . " +
+			"<%s> a skos:Concept ; rdfs:subClassOf gr:QuantitativeValue ; skos:prefLabel \"%s\" . ";
+	
+	private static final String URI_1 = "http://example.org/vocabulary1";
+	private static final String URI_2 = "http://example.org/vocabulary2";
+	private static final String SLOW_URI = "http://example.org/slow";
+	private static final String BROKEN_URI = "http://example.org/broken";
+	
+	private static RdfHelper createHelper(String typeUri) {
+		Model model = ModelFactory.createDefaultModel();
+		model.read(new StringReader(String.format(VOCABULARY, typeUri, typeUri)), null, "TURTLE");
+		return new RdfHelper(model);
+	}
+	
+	@Before
+	public void setUp() throws IOException {
+		MockitoAnnotations.initMocks(this);
+		ReflectionTestUtils.setField(attributeTypeResolver, "fetchThreads", 4);
+		ReflectionTestUtils.setField(attributeTypeResolver, "fetchTimeout", 4000L);
+		attributeTypeResolver.init();
+		
+		doReturn(createHelper(URI_1 + "#type")).when(rdfModelCacheMock).getHelper(URI_1);
+		doReturn(createHelper(URI_2 + "#type")).when(rdfModelCacheMock).getHelper(URI_2);
+		doThrow(new IOException()).when(rdfModelCacheMock).getHelper(BROKEN_URI);
+		doAnswer(new Answer<RdfHelper>() {
+			
+			@Override
+			public RdfHelper answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(20000);
+				return createHelper(SLOW_URI + "#type");
+			}
+		}).when(rdfModelCacheMock).getHelper(SLOW_URI);
+	}
+	
+	@After
+	public void tearDown() {
+		attributeTypeResolver.destroy();
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromUri() {
+		List<ServiceAttributeType> types = attributeTypeResolver.resolveAttributeTypesFromUri(URI_1);
+		
+		assertThat(types).hasSize(1);
+		assertThat(types.get(0)).isInstanceOf(ServiceRatioAttributeType.class);
+		assertThat(types.get(0).getUri()).isEqualTo(URI_1 + "#type");
+		assertThat(types.get(0).getPreferedLabel()).isEqualTo(URI_1 + "#type");
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromBrokenUri() {
+		assertThat(attributeTypeResolver.resolveAttributeTypesFromUri(BROKEN_URI)).isEmpty();
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromUrisKeepsOrder() {
+		List<ServiceAttributeType> types = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_2, BROKEN_URI, URI_1));
+		
+		assertThat(types).hasSize(2);
+		assertThat(types.get(0).getUri()).isEqualTo(URI_2 + "#type");
+		assertThat(types.get(1).getUri()).isEqualTo(URI_1 + "#type");
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromUrisTimeout() {
+		long start = System.currentTimeMillis();
+		List<ServiceAttributeType> types = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_1, SLOW_URI, URI_2));
+		
+		// Slow URIs do not delay the rest
+		assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+		assertThat(types).hasSize(2);
+		assertThat(types.get(0).getUri()).isEqualTo(URI_1 + "#type");
+		assertThat(types.get(1).getUri()).isEqualTo(URI_2 + "#type");
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromUrisKeepsKnownTypesOfFailedUris() {
+		List<ServiceAttributeType> knownTypes = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_1, URI_2));
+		knownTypes.get(0).setPreferedLabel("Outdated label");
+		
+		List<ServiceAttributeType> types = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_1, BROKEN_URI), knownTypes);
+		
+		// The resolved type replaces the known one
+		assertThat(types).hasSize(2);
+		assertThat(types.get(0).getUri()).isEqualTo(URI_1 + "#type");
+		assertThat(types.get(0).getPreferedLabel()).isEqualTo(URI_1 + "#type");
+		assertThat(types.get(1)).isSameAs(knownTypes.get(1));
+	}
+	
+	@Test
+	public void testResolveAttributeTypesFromUrisReplacesKnownTypes() {
+		List<ServiceAttributeType> knownTypes = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_1, URI_2));
+		
+		// All the URIs have been resolved, so the types removed from them are not kept
+		List<ServiceAttributeType> types = attributeTypeResolver.resolveAttributeTypesFromUris(
+				Arrays.asList(URI_1), knownTypes);
+		
+		assertThat(types).hasSize(1);
+		assertThat(types.get(0).getUri()).isEqualTo(URI_1 + "#type");
+	}
+}
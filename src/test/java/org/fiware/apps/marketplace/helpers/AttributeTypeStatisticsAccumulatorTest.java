@@ -0,0 +1,208 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.fiware.apps.marketplace.model.ServiceAttribute;
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.fiware.apps.marketplace.model.ServiceNominalAttributeType;
+import org.fiware.apps.marketplace.model.ServiceQualitativeAttribute;
+import org.fiware.apps.marketplace.model.ServiceQuantitativeAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttributeTypeStatisticsAccumulatorTest {
+	
+	private static final String ROOT_TYPE_URI = "http://example.org/types#root";
+	private static final String[] UNITS = {"C62", "E34", "Mbit/s"};
+	private static final int N_TYPES = 6;
+	
+	private HashMap<String, ServiceAttributeType> typeMap;
+	private Random random;
+	
+	private static String getTypeUri(int type) {
+		return "http://example.org/types#type" + type;
+	}
+	
+	private void addType(String uri, String broaderTypeUri) {
+		ServiceAttributeType type = new ServiceNominalAttributeType();
+		type.setUri(uri);
+		type.setBroaderTypeUri(broaderTypeUri);
+		typeMap.put(uri, type);
+	}
+	
+	private ServiceAttribute generateAttribute(int depth) {
+		String typeUri = getTypeUri(random.nextInt(N_TYPES));
+		ServiceAttribute attribute;
+		
+		if (random.nextBoolean()) {
+			ServiceQuantitativeAttribute quantitativeAttribute = new ServiceQuantitativeAttribute();
+			quantitativeAttribute.setUnit(UNITS[random.nextInt(UNITS.length)]);
+			quantitativeAttribute.setValue(random.nextBoolean() ? (double) random.nextInt(10) : null);
+			quantitativeAttribute.setMinValue(random.nextBoolean() ? (double) random.nextInt(10) : null);
+			quantitativeAttribute.setMaxValue(random.nextBoolean() ? (double) random.nextInt(10) : null);
+			attribute = quantitativeAttribute;
+		} else {
+			attribute = new ServiceQualitativeAttribute();
+		}
+		
+		attribute.setTypeUri(typeUri);
+		
+		if (depth > 0 && random.nextBoolean()) {
+			attribute.addValueReference(generateAttribute(depth - 1));
+		}
+		
+		return attribute;
+	}
+	
+	private List<ServiceManifestation> generateServiceManifestations(int n) {
+		List<ServiceManifestation> serviceManifestations = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			ServiceManifestation serviceManifestation = new ServiceManifestation();
+			serviceManifestation.setName("sm" + i);
+			for (int j = 0; j < 1 + random.nextInt(4); j++) {
+				serviceManifestation.addAttribute(generateAttribute(2));
+			}
+			serviceManifestations.add(serviceManifestation);
+		}
+		return serviceManifestations;
+	}
+	
+	private void assertSameStatistics(Map<String, ServiceAttributeTypeStatistics> expected, 
+			Map<String, ServiceAttributeTypeStatistics> actual) {
+		
+		assertThat(actual.keySet()).isEqualTo(expected.keySet());
+		
+		for (String typeUri : expected.keySet()) {
+			ServiceAttributeTypeStatistics expectedStats = expected.get(typeUri);
+			ServiceAttributeTypeStatistics actualStats = actual.get(typeUri);
+			
+			assertThat(actualStats.getUri()).isEqualTo(expectedStats.getUri());
+			assertThat(actualStats.getOccurrences()).isEqualTo(expectedStats.getOccurrences());
+			assertThat(actualStats.getOccurrenceProbability()).isEqualTo(expectedStats.getOccurrenceProbability());
+			assertThat(actualStats.getMinOfValue()).isEqualTo(expectedStats.getMinOfValue());
+			assertThat(actualStats.getMaxOfValue()).isEqualTo(expectedStats.getMaxOfValue());
+			assertThat(actualStats.getMinOfMinValue()).isEqualTo(expectedStats.getMinOfMinValue());
+			assertThat(actualStats.getMaxOfMinValue()).isEqualTo(expectedStats.getMaxOfMinValue());
+			assertThat(actualStats.getMinOfMaxValue()).isEqualTo(expectedStats.getMinOfMaxValue());
+			assertThat(actualStats.getMaxOfMaxValue()).isEqualTo(expectedStats.getMaxOfMaxValue());
+			assertSameStatistics(expectedStats.getTypeStatsMap(), actualStats.getTypeStatsMap());
+		}
+	}
+	
+	@Before
+	public void setUp() {
+		random = new Random(7);
+		typeMap = new HashMap<>();
+		
+		addType(ROOT_TYPE_URI, null);
+		for (int i = 0; i < N_TYPES; i++) {
+			// Two levels hierarchy
+			addType(getTypeUri(i), i < 2 ? ROOT_TYPE_URI : getTypeUri(i % 2));
+		}
+	}
+	
+	@Test
+	public void testAddSameAsResolver() {
+		List<ServiceManifestation> serviceManifestations = generateServiceManifestations(50);
+		
+		AttributeTypeStatisticsAccumulator accumulator = new AttributeTypeStatisticsAccumulator(typeMap);
+		accumulator.add(serviceManifestations);
+		
+		assertSameStatistics(AttributeTypeStatisticsResolver.resolveStatistics(typeMap, serviceManifestations), 
+				accumulator.getStatistics());
+	}
+	
+	@Test
+	public void testRemoveSameAsResolver() {
+		List<ServiceManifestation> serviceManifestations = generateServiceManifestations(50);
+		
+		AttributeTypeStatisticsAccumulator accumulator = new AttributeTypeStatisticsAccumulator(typeMap);
+		accumulator.add(serviceManifestations);
+		// Statistics are calculated before removing to check that they are updated
+		accumulator.getStatistics();
+		
+		List<ServiceManifestation> removed = new ArrayList<>(serviceManifestations.subList(0, 30));
+		List<ServiceManifestation> remaining = new ArrayList<>(serviceManifestations.subList(30, 50));
+		accumulator.remove(removed);
+		
+		assertSameStatistics(AttributeTypeStatisticsResolver.resolveStatistics(typeMap, remaining), 
+				accumulator.getStatistics());
+	}
+	
+	@Test
+	public void testReplaceSameAsResolver() {
+		List<ServiceManifestation> serviceManifestations = generateServiceManifestations(40);
+		List<ServiceManifestation> newServiceManifestations = generateServiceManifestations(10);
+		
+		AttributeTypeStatisticsAccumulator accumulator = new AttributeTypeStatisticsAccumulator(typeMap);
+		accumulator.add(serviceManifestations);
+		accumulator.remove(serviceManifestations.subList(0, 10));
+		accumulator.add(newServiceManifestations);
+		
+		List<ServiceManifestation> expected = new ArrayList<>(serviceManifestations.subList(10, 40));
+		expected.addAll(newServiceManifestations);
+		
+		assertSameStatistics(AttributeTypeStatisticsResolver.resolveStatistics(typeMap, expected), 
+				accumulator.getStatistics());
+	}
+	
+	@Test
+	public void testStatisticsNotCreatedWhenNotChanged() {
+		AttributeTypeStatisticsAccumulator accumulator = new AttributeTypeStatisticsAccumulator(typeMap);
+		accumulator.add(generateServiceManifestations(5));
+		
+		HashMap<String, ServiceAttributeTypeStatistics> statistics = accumulator.getStatistics();
+		assertThat(accumulator.getStatistics()).isSameAs(statistics);
+		
+		accumulator.add(generateServiceManifestations(1));
+		assertThat(accumulator.getStatistics()).isNotSameAs(statistics);
+	}
+	
+	@Test
+	public void testIsBasedOn() {
+		AttributeTypeStatisticsAccumulator accumulator = new AttributeTypeStatisticsAccumulator(typeMap);
+		assertThat(accumulator.isBasedOn(typeMap)).isTrue();
+		assertThat(accumulator.isBasedOn(new HashMap<>(typeMap))).isFalse();
+	}
+}
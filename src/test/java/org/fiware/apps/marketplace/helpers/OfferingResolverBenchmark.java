@@ -0,0 +1,278 @@
+package org.fiware.apps.marketplace.helpers;
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fiware.apps.marketplace.bo.CategoryBo;
+import org.fiware.apps.marketplace.bo.ServiceBo;
+import org.fiware.apps.marketplace.exceptions.CategoryNotFoundException;
+import org.fiware.apps.marketplace.exceptions.ServiceNotFoundException;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.rdf.RdfHelper;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+
+/**
+ * Measures the cost of resolving the offerings of large multi-offering descriptions. Nothing is asserted 
+ * (timings depend on the machine), so it's not run by the build:
+ * 
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/classes:target/test-classes:$(cat target/classpath.txt) \
+ *     org.fiware.apps.marketplace.helpers.OfferingResolverBenchmark
+ * </pre>
+ * 
+ * Each description is resolved with a helper that does not store its results, with the helper of the
+ * RDF cache the first time it's used and with the same helper once it has stored its results. The cost of 
+ * walking the whole model once and grouping its triples by subject and predicate is measured too: it's the
+ * minimum that an extractor based on a single pass over the model would pay before building any entity.
+ */
+public class OfferingResolverBenchmark {
+	
+	private static final int[] DESCRIPTION_SIZES = { 100, 1000, 5000 };
+	private static final int CATEGORIES = 20;
+	private static final int RUNS = 5;
+	
+	private static final String PREFIXES = 
+			"@prefix usdl: <http://www.linked-usdl.org/ns/usdl-core#> . " +
+			"@prefix dcterms: <http://purl.org/dc/terms/> . " +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> . " +
+			"@prefix foaf: <http://xmlns.com/foaf/0.1/> . " +
+			"@prefix gr: <http://purl.org/goodrelations/v1#> . " +
+			"@prefix pav: <http://purl.org/pav/> . " +
+			"@prefix price: <http://www.linked-usdl.org/ns/usdl-pricing#> . ";
+	
+	/**
+	 * Generates a description with the given number of offerings. Each offering includes its own 
+	 * service and a shared one and has two price plans. Services are classified in a few categories.
+	 */
+	private static String generateDescription(int nOfferings) {
+		StringBuilder description = new StringBuilder(PREFIXES);
+		
+		description.append("<http://example.org/service> a usdl:Service ; dcterms:title \"Shared service\" ; " +
+				"usdl:hasClassification [ rdfs:label \"Category 0\" ] . ");
+		
+		for (int i = 0; i < nOfferings; i++) {
+			description.append(String.format(
+					"<http://example.org/offering%1$d> a usdl:ServiceOffering ; " +
+					"    dcterms:title \"Offering %1$d\" ; " +
+					"    dcterms:description \"Description of the offering %1$d\" ; " +
+					"    pav:version \"1.%1$d\" ; " +
+					"    foaf:depiction <http://example.org/images/%1$d.png> ; " +
+					"    gr:availableDeliveryMethods <http://example.org/acquire/%1$d> ; " +
+					"    usdl:includes <http://example.org/service%1$d> , <http://example.org/service> ; " +
+					"    usdl:hasPricePlan [ a price:PricePlan ; dcterms:title \"Free %1$d\" ] , " +
+					"        [ a price:PricePlan ; dcterms:title \"Monthly %1$d\" ; " +
+					"          dcterms:description \"Pay per month\" ; " +
+					"          price:hasPriceComponent [ rdfs:label \"Fee\" ; " +
+					"              price:hasPrice [ gr:hasCurrency \"EUR\" ; gr:hasCurrencyValue \"%1$d.5\" ; " +
+					"                  gr:hasUnitOfMeasurement \"per month\" ] ] ] . " +
+					"<http://example.org/service%1$d> a usdl:Service ; " +
+					"    dcterms:title \"Service %1$d\" ; " +
+					"    dcterms:description \"Description of the service %1$d\" ; " +
+					"    usdl:hasClassification [ rdfs:label \"Category %2$d\" ] . ", i, i % CATEGORIES));
+		}
+		
+		return description.toString();
+	}
+	
+	/**
+	 * Walks the whole model once and groups its triples by subject and predicate
+	 * @return The number of subjects found
+	 */
+	private static int walk(Model model) {
+		Map<Resource, Map<String, List<RDFNode>>> index = new HashMap<>();
+		StmtIterator it = model.listStatements();
+		
+		try {
+			while (it.hasNext()) {
+				Statement statement = it.next();
+				Map<String, List<RDFNode>> predicates = index.get(statement.getSubject());
+				
+				if (predicates == null) {
+					predicates = new HashMap<>();
+					index.put(statement.getSubject(), predicates);
+				}
+				
+				String predicate = statement.getPredicate().getURI();
+				List<RDFNode> objects = predicates.get(predicate);
+				
+				if (objects == null) {
+					objects = new ArrayList<>();
+					predicates.put(predicate, objects);
+				}
+				
+				objects.add(statement.getObject());
+			}
+		} finally {
+			it.close();
+		}
+		
+		return index.size();
+	}
+	
+	/**
+	 * Resolves the offerings with the given helper. Services and categories are never found in the 
+	 * database, as it happens when a description is registered for the first time.
+	 */
+	private static class BenchmarkOfferingResolver extends OfferingResolver {
+		
+		private RdfHelper rdfHelper;
+		
+		private BenchmarkOfferingResolver() {
+			ReflectionTestUtils.setField(this, "categoryBo", createNotFoundBo(CategoryBo.class, 
+					new CategoryNotFoundException("Not found")));
+			ReflectionTestUtils.setField(this, "serviceBo", createNotFoundBo(ServiceBo.class, 
+					new ServiceNotFoundException("Not found")));
+		}
+		
+		// Mocks are not used since building their exceptions would take longer than resolving the offerings
+		private static <T> T createNotFoundBo(Class<T> boClass, final Exception notFound) {
+			return boClass.cast(Proxy.newProxyInstance(boClass.getClassLoader(), new Class<?>[] { boClass }, 
+					new InvocationHandler() {
+				
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					throw notFound;
+				}
+			}));
+		}
+		
+		@Override
+		RdfHelper getRdfHelper(Description description) {
+			return rdfHelper;
+		}
+	}
+	
+	private static RdfModelCache createRdfModelCache() {
+		RdfModelCache rdfModelCache = new RdfModelCache();
+		ReflectionTestUtils.setField(rdfModelCache, "maxSize", 1024L * 1024L * 1024L);
+		ReflectionTestUtils.setField(rdfModelCache, "connectTimeout", 10000);
+		ReflectionTestUtils.setField(rdfModelCache, "readTimeout", 30000);
+		ReflectionTestUtils.setField(rdfModelCache, "fetchTimeout", 60000);
+		ReflectionTestUtils.setField(rdfModelCache, "maxDocumentSize", 1024L * 1024L * 1024L);
+		ReflectionTestUtils.setField(rdfModelCache, "maxTriples", 100000000L);
+		return rdfModelCache;
+	}
+	
+	private static long resolve(BenchmarkOfferingResolver offeringResolver, RdfHelper rdfHelper, 
+			Description description, int nOfferings) throws Exception {
+		
+		offeringResolver.rdfHelper = rdfHelper;
+		
+		long start = System.nanoTime();
+		List<Offering> offerings = offeringResolver.resolveOfferingsFromServiceDescription(description);
+		long time = System.nanoTime() - start;
+		
+		if (offerings.size() != nOfferings) {
+			throw new IllegalStateException(offerings.size() + " offerings resolved instead of " + nOfferings);
+		}
+		
+		return time;
+	}
+	
+	private static void run(int nOfferings, boolean print) throws Exception {
+		Path file = Files.createTempFile("usdl", ".ttl");
+		RdfModelCache rdfModelCache = createRdfModelCache();
+		
+		try {
+			Files.write(file, generateDescription(nOfferings).getBytes(StandardCharsets.UTF_8));
+			String url = file.toUri().toString();
+			
+			Description description = new Description();
+			description.setUrl(url);
+			BenchmarkOfferingResolver offeringResolver = new BenchmarkOfferingResolver();
+			
+			long parse = 0, walk = 0, uncached = 0, firstUse = 0, stored = 0;
+			int triples = 0;
+			
+			for (int i = 0; i < RUNS; i++) {
+				rdfModelCache.invalidate(url);
+				
+				long start = System.nanoTime();
+				RdfHelper cachedHelper = rdfModelCache.getHelper(url);
+				parse += System.nanoTime() - start;
+				
+				Model model = cachedHelper.getModel();
+				triples = (int) model.size();
+				
+				start = System.nanoTime();
+				walk(model);
+				walk += System.nanoTime() - start;
+				
+				uncached += resolve(offeringResolver, new RdfHelper(model), description, nOfferings);
+				firstUse += resolve(offeringResolver, cachedHelper, description, nOfferings);
+				stored += resolve(offeringResolver, cachedHelper, description, nOfferings);
+			}
+			
+			if (print) {
+				System.out.printf("%5d offerings (%6d triples): parse %6.1f ms, single walk %6.1f ms, resolve "
+						+ "without stored results %6.1f ms, first use of the cached helper %6.1f ms, stored results "
+						+ "%6.1f ms%n", nOfferings, triples, parse / 1e6 / RUNS, walk / 1e6 / RUNS, 
+						uncached / 1e6 / RUNS, firstUse / 1e6 / RUNS, stored / 1e6 / RUNS);
+			}
+		} finally {
+			rdfModelCache.destroy();
+			Files.delete(file);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		// Warm up
+		for (int nOfferings: DESCRIPTION_SIZES) {
+			run(nOfferings, false);
+		}
+		
+		System.out.println("Results:");
+		for (int nOfferings: DESCRIPTION_SIZES) {
+			run(nOfferings, true);
+		}
+	}
+}
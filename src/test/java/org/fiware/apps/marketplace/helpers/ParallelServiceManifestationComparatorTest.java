@@ -0,0 +1,256 @@
+package org.fiware.apps.marketplace.helpers;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.fiware.apps.marketplace.helpers.ParallelServiceManifestationComparator.PartialResultListener;
+import org.fiware.apps.marketplace.model.ComparisonResult;
+import org.fiware.apps.marketplace.model.ComparisonResult.ServiceContainer;
+import org.fiware.apps.marketplace.model.ServiceAttribute;
+import org.fiware.apps.marketplace.model.ServiceAttributeType;
+import org.fiware.apps.marketplace.model.ServiceAttributeTypeStatistics;
+import org.fiware.apps.marketplace.model.ServiceManifestation;
+import org.fiware.apps.marketplace.model.ServiceNominalAttributeType;
+import org.fiware.apps.marketplace.model.ServiceQualitativeAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelServiceManifestationComparatorTest {
+
+	private static final String ROOT_TYPE_URI = "http://example.org/types#root";
+	private static final int N_TYPES = 5;
+	private static final int N_TARGETS = 100;
+
+	private HashMap<String, ServiceAttributeType> typeMap;
+	private HashMap<String, ServiceAttributeTypeStatistics> statisticsMap;
+	private ServiceManifestation source;
+	private List<ServiceManifestation> targets;
+
+	private static String getTypeUri(int type) {
+		return "http://example.org/types#type" + type;
+	}
+
+	private void addType(String uri, String broaderTypeUri, double occurrenceProbability) {
+		ServiceAttributeType type = new ServiceNominalAttributeType();
+		type.setUri(uri);
+		type.setBroaderTypeUri(broaderTypeUri);
+		type.setPreferedLabel(uri);
+		typeMap.put(uri, type);
+
+		ServiceAttributeTypeStatistics statistics = new ServiceAttributeTypeStatistics();
+		statistics.setUri(uri);
+		statistics.setOccurrenceProbability(occurrenceProbability);
+		statisticsMap.put(uri, statistics);
+	}
+
+	private ServiceManifestation generateServiceManifestation(int id, int... types) {
+		ServiceManifestation serviceManifestation = new ServiceManifestation();
+		serviceManifestation.setId(id);
+		serviceManifestation.setName("service " + id);
+
+		for (int type : types) {
+			ServiceAttribute attribute = new ServiceQualitativeAttribute();
+			attribute.setTypeUri(getTypeUri(type));
+			attribute.setUri("http://example.org/attributes#" + id + "_" + type);
+			serviceManifestation.addAttribute(attribute);
+		}
+
+		return serviceManifestation;
+	}
+
+	@Before
+	public void setUp() {
+		typeMap = new HashMap<>();
+		statisticsMap = new HashMap<>();
+
+		addType(ROOT_TYPE_URI, null, 0.9);
+		for (int i = 0; i < N_TYPES; i++) {
+			addType(getTypeUri(i), ROOT_TYPE_URI, 0.1 * (i + 1));
+		}
+
+		source = generateServiceManifestation(0, 0, 1);
+
+		Random random = new Random(7);
+		targets = new ArrayList<>();
+		targets.add(source);
+		for (int i = 1; i <= N_TARGETS; i++) {
+			int[] types = new int[1 + random.nextInt(3)];
+			for (int j = 0; j < types.length; j++) {
+				types[j] = random.nextInt(N_TYPES);
+			}
+			targets.add(generateServiceManifestation(i, types));
+		}
+	}
+
+	private void assertSameTargets(List<ServiceContainer> expected, List<ServiceContainer> actual) {
+		assertThat(actual).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getId()).isEqualTo(expected.get(i).getId());
+			assertThat(actual.get(i).getTotalScore()).isEqualTo(expected.get(i).getTotalScore());
+			assertThat(actual.get(i).getAttributes()).hasSameSizeAs(expected.get(i).getAttributes());
+		}
+	}
+
+	@Test
+	public void testCompareReturnsNullWithoutTargets() {
+		assertThat(ParallelServiceManifestationComparator.compare(source, new ArrayList<ServiceManifestation>(), 
+				typeMap, statisticsMap, null, 0, null)).isNull();
+	}
+
+	@Test
+	public void testCompareAllTargets() {
+		ComparisonResult expected = ServiceManifestationComparator.compare(source, targets, typeMap, statisticsMap);
+		ComparisonResult result = ParallelServiceManifestationComparator.compare(source, targets, typeMap, 
+				statisticsMap, null, 0, null);
+
+		assertThat(result.getSource().getId()).isEqualTo(source.getId());
+		assertThat(result.getTargets()).hasSize(N_TARGETS);
+		assertSameTargets(expected.getTargets(), result.getTargets());
+	}
+
+	@Test
+	public void testCompareAllTargetsWithCache() {
+		AttributeSimilarityCache cache = new AttributeSimilarityCache(1000);
+
+		ComparisonResult expected = ServiceManifestationComparator.compare(source, targets, typeMap, statisticsMap);
+		for (int i = 0; i < 2; i++) {
+			ComparisonResult result = ParallelServiceManifestationComparator.compare(source, targets, typeMap, 
+					statisticsMap, cache, 0, null);
+			assertSameTargets(expected.getTargets(), result.getTargets());
+		}
+
+		assertThat(cache.getAttributeScoresHitRatio()).isGreaterThan(0.5);
+	}
+
+	@Test
+	public void testCompareTopTargets() {
+		int maxResults = 7;
+
+		ComparisonResult expected = ServiceManifestationComparator.compare(source, targets, typeMap, statisticsMap);
+		ComparisonResult result = ParallelServiceManifestationComparator.compare(source, targets, typeMap, 
+				statisticsMap, null, maxResults, null);
+
+		assertSameTargets(expected.getTargets().subList(0, maxResults), result.getTargets());
+	}
+
+	private List<Integer> comparedTargets;
+	private List<ServiceContainer> notifiedTargets;
+	
+	private ComparisonResult compareWithPartialResults(final int maxResults) {
+		comparedTargets = new ArrayList<>();
+		notifiedTargets = new ArrayList<>();
+		final Thread thread = Thread.currentThread();
+		
+		return ParallelServiceManifestationComparator.compare(source, targets, typeMap, statisticsMap, null, 
+				maxResults, new PartialResultListener() {
+
+			@Override
+			public void onPartialResult(List<ServiceContainer> newTargets, int compared, int total) {
+				// Partial results are notified by the thread that runs the comparison
+				assertThat(Thread.currentThread()).isSameAs(thread);
+				assertThat(total).isEqualTo(targets.size());
+				comparedTargets.add(compared);
+				notifiedTargets.addAll(newTargets);
+			}
+		});
+	}
+	
+	private void assertAllTargetsCompared() {
+		int nResults = comparedTargets.size();
+		assertThat(nResults).isGreaterThan(0);
+		for (int i = 1; i < nResults; i++) {
+			assertThat(comparedTargets.get(i)).isGreaterThan(comparedTargets.get(i - 1));
+		}
+		assertThat(comparedTargets.get(nResults - 1)).isEqualTo(targets.size());
+	}
+
+	@Test
+	public void testPartialResults() {
+		int maxResults = 3;
+		ComparisonResult result = compareWithPartialResults(maxResults);
+		
+		assertAllTargetsCompared();
+		
+		// The best notified targets are the final result
+		List<ServiceContainer> best = new ArrayList<>(notifiedTargets);
+		Collections.sort(best, new Comparator<ServiceContainer>() {
+			@Override
+			public int compare(ServiceContainer c1, ServiceContainer c2) {
+				return Double.compare(c2.getTotalScore(), c1.getTotalScore());
+			}
+		});
+		assertThat(notifiedTargets.size()).isLessThan(N_TARGETS);
+		assertThat(best.get(maxResults - 1).getTotalScore()).isEqualTo(
+				result.getTargets().get(maxResults - 1).getTotalScore());
+		for (ServiceContainer target: result.getTargets()) {
+			assertThat(notifiedTargets).contains(target);
+		}
+	}
+
+	@Test
+	public void testPartialResultsAllTargets() {
+		ComparisonResult result = compareWithPartialResults(0);
+		
+		assertAllTargetsCompared();
+		
+		// Each target is notified only once
+		assertThat(notifiedTargets).hasSize(N_TARGETS);
+		assertThat(notifiedTargets).containsOnly(result.getTargets().toArray(new ServiceContainer[0]));
+	}
+
+	@Test
+	public void testPartialResultListenerFails() {
+		try {
+			ParallelServiceManifestationComparator.compare(source, targets, typeMap, statisticsMap, null, 0, 
+					new PartialResultListener() {
+
+				@Override
+				public void onPartialResult(List<ServiceContainer> newTargets, int compared, int total) {
+					throw new IllegalStateException("connection closed");
+				}
+			});
+			failBecauseExceptionWasNotThrown(IllegalStateException.class);
+		} catch (IllegalStateException e) {
+			assertThat(e).hasMessage("connection closed");
+		}
+	}
+}
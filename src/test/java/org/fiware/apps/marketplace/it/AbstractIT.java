@@ -95,6 +95,13 @@ public abstract class AbstractIT {
 	protected final static String MESSAGE_STORE_NOT_FOUND = "Store %s not found";
 	protected final static String MESSAGE_INVALID_SCORE = "Score should be an integer between 1 and 5.";
 	
+	/**
+	 * Stores the offering views received by the server (they are stored in background by default)
+	 */
+	protected void waitForViewsToBeStored() throws Exception {
+		environment.flushViews();
+	}
+	
 	// **********************************************************************************
 	// PROTECTED HELPERS FOR DESCRIPTIONS. INSTANCES ARE NOT SHARED BETWEEN TESTS
 	// **********************************************************************************
@@ -1762,7 +1762,7 @@ public class DescriptionServiceIT extends AbstractIT {
 	}
 	
 	@Test
-	public void testListViewedOfferings() {
+	public void testListViewedOfferings() throws Exception {
 		
 		// Initialization
 		String firstDescriptionName = "default";
@@ -1785,6 +1785,7 @@ public class DescriptionServiceIT extends AbstractIT {
 		}
 		
 		// Check that viewed offerings contains both offerings
+		waitForViewsToBeStored();
 		Response viewedOfferingsResponse = getLastViewedOfferings();
 		assertThat(viewedOfferingsResponse.getStatus()).isEqualTo(200);
 		List<Offering> viewedOfferings = viewedOfferingsResponse.readEntity(Offerings.class).getOfferings();
@@ -45,8 +45,10 @@ import java.nio.file.StandardCopyOption;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.catalina.Context;
 import org.apache.catalina.startup.Tomcat;
 import org.junit.rules.TemporaryFolder;
+import org.springframework.web.context.WebApplicationContext;
 
 import ch.vorburger.exec.ManagedProcessException;
 import ch.vorburger.mariadb4j.DB;
@@ -64,6 +66,7 @@ public class Environment {
 	
 	private TemporaryFolder baseDir;	
 	private Tomcat tomcat;
+	private Context webApp;
 	private DB embeddedDB;
 	private AtomicBoolean started = new AtomicBoolean(false);
 	
@@ -120,7 +123,7 @@ public class Environment {
 	        fs.close();
 	        
 	        // Add modified WAR       
-			tomcat.addWebapp("WMarket", modifiedWarPath);
+			webApp = tomcat.addWebapp("WMarket", modifiedWarPath);
 		} catch (Exception ex) {
 			// This will prevent test from starting...
 			throw new RuntimeException(ex);
@@ -179,6 +182,19 @@ public class Environment {
 		}
 	}
 	
+	/**
+	 * Stores the offering views received by the server, which are usually stored in background. Classes of
+	 * the WAR are loaded by a different class loader, so the buffer is accessed through reflection.
+	 * @throws Exception When the views buffer cannot be accessed
+	 */
+	public void flushViews() throws Exception {
+		Object applicationContext = webApp.getServletContext().getAttribute(
+				WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE);
+		Object buffer = applicationContext.getClass().getMethod("getBean", String.class)
+				.invoke(applicationContext, "viewedOfferingsBuffer");
+		buffer.getClass().getMethod("flush").invoke(buffer);
+	}
+	
 	/**
 	 * Deletes all the entries existing in the database
 	 * @throws ManagedProcessException If an error arises when the database was being cleaned
@@ -1249,7 +1249,7 @@ public class SeleniumIT extends AbstractIT {
 		((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
 	}
 
-	private void viewOfferings(String[] offeringsToView) {
+	private void viewOfferings(String[] offeringsToView) throws Exception {
 		for (String offeringName: offeringsToView) {
 			driver.get(endPoint + "/");
 			driver.findElement(By.linkText(offeringName)).click();
@@ -1260,6 +1260,8 @@ public class SeleniumIT extends AbstractIT {
 				// Not expected
 			}
 		}
+		
+		waitForViewsToBeStored();
 	}
 
 	private void checkDivOfferings(String cssSelector, List<String> expectedOfferings) {
@@ -1305,7 +1307,7 @@ public class SeleniumIT extends AbstractIT {
 	}
 
 	@Test
-	public void when_OfferingsViewed_Expect_CorrectOrderInLastViewedSection() throws InterruptedException {
+	public void when_OfferingsViewed_Expect_CorrectOrderInLastViewedSection() throws Exception {
 		String displayName       = "FIWARE Store";
 		String url               = "http://store.fiware.es";
 		String userName          = "User A";
@@ -1327,7 +1329,7 @@ public class SeleniumIT extends AbstractIT {
 	}
 
 	@Test
-	public void when_OfferingsViewedByOtherUsers_Expect_CorrectOrderViewedByOthers() {
+	public void when_OfferingsViewedByOtherUsers_Expect_CorrectOrderViewedByOthers() throws Exception {
 		String displayName         = "FIWARE Store";
 		String url                 = "http://store.fiware.es";
 		String viewedByOthersCss   = "[app-order=\"viewedByOthers\"] .offering-item .panel-title";
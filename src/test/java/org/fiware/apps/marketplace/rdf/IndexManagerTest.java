@@ -0,0 +1,317 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hp.hpl.jena.query.larq.HitLARQ;
+import com.hp.hpl.jena.query.larq.IndexLARQ;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+public class IndexManagerTest {
+	
+	private static final String NS = "http://example.org/";
+	
+	@Rule public TemporaryFolder indexFolder = new TemporaryFolder();
+	private IndexManager indexManager = new IndexManager();
+	
+	@Before
+	public void setUp() throws IOException {
+		ReflectionTestUtils.setField(indexManager, "lucenePath", indexFolder.getRoot().getAbsolutePath());
+		ReflectionTestUtils.setField(indexManager, "refreshPeriod", 3600);
+		indexManager.init();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		indexManager.destroy();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private Model createModel(String... titles) {
+		Model model = ModelFactory.createDefaultModel();
+		
+		for (int i = 0; i < titles.length; i++) {
+			Resource resource = model.createResource(NS + "offering" + i);
+			resource.addProperty(model.createProperty(NS, "title"), titles[i]);
+		}
+		
+		return model;
+	}
+	
+	private List<String> search(String keyword) throws IOException {
+		
+		List<String> docIds = new ArrayList<>();
+		IndexLARQ index = indexManager.acquire();
+		
+		try {
+			Iterator<HitLARQ> hits = index.search(keyword);
+			while (hits.hasNext()) {
+				HitLARQ hit = hits.next();
+				docIds.add(index.getLuceneReader().document(hit.getLuceneDocId())
+						.get(IndexManager.DOC_ID_FIELD));
+			}
+		} finally {
+			indexManager.release();
+		}
+		
+		return docIds;
+	}
+	
+	
+	private int getMaxDoc() {
+		try {
+			return indexManager.acquire().getLuceneReader().maxDoc();
+		} finally {
+			indexManager.release();
+		}
+	}
+	
+	private int getNumDocs() {
+		try {
+			return indexManager.acquire().getLuceneReader().numDocs();
+		} finally {
+			indexManager.release();
+		}
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// TESTS ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testChangesNotVisibleUntilRefresh() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		assertThat(search("storage")).isEmpty();
+		
+		indexManager.refresh();
+		assertThat(search("storage")).containsExactly("1");
+	}
+	
+	@Test
+	public void testIndexReplacesPreviousDocuments() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.refresh();
+		
+		indexManager.index("1", createModel("Cloud Compute").listStatements());
+		indexManager.refresh();
+		
+		assertThat(search("storage")).isEmpty();
+		assertThat(search("compute")).containsExactly("1");
+	}
+	
+	@Test
+	public void testIndexDoesNotAffectOtherDescriptions() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.index("2", createModel("Cloud Compute", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		assertThat(search("storage")).containsOnly("1", "2");
+		assertThat(search("compute")).containsExactly("2");
+	}
+	
+	@Test
+	public void testDelete() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.index("2", createModel("Block Storage").listStatements());
+		indexManager.refresh();
+		
+		indexManager.delete("1");
+		indexManager.refresh();
+		
+		assertThat(search("storage")).containsExactly("2");
+	}
+	
+	@Test
+	public void testIndexPersistedAfterRestart() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.destroy();
+		
+		indexManager.init();
+		assertThat(search("storage")).containsExactly("1");
+	}
+	
+	@Test
+	public void testIncrementalIndexOnlyModifiesChangedLiterals() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage", "Object Storage").listStatements());
+		indexManager.refresh();
+		assertThat(getMaxDoc()).isEqualTo(3);
+		
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage", "Cloud Compute").listStatements());
+		indexManager.refresh();
+		
+		// Only one document has been added (and another one deleted)
+		assertThat(getMaxDoc()).isEqualTo(4);
+		assertThat(getNumDocs()).isEqualTo(3);
+		assertThat(search("object")).isEmpty();
+		assertThat(search("compute")).containsExactly("1");
+		assertThat(search("block")).containsExactly("1");
+	}
+	
+	@Test
+	public void testIncrementalIndexWithoutChanges() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		indexManager.index("1", createModel("Block Storage", "Cloud Storage").listStatements());
+		indexManager.refresh();
+		
+		assertThat(getMaxDoc()).isEqualTo(2);
+		assertThat(getNumDocs()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testIncrementalIndexDoesNotAffectOtherDescriptions() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.index("2", createModel("Cloud Storage").listStatements());
+		indexManager.refresh();
+		
+		indexManager.index("1", createModel("Cloud Compute").listStatements());
+		indexManager.refresh();
+		
+		assertThat(search("storage")).containsExactly("2");
+		assertThat(search("compute")).containsExactly("1");
+	}
+	
+	@Test
+	public void testFullIndexAfterFailedIncrementalIndex() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		// The writer fails after modifying the first document
+		Object index = ReflectionTestUtils.getField(indexManager, "index");
+		final IndexWriter writer = (IndexWriter) ReflectionTestUtils.getField(index, "writer");
+		Answer<Void> failAfterFirstChange = new Answer<Void>() {
+			
+			private boolean changed = false;
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				
+				if (changed) {
+					throw new IOException();
+				}
+				
+				Object argument = invocation.getArguments()[0];
+				if (argument instanceof Term) {
+					writer.deleteDocuments((Term) argument);
+				} else {
+					writer.addDocument((Document) argument);
+				}
+				
+				changed = true;
+				return null;
+			}
+		};
+		
+		IndexWriter failingWriter = mock(IndexWriter.class);
+		doAnswer(failAfterFirstChange).when(failingWriter).deleteDocuments(any(Term.class));
+		doAnswer(failAfterFirstChange).when(failingWriter).addDocument(any(Document.class));
+		
+		ReflectionTestUtils.setField(index, "writer", failingWriter);
+		try {
+			indexManager.index("1", createModel("Cloud Storage", "Cloud Compute").listStatements());
+			failBecauseExceptionWasNotThrown(Exception.class);
+		} catch (Exception e) {
+			// Expected (the exception depends on the failed operation)
+		}
+		ReflectionTestUtils.setField(index, "writer", writer);
+		
+		// The changes made by the failed index are undone
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		assertThat(search("block")).containsExactly("1");
+		assertThat(search("compute")).isEmpty();
+		assertThat(getNumDocs()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testFullIndexAfterRestart() throws IOException {
+		indexManager.index("1", createModel("Cloud Storage").listStatements());
+		indexManager.destroy();
+		
+		// Fingerprints are lost so the description is fully indexed again
+		indexManager.init();
+		indexManager.index("1", createModel("Cloud Storage", "Cloud Compute").listStatements());
+		indexManager.refresh();
+		
+		assertThat(search("storage")).containsExactly("1");
+		assertThat(search("compute")).containsExactly("1");
+	}
+	
+	@Test
+	public void testNonIncrementalIndexing() throws IOException {
+		ReflectionTestUtils.setField(indexManager, "incrementalIndexing", false);
+		
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		indexManager.index("1", createModel("Cloud Storage", "Block Storage").listStatements());
+		indexManager.refresh();
+		
+		// All the documents are replaced
+		assertThat(getMaxDoc()).isEqualTo(4);
+		assertThat(getNumDocs()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,225 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+public class RdfHelperTest {
+	
+	private static final String OFFERING = "<http://example.org/offering>";
+	private static final String SERVICE = "<http://example.org/service>";
+	
+	private static final String DESCRIPTION = 
+			"@prefix usdl: <http://www.linked-usdl.org/ns/usdl-core#> . " +
+			"@prefix dcterms: <http://purl.org/dc/terms/> . " +
+			"@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> . " +
+			"@prefix price: <http://www.linked-usdl.org/ns/usdl-pricing#> . " +
+			"<http://example.org/offering> a usdl:ServiceOffering ; " +
+			"    dcterms:title \"Offering <1>\" ; " +
+			"    usdl:includes <http://example.org/service> ; " +
+			"    usdl:hasPricePlan [ a price:PricePlan ; dcterms:title \"Free\" ] . " +
+			"<http://example.org/service> a usdl:Service ; " +
+			"    usdl:hasClassification [ rdfs:label \"Category A\" ] , [ rdfs:label \"Category B\" ] . ";
+	
+	private Model model;
+	
+	@Before
+	public void setUp() {
+		model = ModelFactory.createDefaultModel();
+		model.read(new StringReader(DESCRIPTION), null, "TURTLE");
+	}
+	
+	@Test
+	public void testQueryUris() {
+		RdfHelper helper = new RdfHelper(model);
+		String query = "SELECT ?x WHERE { ?x a usdl:ServiceOffering . } ";
+		
+		assertThat(helper.queryUris(query, "x")).containsExactly(OFFERING);
+		// The second time the parsed query is reused
+		assertThat(helper.queryUris(query, "x")).containsExactly(OFFERING);
+	}
+	
+	@Test
+	public void testInvalidQuery() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.query("SELECT ?x WHERE { ?x a }")).isEmpty();
+	}
+	
+	@Test
+	public void testGetObjectUris() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getObjectUris(OFFERING, "usdl:includes")).containsExactly(SERVICE);
+		assertThat(helper.getObjectUri(OFFERING, "usdl:includes")).isEqualTo(SERVICE);
+	}
+	
+	@Test
+	public void testGetObjectUrisPrefixedSubject() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getObjectUris("usdl:unknown", "usdl:includes")).isEmpty();
+		assertThat(helper.getObjectUri(OFFERING, "usdl:unknown")).isNull();
+	}
+	
+	@Test
+	public void testGetObjectUrisIgnoresLiterals() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getObjectUris(OFFERING, "dcterms:title")).isEmpty();
+	}
+	
+	@Test
+	public void testGetLiteral() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getLiteral(OFFERING, "dcterms:title")).isEqualTo("Offering &lt;1&gt;");
+		assertThat(helper.getLiteral(OFFERING, "dcterms:description")).isNull();
+	}
+	
+	@Test
+	public void testGetBlankNodesLabels() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getBlankNodesLabels(SERVICE, "usdl:hasClassification"))
+				.containsOnly("Category A", "Category B");
+	}
+	
+	@Test
+	public void testGetBlankNodesProperties() {
+		RdfHelper helper = new RdfHelper(model);
+		List<Map<String, List<Object>>> pricePlans = helper.getBlankNodesProperties(OFFERING, "usdl:hasPricePlan");
+		
+		assertThat(pricePlans).hasSize(1);
+		assertThat(pricePlans.get(0).get("title")).containsExactly("Free");
+	}
+	
+	@Test
+	public void testReadOnlyHelperStoresResults() {
+		RdfHelper helper = new RdfHelper(model, true);
+		List<String> uris = helper.getObjectUris(OFFERING, "usdl:includes");
+		
+		assertThat(helper.getObjectUris(OFFERING, "usdl:includes")).isSameAs(uris);
+		assertThat(helper.getBlankNodesLabels(SERVICE, "usdl:hasClassification"))
+				.isSameAs(helper.getBlankNodesLabels(SERVICE, "usdl:hasClassification"));
+	}
+	
+	private static String generateDescription(int nOfferings) {
+		StringBuilder description = new StringBuilder(DESCRIPTION);
+		
+		for (int i = 0; i < nOfferings; i++) {
+			description.append(String.format(
+					"<http://example.org/offering%1$d> a usdl:ServiceOffering ; " +
+					"    dcterms:title \"Offering %1$d\" ; " +
+					"    usdl:includes <http://example.org/service%1$d> , <http://example.org/service> ; " +
+					"    usdl:hasPricePlan [ a price:PricePlan ; dcterms:title \"Plan %1$d\" ; " +
+					"        price:hasPriceComponent [ rdfs:label \"Component %1$d\" ] ] . " +
+					"<http://example.org/service%1$d> a usdl:Service ; " +
+					"    dcterms:title \"Service %1$d\" ; " +
+					"    usdl:hasClassification [ rdfs:label \"Category %1$d\" ] . ", i));
+		}
+		
+		return description.toString();
+	}
+	
+	@Test
+	public void testReadOnlyHelperSameResults() {
+		Model model = ModelFactory.createDefaultModel();
+		model.read(new StringReader(generateDescription(200)), null, "TURTLE");
+		
+		RdfHelper helper = new RdfHelper(model);
+		RdfHelper readOnlyHelper = new RdfHelper(model, true);
+		String query = "SELECT ?x WHERE { ?x a usdl:ServiceOffering . } ";
+		
+		List<String> offerings = helper.queryUris(query, "x");
+		assertThat(offerings).hasSize(201);
+		assertThat(readOnlyHelper.queryUris(query, "x")).isEqualTo(offerings);
+		
+		for (String offering : offerings) {
+			assertThat(readOnlyHelper.getLiteral(offering, "dcterms:title"))
+					.isEqualTo(helper.getLiteral(offering, "dcterms:title"));
+			assertThat(readOnlyHelper.getBlankNodesProperties(offering, "usdl:hasPricePlan"))
+					.isEqualTo(helper.getBlankNodesProperties(offering, "usdl:hasPricePlan"));
+			
+			List<String> services = helper.getObjectUris(offering, "usdl:includes");
+			assertThat(new HashSet<>(readOnlyHelper.getObjectUris(offering, "usdl:includes")))
+					.isEqualTo(new HashSet<>(services));
+			
+			for (String service : services) {
+				assertThat(new HashSet<>(readOnlyHelper.getBlankNodesLabels(service, "usdl:hasClassification")))
+						.isEqualTo(new HashSet<>(helper.getBlankNodesLabels(service, "usdl:hasClassification")));
+			}
+		}
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testReadOnlyHelperResultsCannotBeModified() {
+		RdfHelper helper = new RdfHelper(model, true);
+		helper.getObjectUris(OFFERING, "usdl:includes").add(SERVICE);
+	}
+	
+	@Test
+	public void testReadOnlyHelperResultsSize() {
+		RdfHelper helper = new RdfHelper(model, true);
+		assertThat(helper.getResultsSize()).isEqualTo(0);
+		
+		helper.getObjectUris(OFFERING, "usdl:includes");
+		long size = helper.getResultsSize();
+		assertThat(size).isGreaterThan(2L * SERVICE.length());
+		
+		// Stored results are not accounted again
+		helper.getObjectUris(OFFERING, "usdl:includes");
+		assertThat(helper.getResultsSize()).isEqualTo(size);
+		
+		helper.getBlankNodesProperties(OFFERING, "usdl:hasPricePlan");
+		assertThat(helper.getResultsSize()).isGreaterThan(size);
+	}
+	
+	@Test
+	public void testHelperDoesNotStoreResults() {
+		RdfHelper helper = new RdfHelper(model);
+		assertThat(helper.getObjectUris(OFFERING, "usdl:includes")).hasSize(1);
+		
+		model.add(model.getResource("http://example.org/offering"), 
+				model.getProperty("http://www.linked-usdl.org/ns/usdl-core#includes"), 
+				model.getResource("http://example.org/service2"));
+		
+		assertThat(helper.getObjectUris(OFFERING, "usdl:includes")).hasSize(2);
+	}
+}
@@ -0,0 +1,356 @@
+package org.fiware.apps.marketplace.rdf;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+
+import org.fiware.apps.marketplace.exceptions.RdfLimitExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.shared.AddDeniedException;
+import com.hp.hpl.jena.shared.DeleteDeniedException;
+
+public class RdfModelCacheTest {
+	
+	private static final String FILES_PATH = "src/test/resources/__files";
+	private static final String DEFAULT_USDL = "default.rdf";
+	private static final String SECONDARY_USDL = "secondary.rdf";
+	
+	@Rule public WireMockRule wireMock = new WireMockRule(0);
+	private RdfModelCache cache = new RdfModelCache();
+	
+	@Before
+	public void setUp() {
+		ReflectionTestUtils.setField(cache, "maxSize", 1024L * 1024L);
+		ReflectionTestUtils.setField(cache, "connectTimeout", 5000);
+		ReflectionTestUtils.setField(cache, "readTimeout", 5000);
+		ReflectionTestUtils.setField(cache, "fetchTimeout", 10000);
+		ReflectionTestUtils.setField(cache, "maxDocumentSize", 1024L * 1024L);
+		ReflectionTestUtils.setField(cache, "maxTriples", 100000L);
+	}
+	
+	@After
+	public void tearDown() {
+		cache.destroy();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private String getUrl(String path) {
+		return "http://127.0.0.1:" + wireMock.port() + path;
+	}
+	
+	private void stubDocument(String path, String file, String etag) {
+		wireMock.stubFor(get(urlEqualTo(path))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("ETag", etag)
+						.withBodyFile(file)));
+		
+		wireMock.stubFor(get(urlEqualTo(path))
+				.withHeader("If-None-Match", equalTo(etag))
+				.willReturn(aResponse()
+						.withStatus(304)));
+	}
+	
+	private void stubDocumentWithoutValidators(String path, String file) {
+		wireMock.stubFor(get(urlEqualTo(path))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withBodyFile(file)));
+	}
+	
+	private long getFileSize(String file) throws IOException {
+		return Files.size(Paths.get(FILES_PATH, file));
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// TESTS ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testNotModifiedDocumentIsNotParsedAgain() throws IOException {
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		assertThat(model.isEmpty()).isFalse();
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(0);
+		
+		assertThat(cache.getModel(getUrl("/default.rdf"))).isSameAs(model);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getRefetches()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testModifiedDocumentIsParsedAgain() throws IOException {
+		stubDocument("/usdl.rdf", DEFAULT_USDL, "\"v1\"");
+		Model model = cache.getModel(getUrl("/usdl.rdf"));
+		
+		wireMock.resetMappings();
+		stubDocument("/usdl.rdf", SECONDARY_USDL, "\"v2\"");
+		Model updatedModel = cache.getModel(getUrl("/usdl.rdf"));
+		
+		assertThat(updatedModel).isNotSameAs(model);
+		assertThat(updatedModel.isIsomorphicWith(model)).isFalse();
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getRefetches()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testSameContentWithoutValidatorsIsNotParsedAgain() throws IOException {
+		stubDocumentWithoutValidators("/default.rdf", DEFAULT_USDL);
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		assertThat(cache.getModel(getUrl("/default.rdf"))).isSameAs(model);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+	
+	@Test(expected=AddDeniedException.class)
+	public void testModelCannotBeModified() throws IOException {
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		model.add(model.createResource("http://example.org/a"), 
+				model.createProperty("http://example.org/b"), "c");
+	}
+	
+	@Test(expected=AddDeniedException.class)
+	public void testModelCannotBeModifiedInBulk() throws IOException {
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		Model other = ModelFactory.createDefaultModel();
+		other.add(other.createResource("http://example.org/a"), other.createProperty("http://example.org/b"), "c");
+		model.add(other.listStatements().toList());
+	}
+	
+	@Test(expected=DeleteDeniedException.class)
+	public void testModelCannotBeCleared() throws IOException {
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		model.removeAll();
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedDocumentIsEvicted() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxSize", getFileSize(SECONDARY_USDL) + 10);
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		stubDocument("/secondary.rdf", SECONDARY_USDL, "\"v2\"");
+		
+		cache.getModel(getUrl("/default.rdf"));
+		assertThat(cache.getSize()).isEqualTo(getFileSize(DEFAULT_USDL));
+		
+		cache.getModel(getUrl("/secondary.rdf"));
+		assertThat(cache.getSize()).isEqualTo(getFileSize(SECONDARY_USDL));
+		
+		// The default document has been evicted, so it has to be downloaded again
+		cache.getModel(getUrl("/default.rdf"));
+		assertThat(cache.getMisses()).isEqualTo(3);
+	}
+	
+	@Test
+	public void testHelperResultsAreAccountedInSize() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxSize", getFileSize(DEFAULT_USDL) + getFileSize(SECONDARY_USDL));
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		stubDocument("/secondary.rdf", SECONDARY_USDL, "\"v2\"");
+		
+		cache.getModel(getUrl("/default.rdf"));
+		cache.getModel(getUrl("/secondary.rdf"));
+		assertThat(cache.getSize()).isEqualTo(getFileSize(DEFAULT_USDL) + getFileSize(SECONDARY_USDL));
+		
+		// Results stored by the helper make the document grow, so the least recently used one is evicted
+		cache.getHelper(getUrl("/secondary.rdf")).queryUris("SELECT ?x WHERE { ?x a usdl:ServiceOffering . }", "x");
+		cache.getModel(getUrl("/secondary.rdf"));
+		assertThat(cache.getSize()).isGreaterThan(getFileSize(SECONDARY_USDL));
+		assertThat(cache.getSize()).isLessThanOrEqualTo(getFileSize(DEFAULT_USDL) + getFileSize(SECONDARY_USDL));
+		
+		cache.getModel(getUrl("/default.rdf"));
+		assertThat(cache.getMisses()).isEqualTo(3);
+	}
+	
+	@Test
+	public void testDocumentBiggerThanCacheIsNotStored() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxSize", getFileSize(DEFAULT_USDL) - 1);
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		cache.getModel(getUrl("/default.rdf"));
+		cache.getModel(getUrl("/default.rdf"));
+		
+		assertThat(cache.getSize()).isEqualTo(0);
+		assertThat(cache.getMisses()).isEqualTo(2);
+	}
+	
+	@Test
+	public void testDownloadAbortedWhenTimeoutExceeded() throws IOException {
+		// Each read is shorter than the read timeout, but not the whole download
+		ReflectionTestUtils.setField(cache, "fetchTimeout", 1000);
+		wireMock.stubFor(get(urlEqualTo("/slow.rdf"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withFixedDelay(4000)
+						.withBodyFile(DEFAULT_USDL)));
+		
+		long start = System.currentTimeMillis();
+		
+		try {
+			cache.getModel(getUrl("/slow.rdf"));
+			failBecauseExceptionWasNotThrown(SocketTimeoutException.class);
+		} catch (SocketTimeoutException e) {
+			assertThat(e.getMessage()).contains("/slow.rdf");
+			assertThat(System.currentTimeMillis() - start).isLessThan(3000);
+		}
+	}
+	
+	@Test
+	public void testDestroyStopsAborter() {
+		cache.destroy();
+		assertThat(((ExecutorService) ReflectionTestUtils.getField(cache, "aborter")).isShutdown()).isTrue();
+	}
+	
+	@Test(expected=FileNotFoundException.class)
+	public void testNotFound() throws IOException {
+		cache.getModel(getUrl("/non_existing.rdf"));
+	}
+	
+	@Test
+	public void testContentHashDependsOnContent() throws IOException {
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		stubDocumentWithoutValidators("/secondary.rdf", SECONDARY_USDL);
+		
+		RdfDocument document = cache.getDocument(getUrl("/default.rdf"));
+		assertThat(document.getContentHash()).hasSize(64);
+		
+		// Revalidated document keeps the same hash
+		assertThat(cache.getDocument(getUrl("/default.rdf")).getContentHash())
+				.isEqualTo(document.getContentHash());
+		
+		assertThat(cache.getDocument(getUrl("/secondary.rdf")).getContentHash())
+				.isNotEqualTo(document.getContentHash());
+	}
+
+	@Test
+	public void testDocumentBiggerThanMaxSizeIsRejected() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxDocumentSize", getFileSize(DEFAULT_USDL) - 1);
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		try {
+			cache.getModel(getUrl("/default.rdf"));
+			failBecauseExceptionWasNotThrown(RdfLimitExceededException.class);
+		} catch (RdfLimitExceededException ex) {
+			assertThat(ex.getMessage()).contains("bigger than");
+		}
+		
+		assertThat(cache.getRejections()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testDocumentWithTooManyTriplesIsRejected() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxTriples", 5L);
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		try {
+			cache.getModel(getUrl("/default.rdf"));
+			failBecauseExceptionWasNotThrown(RdfLimitExceededException.class);
+		} catch (RdfLimitExceededException ex) {
+			assertThat(ex.getMessage()).contains("triples");
+		}
+		
+		assertThat(cache.getRejections()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(0);
+	}
+	
+	@Test
+	public void testDocumentWithinLimitsIsAccepted() throws IOException {
+		ReflectionTestUtils.setField(cache, "maxDocumentSize", getFileSize(DEFAULT_USDL));
+		stubDocument("/default.rdf", DEFAULT_USDL, "\"v1\"");
+		
+		Model model = cache.getModel(getUrl("/default.rdf"));
+		
+		assertThat(model.isEmpty()).isFalse();
+		assertThat(cache.getRejections()).isEqualTo(0);
+		assertThat(cache.getFetchedBytes()).isEqualTo(getFileSize(DEFAULT_USDL));
+	}
+	
+	@Test
+	public void testTurtleDocument() throws IOException {
+		wireMock.stubFor(get(urlEqualTo("/usdl"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "text/turtle; charset=utf-8")
+						.withBody("<http://example.org/a> <http://example.org/b> \"c\" .")));
+		
+		Model model = cache.getModel(getUrl("/usdl"));
+		assertThat(model.size()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testGetLanguage() {
+		assertThat(RdfModelCache.getLanguage("application/rdf+xml", "http://example.org/usdl.ttl")).isEqualTo("RDF/XML");
+		assertThat(RdfModelCache.getLanguage("text/turtle", "http://example.org/usdl")).isEqualTo("TURTLE");
+		assertThat(RdfModelCache.getLanguage("application/n-triples", "http://example.org/usdl")).isEqualTo("N-TRIPLE");
+		assertThat(RdfModelCache.getLanguage("text/plain", "http://example.org/usdl.ttl?v=1")).isEqualTo("TURTLE");
+		assertThat(RdfModelCache.getLanguage(null, "http://example.org/usdl.nt")).isEqualTo("N-TRIPLE");
+		assertThat(RdfModelCache.getLanguage("application/octet-stream", "http://example.org/usdl.rdf")).isEqualTo("RDF/XML");
+	}
+
+}
@@ -36,12 +36,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.fiware.apps.marketplace.bo.UserBo;
+import org.fiware.apps.marketplace.dao.ReviewDao;
+import org.fiware.apps.marketplace.exceptions.ReviewNotFoundException;
 import org.fiware.apps.marketplace.exceptions.UserNotFoundException;
 import org.fiware.apps.marketplace.model.Review;
 import org.fiware.apps.marketplace.model.ReviewableEntity;
@@ -56,6 +57,7 @@ import org.mockito.MockitoAnnotations;
 public class ReviewAuthTest {
 	
 	@Mock private UserBo userBoMock;
+	@Mock private ReviewDao reviewDaoMock;
 	@InjectMocks private static ReviewAuth authHelper;
 	
 	@Before
@@ -79,16 +81,19 @@ public class ReviewAuthTest {
 	}
 
 	@Test
-	public void canCreateReview() throws UserNotFoundException {
+	public void canCreateReview() throws Exception {
 		Review review = new Review();
+		User user = new User();
 		
 		// Mocking
 		ReviewableEntity entity = mock(ReviewableEntity.class);
-		List<Review> reviews = new ArrayList<>();
-		when(entity.getReviews()).thenReturn(reviews);
+		doThrow(new ReviewNotFoundException("")).when(reviewDaoMock).findUserReview(entity, user);
 		
-		when(userBoMock.getCurrentUser()).thenReturn(new User());
+		when(userBoMock.getCurrentUser()).thenReturn(user);
 		assertThat(authHelper.canCreate(entity, review)).isTrue();
+		
+		// Reviews are not loaded
+		verify(entity, never()).getReviews();
 	}
 
 	@Test
@@ -100,21 +105,17 @@ public class ReviewAuthTest {
 	}
 	
 	@Test
-	public void canNotCreateReviewUserAlreadyReviewed() throws UserNotFoundException {
+	public void canNotCreateReviewUserAlreadyReviewed() throws Exception {
 		
 		Review review = new Review();
 		User user = new User();
 		user.setId(2);
 		
 		// The user has already reviewed the entity
-		List<Review> reviews = new ArrayList<>();
+		ReviewableEntity entity = mock(ReviewableEntity.class);
 		Review existingReview = new Review();
 		existingReview.setUser(user);
-		reviews.add(existingReview);
-		
-		// Set reviews
-		ReviewableEntity entity = mock(ReviewableEntity.class);
-		when(entity.getReviews()).thenReturn(reviews);
+		when(reviewDaoMock.findUserReview(entity, user)).thenReturn(existingReview);
 		
 		when(userBoMock.getCurrentUser()).thenReturn(user);
 		assertThat(authHelper.canCreate(entity, review)).isFalse();
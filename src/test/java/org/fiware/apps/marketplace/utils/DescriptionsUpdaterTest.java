@@ -0,0 +1,208 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fiware.apps.marketplace.bo.DescriptionBo;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Store;
+import org.fiware.apps.marketplace.rdf.RdfDocument;
+import org.fiware.apps.marketplace.rdf.RdfModelCache;
+import org.fiware.apps.marketplace.utils.DescriptionsUpdater.RefreshResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class DescriptionsUpdaterTest {
+	
+	@Mock private DescriptionBo descriptionBoMock;
+	@Mock private RdfModelCache rdfModelCacheMock;
+	@InjectMocks private DescriptionsUpdater updater;
+	
+	private static final String STORE_NAME = "store";
+	private static final String HOST_URL = "http://repo.lab.fiware.org/";
+	
+	private ExecutorService workersPool;
+	private List<Description> descriptions;
+	
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		
+		workersPool = Executors.newFixedThreadPool(4);
+		ReflectionTestUtils.setField(updater, "workersPool", workersPool);
+		ReflectionTestUtils.setField(updater, "maxPerHost", 2);
+		
+		descriptions = new ArrayList<>();
+		when(descriptionBoMock.getAllDescriptions()).thenReturn(descriptions);
+	}
+	
+	@After
+	public void tearDown() {
+		workersPool.shutdownNow();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private Description addDescription(String name, String contentHash) {
+		
+		Store store = new Store();
+		store.setName(STORE_NAME);
+		
+		Description description = new Description();
+		description.setName(name);
+		description.setUrl(HOST_URL + name + ".rdf");
+		description.setStore(store);
+		description.setContentHash(contentHash);
+		
+		descriptions.add(description);
+		
+		return description;
+	}
+	
+	private void mockDocument(Description description, String contentHash) throws IOException {
+		RdfDocument document = mock(RdfDocument.class);
+		when(document.getContentHash()).thenReturn(contentHash);
+		when(rdfModelCacheMock.getDocument(description.getUrl())).thenReturn(document);
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// TESTS ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testUnchangedDescriptionIsNotUpdated() throws Exception {
+		
+		Description description = addDescription("unchanged", "hash");
+		mockDocument(description, "hash");
+		
+		RefreshResult result = updater.refreshAll();
+		
+		assertThat(result.getUnchanged()).isEqualTo(1);
+		assertThat(result.getChanged()).isEqualTo(0);
+		assertThat(result.getFailed()).isEqualTo(0);
+		verify(descriptionBoMock, never()).refreshDescription(anyString(), anyString(), anyString());
+	}
+	
+	@Test
+	public void testChangedDescriptionIsUpdated() throws Exception {
+		
+		Description description = addDescription("changed", "old_hash");
+		mockDocument(description, "new_hash");
+		when(descriptionBoMock.refreshDescription(STORE_NAME, "changed", "new_hash")).thenReturn(true);
+		
+		RefreshResult result = updater.refreshAll();
+		
+		assertThat(result.getChanged()).isEqualTo(1);
+		assertThat(result.getUnchanged()).isEqualTo(0);
+		assertThat(result.getFailed()).isEqualTo(0);
+		assertThat(updater.getLastResult()).isSameAs(result);
+		verify(descriptionBoMock).refreshDescription(STORE_NAME, "changed", "new_hash");
+	}
+	
+	@Test
+	public void testFailuresDoNotStopTheRun() throws Exception {
+		
+		Description notAvailable = addDescription("not_available", "hash");
+		when(rdfModelCacheMock.getDocument(notAvailable.getUrl())).thenThrow(new IOException("timeout"));
+		
+		Description changed = addDescription("changed", null);
+		mockDocument(changed, "new_hash");
+		when(descriptionBoMock.refreshDescription(STORE_NAME, "changed", "new_hash")).thenReturn(true);
+		
+		Description unchanged = addDescription("unchanged", "hash");
+		mockDocument(unchanged, "hash");
+		
+		RefreshResult result = updater.refreshAll();
+		
+		assertThat(result.getFailed()).isEqualTo(1);
+		assertThat(result.getChanged()).isEqualTo(1);
+		assertThat(result.getUnchanged()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testRequestsPerHostAreLimited() throws Exception {
+		
+		final AtomicInteger current = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		
+		for (int i = 0; i < 8; i++) {
+			addDescription("description" + i, "hash");
+		}
+		
+		final RdfDocument document = mock(RdfDocument.class);
+		when(document.getContentHash()).thenReturn("hash");
+		when(rdfModelCacheMock.getDocument(anyString())).thenAnswer(new Answer<RdfDocument>() {
+
+			@Override
+			public RdfDocument answer(InvocationOnMock invocation) throws Throwable {
+				int running = current.incrementAndGet();
+				synchronized (max) {
+					max.set(Math.max(max.get(), running));
+				}
+				
+				Thread.sleep(20);
+				current.decrementAndGet();
+				
+				return document;
+			}
+		});
+		
+		RefreshResult result = updater.refreshAll();
+		
+		assertThat(result.getUnchanged()).isEqualTo(8);
+		assertThat(max.get()).isLessThanOrEqualTo(2);
+	}
+
+}
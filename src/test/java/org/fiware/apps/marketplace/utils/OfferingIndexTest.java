@@ -0,0 +1,371 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.fiware.apps.marketplace.model.Category;
+import org.fiware.apps.marketplace.model.Description;
+import org.fiware.apps.marketplace.model.Facet;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingSearchHit;
+import org.fiware.apps.marketplace.model.OfferingSearchResults;
+import org.fiware.apps.marketplace.model.PriceComponent;
+import org.fiware.apps.marketplace.model.PricePlan;
+import org.fiware.apps.marketplace.model.Service;
+import org.fiware.apps.marketplace.model.Store;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class OfferingIndexTest {
+	
+	@Rule public TemporaryFolder indexFolder = new TemporaryFolder();
+	private OfferingIndex offeringIndex = new OfferingIndex();
+	
+	private int descriptionId = 0;
+	
+	@Before
+	public void setUp() throws IOException {
+		ReflectionTestUtils.setField(offeringIndex, "indexPath", indexFolder.getRoot().getAbsolutePath());
+		ReflectionTestUtils.setField(offeringIndex, "refreshPeriod", 3600);
+		offeringIndex.init();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		offeringIndex.destroy();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private Description createDescription(String storeName, Offering... offerings) {
+		
+		Store store = new Store();
+		store.setName(storeName);
+		
+		Description description = new Description();
+		description.setId(++descriptionId);
+		description.setName("description" + descriptionId);
+		description.setDisplayName("Description " + descriptionId);
+		description.setStore(store);
+		description.setOfferings(new ArrayList<Offering>());
+		
+		for (Offering offering: offerings) {
+			offering.setDescribedIn(description);
+			description.addOffering(offering);
+		}
+		
+		return description;
+	}
+	
+	private Offering createOffering(String displayName, String categoryName, Float... prices) {
+		
+		Offering offering = new Offering();
+		offering.setName(displayName.toLowerCase().replace(' ', '-'));
+		offering.setDisplayName(displayName);
+		offering.setDescription("Offering " + displayName);
+		
+		Category category = new Category();
+		category.setName(categoryName);
+		category.setDisplayName(categoryName);
+		Set<Category> categories = new HashSet<>();
+		categories.add(category);
+		offering.setCategories(categories);
+		
+		offering.setServices(new HashSet<Service>());
+		
+		Set<PricePlan> pricePlans = new HashSet<>();
+		for (Float price: prices) {
+			PriceComponent priceComponent = new PriceComponent();
+			priceComponent.setValue(price);
+			Set<PriceComponent> priceComponents = new HashSet<>();
+			priceComponents.add(priceComponent);
+			
+			PricePlan pricePlan = new PricePlan();
+			pricePlan.setTitle("Plan " + price);
+			pricePlan.setPriceComponents(priceComponents);
+			pricePlans.add(pricePlan);
+		}
+		offering.setPricePlans(pricePlans);
+		
+		return offering;
+	}
+	
+	private List<String> getNames(OfferingSearchResults results) {
+		List<String> names = new ArrayList<>();
+		for (OfferingSearchHit hit: results.getOfferings()) {
+			names.add(hit.getName());
+		}
+		return names;
+	}
+	
+	private int getCount(List<Facet> facets, String value) {
+		for (Facet facet: facets) {
+			if (facet.getValue().equals(value)) {
+				return facet.getCount();
+			}
+		}
+		return 0;
+	}
+	
+	private void indexSampleOfferings() throws IOException {
+		offeringIndex.index(createDescription("store1", 
+				createOffering("Cloud Storage", "storage", 10f), 
+				createOffering("Cloud Compute", "compute", 30f, 20f)));
+		offeringIndex.index(createDescription("store2", 
+				createOffering("Block Storage", "storage", 5f),
+				createOffering("Cloud Analytics", "analytics")));
+		offeringIndex.refresh();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// TESTS ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testIndexCreated() {
+		assertThat(offeringIndex.isCreated()).isTrue();
+	}
+	
+	@Test
+	public void testChangesNotVisibleUntilRefresh() throws IOException {
+		offeringIndex.index(createDescription("store1", createOffering("Cloud Storage", "storage", 10f)));
+		assertThat(offeringIndex.search("storage", null, null, null, null, 0, 10).getTotal()).isEqualTo(0);
+		
+		offeringIndex.refresh();
+		assertThat(offeringIndex.search("storage", null, null, null, null, 0, 10).getTotal()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testSearchReturnsStoredFields() throws IOException {
+		indexSampleOfferings();
+		
+		OfferingSearchResults results = offeringIndex.search("compute", null, null, null, null, 0, 10);
+		
+		assertThat(results.getTotal()).isEqualTo(1);
+		OfferingSearchHit hit = results.getOfferings().get(0);
+		assertThat(hit.getName()).isEqualTo("cloud-compute");
+		assertThat(hit.getDisplayName()).isEqualTo("Cloud Compute");
+		assertThat(hit.getDescription()).isEqualTo("Offering Cloud Compute");
+		assertThat(hit.getStore()).isEqualTo("store1");
+		assertThat(hit.getDescribedIn()).isEqualTo("description1");
+		// Price of the cheapest price plan
+		assertThat(hit.getPrice()).isEqualTo(20f);
+		assertThat(hit.getScore()).isGreaterThan(0f);
+	}
+	
+	@Test
+	public void testFacets() throws IOException {
+		indexSampleOfferings();
+		
+		OfferingSearchResults results = offeringIndex.search("cloud", null, null, null, null, 0, 10);
+		
+		assertThat(results.getTotal()).isEqualTo(3);
+		assertThat(getCount(results.getCategories(), "storage")).isEqualTo(1);
+		assertThat(getCount(results.getCategories(), "compute")).isEqualTo(1);
+		assertThat(getCount(results.getCategories(), "analytics")).isEqualTo(1);
+		assertThat(getCount(results.getStores(), "store1")).isEqualTo(2);
+		assertThat(getCount(results.getStores(), "store2")).isEqualTo(1);
+		
+		// Most common values first
+		assertThat(results.getStores().get(0).getValue()).isEqualTo("store1");
+	}
+	
+	@Test
+	public void testFilterByCategoryAndStore() throws IOException {
+		indexSampleOfferings();
+		
+		assertThat(getNames(offeringIndex.search(null, "storage", null, null, null, 0, 10)))
+				.containsOnly("cloud-storage", "block-storage");
+		assertThat(getNames(offeringIndex.search(null, "storage", "store2", null, null, 0, 10)))
+				.containsExactly("block-storage");
+	}
+	
+	@Test
+	public void testFilterByPrice() throws IOException {
+		indexSampleOfferings();
+		
+		assertThat(getNames(offeringIndex.search(null, null, null, 6f, 20f, 0, 10)))
+				.containsOnly("cloud-storage", "cloud-compute");
+		assertThat(getNames(offeringIndex.search(null, null, null, null, 5f, 0, 10)))
+				.containsExactly("block-storage");
+		assertThat(getNames(offeringIndex.search(null, null, null, 15f, null, 0, 10)))
+				.containsExactly("cloud-compute");
+	}
+	
+	@Test
+	public void testPagination() throws IOException {
+		indexSampleOfferings();
+		
+		OfferingSearchResults firstPage = offeringIndex.search(null, null, null, null, null, 0, 3);
+		OfferingSearchResults secondPage = offeringIndex.search(null, null, null, null, null, 3, 3);
+		
+		assertThat(firstPage.getTotal()).isEqualTo(4);
+		assertThat(firstPage.getOfferings()).hasSize(3);
+		assertThat(secondPage.getTotal()).isEqualTo(4);
+		assertThat(secondPage.getOfferings()).hasSize(1);
+		assertThat(getNames(secondPage)).doesNotContainAnyElementsOf(getNames(firstPage));
+	}
+	
+	@Test
+	public void testPaginationWithHugeMax() throws IOException {
+		indexSampleOfferings();
+		
+		OfferingSearchResults results = offeringIndex.search(null, null, null, null, null, 1, Integer.MAX_VALUE);
+		
+		assertThat(results.getTotal()).isEqualTo(4);
+		assertThat(results.getOfferings()).hasSize(3);
+	}
+	
+	@Test
+	public void testIndexReplacesDescriptionOfferings() throws IOException {
+		Description description = createDescription("store1", createOffering("Cloud Storage", "storage", 10f));
+		offeringIndex.index(description);
+		offeringIndex.refresh();
+		
+		description.getOfferings().clear();
+		description.addOffering(createOffering("Cloud Compute", "compute", 10f));
+		offeringIndex.index(description);
+		offeringIndex.refresh();
+		
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsExactly("cloud-compute");
+	}
+	
+	@Test
+	public void testDelete() throws IOException {
+		indexSampleOfferings();
+		
+		Description description = new Description();
+		description.setId(1);
+		offeringIndex.delete(description);
+		offeringIndex.refresh();
+		
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsOnly("block-storage", "cloud-analytics");
+	}
+	
+	@Test
+	public void testDeleteStore() throws IOException {
+		indexSampleOfferings();
+		
+		offeringIndex.deleteStore("store2");
+		offeringIndex.refresh();
+		
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsOnly("cloud-storage", "cloud-compute");
+	}
+	
+	@Test
+	public void testIndexedWhenTransactionCommitted() throws IOException {
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			offeringIndex.index(createDescription("store1", createOffering("Cloud Storage", "storage", 10f)));
+			offeringIndex.refresh();
+			assertThat(offeringIndex.search(null, null, null, null, null, 0, 10).getTotal()).isEqualTo(0);
+			
+			for (TransactionSynchronization synchronization: 
+					TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		offeringIndex.refresh();
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsExactly("cloud-storage");
+	}
+	
+	@Test
+	public void testRefreshedWhenTransactionCommitted() throws IOException {
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			offeringIndex.index(createDescription("store1", createOffering("Cloud Storage", "storage", 10f)));
+			offeringIndex.refresh();
+			
+			for (TransactionSynchronization synchronization: 
+					TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		// Not refreshed again: the refresh requested within the transaction must include the changes
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsExactly("cloud-storage");
+	}
+	
+	@Test
+	public void testNotIndexedWhenTransactionRolledBack() throws IOException {
+		indexSampleOfferings();
+		TransactionSynchronizationManager.initSynchronization();
+		
+		try {
+			offeringIndex.deleteStore("store2");
+			offeringIndex.index(createDescription("store3", createOffering("Object Storage", "storage", 1f)));
+			
+			for (TransactionSynchronization synchronization: 
+					TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		
+		offeringIndex.refresh();
+		assertThat(getNames(offeringIndex.search(null, null, null, null, null, 0, 10)))
+				.containsOnly("cloud-storage", "cloud-compute", "block-storage", "cloud-analytics");
+	}
+
+}
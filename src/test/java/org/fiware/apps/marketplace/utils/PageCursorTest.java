@@ -0,0 +1,291 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.fiware.apps.marketplace.model.Offering;
+import org.hibernate.Query;
+import org.junit.Test;
+
+public class PageCursorTest {
+	
+	private Offering generateOffering(int id, String name, String description) {
+		Offering offering = new Offering();
+		offering.setId(id);
+		offering.setName(name);
+		offering.setDescription(description);
+		return offering;
+	}
+	
+	private void testRoundTrip(Object value) {
+		
+		PageCursor cursor = PageCursor.after(new ValueHolder(7, value), "value", true);
+		PageCursor parsed = PageCursor.parse(cursor.toString());
+		
+		assertThat(parsed.getOrderBy()).isEqualTo("value");
+		assertThat(parsed.isDesc()).isTrue();
+		assertThat(parsed.getId()).isEqualTo(7);
+		assertThat(parsed.getValue()).isEqualTo(value);
+	}
+	
+	@Test
+	public void testRoundTripString() {
+		testRoundTrip("an offering with\nnew lines, accents (é) & symbols?");
+	}
+	
+	@Test
+	public void testRoundTripNull() {
+		testRoundTrip(null);
+	}
+	
+	@Test
+	public void testRoundTripInteger() {
+		testRoundTrip(-3);
+	}
+	
+	@Test
+	public void testRoundTripLong() {
+		testRoundTrip(1234567890123L);
+	}
+	
+	@Test
+	public void testRoundTripDouble() {
+		testRoundTrip(4.25);
+	}
+	
+	@Test
+	public void testRoundTripFloat() {
+		testRoundTrip(1.5f);
+	}
+	
+	@Test
+	public void testRoundTripBoolean() {
+		testRoundTrip(true);
+	}
+	
+	@Test
+	public void testRoundTripDate() {
+		testRoundTrip(new Date(1445000000000L));
+	}
+	
+	@Test
+	public void testCursorIsUrlSafe() {
+		String cursor = PageCursor.after(generateOffering(1, "???>>>", null), "name", false).toString();
+		assertThat(cursor).matches("[A-Za-z0-9_-]+");
+	}
+	
+	@Test
+	public void testAfterUnknownField() {
+		assertThat(PageCursor.after(generateOffering(1, "name", null), "unknown", false)).isNull();
+	}
+	
+	@Test
+	public void testAfterUnsupportedType() {
+		assertThat(PageCursor.after(new ValueHolder(1, new ArrayList<String>()), "value", false)).isNull();
+	}
+	
+	private void testParseInvalid(String cursor) {
+		try {
+			PageCursor.parse(cursor);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException ex) {
+			assertThat(ex.getMessage()).isEqualTo("cursor is not valid");
+		}
+	}
+	
+	@Test
+	public void testParseNotBase64() {
+		testParseInvalid("***");
+	}
+	
+	@Test
+	public void testParseMissingFields() {
+		testParseInvalid(encode("name\nASC\n1"));
+	}
+	
+	@Test
+	public void testParseInvalidDirection() {
+		testParseInvalid(encode("name\nUP\n1\nSname"));
+	}
+	
+	@Test
+	public void testParseInvalidId() {
+		testParseInvalid(encode("name\nASC\none\nSname"));
+	}
+	
+	@Test
+	public void testParseInvalidType() {
+		testParseInvalid(encode("name\nASC\n1\nXname"));
+	}
+	
+	@Test
+	public void testParseInvalidValue() {
+		testParseInvalid(encode("averageScore\nASC\n1\nDfour"));
+	}
+	
+	@Test
+	public void testParseNull() {
+		testParseInvalid(null);
+	}
+	
+	@Test
+	public void testParseDifferentOrder() {
+		
+		String cursor = PageCursor.after(generateOffering(1, "name", null), "name", false).toString();
+		
+		try {
+			PageCursor.parse(cursor, "name", true);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException ex) {
+			assertThat(ex.getMessage()).isEqualTo("cursor does not match the requested order");
+		}
+		
+		assertThat(PageCursor.parse(cursor, "name", false).getValue()).isEqualTo("name");
+	}
+	
+	@Test
+	public void testNextPageNotFull() {
+		List<Offering> page = Arrays.asList(generateOffering(1, "a", null), generateOffering(2, "b", null));
+		assertThat(PageCursor.next(page, 3, "name", false)).isNull();
+	}
+	
+	@Test
+	public void testNextEmptyPage() {
+		assertThat(PageCursor.next(new ArrayList<Offering>(), 0, "name", false)).isNull();
+	}
+	
+	@Test
+	public void testNextPageFull() {
+		
+		List<Offering> page = Arrays.asList(generateOffering(1, "a", null), generateOffering(2, "b", null));
+		PageCursor cursor = PageCursor.parse(PageCursor.next(page, 2, "name", true));
+		
+		assertThat(cursor.getId()).isEqualTo(2);
+		assertThat(cursor.getValue()).isEqualTo("b");
+		assertThat(cursor.matches("name", true)).isTrue();
+	}
+	
+	@Test
+	public void testOrderClause() {
+		assertThat(PageCursor.getOrderClause("id", true)).isEqualTo("ORDER BY id DESC");
+		assertThat(PageCursor.getOrderClause("name", false)).isEqualTo("ORDER BY name ASC, id ASC");
+	}
+	
+	@Test
+	public void testConditionId() {
+		
+		Query query = mock(Query.class);
+		PageCursor cursor = PageCursor.after(generateOffering(5, "a", null), "id", false);
+		cursor.setParameters(query);
+		
+		assertThat(cursor.getCondition()).isEqualTo("id > :cursorId");
+		verify(query).setParameter("cursorId", 5);
+		verify(query, never()).setParameter("cursorValue", 5);
+	}
+	
+	@Test
+	public void testConditionValueAsc() {
+		
+		Query query = mock(Query.class);
+		PageCursor cursor = PageCursor.after(generateOffering(5, "a", null), "name", false);
+		cursor.setParameters(query);
+		
+		assertThat(cursor.getCondition()).isEqualTo(
+				"(name > :cursorValue OR (name = :cursorValue AND id > :cursorId))");
+		verify(query).setParameter("cursorId", 5);
+		verify(query).setParameter("cursorValue", "a");
+	}
+	
+	@Test
+	public void testConditionValueDesc() {
+		PageCursor cursor = PageCursor.after(generateOffering(5, "a", null), "name", true);
+		assertThat(cursor.getCondition()).isEqualTo(
+				"(name < :cursorValue OR (name = :cursorValue AND id < :cursorId) OR name IS NULL)");
+	}
+	
+	@Test
+	public void testConditionNullAsc() {
+		
+		Query query = mock(Query.class);
+		PageCursor cursor = PageCursor.after(generateOffering(5, "a", null), "description", false);
+		cursor.setParameters(query);
+		
+		assertThat(cursor.getCondition()).isEqualTo(
+				"((description IS NULL AND id > :cursorId) OR description IS NOT NULL)");
+		verify(query).setParameter("cursorId", 5);
+		verify(query, never()).setParameter("cursorValue", null);
+	}
+	
+	@Test
+	public void testConditionNullDesc() {
+		PageCursor cursor = PageCursor.after(generateOffering(5, "a", null), "description", true);
+		assertThat(cursor.getCondition()).isEqualTo("((description IS NULL AND id < :cursorId))");
+	}
+	
+	private String encode(String content) {
+		return DatatypeConverter.printBase64Binary(content.getBytes());
+	}
+	
+	public static class ValueHolder {
+		
+		private final Integer id;
+		private final Object value;
+		
+		public ValueHolder(Integer id, Object value) {
+			this.id = id;
+			this.value = value;
+		}
+		
+		public Integer getId() {
+			return id;
+		}
+		
+		public Object getValue() {
+			return value;
+		}
+	}
+
+}
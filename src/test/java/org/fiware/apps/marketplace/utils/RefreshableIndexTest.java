@@ -0,0 +1,231 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RefreshableIndexTest {
+	
+	private static final String ID_FIELD = "id";
+	
+	@Rule public TemporaryFolder indexFolder = new TemporaryFolder();
+	private RefreshableIndex<IndexSearcher> index;
+	private ExecutorService executor = Executors.newCachedThreadPool();
+	
+	@Before
+	public void setUp() throws IOException {
+		index = new RefreshableIndex<IndexSearcher>(indexFolder.getRoot().getAbsolutePath(), 
+				new StandardAnalyzer(), 3600) {
+			
+			@Override
+			protected IndexSearcher createSearcher(IndexReader reader) {
+				return new IndexSearcher(reader);
+			}
+		};
+		
+		index.open();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		executor.shutdownNow();
+		index.close();
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	////////////////////////////////////// AUXILIAR ///////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	private void add(final String id) throws IOException {
+		index.update(new RefreshableIndex.Update() {
+			
+			@Override
+			public boolean apply(IndexWriter writer) throws IOException {
+				Document doc = new Document();
+				doc.add(new Field(ID_FIELD, id, Field.Store.YES, Field.Index.UN_TOKENIZED));
+				writer.addDocument(doc);
+				return true;
+			}
+		});
+	}
+	
+	private int count(String id) throws IOException {
+		try {
+			return index.acquire().search(new TermQuery(new Term(ID_FIELD, id))).length();
+		} finally {
+			index.release();
+		}
+	}
+	
+	
+	///////////////////////////////////////////////////////////////////////////////////////
+	//////////////////////////////////////// TESTS ////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testChangesNotVisibleUntilRefresh() throws IOException {
+		add("1");
+		assertThat(count("1")).isEqualTo(0);
+		
+		index.refresh();
+		assertThat(count("1")).isEqualTo(1);
+	}
+	
+	@Test
+	public void testUpdateWithoutChanges() throws IOException {
+		IndexSearcher searcher = index.acquire();
+		index.release();
+		
+		index.update(new RefreshableIndex.Update() {
+			
+			@Override
+			public boolean apply(IndexWriter writer) throws IOException {
+				return false;
+			}
+		});
+		index.refresh();
+		
+		// The searcher is not replaced
+		assertThat(index.acquire()).isSameAs(searcher);
+		index.release();
+	}
+	
+	@Test
+	public void testChangesVisibleAfterFailedRefresh() throws IOException {
+		add("1");
+		
+		IndexReader reader = (IndexReader) ReflectionTestUtils.getField(index, "reader");
+		IndexReader brokenReader = mock(IndexReader.class);
+		doThrow(new IOException()).when(brokenReader).reopen();
+		ReflectionTestUtils.setField(index, "reader", brokenReader);
+		
+		try {
+			index.refresh();
+			failBecauseExceptionWasNotThrown(IOException.class);
+		} catch (IOException e) {
+			// Expected
+		}
+		
+		// Changes are made visible by the next refresh
+		ReflectionTestUtils.setField(index, "reader", reader);
+		index.refresh();
+		assertThat(count("1")).isEqualTo(1);
+	}
+	
+	@Test
+	public void testChangesVisibleAfterFailedUpdate() throws IOException {
+		
+		try {
+			index.update(new RefreshableIndex.Update() {
+				
+				@Override
+				public boolean apply(IndexWriter writer) throws IOException {
+					Document doc = new Document();
+					doc.add(new Field(ID_FIELD, "1", Field.Store.YES, Field.Index.UN_TOKENIZED));
+					writer.addDocument(doc);
+					throw new IOException();
+				}
+			});
+			failBecauseExceptionWasNotThrown(IOException.class);
+		} catch (IOException e) {
+			// Expected
+		}
+		
+		// The writer contains part of the changes
+		index.refresh();
+		assertThat(count("1")).isEqualTo(1);
+	}
+	
+	@Test
+	public void testUpdateWhileRefreshWaitsForSearches() throws Exception {
+		add("1");
+		
+		// The refresh cannot replace the reader until the search finishes
+		index.acquire();
+		Future<?> refresh = executor.submit(new Callable<Void>() {
+			
+			@Override
+			public Void call() throws Exception {
+				index.refresh();
+				return null;
+			}
+		});
+		
+		// The writer is not blocked by the refresh
+		Future<?> update = executor.submit(new Callable<Void>() {
+			
+			@Override
+			public Void call() throws Exception {
+				add("2");
+				return null;
+			}
+		});
+		
+		update.get(10, TimeUnit.SECONDS);
+		index.release();
+		refresh.get(10, TimeUnit.SECONDS);
+		
+		assertThat(count("1")).isEqualTo(1);
+		
+		index.refresh();
+		assertThat(count("2")).isEqualTo(1);
+	}
+
+}
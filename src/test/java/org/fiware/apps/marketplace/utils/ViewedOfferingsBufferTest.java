@@ -0,0 +1,223 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.fiware.apps.marketplace.bo.ViewedOfferingBo;
+import org.fiware.apps.marketplace.model.Offering;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.fiware.apps.marketplace.model.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ViewedOfferingsBufferTest {
+	
+	@Mock private ViewedOfferingBo viewedOfferingBoMock;
+	@Mock private ViewedOfferingsFeed viewedOfferingsFeedMock;
+	@InjectMocks private ViewedOfferingsBuffer buffer;
+	
+	private static final int CAPACITY = 3;
+	
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		ReflectionTestUtils.setField(buffer, "views", new ArrayBlockingQueue<OfferingView>(CAPACITY));
+	}
+	
+	private User generateUser(String userName) {
+		User user = new User();
+		user.setUserName(userName);
+		return user;
+	}
+	
+	private Offering generateOffering(int id) {
+		Offering offering = new Offering();
+		offering.setId(id);
+		return offering;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<OfferingView> captureRegisteredViews() {
+		ArgumentCaptor<Collection<OfferingView>> captor = 
+				(ArgumentCaptor<Collection<OfferingView>>) (Object) ArgumentCaptor.forClass(Collection.class);
+		verify(viewedOfferingBoMock).registerViews(captor.capture());
+		return new ArrayList<>(captor.getValue());
+	}
+	
+	@Test
+	public void testFlushEmpty() {
+		assertThat(buffer.flush()).isEqualTo(0);
+		verify(viewedOfferingBoMock, never()).registerViews(anyCollectionOf(OfferingView.class));
+	}
+	
+	@Test
+	public void testRecordAndFlush() {
+		
+		User user = generateUser("user");
+		
+		assertThat(buffer.record(user, generateOffering(1))).isTrue();
+		assertThat(buffer.record(user, generateOffering(2))).isTrue();
+		assertThat(buffer.getPending()).isEqualTo(2);
+		
+		// Views are not stored until the buffer is flushed
+		verify(viewedOfferingBoMock, never()).registerViews(anyCollectionOf(OfferingView.class));
+		
+		assertThat(buffer.flush()).isEqualTo(2);
+		
+		List<OfferingView> views = captureRegisteredViews();
+		assertThat(views).hasSize(2);
+		assertThat(views.get(0).getUserName()).isEqualTo("user");
+		assertThat(views.get(0).getOfferingId()).isEqualTo(1);
+		assertThat(views.get(1).getOfferingId()).isEqualTo(2);
+		
+		assertThat(buffer.getPending()).isEqualTo(0);
+		assertThat(buffer.getStored()).isEqualTo(2);
+		
+		// Stored views are added to the feed
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<OfferingView>> captor = 
+				(ArgumentCaptor<Collection<OfferingView>>) (Object) ArgumentCaptor.forClass(Collection.class);
+		verify(viewedOfferingsFeedMock).add(captor.capture());
+		assertThat(new ArrayList<>(captor.getValue())).isEqualTo(views);
+	}
+	
+	@Test
+	public void testViewsCoalesced() {
+		
+		User user = generateUser("user");
+		User otherUser = generateUser("other");
+		Offering offering = generateOffering(1);
+		
+		buffer.record(user, offering);
+		buffer.record(otherUser, offering);
+		buffer.record(user, offering);
+		
+		assertThat(buffer.flush()).isEqualTo(3);
+		
+		// Only the last view of the offering by each user is stored
+		List<OfferingView> views = captureRegisteredViews();
+		assertThat(views).hasSize(2);
+		assertThat(views.get(0).getUserName()).isEqualTo("user");
+		assertThat(views.get(1).getUserName()).isEqualTo("other");
+		assertThat(buffer.getStored()).isEqualTo(3);
+	}
+	
+	@Test
+	public void testBufferFull() {
+		
+		User user = generateUser("user");
+		
+		for (int i = 0; i < CAPACITY; i++) {
+			assertThat(buffer.record(user, generateOffering(i))).isTrue();
+		}
+		
+		// The view is dropped
+		assertThat(buffer.record(user, generateOffering(CAPACITY))).isFalse();
+		assertThat(buffer.getRecorded()).isEqualTo(CAPACITY + 1);
+		assertThat(buffer.getDropped()).isEqualTo(1);
+		assertThat(buffer.getPending()).isEqualTo(CAPACITY);
+		
+		// New views are accepted once the buffer has been flushed
+		buffer.flush();
+		assertThat(buffer.record(user, generateOffering(CAPACITY))).isTrue();
+	}
+	
+	@Test
+	public void testFlushFailed() {
+		
+		doThrow(new RuntimeException("database not available")).when(viewedOfferingBoMock)
+				.registerViews(anyCollectionOf(OfferingView.class));
+		
+		buffer.record(generateUser("user"), generateOffering(1));
+		
+		assertThat(buffer.flush()).isEqualTo(1);
+		assertThat(buffer.getFailed()).isEqualTo(1);
+		assertThat(buffer.getStored()).isEqualTo(0);
+		assertThat(buffer.getPending()).isEqualTo(0);
+		verify(viewedOfferingsFeedMock, never()).add(anyCollectionOf(OfferingView.class));
+	}
+	
+	@Test
+	public void testFlushFailedStoresViewsOneByOne() {
+		
+		final Offering wrongOffering = generateOffering(2);
+		
+		// A batch that contains the wrong offering cannot be stored
+		doAnswer(new Answer<Void>() {
+			
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				@SuppressWarnings("unchecked")
+				Collection<OfferingView> views = (Collection<OfferingView>) invocation.getArguments()[0];
+				
+				for (OfferingView view: views) {
+					if (view.getOfferingId() == wrongOffering.getId()) {
+						throw new RuntimeException("offering does not exist");
+					}
+				}
+				
+				return null;
+			}
+		}).when(viewedOfferingBoMock).registerViews(anyCollectionOf(OfferingView.class));
+		
+		User user = generateUser("user");
+		buffer.record(user, generateOffering(1));
+		buffer.record(user, wrongOffering);
+		buffer.record(user, generateOffering(1));
+		
+		assertThat(buffer.flush()).isEqualTo(3);
+		
+		// The batch and each one of the views
+		verify(viewedOfferingBoMock, times(3)).registerViews(anyCollectionOf(OfferingView.class));
+		assertThat(buffer.getStored()).isEqualTo(2);
+		assertThat(buffer.getFailed()).isEqualTo(1);
+		verify(viewedOfferingsFeedMock, times(1)).add(anyCollectionOf(OfferingView.class));
+	}
+
+}
@@ -0,0 +1,174 @@
+package org.fiware.apps.marketplace.utils;
+
+
+/*
+ * #%L
+ * FiwareMarketplace
+ * %%
+ * Copyright (C) 2015 CoNWeT Lab, Universidad Politécnica de Madrid
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. Neither the name of copyright holders nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software 
+ *    without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.fiware.apps.marketplace.dao.ViewedOfferingDao;
+import org.fiware.apps.marketplace.model.OfferingView;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ViewedOfferingsFeedTest {
+	
+	@Mock private ViewedOfferingDao viewedOfferingDaoMock;
+	@InjectMocks private ViewedOfferingsFeed feed;
+	
+	private static final int CAPACITY = 5;
+	
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+		ReflectionTestUtils.setField(feed, "capacity", CAPACITY);
+		doReturn(new ArrayList<OfferingView>()).when(viewedOfferingDaoMock).getLastViews(anyInt());
+	}
+	
+	private OfferingView view(String userName, int offeringId, long time) {
+		return new OfferingView(userName, offeringId, new Date(time));
+	}
+	
+	@Test
+	public void testEmpty() {
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).isEmpty();
+	}
+	
+	@Test
+	public void testSortedByLastView() {
+		feed.add(Arrays.asList(view("user1", 1, 100), view("user2", 2, 200), view("user3", 3, 300)));
+		feed.add(Arrays.asList(view("user1", 1, 400)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).containsExactly(1, 3, 2);
+	}
+	
+	@Test
+	public void testMax() {
+		feed.add(Arrays.asList(view("user1", 1, 100), view("user2", 2, 200), view("user3", 3, 300)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 2)).containsExactly(3, 2);
+	}
+	
+	@Test
+	public void testViewsAddedInAnyOrder() {
+		feed.add(Arrays.asList(view("user1", 1, 300), view("user2", 2, 200)));
+		feed.add(Arrays.asList(view("user2", 1, 100), view("user1", 2, 50)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).containsExactly(1, 2);
+	}
+	
+	@Test
+	public void testOwnViewsIgnored() {
+		feed.add(Arrays.asList(view("user1", 1, 100), view("user2", 2, 200), view("user1", 3, 300)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user1", 10)).containsExactly(2);
+	}
+	
+	@Test
+	public void testOwnLastViewIgnored() {
+		// Offering 1 was viewed by other user before the other offerings
+		feed.add(Arrays.asList(view("user2", 1, 100), view("user3", 2, 200), view("user3", 3, 300)));
+		feed.add(Arrays.asList(view("user1", 1, 400)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user1", 10)).containsExactly(3, 2, 1);
+		assertThat(feed.getOfferingsViewedByOtherUsers("user2", 10)).containsExactly(1, 3, 2);
+	}
+	
+	@Test
+	public void testOwnLastViewIgnoredBetweenOtherViews() {
+		feed.add(Arrays.asList(view("user2", 1, 250), view("user3", 2, 200), view("user3", 3, 300)));
+		feed.add(Arrays.asList(view("user1", 1, 400)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user1", 10)).containsExactly(3, 1, 2);
+		assertThat(feed.getOfferingsViewedByOtherUsers("user1", 2)).containsExactly(3, 1);
+	}
+	
+	@Test
+	public void testRepeatedViewsOfTheSameUser() {
+		feed.add(Arrays.asList(view("user2", 1, 100), view("user1", 1, 200)));
+		feed.add(Arrays.asList(view("user1", 1, 300), view("user2", 1, 150)));
+		
+		// The last two different users are kept
+		assertThat(feed.getOfferingsViewedByOtherUsers("user1", 10)).containsExactly(1);
+		assertThat(feed.getOfferingsViewedByOtherUsers("user2", 10)).containsExactly(1);
+		assertThat(feed.getOfferingsViewedByOtherUsers("user3", 10)).containsExactly(1);
+	}
+	
+	@Test
+	public void testCapacity() {
+		List<OfferingView> views = new ArrayList<>();
+		for (int i = 0; i < CAPACITY + 2; i++) {
+			views.add(view("user", i, i * 100));
+		}
+		
+		feed.add(views);
+		
+		// The offerings viewed the longest time ago are discarded
+		assertThat(feed.getSize()).isEqualTo(CAPACITY);
+		assertThat(feed.getOfferingsViewedByOtherUsers("other", 10)).containsExactly(6, 5, 4, 3, 2);
+	}
+	
+	@Test
+	public void testRemove() {
+		feed.add(Arrays.asList(view("user1", 1, 100), view("user2", 2, 200)));
+		feed.remove(2);
+		feed.remove(3);
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).containsExactly(1);
+		assertThat(feed.getSize()).isEqualTo(1);
+	}
+	
+	@Test
+	public void testLoadedOnce() {
+		doReturn(Arrays.asList(view("user1", 1, 300), view("user2", 2, 200))).when(viewedOfferingDaoMock)
+				.getLastViews(anyInt());
+		
+		// Views stored before the feed is loaded are merged with the stored ones
+		feed.add(Arrays.asList(view("user3", 3, 250)));
+		
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).containsExactly(1, 3, 2);
+		assertThat(feed.getOfferingsViewedByOtherUsers("user", 10)).containsExactly(1, 3, 2);
+		
+		verify(viewedOfferingDaoMock, times(1)).getLastViews(anyInt());
+	}
+
+}